@@ -2,7 +2,6 @@ package aQute.lib.json;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
@@ -11,6 +10,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -22,8 +22,13 @@ import aQute.lib.converter.TypeReference;
 import aQute.lib.io.IO;
 
 public class Decoder implements Closeable {
+	private static final int	REPLACEMENT	= '\uFFFD';
+
 	final JSONCodec		codec;
+	final StringBuilder	key	= new StringBuilder();
 	Reader				reader;
+	ByteBuffer			bytes;
+	int					lowSurrogate	= -1;
 	int					current;
 	MessageDigest		digest;
 	Map<String, Object>	extra;
@@ -39,6 +44,8 @@ public class Decoder implements Closeable {
 	}
 
 	public Decoder from(File file) throws Exception {
+		if (!inflate && UTF_8.equals(encoding))
+			return from(IO.read(file));
 		return from(IO.stream(file));
 	}
 
@@ -51,7 +58,24 @@ public class Decoder implements Closeable {
 	}
 
 	public Decoder from(byte[] data) throws Exception {
-		return from(new ByteArrayInputStream(data));
+		return from(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Decode from the remaining bytes of a buffer. UTF-8 is decoded directly
+	 * from the bytes, other encodings and inflated content are read through a
+	 * stream.
+	 *
+	 * @param data the bytes to decode, the position of the buffer is not
+	 *            changed
+	 */
+	public Decoder from(ByteBuffer data) throws Exception {
+		if (inflate || !UTF_8.equals(encoding))
+			return from(IO.stream(data.slice()));
+
+		bytes = data.slice();
+		read();
+		return this;
 	}
 
 	public Decoder charset(String encoding) {
@@ -140,7 +164,7 @@ public class Decoder implements Closeable {
 	}
 
 	int read() throws Exception {
-		current = reader.read();
+		current = (bytes != null) ? readUTF8() : reader.read();
 		if (digest != null) {
 			digest.update((byte) (current / 256));
 			digest.update((byte) (current % 256));
@@ -154,6 +178,61 @@ public class Decoder implements Closeable {
 		return current;
 	}
 
+	/*
+	 * Decodes the next character from the UTF-8 bytes. Characters outside the
+	 * BMP are returned as two surrogates and malformed input is replaced like
+	 * an InputStreamReader would.
+	 */
+	private int readUTF8() {
+		if (lowSurrogate >= 0) {
+			int c = lowSurrogate;
+			lowSurrogate = -1;
+			return c;
+		}
+		ByteBuffer bb = bytes;
+		if (!bb.hasRemaining())
+			return -1;
+
+		int b = bb.get();
+		if (b >= 0)
+			return b;
+
+		int n;
+		int c;
+		if ((b & 0xE0) == 0xC0) {
+			n = 1;
+			c = b & 0x1F;
+		} else if ((b & 0xF0) == 0xE0) {
+			n = 2;
+			c = b & 0x0F;
+		} else if ((b & 0xF8) == 0xF0) {
+			n = 3;
+			c = b & 0x07;
+		} else {
+			return REPLACEMENT;
+		}
+		for (int i = 0; i < n; i++) {
+			if (!bb.hasRemaining())
+				return REPLACEMENT;
+			int cont = bb.get(bb.position());
+			if ((cont & 0xC0) != 0x80)
+				return REPLACEMENT;
+			bb.get();
+			c = (c << 6) | (cont & 0x3F);
+		}
+		switch (n) {
+			case 1 :
+				return (c < 0x80) ? REPLACEMENT : c;
+			case 2 :
+				return (c < 0x800 || Character.isSurrogate((char) c)) ? REPLACEMENT : c;
+			default :
+				if (c < 0x10000 || c > Character.MAX_CODE_POINT)
+					return REPLACEMENT;
+				lowSurrogate = Character.lowSurrogate(c);
+				return Character.highSurrogate(c);
+		}
+	}
+
 	int current() {
 		return current;
 	}
@@ -206,7 +285,8 @@ public class Decoder implements Closeable {
 
 	@Override
 	public void close() throws IOException {
-		reader.close();
+		if (reader != null)
+			reader.close();
 	}
 
 	public Map<String, Object> getExtra() {
@@ -216,7 +296,7 @@ public class Decoder implements Closeable {
 	}
 
 	public Decoder inflate() {
-		if (reader != null)
+		if (reader != null || bytes != null)
 			throw new IllegalStateException("Reader already set, inflate must come before from()");
 		inflate = true;
 		return this;
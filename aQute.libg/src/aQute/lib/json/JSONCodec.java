@@ -387,12 +387,21 @@ public class JSONCodec {
 	}
 
 	protected String parseString(Decoder r) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		parseString(r, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Parse a string into a builder, this allows the key of an object to be
+	 * matched without creating a String for it.
+	 */
+	void parseString(Decoder r, StringBuilder sb) throws Exception {
 		char quote = (char) r.current();
 		assert r.current() == '"' || (promiscuous && r.current == '\'');
 
 		int c = r.read(); // skip first "
 
-		StringBuilder sb = new StringBuilder();
 		while (c != quote) {
 			if (c < 0 || Character.isISOControl(c))
 				throw new IllegalArgumentException("JSON strings may not contain control characters: " + r.current());
@@ -449,7 +458,6 @@ public class JSONCodec {
 		}
 		assert c == quote;
 		r.read(); // skip quote
-		return sb.toString();
 	}
 
 	private int hexDigit(int c) throws EOFException {
@@ -1,6 +1,10 @@
 package aQute.lib.json;
 
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
@@ -11,50 +15,131 @@ import java.util.Map;
 import java.util.function.Supplier;
 
 public class ObjectHandler extends Handler {
+	private final static Accessor[]	EMPTY	= new Accessor[0];
+
 	@SuppressWarnings("rawtypes")
-	final Class		rawClass;
-	final Field		fields[];
-	final Type		types[];
-	final Object	defaults[];
-	final Field		extra;
-	final Supplier<?>	factory;
+	final Class						rawClass;
+	final Accessor					accessors[];
+	final Accessor					extra;
+	final Supplier<?>				factory;
+
+	/*
+	 * Open addressing hash table from the keys in the JSON to the accessors,
+	 * the keys are matched against the builder of the decoder so no String is
+	 * created for a known key
+	 */
+	final String					keys[];
+	final Accessor					slots[];
+
+	/**
+	 * Accessor for a public field, the method handles are created once per
+	 * class instead of on every access.
+	 */
+	static class Accessor {
+		final Field			field;
+		final String		name;
+		final Type			type;
+		final MethodHandle	getter;
+		final MethodHandle	setter;
+		Object				defaultValue;
+
+		Accessor(Field field) {
+			this.field = field;
+			this.name = JSONCodec.keyword(field.getName());
+			this.type = field.getGenericType();
+			this.getter = getter(field);
+			this.setter = Modifier.isFinal(field.getModifiers()) ? null : setter(field);
+		}
+
+		Object get(Object targetObject) throws Exception {
+			if (getter == null)
+				return getField(field, targetObject);
+			try {
+				return getter.invokeExact(targetObject);
+			} catch (Error | Exception e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new InvocationTargetException(e);
+			}
+		}
+
+		void set(Object targetObject, Object value) throws Exception {
+			if (setter == null) {
+				setField(field, targetObject, value);
+				return;
+			}
+			try {
+				setter.invokeExact(targetObject, value);
+			} catch (Error | Exception e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new InvocationTargetException(e);
+			}
+		}
+
+		// access failures are reported on use, like before
+		private static MethodHandle getter(Field field) {
+			try {
+				return PUBLIC_LOOKUP.unreflectGetter(field)
+					.asType(methodType(Object.class, Object.class));
+			} catch (IllegalAccessException e) {
+				return null;
+			}
+		}
+
+		private static MethodHandle setter(Field field) {
+			try {
+				return PUBLIC_LOOKUP.unreflectSetter(field)
+					.asType(methodType(void.class, Object.class, Object.class));
+			} catch (IllegalAccessException e) {
+				return null;
+			}
+		}
+	}
 
 	ObjectHandler(JSONCodec codec, Class<?> c) throws Exception {
 		rawClass = c;
 		factory = newInstanceFunction(c);
-		List<Field> fields = new ArrayList<>();
+		List<Accessor> accessors = new ArrayList<>();
 		for (Field f : c.getFields()) {
 			if (Modifier.isStatic(f.getModifiers()))
 				continue;
-			fields.add(f);
+			accessors.add(new Accessor(f));
 		}
 
-		this.fields = fields.toArray(new Field[0]);
+		this.accessors = accessors.toArray(EMPTY);
 
 		// Sort the fields so the output is canonical
-		Arrays.sort(this.fields, (o1, o2) -> o1.getName()
-			.compareTo(o2.getName()));
+		Arrays.sort(this.accessors, (o1, o2) -> o1.field.getName()
+			.compareTo(o2.field.getName()));
 
-		types = new Type[this.fields.length];
-		defaults = new Object[this.fields.length];
-
-		Field x = null;
-		for (int i = 0; i < this.fields.length; i++) {
-			if (this.fields[i].getName()
+		Accessor x = null;
+		for (Accessor accessor : this.accessors) {
+			if (accessor.field.getName()
 				.equals("__extra"))
-				x = this.fields[i];
-			types[i] = this.fields[i].getGenericType();
+				x = accessor;
 		}
-		if (x != null && Map.class.isAssignableFrom(x.getType()))
+		if (x != null && Map.class.isAssignableFrom(x.field.getType()))
 			extra = x;
 		else
 			extra = null;
 
+		int size = Integer.highestOneBit(Math.max(1, this.accessors.length) * 4);
+		keys = new String[size];
+		slots = new Accessor[size];
+		// the field name has precedence over the keyword name
+		for (Accessor accessor : this.accessors) {
+			put(accessor.field.getName(), accessor);
+		}
+		for (Accessor accessor : this.accessors) {
+			put(accessor.name, accessor);
+		}
+
 		try {
 			Object template = factory.get();
 
-			for (int i = 0; i < this.fields.length; i++) {
-				defaults[i] = getField(this.fields[i], template);
+			for (Accessor accessor : this.accessors) {
+				accessor.defaultValue = accessor.get(template);
 			}
 		} catch (Exception e) {
 			// Ignore
@@ -66,19 +151,18 @@ public class ObjectHandler extends Handler {
 		app.append("{");
 		app.indent();
 		String del = "";
-		for (int i = 0; i < fields.length; i++)
+		for (Accessor accessor : accessors)
 			try {
-				Field field = fields[i];
-				String actualName = JSONCodec.keyword(field.getName());
-				if (actualName.startsWith("__"))
+				if (accessor.name.startsWith("__"))
 					continue;
 
-				Object value = getField(fields[i], object);
+				Object value = accessor.get(object);
 				if (!app.writeDefaults) {
-					if (value == defaults[i])
+					Object defaultValue = accessor.defaultValue;
+					if (value == defaultValue)
 						continue;
 
-					if (value != null && value.equals(defaults[i]))
+					if (value != null && value.equals(defaultValue))
 						continue;
 				}
 
@@ -86,12 +170,12 @@ public class ObjectHandler extends Handler {
 				if (!del.isEmpty()) {
 					app.linebreak();
 				}
-				StringHandler.string(app, actualName);
+				StringHandler.string(app, accessor.name);
 				app.append(":");
-				app.encode(value, types[i], visited);
+				app.encode(value, accessor.type, visited);
 				del = ",";
 			} catch (Exception e) {
-				throw new IllegalArgumentException(fields[i].getName() + ":", e);
+				throw new IllegalArgumentException(accessor.field.getName() + ":", e);
 			}
 		app.undent();
 		app.append("}");
@@ -103,11 +187,13 @@ public class ObjectHandler extends Handler {
 		@SuppressWarnings("unchecked")
 		Object targetObject = factory.get();
 
+		StringBuilder key = r.key;
 		int c = r.next();
 		while (r.codec.isStartCharacter(c)) {
 
 			// Get key
-			String key = r.codec.parseString(r);
+			key.setLength(0);
+			r.codec.parseString(r, key);
 
 			// Get separator
 			c = r.skipWs();
@@ -118,34 +204,36 @@ public class ObjectHandler extends Handler {
 
 			// Get value
 
-			Field f = getField(key);
-			if (f != null) {
+			Accessor accessor = getAccessor(key);
+			if (accessor != null) {
 				// We have a field and thus a type
-				Object value = r.codec.decode(f.getGenericType(), r);
+				Object value = r.codec.decode(accessor.type, r);
 				if (value != null || !r.codec.ignorenull) {
-					if (Modifier.isFinal(f.getModifiers()))
-						throw new IllegalArgumentException("Field " + f + " is final");
+					if (Modifier.isFinal(accessor.field.getModifiers()))
+						throw new IllegalArgumentException("Field " + accessor.field + " is final");
 
-					setField(f, targetObject, value);
+					accessor.set(targetObject, value);
 				}
 			} else {
+				// the builder is reused by nested objects
+				String name = key.toString();
 				// No field, but may extra is defined
 				if (extra == null) {
 					if (r.strict)
-						throw new IllegalArgumentException("No such field " + key);
+						throw new IllegalArgumentException("No such field " + name);
 					Object value = r.codec.decode(null, r);
 					r.getExtra()
-						.put(rawClass.getName() + "." + key, value);
+						.put(rawClass.getName() + "." + name, value);
 				} else {
 
 					@SuppressWarnings("unchecked")
-					Map<String, Object> map = (Map<String, Object>) getField(extra, targetObject);
+					Map<String, Object> map = (Map<String, Object>) extra.get(targetObject);
 					if (map == null) {
 						map = new LinkedHashMap<>();
-						setField(extra, targetObject, map);
+						extra.set(targetObject, map);
 					}
 					Object value = r.codec.decode(null, r);
-					map.put(key, value);
+					map.put(name, value);
 				}
 			}
 
@@ -172,15 +260,27 @@ public class ObjectHandler extends Handler {
 		return targetObject;
 	}
 
-	private Field getField(String key) {
-		for (Field field : fields) {
-			if (key.equals(field.getName()))
-				return field;
+	private void put(String key, Accessor accessor) {
+		int mask = keys.length - 1;
+		int i = key.hashCode() & mask;
+		while (keys[i] != null) {
+			if (keys[i].equals(key))
+				return;
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		slots[i] = accessor;
+	}
+
+	private Accessor getAccessor(CharSequence key) {
+		int h = 0;
+		for (int i = 0; i < key.length(); i++) {
+			h = 31 * h + key.charAt(i);
 		}
-		String fixup = JSONCodec.name(key);
-		for (Field field : fields) {
-			if (fixup.equals(field.getName()))
-				return field;
+		int mask = keys.length - 1;
+		for (int i = h & mask; keys[i] != null; i = (i + 1) & mask) {
+			if (keys[i].contentEquals(key))
+				return slots[i];
 		}
 		return null;
 	}
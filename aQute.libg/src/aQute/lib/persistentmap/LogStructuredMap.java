@@ -0,0 +1,803 @@
+package aQute.lib.persistentmap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import aQute.lib.io.IO;
+import aQute.lib.json.JSONCodec;
+import aQute.lib.strings.Strings;
+
+/**
+ * A persistent map that is backed by a directory, like {@link PersistentMap},
+ * but that stores all entries in a single append-only log file. The values are
+ * stored as JSON and therefore should be DTOs.
+ * <p>
+ * An in-memory index maps each key to the position of its latest record in
+ * the log, values are read on demand and cached through soft references. Each
+ * record in the log has a checksum, when the map is opened the log is scanned
+ * and a record that was only partially written, e.g. when the process crashed,
+ * is truncated. A record is checked against its key and checksum whenever its
+ * value is read. When more than half of the log is taken by overwritten or
+ * removed entries the log is compacted into a new file that atomically replaces
+ * it, clearing the map also replaces the log. The log is never truncated in
+ * place, a process that still uses the replaced log reads consistent values
+ * until it notices the replacement.
+ * <p>
+ * Any number of threads can read while a single thread at a time modifies the
+ * map. Modifications also lock the directory so other processes can share it,
+ * the modifications of another process become visible when this map is
+ * modified or, when the log was replaced, when a value is read from the log.
+ * <p>
+ * The entries in the data directory of a {@link PersistentMap} are imported
+ * into the log when the map is opened. The data directory is kept for older
+ * versions that share the directory, later changes to its files are imported
+ * the next time a map is opened but removals are not.
+ */
+public class LogStructuredMap<V> extends AbstractMap<String, V> implements Closeable {
+	private final static JSONCodec					codec			= new JSONCodec();
+	private final static int						MAGIC			= 0x424E444C;
+	private final static int						HEADER			= 8;
+	private final static int						RECORD_HEADER	= 8;
+	private final static byte						PUT				= 1;
+	private final static byte						REMOVE			= 2;
+	private final static long						COMPACT_MIN		= 64 * 1024L;
+	private final static String						MIGRATED		= "migrated";
+
+	final File										dir;
+	final Type										type;
+	private final Path								log;
+	private final FileChannel						lockChannel;
+	private final ConcurrentMap<String, Entry<V>>	index	= new ConcurrentHashMap<>();
+	private final ReadWriteLock						rw		= new ReentrantReadWriteLock();
+	private volatile FileChannel					channel;
+	private long									end;
+	private long									garbage;
+	private long									generation;
+	private volatile boolean						closed;
+
+	private static final class Entry<V> {
+		final long					position;
+		final int					size;
+		final long					time;
+		final int					length;
+		volatile SoftReference<V>	cached;
+
+		Entry(long position, int size, long time, int length) {
+			this.position = position;
+			this.size = size;
+			this.time = time;
+			this.length = length;
+		}
+
+		V cached() {
+			SoftReference<V> ref = cached;
+			return (ref != null) ? ref.get() : null;
+		}
+	}
+
+	public LogStructuredMap(File dir, Type type) throws Exception {
+		this.dir = dir;
+		this.type = type;
+		IO.mkdirs(dir);
+		if (!dir.isDirectory())
+			throw new IllegalArgumentException("LogStructuredMap cannot create directory " + dir);
+
+		if (!dir.canWrite())
+			throw new IllegalArgumentException("LogStructuredMap cannot write directory " + dir);
+
+		log = new File(dir, "log").toPath();
+		lockChannel = FileChannel.open(new File(dir, "lock").toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			FileLock lock = lock();
+			try {
+				open();
+				migrate();
+			} finally {
+				lock.release();
+			}
+		} catch (Exception e) {
+			IO.close(channel);
+			IO.close(lockChannel);
+			throw e;
+		}
+	}
+
+	public LogStructuredMap(File dir, Class<V> type) throws Exception {
+		this(dir, (Type) type);
+	}
+
+	public LogStructuredMap(File dir, Class<V> type, Map<String, V> map) throws Exception {
+		this(dir, (Type) type);
+		putAll(map);
+	}
+
+	public LogStructuredMap(File dir, Type type, Map<String, V> map) throws Exception {
+		this(dir, type);
+		putAll(map);
+	}
+
+	@Override
+	public V get(Object key) {
+		check();
+		Entry<V> entry = index.get(key);
+		if (entry == null)
+			return null;
+		V value = entry.cached();
+		if (value != null)
+			return value;
+
+		rw.readLock()
+			.lock();
+		try {
+			// another process replaced the log when the generation changed,
+			// the positions in the index are then no longer valid
+			if (generation() == generation) {
+				// the entry is moved when the log was compacted
+				entry = index.get(key);
+				if (entry == null)
+					return null;
+				ByteBuffer data = data((String) key, entry);
+				if (data != null)
+					return decode(entry, data);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			rw.readLock()
+				.unlock();
+		}
+		return reload((String) key);
+	}
+
+	/*
+	 * Reads the log again and answers the value of a key
+	 */
+	private synchronized V reload(String key) {
+		check();
+		try {
+			FileLock lock = lock();
+			try {
+				sync();
+				Entry<V> entry = index.get(key);
+				return (entry != null) ? value(key, entry) : null;
+			} finally {
+				lock.release();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		check();
+		return index.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		check();
+		return index.size();
+	}
+
+	@Override
+	public synchronized V put(String key, V value) {
+		check();
+		try {
+			byte[] data = codec.enc()
+				.put(value)
+				.toString()
+				.getBytes(UTF_8);
+			FileLock lock = lock();
+			try {
+				sync();
+				Entry<V> old = index.get(key);
+				V previous = (old != null) ? value(key, old) : null;
+				Entry<V> entry = append(PUT, key, System.currentTimeMillis(), data, 0, data.length);
+				entry.cached = new SoftReference<>(value);
+				index.put(key, entry);
+				if (old != null)
+					garbage += old.size;
+				compact();
+				return previous;
+			} finally {
+				lock.release();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public synchronized V remove(Object key) {
+		check();
+		try {
+			FileLock lock = lock();
+			try {
+				sync();
+				Entry<V> old = index.get(key);
+				if (old == null)
+					return null;
+				V previous = value((String) key, old);
+				Entry<V> entry = append(REMOVE, (String) key, System.currentTimeMillis(), null, 0, 0);
+				index.remove(key);
+				garbage += old.size + entry.size;
+				compact();
+				return previous;
+			} finally {
+				lock.release();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		check();
+		try {
+			FileLock lock = lock();
+			try {
+				sync();
+				if (!rewrite(Collections.emptyMap())) {
+					for (Map.Entry<String, Entry<V>> e : index.entrySet()) {
+						Entry<V> entry = append(REMOVE, e.getKey(), System.currentTimeMillis(), null, 0, 0);
+						garbage += e.getValue().size + entry.size;
+					}
+					index.clear();
+				}
+			} finally {
+				lock.release();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Catch up with the modifications that other instances, in this or another
+	 * process, made to the log. The keys are otherwise only read again when
+	 * this map is modified. This is cheap when nothing was modified.
+	 */
+	public synchronized void refresh() {
+		check();
+		try {
+			if ((generation() == generation) && (channel.size() <= end))
+				return;
+			FileLock lock = lock();
+			try {
+				sync();
+			} finally {
+				lock.release();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Remove the entries that were last modified before the given time.
+	 *
+	 * @param whenOlder the time in milliseconds since the epoch
+	 */
+	public synchronized void clear(long whenOlder) {
+		check();
+		try {
+			FileLock lock = lock();
+			try {
+				sync();
+				for (Map.Entry<String, Entry<V>> e : index.entrySet()) {
+					Entry<V> old = e.getValue();
+					if (old.time < whenOlder) {
+						Entry<V> entry = append(REMOVE, e.getKey(), System.currentTimeMillis(), null, 0, 0);
+						index.remove(e.getKey());
+						garbage += old.size + entry.size;
+					}
+				}
+				compact();
+			} finally {
+				lock.release();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Set<String> keySet() {
+		check();
+		return new AbstractSet<String>() {
+			@Override
+			public int size() {
+				return index.size();
+			}
+
+			@Override
+			public boolean contains(Object key) {
+				return index.containsKey(key);
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>() {
+					final Iterator<String>	it	= index.keySet()
+						.iterator();
+					String					key;
+
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public String next() {
+						return key = it.next();
+					}
+
+					@Override
+					public void remove() {
+						LogStructuredMap.this.remove(key);
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<String, V>> entrySet() {
+		check();
+		return new AbstractSet<Map.Entry<String, V>>() {
+			@Override
+			public int size() {
+				return index.size();
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, V>> iterator() {
+				return new Iterator<Map.Entry<String, V>>() {
+					final Iterator<String>	it	= keySet().iterator();
+					Map.Entry<String, V>	next;
+
+					@Override
+					public boolean hasNext() {
+						while (next == null && it.hasNext()) {
+							String key = it.next();
+							V value = get(key);
+							// removed concurrently
+							if (value != null)
+								next = new SimpleEntry<String, V>(key, value) {
+									private static final long serialVersionUID = 1L;
+
+									@Override
+									public V setValue(V value) {
+										super.setValue(value);
+										return put(getKey(), value);
+									}
+								};
+						}
+						return next != null;
+					}
+
+					@Override
+					public Map.Entry<String, V> next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						Map.Entry<String, V> result = next;
+						next = null;
+						return result;
+					}
+
+					@Override
+					public void remove() {
+						it.remove();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		IO.close(channel);
+		lockChannel.close();
+	}
+
+	@Override
+	public String toString() {
+		return "LogStructuredMap[" + dir + "] " + super.toString();
+	}
+
+	private void check() {
+		if (closed)
+			throw new IllegalStateException("LogStructuredMap " + dir + " is already closed");
+	}
+
+	/*
+	 * Answer the value of an entry, it is read from the log when it is not
+	 * cached. Must be called while modifying.
+	 */
+	private V value(String key, Entry<V> entry) throws IOException {
+		V value = entry.cached();
+		if (value != null)
+			return value;
+		ByteBuffer data = data(key, entry);
+		if (data == null)
+			throw new IOException("LogStructuredMap " + log + " has no valid record for " + key + " at " + entry.position);
+		return decode(entry, data);
+	}
+
+	@SuppressWarnings("unchecked")
+	private V decode(Entry<V> entry, ByteBuffer data) throws IOException {
+		V value;
+		try {
+			value = (V) codec.dec()
+				.from(data)
+				.get(type);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("LogStructuredMap " + log + " cannot decode value at " + entry.position, e);
+		}
+		entry.cached = new SoftReference<>(value);
+		return value;
+	}
+
+	/*
+	 * Reads the record of an entry and answers its value, or null when the
+	 * record at the position is not the record of the key. Must be called with
+	 * the read lock or while modifying.
+	 */
+	private ByteBuffer data(String key, Entry<V> entry) throws IOException {
+		ByteBuffer bb;
+		try {
+			bb = read(channel, entry.position, entry.size);
+		} catch (EOFException e) {
+			return null;
+		}
+		int body = bb.getInt();
+		int checksum = bb.getInt();
+		if (body != entry.size - RECORD_HEADER)
+			return null;
+		CRC32 crc = new CRC32();
+		crc.update(bb.array(), RECORD_HEADER, body);
+		if ((int) crc.getValue() != checksum || bb.get() != PUT)
+			return null;
+		bb.getLong();
+		byte[] k = key.getBytes(UTF_8);
+		int keyLength = bb.getInt();
+		int offset = bb.position();
+		if (keyLength != k.length || !Arrays.equals(bb.array(), offset, offset + keyLength, k, 0, k.length))
+			return null;
+		bb.position(offset + keyLength);
+		return bb.slice();
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer bb = ByteBuffer.allocate(length);
+		while (bb.hasRemaining()) {
+			if (channel.read(bb, position + bb.position()) < 0)
+				throw new EOFException();
+		}
+		bb.flip();
+		return bb;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer bb, long position) throws IOException {
+		while (bb.hasRemaining()) {
+			channel.write(bb, position + bb.position());
+		}
+	}
+
+	/*
+	 * Appends a record to the log, must be called while modifying
+	 */
+	private Entry<V> append(byte op, String key, long time, byte[] data, int offset, int length) throws IOException {
+		Entry<V> entry = write(channel, end, op, key, time, data, offset, length);
+		end += entry.size;
+		return entry;
+	}
+
+	private static <V> Entry<V> write(FileChannel channel, long position, byte op, String key, long time, byte[] data,
+		int offset, int length) throws IOException {
+		byte[] k = key.getBytes(UTF_8);
+		int body = 1 + 8 + 4 + k.length + length;
+		ByteBuffer bb = ByteBuffer.allocate(RECORD_HEADER + body);
+		bb.position(RECORD_HEADER);
+		bb.put(op)
+			.putLong(time)
+			.putInt(k.length)
+			.put(k);
+		if (data != null)
+			bb.put(data, offset, length);
+		CRC32 crc = new CRC32();
+		crc.update(bb.array(), RECORD_HEADER, body);
+		bb.putInt(0, body)
+			.putInt(4, (int) crc.getValue());
+		bb.flip();
+		write(channel, bb, position);
+		return new Entry<>(position, RECORD_HEADER + body, time, length);
+	}
+
+	private static void writeHeader(FileChannel channel) throws IOException {
+		ByteBuffer bb = ByteBuffer.allocate(HEADER);
+		bb.putInt(MAGIC)
+			.putInt(0)
+			.flip();
+		write(channel, bb, 0);
+	}
+
+	/*
+	 * Opens the log and reads its records, must be called while the directory
+	 * is locked
+	 */
+	private void open() throws IOException {
+		channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		generation = generation();
+		index.clear();
+		garbage = 0;
+		if (channel.size() < HEADER) {
+			channel.truncate(0);
+			writeHeader(channel);
+			end = HEADER;
+			return;
+		}
+		ByteBuffer header = read(channel, 0, HEADER);
+		if (header.getInt() != MAGIC)
+			throw new IOException("LogStructuredMap " + log + " is not a log");
+		end = HEADER;
+		replay();
+	}
+
+	/*
+	 * Reads the records from the end of the log as we know it. A record that
+	 * is incomplete or does not match its checksum was not completely written
+	 * and is truncated with all records after it.
+	 */
+	private void replay() throws IOException {
+		long size = channel.size();
+		if (size <= end)
+			return;
+		DataInputStream in = new DataInputStream(
+			new BufferedInputStream(Channels.newInputStream(channel.position(end)), 64 * 1024));
+		CRC32 crc = new CRC32();
+		long position = end;
+		try {
+			while (position < size) {
+				int body = in.readInt();
+				int checksum = in.readInt();
+				if (body < 1 + 8 + 4 || body > size - position - RECORD_HEADER)
+					break;
+				byte[] data = new byte[body];
+				in.readFully(data);
+				crc.reset();
+				crc.update(data, 0, body);
+				if ((int) crc.getValue() != checksum)
+					break;
+				ByteBuffer bb = ByteBuffer.wrap(data);
+				byte op = bb.get();
+				long time = bb.getLong();
+				int keyLength = bb.getInt();
+				if (keyLength < 0 || keyLength > bb.remaining())
+					break;
+				String key = new String(data, bb.position(), keyLength, UTF_8);
+				int offset = bb.position() + keyLength;
+				Entry<V> entry = new Entry<>(position, RECORD_HEADER + body, time, body - offset);
+				Entry<V> old;
+				switch (op) {
+					case PUT -> old = index.put(key, entry);
+					case REMOVE -> {
+						old = index.remove(key);
+						garbage += entry.size;
+					}
+					default -> throw new IOException("LogStructuredMap " + log + " has unknown record " + op);
+				}
+				if (old != null)
+					garbage += old.size;
+				position += entry.size;
+			}
+		} catch (EOFException e) {
+			// incomplete record
+		}
+		end = position;
+		if (end < size)
+			channel.truncate(end);
+	}
+
+	/*
+	 * Catches up with the modifications of other processes, must be called
+	 * while the directory is locked
+	 */
+	private void sync() throws IOException {
+		if (generation() != generation) {
+			rw.writeLock()
+				.lock();
+			try {
+				channel.close();
+				open();
+			} finally {
+				rw.writeLock()
+					.unlock();
+			}
+		} else {
+			replay();
+		}
+	}
+
+	/*
+	 * Rewrites the live entries into a new log when more than half of the log
+	 * is garbage, must be called while modifying
+	 */
+	private void compact() throws IOException {
+		if (garbage < COMPACT_MIN || garbage < (end - HEADER) / 2)
+			return;
+		rewrite(index);
+	}
+
+	/*
+	 * Writes the entries into a new log that replaces the log. Another process
+	 * keeps reading the replaced log until it sees the new generation. Answers
+	 * false when the log could not be replaced, must be called while modifying.
+	 */
+	private boolean rewrite(Map<String, Entry<V>> entries) throws IOException {
+		Path tmp = new File(dir, "log.tmp").toPath();
+		Map<String, Entry<V>> rewritten = new LinkedHashMap<>();
+		try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			writeHeader(out);
+			long position = HEADER;
+			for (Map.Entry<String, Entry<V>> e : entries.entrySet()) {
+				Entry<V> old = e.getValue();
+				ByteBuffer data = data(e.getKey(), old);
+				if (data == null)
+					throw new IOException(
+						"LogStructuredMap " + log + " has no valid record for " + e.getKey() + " at " + old.position);
+				Entry<V> entry = write(out, position, PUT, e.getKey(), old.time, data.array(), data.arrayOffset(),
+					old.length);
+				entry.cached = old.cached;
+				rewritten.put(e.getKey(), entry);
+				position += entry.size;
+			}
+			out.force(true);
+		}
+
+		rw.writeLock()
+			.lock();
+		try {
+			try {
+				IO.rename(tmp, log);
+			} catch (IOException e) {
+				// e.g. the log is still open in another process on Windows
+				IO.delete(tmp);
+				return false;
+			}
+			channel.close();
+			channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			index.putAll(rewritten);
+			index.keySet()
+				.retainAll(rewritten.keySet());
+			end = channel.size();
+			garbage = 0;
+			newGeneration();
+			return true;
+		} finally {
+			rw.writeLock()
+				.unlock();
+		}
+	}
+
+	/*
+	 * The directory of a PersistentMap has a file per key in its data
+	 * directory. The files that changed since the last import and are newer
+	 * than the entry of their key are appended to the log. The data directory
+	 * is kept since older versions can share the directory.
+	 */
+	private void migrate() throws IOException {
+		File data = new File(dir, "data");
+		if (!data.isDirectory())
+			return;
+
+		File migrated = new File(dir, MIGRATED);
+		long since = migrated.isFile() ? migrated.lastModified() : Long.MIN_VALUE;
+		long now = System.currentTimeMillis();
+		boolean changed = false;
+		for (File file : IO.listFiles(data)) {
+			long lastModified = file.lastModified();
+			if (lastModified < since)
+				continue;
+			String key = Strings.unescape(file.getName(), '~')
+				.orElse(null);
+			if (key == null)
+				continue;
+			Entry<V> old = index.get(key);
+			if (old != null && old.time >= lastModified)
+				continue;
+			byte[] value = IO.read(file);
+			Entry<V> entry = append(PUT, key, lastModified, value, 0, value.length);
+			index.put(key, entry);
+			if (old != null)
+				garbage += old.size;
+			changed = true;
+		}
+		if (changed)
+			channel.force(true);
+		IO.store("", migrated);
+		migrated.setLastModified(now);
+	}
+
+	/*
+	 * The generation in the lock file changes when the log is replaced or
+	 * truncated, another process must then read the log again
+	 */
+	private long generation() throws IOException {
+		if (lockChannel.size() < 8)
+			return 0;
+		return read(lockChannel, 0, 8).getLong();
+	}
+
+	private void newGeneration() throws IOException {
+		generation = generation() + 1;
+		ByteBuffer bb = ByteBuffer.allocate(8);
+		bb.putLong(generation)
+			.flip();
+		write(lockChannel, bb, 0);
+	}
+
+	private FileLock lock() throws IOException, InterruptedException {
+		int count = 400;
+		while (true)
+			try {
+				return lockChannel.lock();
+			} catch (OverlappingFileLockException e) {
+				if (count-- > 0)
+					TimeUnit.MILLISECONDS.sleep(5);
+				else
+					throw new IOException("LogStructuredMap " + dir + " could not obtain lock");
+			}
+	}
+}
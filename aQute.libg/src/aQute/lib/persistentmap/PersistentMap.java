@@ -28,7 +28,11 @@ import aQute.lib.strings.Strings;
  * The PersistentMap will attempt to lock the directory. This is a
  * non-concurrent implementation so you must ensure it is only used in a single
  * thread. It cannot of course also not share the data directory.
+ *
+ * @deprecated Use {@link LogStructuredMap}, which migrates the directory of a
+ *             PersistentMap.
  */
+@Deprecated
 public class PersistentMap<V> extends AbstractMap<String, V> implements Closeable {
 
 	private static final char			ESCAPE	= '~';
@@ -136,24 +140,10 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 					}
 
 					@Override
-					@SuppressWarnings("unchecked")
 					public java.util.Map.Entry<String, V> next() {
 						try {
 							entry = it.next();
-							SoftReference<V> ref = entry.getValue();
-							V value = null;
-							if (ref != null)
-								value = ref.get();
-
-							if (value == null) {
-								File file = keyToFile(entry.getKey());
-								value = (V) codec.dec()
-									.from(file)
-									.get(type);
-								entry.setValue(new SoftReference<>(value));
-							}
-
-							final V v = value;
+							final V v = load(entry.getKey());
 
 							return new Map.Entry<String, V>() {
 
@@ -187,6 +177,51 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 		};
 	}
 
+	/*
+	 * A lookup only has to read the file of the key instead of iterating over
+	 * all entries like AbstractMap does
+	 */
+	@Override
+	public V get(Object key) {
+		init();
+		if (!cache.containsKey(key))
+			return null;
+		try {
+			return load((String) key);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		init();
+		return cache.containsKey(key);
+	}
+
+	/*
+	 * Answer the value of an existing key, it is read from its file when it is
+	 * not cached
+	 */
+	@SuppressWarnings("unchecked")
+	private V load(String key) throws Exception {
+		SoftReference<V> ref = cache.get(key);
+		V value = null;
+		if (ref != null)
+			value = ref.get();
+
+		if (value == null) {
+			File file = keyToFile(key);
+			value = (V) codec.dec()
+				.from(file)
+				.get(type);
+			cache.put(key, new SoftReference<>(value));
+		}
+		return value;
+	}
+
 	@Override
 	public V put(String key, V value) {
 		init();
@@ -250,8 +285,8 @@ public class PersistentMap<V> extends AbstractMap<String, V> implements Closeabl
 			try {
 				File file = keyToFile(key);
 				IO.deleteWithException(file);
-				return cache.remove(key)
-					.get();
+				SoftReference<V> ref = cache.remove(key);
+				return (ref != null) ? ref.get() : null;
 			} finally {
 				unlock(lock);
 			}
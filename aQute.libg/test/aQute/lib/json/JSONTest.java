@@ -17,6 +17,8 @@ import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -1411,4 +1413,33 @@ public class JSONTest {
 		assertThat(x.while__).isEqualTo("1");
 		assertThat(x.___).isEqualTo(1L);
 	}
+
+	@Test
+	public void testDecodeUTF8Bytes() throws Exception {
+		String json = "{\"_\":1,\"if\":2,\"while\":\"h\u00e9 \u4e2d \ud83d\ude00 \\u00e9\",\"extra\":{\"if\":3}}";
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+		KeywordDTO x = new JSONCodec().dec()
+			.from(bytes)
+			.get(KeywordDTO.class);
+		assertThat(x.___).isEqualTo(1L);
+		assertThat(x.if__).isEqualTo(2);
+		assertThat(x.while__).isEqualTo("h\u00e9 \u4e2d \ud83d\ude00 \u00e9");
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		Decoder dec = new JSONCodec().dec()
+			.from(buffer);
+		Object fromBuffer = dec.get();
+		assertThat(buffer.position()).isZero();
+		assertThat(fromBuffer).isEqualTo(new JSONCodec().dec()
+			.from(json)
+			.get());
+
+		// malformed UTF-8 is replaced
+		assertThat(new JSONCodec().dec()
+			.from(new byte[] {
+				'"', (byte) 0xC3, 'a', '"'
+			})
+			.get()).isEqualTo("\ufffda");
+	}
 }
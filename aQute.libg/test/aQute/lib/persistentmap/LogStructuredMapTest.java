@@ -0,0 +1,259 @@
+package aQute.lib.persistentmap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+
+public class LogStructuredMapTest {
+
+	public static class X {
+		public String		abc;
+		public int			def;
+		public List<String>	list	= new ArrayList<>();
+	}
+
+	@Test
+	public void testSimple(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		try (LogStructuredMap<String> map = new LogStructuredMap<>(tmp, String.class)) {
+			assertThat(map.put("abc", "def")).isNull();
+			assertThat(map.put("abc", "xyz")).isEqualTo("def");
+			assertThat(map.put("abc/../..", "1")).isNull();
+			assertThat(map.remove("abc/../..")).isEqualTo("1");
+			assertThat(map.remove("missing")).isNull();
+		}
+
+		try (LogStructuredMap<String> map = new LogStructuredMap<>(tmp, String.class)) {
+			assertThat(map).containsOnlyKeys("abc")
+				.containsEntry("abc", "xyz");
+			for (Map.Entry<String, String> e : map.entrySet()) {
+				e.setValue("XXX");
+			}
+			assertThat(map.get("abc")).isEqualTo("XXX");
+			map.keySet()
+				.removeIf("abc"::equals);
+			assertThat(map).isEmpty();
+		}
+	}
+
+	@Test
+	public void testIncompleteRecordIsTruncated(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		try (LogStructuredMap<String> map = new LogStructuredMap<>(tmp, String.class)) {
+			map.put("abc", "def");
+		}
+		File log = new File(tmp, "log");
+		long length = log.length();
+		try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+			raf.seek(length);
+			raf.write(new byte[] {
+				0, 0, 0, 40, 1, 2, 3
+			});
+		}
+
+		try (LogStructuredMap<String> map = new LogStructuredMap<>(tmp, String.class)) {
+			assertThat(log).hasSize(length);
+			assertThat(map).containsOnlyKeys("abc");
+			map.put("ghi", "jkl");
+		}
+		try (LogStructuredMap<String> map = new LogStructuredMap<>(tmp, String.class)) {
+			assertThat(map).containsEntry("abc", "def")
+				.containsEntry("ghi", "jkl");
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testRefresh(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		try (LogStructuredMap<String> reader = new LogStructuredMap<>(tmp, String.class);
+			LogStructuredMap<String> writer = new LogStructuredMap<>(tmp, String.class)) {
+			writer.put("abc", "def");
+			assertThat(reader).isEmpty();
+			reader.refresh();
+			assertThat(reader).containsOnlyKeys("abc")
+				.containsEntry("abc", "def");
+
+			writer.clear();
+			writer.put("ghi", "jkl");
+			reader.refresh();
+			assertThat(reader).containsOnlyKeys("ghi")
+				.containsEntry("ghi", "jkl");
+		}
+	}
+
+	@Test
+	public void testMigratePersistentMap(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		try (PersistentMap<X> pm = new PersistentMap<>(tmp, X.class)) {
+			X x = new X();
+			x.abc = "def";
+			x.def = 5;
+			x.list.add("abc");
+			pm.put("abc/..", x);
+			pm.put("ghi", new X());
+		}
+
+		try (LogStructuredMap<X> map = new LogStructuredMap<>(tmp, X.class)) {
+			assertThat(map).containsOnlyKeys("abc/..", "ghi");
+			X x = map.get("abc/..");
+			assertThat(x.abc).isEqualTo("def");
+			assertThat(x.def).isEqualTo(5);
+			assertThat(x.list).containsExactly("abc");
+			map.remove("ghi");
+		}
+		long length = new File(tmp, "log").length();
+
+		// the data is kept for older versions that share the directory
+		try (PersistentMap<X> pm = new PersistentMap<>(tmp, X.class)) {
+			assertThat(pm).containsOnlyKeys("abc/..", "ghi");
+			X x = new X();
+			x.abc = "changed";
+			pm.put("jkl", x);
+		}
+		new File(tmp, "data/jkl").setLastModified(System.currentTimeMillis() + 10_000);
+
+		try (LogStructuredMap<X> map = new LogStructuredMap<>(tmp, X.class)) {
+			assertThat(map).containsOnlyKeys("abc/..", "jkl");
+			assertThat(map.get("jkl").abc).isEqualTo("changed");
+		}
+		long imported = new File(tmp, "log").length();
+		assertThat(imported).isGreaterThan(length);
+
+		try (LogStructuredMap<X> map = new LogStructuredMap<>(tmp, X.class)) {
+			assertThat(map).containsOnlyKeys("abc/..", "jkl");
+		}
+		assertThat(new File(tmp, "log")).hasSize(imported);
+	}
+
+	@Test
+	public void testCompactWhileReading(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (LogStructuredMap<String> map = new LogStructuredMap<>(tmp, String.class)) {
+			for (int i = 0; i < 100; i++) {
+				map.put("k" + i, "v0");
+			}
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 3; t++) {
+				futures.add(executor.submit(() -> {
+					for (int r = 0; r < 10_000; r++) {
+						assertThat(map.get("k" + (r % 100))).startsWith("v");
+					}
+					return null;
+				}));
+			}
+			futures.add(executor.submit(() -> {
+				for (int r = 1; r <= 100; r++) {
+					for (int i = 0; i < 100; i++) {
+						map.put("k" + i, "v" + r + "-" + "x".repeat(50));
+					}
+				}
+				return null;
+			}));
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			// compacted to about the size of the live entries
+			assertThat(new File(tmp, "log").length()).isLessThan(100L * 100 * 4);
+		} finally {
+			executor.shutdown();
+		}
+
+		try (LogStructuredMap<String> map = new LogStructuredMap<>(tmp, String.class)) {
+			assertThat(map).hasSize(100);
+			assertThat(map.get("k7")).startsWith("v100-");
+		}
+	}
+
+	/**
+	 * Another process clears the map and writes new values while this process
+	 * reads the values at the positions of the old log.
+	 */
+	@Test
+	public void testClearInAnotherProcess(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		try (LogStructuredMap<String> writer = new LogStructuredMap<>(tmp, String.class)) {
+			for (int i = 0; i < 100; i++) {
+				writer.put("k" + i, "old-k" + i + "-" + "x".repeat(i));
+			}
+		}
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (LogStructuredMap<String> reader = new LogStructuredMap<>(tmp, String.class)) {
+			AtomicBoolean done = new AtomicBoolean();
+			Future<Integer> reads = executor.submit(() -> {
+				int n = 0;
+				do {
+					for (int i = 0; i < 50; i++) {
+						String value = reader.get("k" + i);
+						if (value != null && !value.equals("new-k" + i)) {
+							assertThat(value).isEqualTo("old-k" + i + "-" + "x".repeat(i));
+						}
+						n++;
+					}
+				} while (!done.get());
+				return n;
+			});
+
+			Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+				"-cp", System.getProperty("java.class.path"), LogStructuredMapTest.class.getName(),
+				tmp.getAbsolutePath()).inheritIO()
+					.start();
+			assertThat(process.waitFor(60, TimeUnit.SECONDS)).isTrue();
+			assertThat(process.exitValue()).isZero();
+			done.set(true);
+			assertThat(reads.get()).isPositive();
+
+			// the values that were not read yet are read from the new log
+			for (int i = 50; i < 100; i++) {
+				assertThat(reader.get("k" + i)).isEqualTo((i % 2 == 0) ? "new-k" + i : null);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * The other process of {@link #testClearInAnotherProcess(File)}
+	 */
+	public static void main(String[] args) throws Exception {
+		try (LogStructuredMap<String> map = new LogStructuredMap<>(new File(args[0]), String.class)) {
+			map.clear();
+			for (int i = 0; i < 100; i += 2) {
+				map.put("k" + i, "new-k" + i);
+			}
+		}
+	}
+
+	@Test
+	public void testSharedDirectory(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		try (LogStructuredMap<String> a = new LogStructuredMap<>(tmp, String.class);
+			LogStructuredMap<String> b = new LogStructuredMap<>(tmp, String.class)) {
+			a.put("a", "1");
+			b.put("b", "2");
+			assertThat(b).containsOnlyKeys("a", "b");
+
+			a.clear();
+			b.put("c", "3");
+			assertThat(b).containsOnlyKeys("c");
+
+			b.clear(System.currentTimeMillis() + 1);
+			assertThat(b).isEmpty();
+		}
+	}
+}
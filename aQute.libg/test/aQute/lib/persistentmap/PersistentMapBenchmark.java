@@ -0,0 +1,143 @@
+package aQute.lib.persistentmap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import aQute.lib.io.IO;
+
+/**
+ * Compares {@link PersistentMap} with {@link LogStructuredMap}. This is not a
+ * test, run it as a Java application with the number of entries as optional
+ * argument.
+ */
+@SuppressWarnings("deprecation")
+public class PersistentMapBenchmark {
+
+	public static class Value {
+		public String		bsn;
+		public String		version;
+		public List<String>	tags	= new ArrayList<>();
+	}
+
+	interface Factory {
+		Map<String, Value> open(File dir) throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+		File tmp = IO.createTempFile(null, "benchmark", "");
+		IO.delete(tmp);
+		try {
+			for (int i = 0; i < 2; i++) {
+				run("PersistentMap", n, new File(tmp, "pm" + i), dir -> new PersistentMap<>(dir, Value.class));
+				run("LogStructuredMap", n, new File(tmp, "lsm" + i), dir -> new LogStructuredMap<>(dir, Value.class));
+			}
+		} finally {
+			IO.delete(tmp);
+		}
+	}
+
+	static void run(String name, int n, File dir, Factory factory) throws Exception {
+		System.out.printf("%s %d entries%n", name, n);
+
+		Map<String, Value> map = factory.open(dir);
+		long t = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			map.put(key(i), value(i));
+		}
+		t = report("put", t, n);
+		for (int i = 0; i < n; i += 2) {
+			map.put(key(i), value(i));
+		}
+		t = report("overwrite", t, n / 2);
+		close(map);
+
+		t = System.nanoTime();
+		map = factory.open(dir);
+		t = report("open", t, 1);
+		for (int i = 0; i < 1000; i++) {
+			map.get(key((i * 7919) % n));
+		}
+		t = report("get cold", t, 1000);
+		for (Value value : map.values()) {
+			value.bsn.length();
+		}
+		t = report("values", t, n);
+
+		Map<String, Value> shared = map;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int r = 0; r < 4; r++) {
+				int offset = r;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < n; i++) {
+						shared.get(key((i * 31 + offset) % n));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			t = report("get 4 threads", t, 4 * n);
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int i = 0; i < n; i += 2) {
+			map.remove(key(i));
+		}
+		report("remove", t, n / 2);
+		close(map);
+		System.out.printf("  %-16s %,12d files %,12d bytes%n", "disk", count(dir), size(dir));
+	}
+
+	static String key(int i) {
+		return "com.example.bundle" + i + "-1.0." + i;
+	}
+
+	static Value value(int i) {
+		Value value = new Value();
+		value.bsn = "com.example.bundle" + i;
+		value.version = "1.0." + i;
+		value.tags.add("tag" + (i % 10));
+		return value;
+	}
+
+	static long report(String what, long start, int operations) {
+		long now = System.nanoTime();
+		long micros = (now - start) / 1000;
+		System.out.printf("  %-16s %,12d us %,12.2f us/op%n", what, micros, (double) micros / operations);
+		return System.nanoTime();
+	}
+
+	static void close(Map<String, Value> map) throws Exception {
+		((AutoCloseable) map).close();
+	}
+
+	static int count(File file) {
+		if (file.isFile())
+			return 1;
+		int count = 0;
+		for (File f : IO.listFiles(file)) {
+			count += count(f);
+		}
+		return count;
+	}
+
+	static long size(File file) {
+		if (file.isFile())
+			return file.length();
+		long size = 0;
+		for (File f : IO.listFiles(file)) {
+			size += size(f);
+		}
+		return size;
+	}
+}
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 
 import aQute.lib.io.IO;
 
+@SuppressWarnings("deprecation")
 public class PersistentMapTest {
 
 	private static final String	UNIX_KEY	= "abc/../../";
@@ -0,0 +1,481 @@
+package aQute.bnd.runtime.facade;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.osgi.dto.DTO;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+import org.osgi.service.component.runtime.ServiceComponentRuntime;
+import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
+import org.osgi.service.component.runtime.dto.SatisfiedReferenceDTO;
+
+import aQute.bnd.runtime.api.SnapshotProvider;
+import aQute.lib.json.JSONCodec;
+
+/**
+ * Profiles the startup of the framework. It records the activation of the
+ * bundles, the registration of services and the delivery of configurations
+ * and correlates them with the DS components of the
+ * {@link ServiceComponentRuntime} into spans. Each span knows the span that
+ * gated it, which gives the critical path to the moment the framework was
+ * ready, i.e. the end of the last span.
+ * <p>
+ * The result can be exported as a Chrome trace event file that can be opened
+ * in {@code chrome://tracing} or in Perfetto.
+ * <p>
+ * Only events after the profiler was created are recorded, so the profile is
+ * only complete if the snapshot bundle is started before the other bundles.
+ */
+public class StartupProfiler implements SnapshotProvider, SynchronousBundleListener, ServiceListener {
+	public static final String					BUNDLE			= "bundle";
+	public static final String					COMPONENT		= "component";
+	public static final String					CONFIGURATION	= "configuration";
+	public static final String					WAIT			= "wait";
+
+	final static JSONCodec						codec			= new JSONCodec();
+
+	final BundleContext							context;
+	final long									startTime		= System.nanoTime();
+	final Map<Long, BundleTiming>				bundles			= new LinkedHashMap<>();
+	final Map<Long, Registration>				services		= new HashMap<>();
+	final Map<String, Long>						configurations	= new LinkedHashMap<>();
+	private ServiceRegistration<?>				configurationListener;
+
+	public static class SpanDTO extends DTO {
+		public long		id;
+		public String	name;
+		public String	category;
+		public long		bundleId;
+		/**
+		 * Nanoseconds since the profiler was started
+		 */
+		public long		start;
+		public long		end;
+		/**
+		 * The start of the wait for the dependencies or -1
+		 */
+		public long		waitStart		= -1;
+		/**
+		 * The span that gated the start of this span or -1
+		 */
+		public long		dependsOn		= -1;
+		public String	reason;
+		public boolean	critical;
+	}
+
+	public static class StartupDTO extends DTO {
+		public long					ready;
+		public Map<Long, String>	bundles			= new TreeMap<>();
+		public List<SpanDTO>		spans			= new ArrayList<>();
+		public List<Long>			criticalPath	= new ArrayList<>();
+		public List<String>			errors			= new ArrayList<>();
+	}
+
+	static class BundleTiming {
+		String	name;
+		long	starting	= -1;
+		long	started		= -1;
+	}
+
+	static class Registration {
+		long		bundleId;
+		long		componentId	= -1;
+		String[]	objectClass;
+		long		time;
+	}
+
+	public StartupProfiler(BundleContext context) {
+		this.context = context;
+		context.addBundleListener(this);
+		context.addServiceListener(this);
+		try {
+			configurationListener = context.registerService(ConfigurationListener.class.getName(),
+				new ConfigurationTiming(), null);
+		} catch (NoClassDefFoundError e) {
+			// no Configuration Admin
+		}
+	}
+
+	@Override
+	public synchronized void bundleChanged(BundleEvent event) {
+		Bundle bundle = event.getBundle();
+		switch (event.getType()) {
+			case BundleEvent.STARTING : {
+				BundleTiming timing = new BundleTiming();
+				timing.name = bundle.getSymbolicName();
+				timing.starting = now();
+				bundles.put(bundle.getBundleId(), timing);
+				break;
+			}
+			case BundleEvent.STARTED : {
+				BundleTiming timing = bundles.get(bundle.getBundleId());
+				if (timing != null && timing.started < 0)
+					timing.started = now();
+				break;
+			}
+			default :
+				break;
+		}
+	}
+
+	@Override
+	public synchronized void serviceChanged(ServiceEvent event) {
+		ServiceReference<?> ref = event.getServiceReference();
+		Long serviceId = (Long) ref.getProperty(Constants.SERVICE_ID);
+		switch (event.getType()) {
+			case ServiceEvent.REGISTERED :
+				break;
+			case ServiceEvent.UNREGISTERING :
+				// only the registered services can be bound, this keeps the
+				// map bounded in a long running framework
+				services.remove(serviceId);
+				return;
+			default :
+				return;
+		}
+
+		Registration registration = new Registration();
+		registration.time = now();
+		registration.bundleId = ref.getBundle()
+			.getBundleId();
+		registration.objectClass = (String[]) ref.getProperty(Constants.OBJECTCLASS);
+		Object componentId = ref.getProperty("component.id");
+		if (componentId instanceof Long)
+			registration.componentId = (Long) componentId;
+		services.put(serviceId, registration);
+	}
+
+	class ConfigurationTiming implements ConfigurationListener {
+		@Override
+		public void configurationEvent(ConfigurationEvent event) {
+			if (event.getType() != ConfigurationEvent.CM_UPDATED)
+				return;
+			long time = now();
+			synchronized (StartupProfiler.this) {
+				configurations.put(event.getPid(), time);
+				if (event.getFactoryPid() != null)
+					configurations.putIfAbsent(event.getFactoryPid(), time);
+			}
+		}
+	}
+
+	long now() {
+		return System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Correlate the recorded events into spans and calculate the critical
+	 * path.
+	 *
+	 * @return the startup report
+	 */
+	public synchronized StartupDTO getStartupDTO() {
+		Report report = new Report();
+
+		List<Map.Entry<Long, BundleTiming>> started = new ArrayList<>(bundles.entrySet());
+		started.sort(Comparator.comparingLong(e -> e.getValue().starting));
+		SpanDTO previous = null;
+		for (Map.Entry<Long, BundleTiming> entry : started) {
+			BundleTiming timing = entry.getValue();
+			long bundleId = entry.getKey();
+			report.dto.bundles.put(bundleId, timing.name);
+			long end = timing.started;
+			if (end < 0) {
+				report.dto.errors.add("Bundle " + bundleId + " " + timing.name + " did not complete its activation");
+				end = timing.starting;
+			}
+			SpanDTO span = report.span(BUNDLE, timing.name, bundleId, timing.starting, end);
+			if (previous != null && previous.end <= span.start) {
+				span.dependsOn = previous.id;
+				span.reason = "start order";
+			}
+			report.bundles.put(bundleId, span);
+			previous = span;
+		}
+
+		for (Map.Entry<String, Long> entry : configurations.entrySet()) {
+			long time = entry.getValue();
+			report.configurations.put(entry.getKey(), report.span(CONFIGURATION, entry.getKey(), -1, time, time));
+		}
+
+		try {
+			Components.add(context, this, report);
+		} catch (NoClassDefFoundError e) {
+			// no DS
+		}
+
+		calculateCriticalPath(report.dto);
+		return report.dto;
+	}
+
+	/*
+	 * The spans and their indexes while a report is built
+	 */
+	static class Report {
+		final StartupDTO			dto				= new StartupDTO();
+		final Map<Long, SpanDTO>	bundles			= new HashMap<>();
+		final Map<String, SpanDTO>	configurations	= new HashMap<>();
+		final Map<Long, SpanDTO>	components		= new HashMap<>();
+
+		SpanDTO span(String category, String name, long bundleId, long start, long end) {
+			SpanDTO span = new SpanDTO();
+			span.id = dto.spans.size();
+			span.category = category;
+			span.name = name;
+			span.bundleId = bundleId;
+			span.start = start;
+			span.end = end;
+			dto.spans.add(span);
+			return span;
+		}
+	}
+
+	/*
+	 * Isolates the DS types, DS is optional
+	 */
+	static class Components {
+		static void add(BundleContext context, StartupProfiler profiler, Report report) {
+			ServiceReference<ServiceComponentRuntime> ref = context.getServiceReference(ServiceComponentRuntime.class);
+			ServiceComponentRuntime scr = ref != null ? context.getService(ref) : null;
+			if (scr == null) {
+				report.dto.errors.add("No ServiceComponentRuntime service visible");
+				return;
+			}
+			try {
+				Map<Long, ComponentConfigurationDTO> configurations = new LinkedHashMap<>();
+				Map<Long, ComponentDescriptionDTO> descriptions = new HashMap<>();
+				for (ComponentDescriptionDTO description : scr.getComponentDescriptionDTOs()) {
+					for (ComponentConfigurationDTO configuration : scr.getComponentConfigurationDTOs(description)) {
+						configurations.put(configuration.id, configuration);
+						descriptions.put(configuration.id, description);
+					}
+				}
+
+				Map<Long, Long> registered = new HashMap<>();
+				profiler.services.forEach((serviceId, registration) -> {
+					if (registration.componentId >= 0)
+						registered.merge(registration.componentId, registration.time, Math::min);
+				});
+
+				// a component's end is measured, so the spans can be created
+				// before their dependencies are linked
+				for (ComponentConfigurationDTO configuration : configurations.values()) {
+					Long end = registered.get(configuration.id);
+					if (end == null)
+						continue;
+					SpanDTO span = report.span(COMPONENT, configuration.description.name,
+						configuration.description.bundle.id, end, end);
+					report.components.put(configuration.id, span);
+				}
+
+				for (ComponentConfigurationDTO configuration : configurations.values()) {
+					SpanDTO span = report.components.get(configuration.id);
+					if (span == null)
+						continue;
+					link(profiler, report, span, descriptions.get(configuration.id), configuration);
+				}
+			} finally {
+				context.ungetService(ref);
+			}
+		}
+
+		/*
+		 * The component could start when the last of its bundle, its
+		 * configurations and the producers of its bound services was done.
+		 */
+		static void link(StartupProfiler profiler, Report report, SpanDTO span, ComponentDescriptionDTO description,
+			ComponentConfigurationDTO configuration) {
+			SpanDTO bundle = report.bundles.get(span.bundleId);
+			SpanDTO gate = null;
+			String reason = null;
+			if (bundle != null && bundle.end <= span.end) {
+				gate = bundle;
+				reason = "bundle activation";
+				span.waitStart = bundle.end;
+			}
+
+			if (description.configurationPid != null) {
+				for (String pid : description.configurationPid) {
+					SpanDTO c = report.configurations.get(pid);
+					if (c != null && c.end <= span.end && (gate == null || c.end > gate.end)) {
+						gate = c;
+						reason = "configuration " + pid;
+					}
+				}
+			}
+
+			for (SatisfiedReferenceDTO reference : configuration.satisfiedReferences) {
+				for (ServiceReferenceDTO bound : reference.boundServices) {
+					Registration registration = profiler.services.get(bound.id);
+					if (registration == null)
+						continue;
+					SpanDTO producer = registration.componentId >= 0 ? report.components.get(registration.componentId)
+						: report.bundles.get(registration.bundleId);
+					if (producer == null || producer == span || registration.time > span.end)
+						continue;
+					if (gate == null || producer.end > gate.end) {
+						gate = producer;
+						reason = "reference " + reference.name + " to service " + bound.id
+							+ (registration.objectClass != null && registration.objectClass.length > 0
+								? " " + registration.objectClass[0]
+								: "");
+					}
+				}
+			}
+
+			if (gate != null) {
+				span.dependsOn = gate.id;
+				span.reason = reason;
+				span.start = Math.min(Math.max(gate.end, span.waitStart), span.end);
+			}
+			if (span.waitStart >= span.start)
+				span.waitStart = -1;
+		}
+	}
+
+	/**
+	 * Mark the spans on the critical path, the chain of spans that gated the
+	 * span that ended last.
+	 *
+	 * @param dto the startup report
+	 */
+	public static void calculateCriticalPath(StartupDTO dto) {
+		dto.criticalPath.clear();
+		SpanDTO last = null;
+		for (SpanDTO span : dto.spans) {
+			span.critical = false;
+			if (last == null || span.end > last.end)
+				last = span;
+		}
+		if (last == null)
+			return;
+
+		dto.ready = last.end;
+		List<Long> path = new ArrayList<>();
+		for (SpanDTO span = last; span != null && !span.critical; span = span.dependsOn >= 0
+			? dto.spans.get((int) span.dependsOn)
+			: null) {
+			span.critical = true;
+			path.add(span.id);
+		}
+		Collections.reverse(path);
+		dto.criticalPath.addAll(path);
+	}
+
+	/**
+	 * Convert the report to the Chrome trace event format. The spans are
+	 * shown per bundle, the critical path is repeated on its own track.
+	 *
+	 * @param dto the startup report
+	 * @return the trace as a JSON object
+	 */
+	public static Map<String, Object> toTrace(StartupDTO dto) {
+		List<Map<String, Object>> events = new ArrayList<>();
+		events.add(metadata("process_name", 1, 0, "Startup"));
+		events.add(metadata("process_name", 2, 0, "Critical path"));
+		dto.bundles.forEach((id, name) -> events.add(metadata("thread_name", 1, id, id + " " + name)));
+		events.add(metadata("thread_name", 1, -1, "Configuration"));
+
+		for (SpanDTO span : dto.spans) {
+			long tid = span.bundleId;
+			if (span.waitStart >= 0) {
+				events.add(event(WAIT, "wait " + span.name, 1, tid, span.waitStart, span.start, span));
+			}
+			events.add(event(span.category, span.name, 1, tid, span.start, span.end, span));
+			if (span.critical) {
+				events.add(event(span.category, span.name, 2, 0, span.start, span.end, span));
+			}
+		}
+		Map<String, Object> trace = new LinkedHashMap<>();
+		trace.put("traceEvents", events);
+		trace.put("displayTimeUnit", "ms");
+		return trace;
+	}
+
+	/**
+	 * Write the startup report as a Chrome trace event file.
+	 *
+	 * @param file the file to write
+	 * @return the file
+	 */
+	public File writeTrace(File file) throws Exception {
+		codec.enc()
+			.to(file)
+			.put(toTrace(getStartupDTO()))
+			.close();
+		return file;
+	}
+
+	private static Map<String, Object> metadata(String name, long pid, long tid, String value) {
+		Map<String, Object> event = new LinkedHashMap<>();
+		event.put("name", name);
+		event.put("ph", "M");
+		event.put("pid", pid);
+		event.put("tid", tid);
+		event.put("args", Collections.singletonMap("name", value));
+		return event;
+	}
+
+	private static Map<String, Object> event(String category, String name, long pid, long tid, long start, long end,
+		SpanDTO span) {
+		Map<String, Object> event = new LinkedHashMap<>();
+		event.put("name", name);
+		event.put("cat", category);
+		event.put("pid", pid);
+		event.put("tid", tid);
+		event.put("ts", start / 1000L);
+		if (end > start) {
+			event.put("ph", "X");
+			event.put("dur", Math.max(1L, (end - start) / 1000L));
+		} else {
+			event.put("ph", "i");
+			event.put("s", "t");
+		}
+		Map<String, Object> args = new LinkedHashMap<>();
+		args.put("span", span.id);
+		if (span.dependsOn >= 0) {
+			args.put("dependsOn", span.dependsOn);
+			args.put("reason", span.reason);
+		}
+		event.put("args", args);
+		return event;
+	}
+
+	@Override
+	public void close() throws IOException {
+		context.removeBundleListener(this);
+		context.removeServiceListener(this);
+		if (configurationListener != null) {
+			try {
+				configurationListener.unregister();
+			} catch (IllegalStateException e) {
+				// already unregistered
+			}
+		}
+	}
+
+	@Override
+	public Object getSnapshot() throws Exception {
+		return getStartupDTO();
+	}
+}
@@ -32,6 +32,7 @@ import aQute.bnd.runtime.facade.ConfigurationFacade;
 import aQute.bnd.runtime.facade.FrameworkFacade;
 import aQute.bnd.runtime.facade.LogFacade;
 import aQute.bnd.runtime.facade.ServiceComponentRuntimeFacade;
+import aQute.bnd.runtime.facade.StartupProfiler;
 import aQute.lib.io.IO;
 import aQute.lib.json.Encoder;
 import aQute.lib.json.JSONCodec;
@@ -56,6 +57,7 @@ public class Snapshot implements BundleActivator {
 		this.context = context;
 		this.framework = context.getBundle(0);
 
+		add("startup", StartupProfiler.class);
 		add("framework", FrameworkFacade.class);
 		add("scr", ServiceComponentRuntimeFacade.class);
 		add("log", LogFacade.class);
@@ -88,7 +90,9 @@ public class Snapshot implements BundleActivator {
 
 		Hashtable<String, Object> properties = new Hashtable<>();
 		properties.put(CommandProcessor.COMMAND_SCOPE, "bnd");
-		properties.put(CommandProcessor.COMMAND_FUNCTION, "snapshot");
+		properties.put(CommandProcessor.COMMAND_FUNCTION, new String[] {
+			"snapshot", "trace"
+		});
 		this.context.registerService(Object.class, this, properties);
 	}
 
@@ -130,13 +134,47 @@ public class Snapshot implements BundleActivator {
 
 			doExtensions(top);
 
-			return flush(top, name);
+			File file = flush(top, name);
+
+			if (Boolean.parseBoolean(context.getProperty("snapshot.trace"))) {
+				String path = file.getPath();
+				if (path.endsWith(".json"))
+					path = path.substring(0, path.length() - ".json".length());
+				trace(new File(path + ".trace.json").getAbsolutePath());
+			}
+			return file;
 		} catch (Exception e) {
 			error("creating snapshot", e);
 			return null;
 		}
 	}
 
+	@Descriptor("Create a trace of the framework startup. The trace will be placed in a "
+		+ "json file in your local directory. It shows the activation of bundles, components "
+		+ "and configurations and their critical path. You can open this file in "
+		+ "chrome://tracing or https://ui.perfetto.dev")
+	public File trace() {
+		return trace(null);
+	}
+
+	@Descriptor("Create a trace of the framework startup. The trace will be placed in a "
+		+ "json file in your local directory. It shows the activation of bundles, components "
+		+ "and configurations and their critical path. You can open this file in "
+		+ "chrome://tracing or https://ui.perfetto.dev")
+	public File trace(@Descriptor("Path to the trace file") String name) {
+		try {
+			SnapshotProvider profiler = providers.get("startup");
+			if (!(profiler instanceof StartupProfiler)) {
+				error("startup: not available", null);
+				return null;
+			}
+			return ((StartupProfiler) profiler).writeTrace(getFile(name, ".trace.json"));
+		} catch (Exception e) {
+			error("creating trace", e);
+			return null;
+		}
+	}
+
 	private void doProviders(Map<String, Object> top) {
 		for (Map.Entry<String, SnapshotProvider> entry : providers.entrySet()) {
 			try {
@@ -150,6 +188,17 @@ public class Snapshot implements BundleActivator {
 	}
 
 	private File flush(Map<String, Object> top, String name) throws IOException, Exception {
+		File file = getFile(name, ".json");
+
+		JSON_CODEC.indent("\t")
+			.writeDefaults()
+			.to(file)
+			.put(top)
+			.close();
+		return file;
+	}
+
+	private File getFile(String name, String extension) {
 		if (name == null) {
 			name = context.getProperty("launchpad.name");
 			if (name != null) {
@@ -159,10 +208,10 @@ public class Snapshot implements BundleActivator {
 					className = className.substring(x + 1);
 					name = className.toLowerCase(Locale.ROOT) + "-" + name;
 				}
-				name += ".json";
+				name += extension;
 			} else
 				name = "snapshot-" + DATE_TIME_FORMAT.format(Instant.now()
-					.atOffset(ZoneOffset.UTC)) + ".json";
+					.atOffset(ZoneOffset.UTC)) + extension;
 		}
 		File file = new File(name);
 
@@ -174,12 +223,6 @@ public class Snapshot implements BundleActivator {
 				file = new File(dir, name);
 			}
 		}
-
-		JSON_CODEC.indent("\t")
-			.writeDefaults()
-			.to(file)
-			.put(top)
-			.close();
 		return file;
 	}
 
@@ -76,6 +76,29 @@ public class SnapshotTest {
 
 	}
 
+	@Test
+	public void testTraceCommand() throws Exception {
+		File f = new File(tmp, "trace.json");
+		assertThat(f).doesNotExist();
+
+		try (Launchpad fw = builder.create()
+			.inject(this)) {
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+
+			try (CommandSession session = gogo.createSession(in, out, out)) {
+				session.execute("trace " + f.getAbsoluteFile()
+					.toURI()
+					.getPath());
+				assertThat(f).isFile()
+					.content()
+					.contains("\"traceEvents\"")
+					.contains("\"org.apache.felix.scr\"");
+			}
+		}
+	}
+
 	@Test
 	public void testSnapshotDefaultName() throws Exception {
 		File f = new File(tmp, "snapshottest-testSnapshotDefaultName.json");
@@ -3,9 +3,12 @@ package aQute.bnd.classfile;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Predicate;
 
 import org.osgi.annotation.versioning.ProviderType;
 
+import aQute.lib.io.ByteBufferDataInput;
 import aQute.lib.io.LimitedDataInput;
 
 @ProviderType
@@ -31,6 +34,29 @@ public interface Attribute {
 		int attribute_length = in.readInt();
 		String attribute_name = constant_pool.utf8(attribute_name_index);
 		in = LimitedDataInput.wrap(in, attribute_length);
+		Predicate<String> filter = constant_pool.attributeFilter;
+		if ((filter != null) && !filter.test(attribute_name)) {
+			return UnrecognizedAttribute.read(in, attribute_name, attribute_length);
+		}
+		return readAttribute(in, attribute_name, attribute_length, constant_pool);
+	}
+
+	/**
+	 * Decode an attribute that was not decoded when the class file was parsed
+	 * because it was not accepted by the attribute filter.
+	 *
+	 * @param attribute the undecoded attribute
+	 * @param constant_pool the constant pool of the class file
+	 * @return the decoded attribute
+	 */
+	static Attribute readAttribute(UnrecognizedAttribute attribute, ConstantPool constant_pool) throws IOException {
+		ByteBuffer value = attribute.value.duplicate();
+		value.rewind();
+		return readAttribute(ByteBufferDataInput.wrap(value), attribute.name, value.limit(), constant_pool);
+	}
+
+	private static Attribute readAttribute(DataInput in, String attribute_name, int attribute_length,
+		ConstantPool constant_pool) throws IOException {
 		return switch (attribute_name) {
 			case AnnotationDefaultAttribute.NAME -> AnnotationDefaultAttribute.read(in, constant_pool);
 			case BootstrapMethodsAttribute.NAME -> BootstrapMethodsAttribute.read(in, constant_pool);
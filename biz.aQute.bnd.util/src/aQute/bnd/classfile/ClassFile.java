@@ -4,11 +4,15 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import aQute.lib.io.ByteBufferDataInput;
 import aQute.lib.io.ByteBufferDataOutput;
@@ -77,6 +81,48 @@ public class ClassFile extends ElementInfo {
 
 		ConstantPool constant_pool = ConstantPool.read(in);
 
+		return parseClassFile(in, minor_version, major_version, constant_pool);
+	}
+
+	/**
+	 * Parse a class file without copying the class bytes. The entries of the
+	 * constant pool are decoded when they are first used, see
+	 * {@link ConstantPool#read(ByteBuffer, UnaryOperator)}. The buffer must
+	 * not be modified while the class file is in use.
+	 * <p>
+	 * Attributes that are not accepted by the attribute filter are not
+	 * decoded, they are represented by an {@link UnrecognizedAttribute} that
+	 * can be decoded later with
+	 * {@link Attribute#readAttribute(UnrecognizedAttribute, ConstantPool)}.
+	 *
+	 * @param buffer the class bytes, the position of the buffer is not changed
+	 * @param interner the interner for the UTF-8 constants
+	 * @param attributeFilter the names of the attributes to decode
+	 * @return the class file
+	 */
+	public static ClassFile parseClassFile(ByteBuffer buffer, UnaryOperator<String> interner,
+		Predicate<String> attributeFilter) throws IOException {
+		ByteBuffer bb = buffer.slice();
+		try {
+			int magic = bb.getInt();
+			if (magic != 0xCAFEBABE) {
+				throw new IOException("Not a valid class file (no CAFEBABE header)");
+			}
+
+			int minor_version = Short.toUnsignedInt(bb.getShort());
+			int major_version = Short.toUnsignedInt(bb.getShort());
+
+			ConstantPool constant_pool = ConstantPool.read(bb, interner);
+			constant_pool.attributeFilter = attributeFilter;
+
+			return parseClassFile(ByteBufferDataInput.wrap(bb), minor_version, major_version, constant_pool);
+		} catch (BufferUnderflowException e) {
+			throw new EOFException("Unexpected end of class file");
+		}
+	}
+
+	private static ClassFile parseClassFile(DataInput in, int minor_version, int major_version,
+		ConstantPool constant_pool) throws IOException {
 		int access_flags = in.readUnsignedShort();
 
 		int this_class_index = in.readUnsignedShort();
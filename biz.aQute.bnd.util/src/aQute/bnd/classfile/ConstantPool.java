@@ -5,12 +5,18 @@ import static java.util.Objects.requireNonNull;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import org.osgi.annotation.versioning.ProviderType;
 
+import aQute.lib.io.ByteBufferDataInput;
+
 public class ConstantPool {
 	public static final int	CONSTANT_Utf8				= 1;
 	public static final int	CONSTANT_Integer			= 3;
@@ -30,10 +36,28 @@ public class ConstantPool {
 	public static final int	CONSTANT_Module				= 19;
 	public static final int	CONSTANT_Package			= 20;
 
-	final Object[]			pool;
+	final Object[]						pool;
+	/*
+	 * A lazy constant pool holds the offsets of its entries in the class bytes
+	 * and decodes an entry when it is first used
+	 */
+	private final ByteBuffer			buffer;
+	private final int[]					offsets;
+	private final UnaryOperator<String>	interner;
+	Predicate<String>					attributeFilter;
 
 	public ConstantPool(Object[] pool) {
 		this.pool = pool;
+		this.buffer = null;
+		this.offsets = null;
+		this.interner = null;
+	}
+
+	private ConstantPool(ByteBuffer buffer, int[] offsets, UnaryOperator<String> interner) {
+		this.pool = new Object[offsets.length];
+		this.buffer = buffer;
+		this.offsets = offsets;
+		this.interner = interner;
 	}
 
 	public int size() {
@@ -42,10 +66,19 @@ public class ConstantPool {
 
 	@SuppressWarnings("unchecked")
 	public <T> T entry(int index) {
-		return (T) pool[index];
+		Object entry = pool[index];
+		if ((entry == null) && (offsets != null) && (offsets[index] != 0)) {
+			// racing threads decode the same value
+			pool[index] = entry = decode(offsets[index]);
+		}
+		return (T) entry;
 	}
 
 	public int tag(int index) {
+		if (offsets != null) {
+			int offset = offsets[index];
+			return (offset != 0) ? Byte.toUnsignedInt(buffer.get(offset)) : 0;
+		}
 		Object entry = entry(index);
 		if (entry instanceof Info info) {
 			return info.tag();
@@ -90,6 +123,9 @@ public class ConstantPool {
 
 	@Override
 	public String toString() {
+		for (int index = 1, len = size(); index < len; index++) {
+			entry(index);
+		}
 		return Arrays.toString(pool);
 	}
 
@@ -185,6 +221,143 @@ public class ConstantPool {
 		return constant_pool;
 	}
 
+	/**
+	 * Read a constant pool without decoding its entries. The offsets of the
+	 * entries are recorded and an entry is decoded from the buffer when it is
+	 * first used. The buffer must not be modified while the constant pool is
+	 * in use.
+	 *
+	 * @param buffer the class bytes positioned at the constant pool count, on
+	 *            return positioned after the constant pool
+	 * @param interner the interner for the decoded UTF-8 constants, for
+	 *            example to share the strings of the classes of an analysis
+	 * @return the constant pool
+	 */
+	public static ConstantPool read(ByteBuffer buffer, UnaryOperator<String> interner) throws IOException {
+		int constant_pool_count = Short.toUnsignedInt(buffer.getShort());
+		int[] offsets = new int[constant_pool_count];
+		for (int index = 1; index < constant_pool_count; index++) {
+			int offset = buffer.position();
+			offsets[index] = offset;
+			int tag = Byte.toUnsignedInt(buffer.get());
+			int length;
+			switch (tag) {
+				case CONSTANT_Utf8 :
+					length = Short.toUnsignedInt(buffer.getShort());
+					break;
+				case CONSTANT_Class :
+				case CONSTANT_String :
+				case CONSTANT_MethodType :
+				case CONSTANT_Module :
+				case CONSTANT_Package :
+					length = 2;
+					break;
+				case CONSTANT_MethodHandle :
+					length = 3;
+					break;
+				case CONSTANT_Integer :
+				case CONSTANT_Float :
+				case CONSTANT_Fieldref :
+				case CONSTANT_Methodref :
+				case CONSTANT_InterfaceMethodref :
+				case CONSTANT_NameAndType :
+				case CONSTANT_Dynamic :
+				case CONSTANT_InvokeDynamic :
+					length = 4;
+					break;
+				case CONSTANT_Long :
+				case CONSTANT_Double :
+					length = 8;
+					// For some insane optimization reason, the Long(5) and
+					// Double(6) entries take two slots in the constant pool.
+					// See 4.4.5
+					index++;
+					break;
+				default :
+					throw new IOException("Unrecognized constant pool tag value " + tag + " at index " + index);
+			}
+			buffer.position(buffer.position() + length);
+		}
+		return new ConstantPool(buffer, offsets, interner);
+	}
+
+	private Object decode(int offset) {
+		int tag = Byte.toUnsignedInt(buffer.get(offset));
+		int position = offset + 1;
+		switch (tag) {
+			case CONSTANT_Utf8 :
+				return interner.apply(decodeUtf8(position));
+			case CONSTANT_Integer :
+				return buffer.getInt(position);
+			case CONSTANT_Float :
+				return buffer.getFloat(position);
+			case CONSTANT_Long :
+				return buffer.getLong(position);
+			case CONSTANT_Double :
+				return buffer.getDouble(position);
+			case CONSTANT_Class :
+				return new ClassInfo(u2(position));
+			case CONSTANT_String :
+				return new StringInfo(u2(position));
+			case CONSTANT_Fieldref :
+				return new FieldrefInfo(u2(position), u2(position + 2));
+			case CONSTANT_Methodref :
+				return new MethodrefInfo(u2(position), u2(position + 2));
+			case CONSTANT_InterfaceMethodref :
+				return new InterfaceMethodrefInfo(u2(position), u2(position + 2));
+			case CONSTANT_NameAndType :
+				return new NameAndTypeInfo(u2(position), u2(position + 2));
+			case CONSTANT_MethodHandle :
+				return new MethodHandleInfo(Byte.toUnsignedInt(buffer.get(position)), u2(position + 1));
+			case CONSTANT_MethodType :
+				return new MethodTypeInfo(u2(position));
+			case CONSTANT_Dynamic :
+				return new DynamicInfo(u2(position), u2(position + 2));
+			case CONSTANT_InvokeDynamic :
+				return new InvokeDynamicInfo(u2(position), u2(position + 2));
+			case CONSTANT_Module :
+				return new ModuleInfo(u2(position));
+			case CONSTANT_Package :
+				return new PackageInfo(u2(position));
+			default :
+				throw new IllegalStateException("Unrecognized constant pool tag value " + tag + " at offset " + offset);
+		}
+	}
+
+	private int u2(int position) {
+		return Short.toUnsignedInt(buffer.getShort(position));
+	}
+
+	/*
+	 * Most constants are ASCII which is decoded without the modified UTF-8
+	 * decoder
+	 */
+	private String decodeUtf8(int position) {
+		int length = u2(position);
+		int start = position + 2;
+		int end = start + length;
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) <= 0) {
+				ByteBuffer duplicate = buffer.duplicate();
+				duplicate.position(position);
+				try {
+					return ByteBufferDataInput.wrap(duplicate)
+						.readUTF();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.ISO_8859_1);
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
 	static String readUtf8Info(DataInput in) throws IOException {
 		String constant = in.readUTF();
 		return constant.intern();
@@ -0,0 +1,88 @@
+package aQute.bnd.classfile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.lib.io.ByteBufferDataInput;
+import aQute.lib.io.IO;
+
+public class LazyConstantPoolTest {
+
+	private static byte[] classBytes() throws Exception {
+		try (InputStream in = LazyConstantPoolTest.class.getResourceAsStream("LazyConstantPoolTest.class")) {
+			return IO.read(in);
+		}
+	}
+
+	@Test
+	public void testSameAsEager() throws Exception {
+		byte[] bytes = classBytes();
+		ClassFile eager = ClassFile.parseClassFile(ByteBufferDataInput.wrap(bytes));
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		ClassFile lazy = ClassFile.parseClassFile(buffer, s -> s, name -> true);
+
+		assertThat(buffer.position()).isZero();
+		assertThat(lazy.this_class).isEqualTo(eager.this_class);
+		assertThat(lazy.constant_pool.size()).isEqualTo(eager.constant_pool.size());
+		for (int index = 1; index < eager.constant_pool.size(); index++) {
+			assertThat(lazy.constant_pool.tag(index)).as("tag %s", index)
+				.isEqualTo(eager.constant_pool.tag(index));
+		}
+		assertThat(lazy.constant_pool).hasToString(eager.constant_pool.toString());
+		assertThat(Arrays.toString(lazy.methods)).isEqualTo(Arrays.toString(eager.methods));
+		assertThat(lazy.write()).isEqualTo(eager.write());
+	}
+
+	@Test
+	public void testInterner() throws Exception {
+		String literal = "only decoded when used";
+		Map<String, String> strings = new HashMap<>();
+		ClassFile classFile = ClassFile.parseClassFile(ByteBuffer.wrap(classBytes()), s -> {
+			String previous = strings.putIfAbsent(s, s);
+			return (previous != null) ? previous : s;
+		}, name -> true);
+
+		assertThat(strings).containsKey("aQute/bnd/classfile/LazyConstantPoolTest")
+			.doesNotContainKey(literal);
+
+		ConstantPool constant_pool = classFile.constant_pool;
+		String decoded = null;
+		for (int index = 1; index < constant_pool.size(); index++) {
+			if ((constant_pool.tag(index) == ConstantPool.CONSTANT_String)
+				&& literal.equals(constant_pool.string(index))) {
+				decoded = constant_pool.string(index);
+			}
+		}
+		assertThat(decoded).isEqualTo(literal)
+			.isSameAs(strings.get(literal));
+	}
+
+	@Test
+	public void testSkippedAttributes() throws Exception {
+		ClassFile classFile = ClassFile.parseClassFile(ByteBuffer.wrap(classBytes()), s -> s,
+			name -> !name.equals(CodeAttribute.NAME));
+
+		MethodInfo method = Arrays.stream(classFile.methods)
+			.filter(m -> m.name.equals("testSkippedAttributes"))
+			.findFirst()
+			.get();
+		assertThat(method.attributes).noneMatch(CodeAttribute.class::isInstance);
+		UnrecognizedAttribute skipped = Arrays.stream(method.attributes)
+			.filter(UnrecognizedAttribute.class::isInstance)
+			.map(UnrecognizedAttribute.class::cast)
+			.filter(a -> a.name.equals(CodeAttribute.NAME))
+			.findFirst()
+			.get();
+
+		Attribute code = Attribute.readAttribute(skipped, classFile.constant_pool);
+		assertThat(code).isInstanceOf(CodeAttribute.class);
+		assertThat(((CodeAttribute) code).code.limit()).isPositive();
+	}
+}
@@ -50,6 +50,7 @@ import aQute.remote.api.Agent;
 import aQute.remote.api.Event;
 import aQute.remote.api.Supervisor;
 import aQute.remote.util.AgentSupervisor;
+import aQute.remote.util.DeltaTransfer;
 
 class RemoteCommand extends Processor {
 	private final static Logger					logger				= LoggerFactory.getLogger(RemoteCommand.class);
@@ -167,6 +168,9 @@ class RemoteCommand extends Processor {
 	interface InstallOptions extends Options {
 		@Description("By default the location is 'manual:<bsn>'. You can specify multiple locations when installing multiple bundles")
 		String[] location();
+
+		@Description("Only send the entries that differ from the bundle installed at the location, in chunks. Requires an agent that supports delta transfers")
+		boolean delta();
 	}
 
 	@Description("Install/update the specified bundle.")
@@ -187,7 +191,7 @@ class RemoteCommand extends Processor {
 				.toURL();
 			byte data[] = IO.read(url);
 			String l = location == null || location.length <= n ? null : location[n];
-			BundleDTO dto = agent.installWithData(l, data);
+			BundleDTO dto = options.delta() ? DeltaTransfer.install(agent, l, data) : agent.installWithData(l, data);
 			bnd.out.println(dto);
 			n++;
 		}
@@ -113,6 +113,7 @@ import aQute.bnd.result.Result;
 import aQute.bnd.service.Actionable;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.action.Action;
+import aQute.bnd.service.release.ReleaseBracketingPlugin;
 import aQute.bnd.service.repository.InfoRepository;
 import aQute.bnd.service.repository.SearchableRepository.ResourceDescriptor;
 import aQute.bnd.unmodifiable.Lists;
@@ -1014,6 +1015,9 @@ public class bnd extends Processor {
 
 		@Description("Set the -runtrace flag")
 		boolean trace();
+
+		@Description("Run the tests in the given number of concurrently launched frameworks, sets the -testshards instruction")
+		int shards();
 	}
 
 	@Description("Test a project according to an OSGi test")
@@ -1045,6 +1049,9 @@ public class bnd extends Processor {
 			if (opts.trace() || isTrace())
 				project.setProperty(RUNTRACE, "true");
 
+			if (opts.shards() > 0)
+				project.setProperty(TESTSHARDS, Integer.toString(opts.shards()));
+
 			project.test(testNames);
 		});
 
@@ -1410,11 +1417,24 @@ public class bnd extends Processor {
 			}
 
 		}
-		for (Project p : projects) {
-			if (repo != null) {
-				p.setProperty(Constants.RELEASEREPO, repo);
+		// bracket the release of all projects
+		Project first = projects.iterator()
+			.next();
+		List<ReleaseBracketingPlugin> brackets = first.getProjectReleaseBrackets();
+		for (ReleaseBracketingPlugin rp : brackets) {
+			rp.begin(first);
+		}
+		try {
+			for (Project p : projects) {
+				if (repo != null) {
+					p.setProperty(Constants.RELEASEREPO, repo);
+				}
+				p.release(options.test());
+			}
+		} finally {
+			for (ReleaseBracketingPlugin rp : brackets) {
+				rp.end(first);
 			}
-			p.release(options.test());
 		}
 		if (project != null) {
 			getInfo(project);
@@ -376,6 +376,45 @@ public class AlsoLauncherTest {
 		}
 	}
 
+	@ParameterizedTest(name = "-runpath={0}")
+	@ValueSource(strings = {
+		"org.apache.felix.framework;version='[6.0.5,7)'", "org.eclipse.osgi"
+	})
+	public void testExecutableWithSnapshot(String framework) throws Exception {
+		project.setProperty(Constants.RUNPATH, framework + ",biz.aQute.launcher;version=snapshot");
+		project.setProperty(Constants.RUNPROPERTIES, "test.cmd=exit");
+		project.setProperty(Constants.RUNTRACE, "true");
+		project.setProperty(Constants.EXECUTABLE, "rejar=STORE,snapshot=true");
+
+		try (ProjectLauncher l = project.getProjectLauncher(); Jar executable = l.executable()) {
+			assertThat(project.check()).isTrue();
+			Resource index = executable.getResource("snapshot/index.properties");
+			assertThat(index).isNotNull();
+			Properties p = new Properties();
+			p.load(index.openInputStream());
+			// the installed bundles refer to the embedded run bundles
+			assertThat(p.values()).contains("jar/demo.jar");
+
+			File tmp = File.createTempFile("snapshot", ".jar", testDir);
+			executable.write(tmp);
+			Command cmd = new Command();
+			cmd.add(project.getJavaExecutable("java"));
+			cmd.add("-jar");
+			cmd.add(tmp.getAbsolutePath());
+
+			StringBuilder stdout = new StringBuilder();
+			StringBuilder stderr = new StringBuilder();
+			int execute = cmd.execute(stdout, stderr);
+			String output = stdout.append(stderr)
+				.toString();
+			System.out.println(output);
+
+			assertThat(output).contains("restored the storage snapshot", "installed jar/demo.jar from the storage snapshot")
+				.doesNotContain("installing jar/demo.jar");
+			assertThat(execute).isEqualTo(42);
+		}
+	}
+
 	@Test
 	public void testExecutableJarWithStripping() throws Exception {
 		long full = make(project, null);
@@ -0,0 +1,61 @@
+package aQute.bnd.build;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+
+public class TestShardsTest {
+
+	@Test
+	public void testPartitionBalancedByTimings() {
+		List<String> tests = Arrays.asList("a.A", "a.B", "a.C", "a.D", "a.E");
+		Map<String, Double> timings = new HashMap<>();
+		timings.put("a.A", 10.0);
+		timings.put("a.B", 1.0);
+		timings.put("a.C", 6.0);
+		timings.put("a.D", 4.0);
+
+		List<List<String>> partitions = TestShards.partition(tests, 2, timings);
+		// a.E takes the average time of 5.25
+		assertThat(partitions).containsExactly(Arrays.asList("a.A", "a.D"), Arrays.asList("a.B", "a.C", "a.E"));
+
+		assertThat(TestShards.partition(Arrays.asList("a.A:test", "a.B"), 4, timings)).hasSize(2);
+	}
+
+	@Test
+	public void testMergeReports(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File shard0 = IO.mkdirs(new File(tmp, "0"));
+		File shard1 = IO.mkdirs(new File(tmp, "1"));
+		IO.store("<testsuite name='engine' tests='2' failures='1' errors='0' skipped='0' time='1.5'>"
+			+ "<properties><property name='a' value='b'/></properties>"
+			+ "<testcase name='x' classname='a.A' time='1.0'/><testcase name='y' classname='a.A' time='0.5'/>"
+			+ "</testsuite>", new File(shard0, "TEST-engine.xml"));
+		IO.store("<testsuite name='engine' tests='1' failures='0' errors='1' skipped='0' time='2.0'>"
+			+ "<properties><property name='a' value='b'/></properties>"
+			+ "<testcase name='z' classname='a.B' time='2.0'/>"
+			+ "</testsuite>", new File(shard1, "TEST-engine.xml"));
+		IO.store("only one", new File(shard1, "other.txt"));
+
+		File reports = new File(tmp, "reports");
+		TestShards.merge(Arrays.asList(shard0, shard1), reports);
+
+		assertThat(IO.collect(new File(reports, "other.txt"))).isEqualTo("only one");
+		String merged = IO.collect(new File(reports, "TEST-engine.xml"));
+		assertThat(merged).contains("tests=\"3\"", "failures=\"1\"", "errors=\"1\"", "time=\"3.5\"")
+			.containsOnlyOnce("<properties>");
+
+		Map<String, Double> timings = TestShards.timings(reports);
+		assertThat(timings).containsEntry("a.A", 1.5)
+			.containsEntry("a.B", 2.0);
+	}
+}
@@ -167,6 +167,33 @@ public class WorkspaceRepositoryTest {
 		});
 	}
 
+	@Test
+	public void findprovidersAfterBuildAndClean() throws Exception {
+
+		test(ws -> {
+			Project project = ws.getProject("p1");
+			assertThat(project).isNotNull();
+			assertThat(ws._findproviders(new String[] {
+				"findproviders", "osgi.identity", "(osgi.identity=p1)", "WORKSPACE"
+			})).isEmpty();
+
+			File[] build = project.build();
+			assertThat(build).isNotNull()
+				.isNotEmpty();
+			assertThat(ws._findproviders(new String[] {
+				"findproviders", "osgi.identity", "(osgi.identity=p1)", "WORKSPACE"
+			})).startsWith("p1;version=");
+			assertThat(ws._findproviders(new String[] {
+				"findproviders", "osgi.identity", "(&(osgi.identity=p1)(version>=1000))", "WORKSPACE"
+			})).isEmpty();
+
+			project.clean();
+			assertThat(ws._findproviders(new String[] {
+				"findproviders", "osgi.identity", "(osgi.identity=p1)", "WORKSPACE"
+			})).isEmpty();
+		});
+	}
+
 	void test(ConsumerWithException<Workspace> consumer) throws Exception {
 		IO.copy(new File(home, "ws"), testDir);
 
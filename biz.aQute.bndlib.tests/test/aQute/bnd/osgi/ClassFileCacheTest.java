@@ -0,0 +1,113 @@
+package aQute.bnd.osgi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.bnd.classfile.ClassFile;
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+
+public class ClassFileCacheTest {
+
+	private static File classFile(File dir, long lastModified) throws Exception {
+		File file = new File(dir, "ClassFileCacheTest.class");
+		try (InputStream in = ClassFileCacheTest.class.getResourceAsStream("ClassFileCacheTest.class")) {
+			IO.copy(in, file);
+		}
+		assertThat(file.setLastModified(lastModified)).isTrue();
+		return file;
+	}
+
+	@Test
+	public void testUnchangedFileIsParsedOnce(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		ClassFileCache cache = new ClassFileCache();
+		AtomicInteger parsed = new AtomicInteger();
+		long old = System.currentTimeMillis() - 60_000L;
+		File file = classFile(tmp, old);
+
+		ClassFile first = cache.get(new FileResource(file), parser(file, parsed));
+		ClassFile second = cache.get(new FileResource(file), parser(file, parsed));
+		assertThat(second).isSameAs(first);
+		assertThat(parsed).hasValue(1);
+
+		assertThat(file.setLastModified(old + 1_000L)).isTrue();
+		ClassFile changed = cache.get(new FileResource(file), parser(file, parsed));
+		assertThat(changed).isNotSameAs(first);
+		assertThat(changed.this_class).isEqualTo(first.this_class);
+		assertThat(parsed).hasValue(2);
+
+		cache.clear();
+		cache.get(new FileResource(file), parser(file, parsed));
+		assertThat(parsed).hasValue(3);
+	}
+
+	@Test
+	public void testRecentlyModifiedFileIsNotCached(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		ClassFileCache cache = new ClassFileCache();
+		AtomicInteger parsed = new AtomicInteger();
+		File file = classFile(tmp, System.currentTimeMillis());
+
+		cache.get(new FileResource(file), parser(file, parsed));
+		cache.get(new FileResource(file), parser(file, parsed));
+		assertThat(parsed).hasValue(2);
+	}
+
+	@Test
+	public void testAnalyzerUsesCache(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		ClassFileCache cache = new ClassFileCache();
+		File dir = IO.mkdirs(new File(tmp, "aQute/bnd/osgi"));
+		long old = System.currentTimeMillis() - 60_000L;
+		File file = classFile(dir, old);
+
+		for (int i = 0; i < 2; i++) {
+			try (Jar jar = new Jar(tmp); Analyzer analyzer = new Analyzer(jar)) {
+				analyzer.setClassFileCache(cache);
+				analyzer.setProperty(Constants.PRIVATEPACKAGE, "aQute.bnd.osgi");
+				analyzer.analyze();
+				assertThat(analyzer.getClassspace()).hasSize(1);
+				assertThat(analyzer.getReferred()
+					.keySet()).extracting(Descriptors.PackageRef::getFQN)
+						.contains("org.junit.jupiter.api", "aQute.bnd.classfile");
+			}
+			// the second analysis can only succeed with the cached class file
+			IO.write(new byte[(int) file.length()], file);
+			assertThat(file.setLastModified(old)).isTrue();
+		}
+	}
+
+	@Test
+	public void testPurgeMissingFiles(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		ClassFileCache cache = new ClassFileCache();
+		AtomicInteger parsed = new AtomicInteger();
+		long old = System.currentTimeMillis() - 60_000L;
+		File file = classFile(tmp, old);
+
+		cache.get(new FileResource(file), parser(file, parsed));
+		cache.purge();
+		cache.get(new FileResource(file), parser(file, parsed));
+		assertThat(parsed).hasValue(1);
+
+		IO.delete(file);
+		cache.purge();
+		classFile(tmp, old);
+		cache.get(new FileResource(file), parser(file, parsed));
+		assertThat(parsed).hasValue(2);
+	}
+
+	private static Callable<ClassFile> parser(File file, AtomicInteger parsed) {
+		return () -> {
+			parsed.incrementAndGet();
+			return ClassFile.parseClassFile(IO.read(file.toPath()), s -> s, name -> true);
+		};
+	}
+}
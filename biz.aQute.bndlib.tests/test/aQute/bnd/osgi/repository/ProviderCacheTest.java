@@ -0,0 +1,132 @@
+package aQute.bnd.osgi.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Version;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.service.repository.Repository;
+
+import aQute.bnd.osgi.resource.CapReqBuilder;
+import aQute.bnd.osgi.resource.ResourceBuilder;
+
+public class ProviderCacheTest {
+
+	@Test
+	public void testCachedAnswers() throws Exception {
+		CountingRepository repository = new CountingRepository(bundle("a", "1.0.0"), bundle("b", "1.0.0"));
+		ProviderCache cache = new ProviderCache();
+		Repository cached = cache.cached(repository);
+
+		Requirement req = CapReqBuilder.createBundleRequirement("a", null)
+			.buildSyntheticRequirement();
+		Collection<Capability> first = cached.findProviders(Collections.singleton(req))
+			.get(req);
+		assertThat(first).hasSize(1);
+		assertThat(repository.calls).hasValue(1);
+
+		// The same requirement from another resource is answered from the cache
+		Requirement other = CapReqBuilder.createBundleRequirement("a", null)
+			.buildSyntheticRequirement();
+		Collection<Capability> second = cached.findProviders(Collections.singleton(other))
+			.get(other);
+		assertThat(second).containsExactlyElementsOf(first);
+		assertThat(repository.calls).hasValue(1);
+
+		// The answer is a copy the caller may modify
+		second.clear();
+		assertThat(cached.findProviders(Collections.singleton(req))
+			.get(req)).hasSize(1);
+		assertThat(repository.calls).hasValue(1);
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		CountingRepository repository = new CountingRepository(bundle("a", "1.0.0"));
+		ProviderCache cache = new ProviderCache();
+		Repository cached = cache.cached(repository);
+
+		Requirement req = CapReqBuilder.createBundleRequirement("a", null)
+			.buildSyntheticRequirement();
+		cached.findProviders(Collections.singleton(req));
+		long generation = cache.getGeneration(repository);
+		assertThat(repository.calls).hasValue(1);
+
+		cache.invalidate(repository);
+		assertThat(cache.getGeneration(repository)).isGreaterThan(generation);
+		cached.findProviders(Collections.singleton(req));
+		assertThat(repository.calls).hasValue(2);
+	}
+
+	@Test
+	public void testOnlyMissingRequirementsAreAsked() throws Exception {
+		CountingRepository repository = new CountingRepository(bundle("a", "1.0.0"), bundle("b", "1.0.0"));
+		ProviderCache cache = new ProviderCache();
+
+		Requirement a = CapReqBuilder.createBundleRequirement("a", null)
+			.buildSyntheticRequirement();
+		Requirement b = CapReqBuilder.createBundleRequirement("b", null)
+			.buildSyntheticRequirement();
+		cache.findProviders(repository, Collections.singleton(a));
+		Map<Requirement, Collection<Capability>> result = cache.findProviders(repository, List.of(a, b));
+		assertThat(result.get(a)).hasSize(1);
+		assertThat(result.get(b)).hasSize(1);
+		assertThat(repository.calls).hasValue(2);
+		assertThat(repository.requirements).hasValue(2);
+	}
+
+	@Test
+	public void testBounded() throws Exception {
+		CountingRepository repository = new CountingRepository(bundle("a", "1.0.0"), bundle("b", "1.0.0"));
+		ProviderCache cache = new ProviderCache(1);
+
+		Requirement a = CapReqBuilder.createBundleRequirement("a", null)
+			.buildSyntheticRequirement();
+		Requirement b = CapReqBuilder.createBundleRequirement("b", null)
+			.buildSyntheticRequirement();
+		cache.findProviders(repository, Collections.singleton(a));
+		long generation = cache.getGeneration(repository);
+		cache.findProviders(repository, Collections.singleton(a));
+		assertThat(repository.calls).hasValue(1);
+
+		// the generation is discarded when it has too many answers
+		cache.findProviders(repository, Collections.singleton(b));
+		assertThat(cache.getGeneration(repository)).isGreaterThan(generation);
+		cache.findProviders(repository, Collections.singleton(a));
+		assertThat(repository.calls).hasValue(3);
+	}
+
+	private static Resource bundle(String bsn, String version) throws Exception {
+		ResourceBuilder rb = new ResourceBuilder();
+		rb.addCapability(CapReqBuilder.createCapReqBuilder("osgi.identity", null)
+			.addAttribute("osgi.identity", bsn)
+			.addAttribute("type", "osgi.bundle")
+			.addAttribute("version", new Version(version)));
+		return rb.build();
+	}
+
+	static class CountingRepository extends ResourcesRepository {
+		final AtomicInteger	calls			= new AtomicInteger();
+		final AtomicInteger	requirements	= new AtomicInteger();
+
+		CountingRepository(Resource... resources) {
+			super(Arrays.asList(resources));
+		}
+
+		@Override
+		public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> reqs) {
+			calls.incrementAndGet();
+			requirements.addAndGet(reqs.size());
+			return super.findProviders(reqs);
+		}
+	}
+}
@@ -20,6 +20,7 @@ import java.util.StringTokenizer;
 import java.util.TreeSet;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
@@ -30,6 +31,7 @@ import aQute.bnd.osgi.Analyzer;
 import aQute.bnd.osgi.Builder;
 import aQute.bnd.osgi.Clazz;
 import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Descriptors.TypeRef;
 import aQute.bnd.osgi.Domain;
 import aQute.bnd.osgi.EmbeddedResource;
 import aQute.bnd.osgi.FileResource;
@@ -164,6 +166,39 @@ public class AnalyzerTest {
 	 * #525 Test if exceptions are imported
 	 */
 
+	@Test
+	public void testClassesUsingAnnotation() throws Exception {
+		try (Builder b = new Builder()) {
+			b.addClasspath(new File("bin_test"));
+			b.setProperty("-includepackage", "test.component");
+			b.setProperty(Constants.DSANNOTATIONS, "");
+			b.build();
+
+			TypeRef component = b.getTypeRef("org/osgi/service/component/annotations/Component");
+			TypeRef reference = b.getTypeRef("org/osgi/service/component/annotations/Reference");
+			List<Clazz> components = b.getClassesUsingAnnotation(component);
+			assertThat(components).isNotEmpty()
+				.containsExactlyElementsOf(b.getClassspace()
+					.values()
+					.stream()
+					.filter(c -> c.annotations()
+						.contains(component))
+					.collect(Collectors.toList()));
+
+			// the classes using any of the annotations in class space order
+			assertThat(b.getClassesUsingAnnotation(component, reference))
+				.containsExactlyElementsOf(b.getClassspace()
+					.values()
+					.stream()
+					.filter(c -> c.annotations()
+						.contains(component)
+						|| c.annotations()
+							.contains(reference))
+					.collect(Collectors.toList()));
+			assertThat(b.getClassesUsingAnnotation(b.getTypeRef("not/used/Annotation"))).isEmpty();
+		}
+	}
+
 	@Test
 	public void testExceptionImports() throws Exception {
 		Builder b = new Builder();
@@ -7,11 +7,14 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
 
 import aQute.bnd.header.Parameters;
+import aQute.bnd.osgi.CompiledInstructions;
 import aQute.bnd.osgi.Instruction;
 import aQute.bnd.osgi.Instructions;
 import aQute.bnd.osgi.Processor;
@@ -354,4 +357,52 @@ public class InstructionTest {
 		assertThat(i.matches("com/foo/bar/baz")).isTrue();
 		assertThat(i.matches("com/bar")).isFalse();
 	}
+
+	@Test
+	public void testCompiledInstructions() {
+		Instructions instructions = new Instructions(
+			"com.foo.impl.*,!com.foo.*,=com.bar,com.b?z.*,com.qux.*:i,org.*,*");
+		CompiledInstructions compiled = instructions.compile();
+		for (String value : Arrays.asList("com.foo", "com.foo.impl", "com.foo.impl.x", "com.foo.api", "com.foobar",
+			"com.bar", "com.bar.x", "com.baz.y", "COM.QUX.z", "org", "org.osgi.framework", "net.x", "")) {
+			assertThat(compiled.matcher(value)).as(value)
+				.isSameAs(instructions.matcher(value));
+		}
+
+		assertThat(compiled.matcher("com.foo.impl.x")
+			.getInput()).isEqualTo("com.foo.impl.*");
+		assertThat(compiled.matcher("com.foo.api")
+			.getInput()).isEqualTo("!com.foo.*");
+		assertThat(compiled.matcher("com.bar.x")
+			.getInput()).isEqualTo("*");
+		assertThat(compiled.matches("com.foo.api")).isFalse();
+		assertThat(compiled.matches("org.osgi.framework")).isTrue();
+	}
+
+	@Test
+	public void testCompiledInstructionsStatistics() {
+		Instructions instructions = new Instructions("com.foo.*,com.bar,com.unused.*");
+		CompiledInstructions compiled = instructions.compile();
+		compiled.matcher("com.foo");
+		compiled.matcher("com.foo.x");
+		compiled.matcher("com.bar");
+		compiled.matcher("com.other");
+
+		assertThat(compiled.getMatchCount(compiled.get(0))).isEqualTo(2);
+		assertThat(compiled.getMatchCount(compiled.get(1))).isEqualTo(1);
+		assertThat(compiled.getUnused()).extracting(Instruction::getInput)
+			.containsExactly("com.unused.*");
+
+		compiled.reset();
+		assertThat(compiled.getUnused()).hasSize(3);
+	}
+
+	@Test
+	public void testSelectKeepsInstructionOrder() {
+		Set<Instruction> unused = new HashSet<>();
+		assertEquals(Arrays.asList("c", "a", "b"),
+			new Instructions("c,!d,*,x").select(Arrays.asList("a", "b", "c", "d"), unused, false));
+		assertThat(unused).extracting(Instruction::getInput)
+			.containsExactly("x");
+	}
 }
@@ -14,6 +14,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
@@ -28,8 +29,12 @@ import aQute.bnd.osgi.EmbeddedResource;
 import aQute.bnd.osgi.FileResource;
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.osgi.Resource;
+import aQute.bnd.osgi.Verifier;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.base64.Base64;
 import aQute.lib.io.IO;
+import aQute.libg.cryptography.MD5;
+import aQute.libg.cryptography.SHA1;
 import aQute.libg.cryptography.SHA256;
 
 public class JarTest {
@@ -338,4 +343,75 @@ public class JarTest {
 			assertThat(jar.exists("ok.txt")).isTrue();
 		}
 	}
+
+	@Test
+	public void testCalcChecksums(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File file = new File(tmp, "digests.jar");
+		try (Jar jar = new Jar("digests")) {
+			for (int i = 0; i < 100; i++) {
+				jar.putResource("a/" + i + ".txt", new EmbeddedResource("content " + i, 0L));
+			}
+			jar.calcChecksums(null);
+			Manifest manifest = jar.getManifest();
+			for (int i = 0; i < 100; i++) {
+				byte[] content = ("content " + i).getBytes(StandardCharsets.UTF_8);
+				assertThat(manifest.getAttributes("a/" + i + ".txt")
+					.getValue("SHA1-Digest")).isEqualTo(Base64.encodeBase64(SHA1.digest(content)
+						.digest()));
+				assertThat(manifest.getAttributes("a/" + i + ".txt")
+					.getValue("MD5-Digest")).isEqualTo(Base64.encodeBase64(MD5.digest(content)
+						.digest()));
+			}
+			jar.write(file);
+		}
+
+		// A source jar with a wrong digest in its manifest
+		String wrong = Base64.encodeBase64(SHA1.digest("wrong".getBytes(StandardCharsets.UTF_8))
+			.digest());
+		String right = Base64.encodeBase64(SHA1.digest("content 0".getBytes(StandardCharsets.UTF_8))
+			.digest());
+		File source = new File(tmp, "source.jar");
+		try (Jar jar = new Jar(file)) {
+			jar.getManifest()
+				.getAttributes("a/0.txt")
+				.putValue("SHA1-Digest", wrong);
+			jar.write(source);
+		}
+
+		// The digests of the jar itself are recomputed, never copied
+		try (Jar jar = new Jar(source)) {
+			jar.putResource("b/changed.txt", new EmbeddedResource("changed", 0L));
+			jar.calcChecksums(null);
+			assertThat(jar.getManifest()
+				.getAttributes("a/0.txt")
+				.getValue("SHA1-Digest")).isEqualTo(right);
+			assertThat(jar.getManifest()
+				.getAttributes("b/changed.txt")
+				.getValue("SHA1-Digest"))
+					.isEqualTo(Base64.encodeBase64(SHA1.digest("changed".getBytes(StandardCharsets.UTF_8))
+						.digest()));
+			try (Verifier verifier = new Verifier(jar)) {
+				verifier.verifyChecksums(true);
+				assertThat(verifier.check()).isTrue();
+			}
+		}
+
+		// The digests of unchanged entries of another jar are reused, the
+		// wrong digest shows that it was not recomputed
+		try (Jar jar = new Jar("copy"); Jar sourceJar = new Jar(source)) {
+			for (int i = 0; i < 100; i++) {
+				jar.putResource("a/" + i + ".txt", sourceJar.getResource("a/" + i + ".txt"));
+			}
+			jar.calcChecksums(null);
+			assertThat(jar.getManifest()
+				.getAttributes("a/0.txt")
+				.getValue("SHA1-Digest")).isEqualTo(wrong);
+			assertThat(jar.getManifest()
+				.getAttributes("a/1.txt")
+				.getValue("SHA1-Digest"))
+					.isEqualTo(Base64.encodeBase64(SHA1.digest("content 1".getBytes(StandardCharsets.UTF_8))
+						.digest()));
+		}
+	}
 }
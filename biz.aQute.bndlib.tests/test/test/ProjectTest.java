@@ -564,6 +564,64 @@ public class ProjectTest {
 		assertEquals(1, bundles.size());
 	}
 
+	/**
+	 * The clauses are resolved together but the result must be the same as
+	 * resolving them one by one.
+	 */
+	@Test
+	public void testBatchedGetBundles() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		Project project = ws.getProject("p1");
+		String[] clauses = {
+			"org.apache.felix.configadmin;version=1.1.0", "org.apache.felix.configadmin;version='[1,2)';strategy=lowest",
+			"org.apache.felix.ipojo", "osgi.core;version=4.2", "p2;version=latest", "nonexist;version=1.0"
+		};
+		for (Strategy strategy : new Strategy[] {
+			Strategy.LOWEST, Strategy.HIGHEST
+		}) {
+			List<Container> expected = new ArrayList<>();
+			for (String clause : clauses) {
+				for (Container container : project.getBundles(strategy, clause, "test")) {
+					if (!expected.contains(container)) {
+						expected.add(container);
+					}
+				}
+			}
+			assertThat(project.getBundles(strategy, String.join(",", clauses), "test"))
+				.containsExactlyElementsOf(expected);
+		}
+	}
+
+	/**
+	 * The versions of a repository are cached by the workspace, a bundle put
+	 * in the repository must be visible to the next lookup.
+	 */
+	@Test
+	public void testGetBundlesSeesPut() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		Project project = ws.getProject("p1");
+		assertThat(project.getBundles(Strategy.HIGHEST, "cache.test", "test")).singleElement()
+			.extracting(Container::getType)
+			.isEqualTo(Container.TYPE.ERROR);
+
+		RepositoryPlugin release = ws.getRepository("Release");
+		try (Builder b = new Builder()) {
+			b.setProperty(Constants.BUNDLE_SYMBOLICNAME, "cache.test");
+			b.setProperty(Constants.BUNDLE_VERSION, "1.0.0");
+			b.setProperty(Constants.RESOURCEONLY, "true");
+			b.setProperty(Constants.INCLUDERESOURCE, "a.txt;literal=a");
+			Jar jar = b.build();
+			assertTrue(b.check());
+			File file = new File(tmp, "cache.test.jar");
+			jar.write(file);
+			release.put(IO.stream(file), new RepositoryPlugin.PutOptions());
+		}
+
+		assertThat(project.getBundles(Strategy.HIGHEST, "cache.test", "test")).singleElement()
+			.extracting(Container::getVersion)
+			.isEqualTo("1.0.0");
+	}
+
 	/**
 	 * Check if the getSubBuilders properly predicts the output.
 	 */
@@ -9,9 +9,13 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -23,7 +27,10 @@ import aQute.bnd.header.Attrs;
 import aQute.bnd.osgi.About;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Processor;
+import aQute.bnd.service.RepositoryPlugin;
+import aQute.bnd.service.repository.Prepare;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.deployer.FileRepo;
 import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 
@@ -382,4 +389,52 @@ public class WorkspaceTest {
 			}, 10_000L);
 		}
 	}
+
+	static class PreparingRepo extends FileRepo implements Prepare {
+		final CyclicBarrier	barrier;
+		final List<String>	prepared;
+		final List<String>	dependencies;
+
+		PreparingRepo(File dir, String name, CyclicBarrier barrier, List<String> prepared, String... dependencies) {
+			super(name, new File(dir, name), false);
+			this.barrier = barrier;
+			this.prepared = prepared;
+			this.dependencies = Arrays.asList(dependencies);
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			if (barrier != null) {
+				barrier.await(10, TimeUnit.SECONDS);
+			}
+			prepared.add(getName());
+		}
+
+		@Override
+		public Collection<String> dependencies() {
+			return dependencies;
+		}
+	}
+
+	@Test
+	public void testRepositoriesArePreparedConcurrently() throws Exception {
+		List<String> prepared = Collections.synchronizedList(new ArrayList<>());
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		File cnf = IO.mkdirs(new File(testDir, "cnf"));
+		IO.store("", new File(cnf, "build.bnd"));
+		try (Workspace ws = new Workspace(testDir)) {
+			ws.addBasicPlugin(new PreparingRepo(testDir, "c", null, prepared, "a", "b"));
+			// a and b can only be prepared at the same time
+			ws.addBasicPlugin(new PreparingRepo(testDir, "a", barrier, prepared));
+			ws.addBasicPlugin(new PreparingRepo(testDir, "b", barrier, prepared, "missing"));
+
+			assertThat(ws.getRepositories()).extracting(RepositoryPlugin::getName)
+				.contains("a", "b", "c");
+			assertThat(prepared).containsExactlyInAnyOrder("a", "b", "c")
+				.endsWith("c");
+			assertThat(ws.getWarnings()).hasSize(1);
+			assertThat(ws.getWarnings()
+				.get(0)).contains("missing");
+		}
+	}
 }
@@ -172,6 +172,72 @@ public class FileRepoTest {
 		assertNull(resource);
 	}
 
+	/**
+	 * Test the lookups by sha and bsn of an indexed repo after it is reopened
+	 */
+	@Test
+	public void testSecondaryIndexes() throws Exception {
+		File root = IO.getFile(tmp, "secondary");
+		FileRepo repo = createRepo(root, MAP.$("index", "true"));
+		PutResult put = repo.put(IO.stream(IO.getFile("jar/osgi.jar")), null);
+		repo.put(IO.stream(IO.getFile("testresources/test.jar")), null);
+		byte[] sha256 = SHA256.digest(new File(put.artifact))
+			.digest();
+		repo.close();
+
+		repo = createRepo(root, MAP.$("index", "true"));
+		assertThat(repo.list(null)).containsOnly("osgi", "test");
+		assertThat(repo.list("o*")).containsOnly("osgi");
+		assertThat(repo.versions("osgi")).containsExactly(new Version("4.0"));
+		assertThat(repo.versions("missing")).isEmpty();
+
+		ResourceDescriptor bySha1 = repo.getResource(put.digest);
+		assertNotNull(bySha1);
+		assertEquals("osgi", bySha1.bsn);
+		ResourceDescriptor bySha256 = repo.getResource(sha256);
+		assertNotNull(bySha256);
+		assertTrue(Arrays.equals(put.digest, bySha256.id));
+
+		repo.delete("osgi", new Version("4.0"));
+		assertNull(repo.getResource(put.digest));
+		assertNull(repo.getResource(sha256));
+		assertThat(repo.versions("osgi")).doesNotContain(new Version("4.0"));
+		repo.close();
+
+		repo = createRepo(root, MAP.$("index", "true"));
+		assertThat(repo.list(null)).containsOnly("osgi", "test");
+		assertNull(repo.getResource(put.digest));
+		repo.close();
+	}
+
+	/**
+	 * Two instances of an indexed repo share the index
+	 */
+	@Test
+	public void testSharedIndexes() throws Exception {
+		File root = IO.getFile(tmp, "shared");
+		FileRepo reader = createRepo(root, MAP.$("index", "true"));
+		FileRepo writer = createRepo(root, MAP.$("index", "true"));
+		try {
+			assertThat(reader.list(null)).isEmpty();
+			assertThat(reader.versions("osgi")).isEmpty();
+
+			PutResult put = writer.put(IO.stream(IO.getFile("jar/osgi.jar")), null);
+			assertThat(reader.list(null)).containsOnly("osgi");
+			assertThat(reader.versions("osgi")).containsExactly(new Version("4.0"));
+			ResourceDescriptor bySha1 = reader.getResource(put.digest);
+			assertNotNull(bySha1);
+			assertEquals("osgi", bySha1.bsn);
+
+			writer.delete("osgi", new Version("4.0"));
+			assertThat(reader.versions("osgi")).doesNotContain(new Version("4.0"));
+			assertNull(reader.getResource(put.digest));
+		} finally {
+			reader.close();
+			writer.close();
+		}
+	}
+
 	@Test
 	public void testListBSNs() throws Exception {
 		List<String> list = testRepo.list(null);
@@ -52,6 +52,8 @@ import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.service.repository.ContentNamespace;
 import org.osgi.service.repository.Repository;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +78,7 @@ import aQute.bnd.memoize.Memoize;
 import aQute.bnd.osgi.About;
 import aQute.bnd.osgi.Analyzer;
 import aQute.bnd.osgi.Builder;
+import aQute.bnd.osgi.ClassFileCache;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Instruction;
 import aQute.bnd.osgi.Instructions;
@@ -179,6 +182,7 @@ public class Project extends Processor {
 	final Packages												importedPackages				= new Packages();
 	final Packages												containedPackages				= new Packages();
 	final PackageInfo											packageInfo						= new PackageInfo(this);
+	final ClassFileCache										classFileCache					= new ClassFileCache();
 	private Makefile											makefile;
 	private volatile Memoize<List<org.osgi.resource.Resource>>	resources						= Memoize
 		.supplier(this::parseBuildResources);
@@ -639,11 +643,16 @@ public class Project extends Processor {
 
 		List<Container> result = new ArrayList<>();
 		try {
+			Map<String, Container> prefetched = prefetch(strategyx, bundles);
 			for (Entry<String, Attrs> entry : bundles.entrySet()) {
 				String bsn = removeDuplicateMarker(entry.getKey());
 				Map<String, String> attrs = entry.getValue();
 
-				Container found = null;
+				Container found = prefetched.get(entry.getKey());
+				if (found != null) {
+					addMembers(result, found);
+					continue;
+				}
 
 				String versionRange = attrs.get("version");
 				boolean triedGetBundle = false;
@@ -698,15 +707,7 @@ public class Project extends Processor {
 				}
 
 				if (found != null) {
-					List<Container> libs = found.getMembers();
-					for (Container cc : libs) {
-						if (result.contains(cc)) {
-							if (isPedantic())
-								warning("Multiple bundles with the same final URL: %s, dropped duplicate", cc);
-						} else {
-							result.add(cc);
-						}
-					}
+					addMembers(result, found);
 				} else {
 					// Oops, not a bundle in sight :-(
 					Container x = new Container(this, bsn, versionRange, Container.TYPE.ERROR, null,
@@ -727,6 +728,132 @@ public class Project extends Processor {
 		return result;
 	}
 
+	private void addMembers(List<Container> result, Container found) throws Exception {
+		List<Container> libs = found.getMembers();
+		for (Container cc : libs) {
+			if (result.contains(cc)) {
+				if (isPedantic())
+					warning("Multiple bundles with the same final URL: %s, dropped duplicate", cc);
+			} else {
+				result.add(cc);
+			}
+		}
+	}
+
+	/**
+	 * Resolve the clauses that only need the repositories concurrently, so the
+	 * repositories are queried and the downloads are started in parallel.
+	 * Clauses that refer to the workspace, files or wildcards, and any clause
+	 * that fails or resolves to a workspace project, are left to the
+	 * sequential resolution in {@link #getBundles(Strategy, String, String)},
+	 * which also reports any errors.
+	 *
+	 * @return the containers for the clauses that could be resolved
+	 */
+	private Map<String, Container> prefetch(Strategy strategyx, Parameters bundles) throws Exception {
+		if (bundles.size() < 2) {
+			return Collections.emptyMap();
+		}
+		List<RepositoryPlugin> plugins = getRepositories();
+		WorkspaceRepository workspaceRepository = getWorkspace().getWorkspaceRepository();
+		Map<String, SortedSet<Version>> localVersions = new HashMap<>();
+		Map<String, Promise<Container>> promises = new LinkedHashMap<>();
+		PromiseFactory promiseFactory = getPromiseFactory();
+		for (Entry<String, Attrs> entry : bundles.entrySet()) {
+			String bsn = removeDuplicateMarker(entry.getKey());
+			Map<String, String> attrs = entry.getValue();
+			String range = attrs.get("version");
+			if (range == null) {
+				range = "0";
+			}
+			if ((bsn.indexOf('*') >= 0) || range.equals(VERSION_ATTR_LATEST) || range.equals(VERSION_ATTR_SNAPSHOT)
+				|| range.equals(VERSION_ATTR_PROJECT) || range.equals(VERSION_ATTR_HASH) || range.equals("file")) {
+				continue;
+			}
+			// the workspace projects are only asked on this thread
+			SortedSet<Version> local = localVersions.get(bsn);
+			if (local == null) {
+				local = workspaceRepository.versions(bsn);
+				localVersions.put(bsn, local);
+			}
+			SortedSet<Version> workspaceVersions = local;
+			String versionRange = range;
+			promises.put(entry.getKey(), promiseFactory
+				.submit(() -> fetch(bsn, versionRange, strategyx, attrs, plugins, workspaceVersions)));
+		}
+
+		Map<String, Container> result = new HashMap<>();
+		for (Entry<String, Promise<Container>> entry : promises.entrySet()) {
+			Promise<Container> promise = entry.getValue();
+			if (promise.getFailure() == null) {
+				Container container = promise.getValue();
+				if (container != null) {
+					result.put(entry.getKey(), container);
+				}
+			} else {
+				logger.debug("prefetch of {} failed, resolving it again", entry.getKey(), promise.getFailure());
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * The repository part of getBundle. Answers null if the bundle is not
+	 * found or is provided by a workspace project.
+	 */
+	private Container fetch(String bsn, String range, Strategy strategy, Map<String, String> attrs,
+		List<RepositoryPlugin> plugins, SortedSet<Version> localVersions) throws Exception {
+		Strategy useStrategy = overrideStrategy(attrs, strategy);
+		if (useStrategy == Strategy.EXACT) {
+			if (!Verifier.isVersion(range))
+				return null;
+			Version version = new Version(range);
+			for (RepositoryPlugin plugin : plugins) {
+				DownloadBlocker blocker = new DownloadBlocker(this);
+				File result = plugin.get(bsn, version, attrs, blocker);
+				if (result != null)
+					return toContainer(bsn, range, attrs, result, blocker);
+			}
+			return null;
+		}
+
+		VersionRange versionRange = new VersionRange(range);
+		RepoFilter repoFilter = parseRepoFilter(attrs);
+		SortedMap<Version, RepositoryPlugin> versions = new TreeMap<>();
+		for (RepositoryPlugin plugin : plugins) {
+			if (repoFilter != null && !repoFilter.match(plugin))
+				continue;
+			// a repository that cannot list its versions is handled by
+			// getBundle
+			SortedSet<Version> vs = getWorkspace().getVersionsCache()
+				.versions(plugin, bsn);
+			if (vs != null) {
+				for (Version v : vs) {
+					if (!versions.containsKey(v) && versionRange.includes(v))
+						versions.put(v, plugin);
+				}
+			}
+		}
+		for (Version v : localVersions) {
+			if (!versions.containsKey(v) && versionRange.includes(v))
+				versions.put(v, null);
+		}
+		if (versions.isEmpty()) {
+			return null;
+		}
+		Version provider = (useStrategy == Strategy.LOWEST) ? versions.firstKey() : versions.lastKey();
+		RepositoryPlugin repo = versions.get(provider);
+		if (repo == null) {
+			return null;
+		}
+		DownloadBlocker blocker = new DownloadBlocker(this);
+		File result = repo.get(bsn, provider, attrs, blocker);
+		if (result == null) {
+			return null;
+		}
+		return toContainer(bsn, provider.toString(), attrs, result, blocker);
+	}
+
 	/**
 	 * Just calls a new method with a default parm.
 	 *
@@ -1151,6 +1278,7 @@ public class Project extends Processor {
 			// TODO find sub bnd that is associated with this thing
 			putOptions.context = context;
 			PutResult r = releaseRepo.put(jarStream, putOptions);
+			getWorkspace().changed(releaseRepo);
 			logger.debug("Released {} to {} in repository {}", jarName, r.artifact, releaseRepo);
 			return r.artifact;
 		} catch (Exception e) {
@@ -1226,6 +1354,10 @@ public class Project extends Processor {
 		}
 		logger.debug("releasing {} - {}", jars, releaseRepos);
 
+		List<ReleaseBracketingPlugin> brackets = getProjectReleaseBrackets();
+		for (ReleaseBracketingPlugin rp : brackets) {
+			rp.begin(this);
+		}
 		try (ProjectBuilder builder = getBuilder(null)) {
 			builder.init();
 			for (RepositoryPlugin releaseRepo : releaseRepos) {
@@ -1235,9 +1367,27 @@ public class Project extends Processor {
 					}
 				}
 			}
+		} finally {
+			for (ReleaseBracketingPlugin rp : brackets) {
+				rp.end(this);
+			}
 		}
 	}
 
+	/**
+	 * Answer the release bracketing plugins that must be told about the
+	 * release of the bundles of a project, see
+	 * {@link ReleaseBracketingPlugin#isProjectReleaseBracketed()}.
+	 *
+	 * @return the plugins, can be empty
+	 */
+	public List<ReleaseBracketingPlugin> getProjectReleaseBrackets() {
+		return getWorkspace().getPlugins(ReleaseBracketingPlugin.class)
+			.stream()
+			.filter(ReleaseBracketingPlugin::isProjectReleaseBracketed)
+			.collect(Collectors.toList());
+	}
+
 	/**
 	 * Get a bundle from one of the plugin repositories. If an exact version is
 	 * required we just return the first repository found (in declaration order
@@ -1310,7 +1460,8 @@ public class Project extends Processor {
 					continue;
 
 				try {
-					SortedSet<Version> vs = plugin.versions(bsn);
+					SortedSet<Version> vs = getWorkspace().getVersionsCache()
+						.versions(plugin, bsn);
 					if (vs != null) {
 						for (Version v : vs) {
 							if (!versions.containsKey(v) && versionRange.includes(v))
@@ -1588,6 +1739,7 @@ public class Project extends Processor {
 		if (rp != null) {
 			try (InputStream stream = new BufferedInputStream(IO.stream(file))) {
 				rp.put(stream, new RepositoryPlugin.PutOptions());
+				getWorkspace().changed(rp);
 			} catch (Exception e) {
 				msgs.DeployingFile_On_Exception_(file, rp.getName(), e);
 			}
@@ -1843,6 +1995,7 @@ public class Project extends Processor {
 
 		versionMap.clear();
 		getMakefile().make();
+		classFileCache.purge();
 
 		File[] buildfiles = getBuildFiles(false);
 		File bfs = new File(getTarget(), BUILDFILES);
@@ -1981,6 +2134,8 @@ public class Project extends Processor {
 				this.resources = Memoize.supplier(() -> resourceBuilders.stream()
 					.map(Supplier::get)
 					.collect(Collectors.toList()));
+				getWorkspace().getCapabilityIndex()
+					.changed(this);
 
 				// Write out the filenames in the buildfiles file
 				// so we can get them later even in another process
@@ -2419,6 +2574,11 @@ public class Project extends Processor {
 		clean(getSrcOutput(), "source output");
 		clean(getTestOutput(), "test output");
 		getGenerate().clean();
+		classFileCache.clear();
+		files = null;
+		resources = Memoize.supplier(this::parseBuildResources);
+		getWorkspace().getCapabilityIndex()
+			.changed(this);
 
 		for (File src : getSourcePath()) {
 			IO.mkdirs(src);
@@ -2501,10 +2661,15 @@ public class Project extends Processor {
 
 	public void test(File reportDir, List<String> tests) throws Exception {
 		ProjectTester tester = getProjectTester();
+		if (reportDir != null) {
+			tester.setReportDir(reportDir);
+		}
+		int shards = TestShards.shards(this);
+		// reads the timings of the previous reports
+		TestShards testShards = (shards > 1) ? new TestShards(this, tester, shards) : null;
 		if (reportDir != null) {
 			logger.debug("Setting reportDir {}", reportDir);
 			IO.delete(reportDir);
-			tester.setReportDir(reportDir);
 		}
 		if (tests != null) {
 			logger.debug("Adding tests {}", tests);
@@ -2518,7 +2683,7 @@ public class Project extends Processor {
 			logger.error("Tests not run because project has errors");
 			return;
 		}
-		int errors = tester.test();
+		int errors = (testShards != null) ? testShards.test() : tester.test();
 		if (errors == 0) {
 			logger.info("No Errors");
 		} else {
@@ -148,11 +148,13 @@ public class ProjectBuilder extends Builder {
 	public ProjectBuilder(Project project) {
 		super(project);
 		this.project = project;
+		setClassFileCache(project.classFileCache);
 	}
 
 	public ProjectBuilder(ProjectBuilder builder) {
 		super(builder);
 		this.project = builder.project;
+		setClassFileCache(project.classFileCache);
 	}
 
 	@Override
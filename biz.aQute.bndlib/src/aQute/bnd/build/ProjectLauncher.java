@@ -310,6 +310,17 @@ public abstract class ProjectLauncher extends Processor {
 		return storageDir;
 	}
 
+	/**
+	 * Set the storage directory of the framework, e.g. to run multiple
+	 * frameworks of the same project concurrently. Must be set before the
+	 * launcher is prepared.
+	 *
+	 * @param storageDir the storage directory
+	 */
+	public void setStorageDir(File storageDir) {
+		this.storageDir = storageDir;
+	}
+
 	public abstract String getMainTypeName();
 
 	public void update() throws Exception {
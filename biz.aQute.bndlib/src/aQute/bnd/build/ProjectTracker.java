@@ -148,4 +148,14 @@ class ProjectTracker implements AutoCloseable {
 		changed = true;
 		update();
 	}
+
+	/*
+	 * Close all projects, they are created again when next requested
+	 */
+	synchronized void reset() {
+		List<Project> older = new ArrayList<>(projects.values());
+		projects.clear();
+		changed = true;
+		older.forEach(IO::close);
+	}
 }
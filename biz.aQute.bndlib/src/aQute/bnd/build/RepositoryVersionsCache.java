@@ -0,0 +1,93 @@
+package aQute.bnd.build;
+
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import aQute.bnd.osgi.repository.WorkspaceRepositoryMarker;
+import aQute.bnd.service.RepositoryPlugin;
+import aQute.bnd.version.Version;
+
+/**
+ * A thread safe cache of the versions of a bsn in a repository, shared by the
+ * projects of a workspace. Many projects of a workspace depend on the same
+ * bundles, without the cache every project asks every repository for the
+ * versions of each of its dependencies.
+ * <p>
+ * The cache is cleared when the workspace is refreshed or a new build starts
+ * with {@link Workspace#resetProjects()}. The entries of a repository are
+ * dropped when a bundle is released into it and whenever the repository
+ * listeners of the workspace are told that the repository has changed, this
+ * covers puts in the repositories that signal their changes, refreshes from
+ * {@link Workspace#refresh(RepositoryPlugin)} and the refreshes of the IDE.
+ * The workspace repository is never cached since its versions change with the
+ * projects.
+ */
+class RepositoryVersionsCache {
+	private final ConcurrentMap<RepositoryPlugin, ConcurrentMap<String, Answer>> cache = new ConcurrentHashMap<>();
+
+	/*
+	 * A repository that cannot list its versions is remembered as well
+	 */
+	private static class Answer {
+		final SortedSet<Version>	versions;
+		final boolean				unsupported;
+
+		Answer(SortedSet<Version> versions, boolean unsupported) {
+			this.versions = versions;
+			this.unsupported = unsupported;
+		}
+	}
+
+	/**
+	 * Answer the versions of the bsn in the repository.
+	 *
+	 * @param repository the repository
+	 * @param bsn the bsn
+	 * @return the versions, may be null
+	 * @throws UnsupportedOperationException if the repository cannot list its
+	 *             versions
+	 * @throws Exception if the repository fails, failures are not cached
+	 */
+	SortedSet<Version> versions(RepositoryPlugin repository, String bsn) throws Exception {
+		if ((repository instanceof WorkspaceRepository) || (repository instanceof WorkspaceRepositoryMarker)) {
+			return repository.versions(bsn);
+		}
+		ConcurrentMap<String, Answer> answers = cache.computeIfAbsent(repository, r -> new ConcurrentHashMap<>());
+		Answer answer = answers.get(bsn);
+		if (answer == null) {
+			try {
+				SortedSet<Version> versions = repository.versions(bsn);
+				answer = new Answer((versions == null) ? null : Collections.unmodifiableSortedSet(versions), false);
+			} catch (UnsupportedOperationException e) {
+				answer = new Answer(null, true);
+			}
+			// a concurrent caller may have been first
+			Answer previous = answers.putIfAbsent(bsn, answer);
+			if (previous != null) {
+				answer = previous;
+			}
+		}
+		if (answer.unsupported) {
+			throw new UnsupportedOperationException(repository.getName() + " cannot list versions");
+		}
+		return answer.versions;
+	}
+
+	/**
+	 * Drop the versions of a repository whose content has changed.
+	 *
+	 * @param repository the repository
+	 */
+	void invalidate(RepositoryPlugin repository) {
+		cache.remove(repository);
+	}
+
+	/**
+	 * Drop all versions.
+	 */
+	void clear() {
+		cache.clear();
+	}
+}
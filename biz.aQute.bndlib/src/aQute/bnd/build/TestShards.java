@@ -0,0 +1,338 @@
+package aQute.bnd.build;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import aQute.bnd.header.OSGiHeader;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Domain;
+import aQute.bnd.osgi.Jar;
+import aQute.lib.io.IO;
+import aQute.lib.xml.XML;
+
+/**
+ * Runs the test cases of a project in a number of frameworks that are launched
+ * concurrently, see {@link Constants#TESTSHARDS}. The test classes are
+ * partitioned over the shards, balanced by the time the classes took in the
+ * JUnit XML reports of the previous run. Each shard has its own framework
+ * storage and report directory, the reports of the shards are merged into the
+ * report directory of the tester afterwards.
+ */
+class TestShards {
+	private final static Logger			logger	= LoggerFactory.getLogger(TestShards.class);
+	private final static String[]		COUNTS	= {
+		"tests", "skipped", "failures", "errors"
+	};
+
+	private final Project				project;
+	private final ProjectTester			tester;
+	private final int					shards;
+	private final Map<String, Double>	timings;
+
+	/**
+	 * Must be created before the report directory of the tester is cleared,
+	 * the previous reports are read for the timings.
+	 */
+	TestShards(Project project, ProjectTester tester, int shards) {
+		this.project = project;
+		this.tester = tester;
+		this.shards = shards;
+		this.timings = timings(tester.getReportDir());
+	}
+
+	/**
+	 * Answer the number of shards set with {@link Constants#TESTSHARDS}.
+	 */
+	static int shards(Project project) {
+		String value = project.getProperty(Constants.TESTSHARDS);
+		if (value == null) {
+			return 1;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(value.trim()));
+		} catch (NumberFormatException e) {
+			project.error("%s must be a number: %s", Constants.TESTSHARDS, value);
+			return 1;
+		}
+	}
+
+	/**
+	 * Run the tests, the tester must be prepared.
+	 *
+	 * @return the number of errors like {@link ProjectTester#test()}
+	 */
+	int test() throws Exception {
+		if (tester.getContinuous()) {
+			logger.info("Tests are not sharded in continuous mode");
+			return tester.test();
+		}
+		List<String> tests = new ArrayList<>(tester.getTests());
+		if (tests.isEmpty()) {
+			tests.addAll(testCases(tester.getProjectLauncher()
+				.getRunBundles()));
+		}
+		if (tests.size() < 2) {
+			return tester.test();
+		}
+
+		List<List<String>> partitions = partition(tests, Math.min(shards, tests.size()), timings);
+		File work = new File(project.getTarget(), "test-shards");
+		IO.delete(work);
+
+		List<ProjectTester> testers = new ArrayList<>(partitions.size());
+		for (int i = 0; i < partitions.size(); i++) {
+			File dir = new File(work, Integer.toString(i));
+			ProjectTester shard = project.getProjectTester();
+			shard.setReportDir(new File(dir, "reports"));
+			shard.setContinuous(false);
+			shard.setTerminate(tester.getTerminate());
+			if (tester.getCwd() != null) {
+				shard.setCwd(tester.getCwd());
+			}
+			shard.getProjectLauncher()
+				.setStorageDir(new File(dir, "storage"));
+			partitions.get(i)
+				.forEach(shard::addTest);
+			shard.prepare();
+			logger.debug("Shard {} runs {}", i, partitions.get(i));
+			testers.add(shard);
+		}
+		if (!project.isOk()) {
+			testers.forEach(shard -> IO.close(shard.getProjectLauncher()));
+			return -1;
+		}
+
+		PromiseFactory promiseFactory = project.getPromiseFactory();
+		List<Promise<Integer>> promises = new ArrayList<>(testers.size());
+		for (ProjectTester shard : testers) {
+			promises.add(promiseFactory.submit(() -> {
+				try {
+					return shard.test();
+				} finally {
+					IO.close(shard.getProjectLauncher());
+				}
+			}));
+		}
+
+		int errors = 0;
+		for (int i = 0; i < promises.size(); i++) {
+			Promise<Integer> promise = promises.get(i);
+			Throwable failure = promise.getFailure();
+			if (failure != null) {
+				project.exception(failure, "Test shard %s failed", i);
+				errors = -1;
+				continue;
+			}
+			int result = promise.getValue();
+			// a launch failure has precedence over the test failures
+			if (result < 0) {
+				errors = (errors < 0) ? errors : result;
+			} else if (errors >= 0) {
+				errors += result;
+			}
+		}
+
+		List<File> reportDirs = new ArrayList<>(testers.size());
+		for (ProjectTester shard : testers) {
+			reportDirs.add(shard.getReportDir());
+		}
+		merge(reportDirs, tester.getReportDir());
+		IO.delete(work);
+		return errors;
+	}
+
+	/*
+	 * The Test-Cases of the bundles that are run
+	 */
+	static List<String> testCases(Collection<String> runbundles) {
+		Set<String> tests = new LinkedHashSet<>();
+		for (String path : runbundles) {
+			File file = new File(path);
+			if (!file.exists()) {
+				continue;
+			}
+			try (Jar jar = new Jar(file)) {
+				Domain domain = Domain.domain(jar.getManifest());
+				if (domain != null) {
+					String testcases = domain.get(Constants.TESTCASES);
+					if (testcases != null) {
+						tests.addAll(OSGiHeader.parseHeader(testcases)
+							.keySet());
+					}
+				}
+			} catch (Exception e) {
+				logger.debug("Cannot read the test cases of {}", path, e);
+			}
+		}
+		return new ArrayList<>(tests);
+	}
+
+	/*
+	 * The time per test class in the JUnit XML reports
+	 */
+	static Map<String, Double> timings(File reportDir) {
+		Map<String, Double> timings = new HashMap<>();
+		for (File report : IO.listFiles(reportDir, (dir, name) -> name.endsWith(".xml"))) {
+			try (InputStream in = IO.stream(report)) {
+				XMLStreamReader reader = XML.newXMLInputFactory()
+					.createXMLStreamReader(in);
+				try {
+					while (reader.hasNext()) {
+						if ((reader.next() == XMLStreamConstants.START_ELEMENT)
+							&& reader.getLocalName()
+								.equals("testcase")) {
+							String classname = reader.getAttributeValue(null, "classname");
+							String time = reader.getAttributeValue(null, "time");
+							if ((classname != null) && (time != null)) {
+								timings.merge(classname, Double.valueOf(time.replace(",", "")), Double::sum);
+							}
+						}
+					}
+				} finally {
+					reader.close();
+				}
+			} catch (Exception e) {
+				logger.debug("Cannot read the timings of {}", report, e);
+			}
+		}
+		return timings;
+	}
+
+	/*
+	 * Assigns the slowest test to the shard with the least time until all tests
+	 * are assigned. Tests without a timing are assumed to take the average
+	 * time.
+	 */
+	static List<List<String>> partition(List<String> tests, int shards, Map<String, Double> timings) {
+		double average = timings.values()
+			.stream()
+			.mapToDouble(Double::doubleValue)
+			.average()
+			.orElse(1.0);
+		Map<String, Double> weights = new LinkedHashMap<>();
+		for (String test : tests) {
+			weights.put(test, timings.getOrDefault(testClass(test), average));
+		}
+		List<String> sorted = new ArrayList<>(weights.keySet());
+		sorted.sort(Comparator.comparing(weights::get)
+			.reversed());
+
+		List<List<String>> partitions = new ArrayList<>(shards);
+		double[] loads = new double[shards];
+		for (int i = 0; i < shards; i++) {
+			partitions.add(new ArrayList<>());
+		}
+		for (String test : sorted) {
+			int min = 0;
+			for (int i = 1; i < shards; i++) {
+				if (loads[i] < loads[min]) {
+					min = i;
+				}
+			}
+			partitions.get(min)
+				.add(test);
+			loads[min] += weights.get(test);
+		}
+		// keep the order in which the tests were given
+		for (List<String> partition : partitions) {
+			partition.sort(Comparator.comparingInt(tests::indexOf));
+		}
+		partitions.removeIf(List::isEmpty);
+		return partitions;
+	}
+
+	private static String testClass(String test) {
+		int n = test.indexOf(':');
+		if (n < 0) {
+			n = test.indexOf('#');
+		}
+		return (n < 0) ? test : test.substring(0, n);
+	}
+
+	/*
+	 * The reports with the same name, e.g. one per test engine, are merged into
+	 * a single test suite
+	 */
+	static void merge(List<File> reportDirs, File reportDir) throws Exception {
+		IO.mkdirs(reportDir);
+		Map<String, List<File>> reports = new LinkedHashMap<>();
+		for (File dir : reportDirs) {
+			for (File report : IO.listFiles(dir)) {
+				if (report.isFile()) {
+					reports.computeIfAbsent(report.getName(), k -> new ArrayList<>())
+						.add(report);
+				}
+			}
+		}
+		DocumentBuilder builder = XML.newDocumentBuilderFactory()
+			.newDocumentBuilder();
+		for (Map.Entry<String, List<File>> entry : reports.entrySet()) {
+			File target = new File(reportDir, entry.getKey());
+			List<File> files = entry.getValue();
+			if ((files.size() == 1) || !entry.getKey()
+				.endsWith(".xml")) {
+				IO.copy(files.get(0), target);
+				continue;
+			}
+			Document merged = builder.parse(files.get(0));
+			Element suite = merged.getDocumentElement();
+			for (File file : files.subList(1, files.size())) {
+				Element other = builder.parse(file)
+					.getDocumentElement();
+				for (String count : COUNTS) {
+					if (suite.hasAttribute(count) || other.hasAttribute(count)) {
+						suite.setAttribute(count, Integer.toString(count(suite, count) + count(other, count)));
+					}
+				}
+				if (suite.hasAttribute("time") || other.hasAttribute("time")) {
+					suite.setAttribute("time", Double.toString(time(suite) + time(other)));
+				}
+				for (Node node = other.getFirstChild(); node != null; node = node.getNextSibling()) {
+					if ((node.getNodeType() == Node.ELEMENT_NODE) && !node.getNodeName()
+						.equals("properties")) {
+						suite.appendChild(merged.importNode(node, true));
+					}
+				}
+			}
+			Transformer transformer = XML.newTransformerFactory()
+				.newTransformer();
+			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+			transformer.transform(new DOMSource(merged), new StreamResult(target));
+		}
+	}
+
+	private static int count(Element suite, String name) {
+		String value = suite.getAttribute(name);
+		return value.isEmpty() ? 0 : Integer.parseInt(value);
+	}
+
+	private static double time(Element suite) {
+		String value = suite.getAttribute("time");
+		return value.isEmpty() ? 0.0 : Double.parseDouble(value.replace(",", ""));
+	}
+}
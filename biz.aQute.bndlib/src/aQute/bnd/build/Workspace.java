@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -53,6 +54,7 @@ import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.service.repository.Repository;
 import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,6 +84,7 @@ import aQute.bnd.osgi.Resource;
 import aQute.bnd.osgi.Verifier;
 import aQute.bnd.osgi.repository.AggregateRepository;
 import aQute.bnd.osgi.repository.AugmentRepository;
+import aQute.bnd.osgi.repository.ProviderCache;
 import aQute.bnd.osgi.repository.WorkspaceRepositoryMarker;
 import aQute.bnd.osgi.resource.RequirementBuilder;
 import aQute.bnd.osgi.resource.ResourceUtils;
@@ -138,6 +141,9 @@ public class Workspace extends Processor {
 		final CloseableMemoize<WorkspaceExternalPluginHandler>	externalPlugins;
 		final CloseableMemoize<LibraryHandler>					libraryHandler;
 		final Memoize<Parameters>								gestalt;
+		final ProviderCache										providerCache	= new ProviderCache();
+		final RepositoryVersionsCache							versionsCache	= new RepositoryVersionsCache();
+		final WorkspaceCapabilityIndex							capabilityIndex	= new WorkspaceCapabilityIndex();
 
 		WorkspaceData() {
 			repositories = Memoize.supplier(Workspace.this::initRepositories);
@@ -339,6 +345,7 @@ public class Workspace extends Processor {
 		workspaceDir = workspaceDir.getAbsoluteFile();
 		setBase(workspaceDir); // setBase before call to setFileSystem
 		addBasicPlugin(new LoggingProgressPlugin());
+		addBasicPlugin(new RepositoryCaches());
 		setFileSystem(workspaceDir, bndDir);
 
 		// we must process version defaults after the
@@ -356,6 +363,7 @@ public class Workspace extends Processor {
 		super(new Processor(getDefaults()));
 		this.maven = new Maven(Processor.getExecutor(), this);
 		this.layout = layout;
+		addBasicPlugin(new RepositoryCaches());
 		setBuildDir(IO.getFile(BND_DEFAULT_WS, CNFDIR));
 	}
 
@@ -497,6 +505,19 @@ public class Workspace extends Processor {
 		projects.forceRefresh();
 	}
 
+	/**
+	 * Signal that the driver starts a new build with a workspace it has kept
+	 * open from a previous build. All projects are discarded and created again
+	 * from their bnd files when they are requested. The workspace properties
+	 * and the repositories are kept, the cached versions of the repositories
+	 * and the capability index of the projects are discarded.
+	 */
+	public void resetProjects() {
+		data.versionsCache.clear();
+		data.capabilityIndex.clear();
+		projects.reset();
+	}
+
 	final static Set<String> INCLUDE_EXTS = Set.of("bnd", "mf", "pmvn", "pobr");
 
 	@Override
@@ -587,6 +608,7 @@ public class Workspace extends Processor {
 	 * @param f The changed file
 	 */
 	public void changedFile(File f) {
+		data.capabilityIndex.changedFile(f);
 		List<BndListener> listeners = getPlugins(BndListener.class);
 		for (BndListener l : listeners)
 			try {
@@ -716,24 +738,160 @@ public class Workspace extends Processor {
 		cf.close();
 	}
 
+	private static final ThreadLocal<Workspace> preparing = new ThreadLocal<>();
+
 	public List<RepositoryPlugin> getRepositories() {
+		// a repository that is being prepared gets the unprepared list
+		if (preparing.get() == this) {
+			return getPlugins(RepositoryPlugin.class);
+		}
 		return data.repositories.get();
 	}
 
+	/*
+	 * Prepare the repositories concurrently. A repository is prepared after
+	 * the repositories it depends on, whether their preparation succeeded or
+	 * not. The first failure is thrown after all preparations are done.
+	 */
 	private List<RepositoryPlugin> initRepositories() {
 		List<RepositoryPlugin> plugins = getPlugins(RepositoryPlugin.class);
+		Map<String, RepositoryPlugin> names = new HashMap<>();
 		for (RepositoryPlugin repo : plugins) {
-			if (repo instanceof Prepare prepare) {
-				try {
-					prepare.prepare();
-				} catch (Exception e) {
-					throw Exceptions.duck(e);
+			names.putIfAbsent(repo.getName(), repo);
+		}
+		Map<RepositoryPlugin, Promise<Void>> prepared = new IdentityHashMap<>();
+		for (RepositoryPlugin repo : plugins) {
+			prepare(repo, names, prepared, new LinkedHashSet<>());
+		}
+		try {
+			for (RepositoryPlugin repo : plugins) {
+				Promise<Void> promise = prepared.get(repo);
+				Throwable failure = (promise != null) ? promise.getFailure() : null;
+				if (failure != null) {
+					throw Exceptions.duck(failure);
 				}
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			throw Exceptions.duck(e);
 		}
 		return plugins;
 	}
 
+	private Promise<Void> prepare(RepositoryPlugin repo, Map<String, RepositoryPlugin> names,
+		Map<RepositoryPlugin, Promise<Void>> prepared, Set<RepositoryPlugin> path) {
+		Promise<Void> promise = prepared.get(repo);
+		if ((promise != null) || !(repo instanceof Prepare prepare)) {
+			return promise;
+		}
+
+		PromiseFactory promiseFactory = getPromiseFactory();
+		List<Promise<Void>> dependencies = new ArrayList<>();
+		path.add(repo);
+		for (String name : prepare.dependencies()) {
+			RepositoryPlugin dependency = names.get(name);
+			if (dependency == null) {
+				warning("Repository %s depends on %s, which is not a repository of this workspace", repo.getName(),
+					name);
+			} else if (path.contains(dependency)) {
+				error("Cyclic dependency between the repositories %s and %s", repo.getName(), name);
+			} else {
+				Promise<Void> p = prepare(dependency, names, prepared, path);
+				if (p != null) {
+					dependencies.add(p.recoverWith(failed -> promiseFactory.resolved(null)));
+				}
+			}
+		}
+		path.remove(repo);
+
+		promise = promiseFactory.all(dependencies)
+			.then(resolved -> promiseFactory.submit(() -> {
+				long start = System.nanoTime();
+				preparing.set(this);
+				try {
+					prepare.prepare();
+				} finally {
+					preparing.remove();
+					trace("Prepared repository %s in %d ms", repo.getName(),
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+				}
+				return null;
+			}));
+		prepared.put(repo, promise);
+		return promise;
+	}
+
+	/**
+	 * Answer the provider cache of this workspace. The cache is shared by all
+	 * resolves in this workspace that enable
+	 * {@link Constants#RESOLVE_PROVIDERCACHE}. A repository is invalidated in
+	 * the cache when it is refreshed with {@link #refresh(RepositoryPlugin)},
+	 * when a project releases into it and when the repository listeners are
+	 * told that a bundle was added to or removed from it. The whole cache is
+	 * discarded when the workspace or all repositories are refreshed.
+	 *
+	 * @return the provider cache of this workspace
+	 */
+	public ProviderCache getProviderCache() {
+		return data.providerCache;
+	}
+
+	RepositoryVersionsCache getVersionsCache() {
+		return data.versionsCache;
+	}
+
+	/**
+	 * Discard the cached answers of a repository whose content has changed.
+	 *
+	 * @param repository the changed repository
+	 */
+	void changed(RepositoryPlugin repository) {
+		WorkspaceData data = this.data;
+		if (repository instanceof Repository r) {
+			data.providerCache.invalidate(r);
+		}
+		data.versionsCache.invalidate(repository);
+	}
+
+	/*
+	 * Repositories and tools like Bndtools tell the repository listeners when
+	 * the content of a repository changes, the cached answers of the changed
+	 * repository must then be discarded.
+	 */
+	private class RepositoryCaches implements RepositoryListenerPlugin {
+		@Override
+		public void bundleAdded(RepositoryPlugin repository, Jar jar, File file) {
+			changed(repository);
+		}
+
+		@Override
+		public void bundleRemoved(RepositoryPlugin repository, Jar jar, File file) {
+			changed(repository);
+		}
+
+		@Override
+		public void repositoryRefreshed(RepositoryPlugin repository) {
+			changed(repository);
+		}
+
+		@Override
+		public void repositoriesRefreshed() {
+			WorkspaceData data = Workspace.this.data;
+			data.providerCache.clear();
+			data.versionsCache.clear();
+		}
+
+		@Override
+		public String toString() {
+			return "RepositoryCaches";
+		}
+	}
+
+	WorkspaceCapabilityIndex getCapabilityIndex() {
+		return data.capabilityIndex;
+	}
+
 	/**
 	 * Get the repositories and ensure they are all ready.
 	 *
@@ -744,7 +902,10 @@ public class Workspace extends Processor {
 			List<RepositoryPlugin> repositories = getRepositories();
 			List<Promise<Void>> promises = new ArrayList<>();
 			for (RepositoryPlugin repo : repositories) {
-				promises.add(repo.sync());
+				long start = System.nanoTime();
+				promises.add(repo.sync()
+					.onResolve(() -> trace("Initialized repository %s in %d ms", repo.getName(),
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))));
 			}
 			return getPromiseFactory().all(promises)
 				.map(l -> {
@@ -1661,6 +1822,7 @@ public class Workspace extends Processor {
 	}
 
 	public void refresh(RepositoryPlugin repo) {
+		// the caches are invalidated by the RepositoryCaches listener
 		for (RepositoryListenerPlugin listener : getPlugins(RepositoryListenerPlugin.class)) {
 			try {
 				listener.repositoryRefreshed(repo);
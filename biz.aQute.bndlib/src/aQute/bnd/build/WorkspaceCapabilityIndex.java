@@ -0,0 +1,260 @@
+package aQute.bnd.build;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.namespace.IdentityNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Namespace;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+import aQute.bnd.osgi.resource.FilterParser;
+import aQute.bnd.osgi.resource.FilterParser.And;
+import aQute.bnd.osgi.resource.FilterParser.BundleExpression;
+import aQute.bnd.osgi.resource.FilterParser.Expression;
+import aQute.bnd.osgi.resource.FilterParser.HostExpression;
+import aQute.bnd.osgi.resource.FilterParser.IdentityExpression;
+import aQute.bnd.osgi.resource.FilterParser.Op;
+import aQute.bnd.osgi.resource.FilterParser.PackageExpression;
+import aQute.bnd.osgi.resource.FilterParser.SimpleExpression;
+import aQute.bnd.osgi.resource.FilterParser.WithRangeExpression;
+import aQute.bnd.osgi.resource.ResourceUtils;
+
+/**
+ * An index of the capabilities of the resources built by the projects of a
+ * workspace, used by the workspace repository to find providers.
+ * <p>
+ * The capabilities of a project are indexed by namespace and by the value of
+ * the namespace attribute, for example the package name of an
+ * {@code osgi.wiring.package} capability. A requirement whose filter demands a
+ * value for the namespace attribute is only matched against the capabilities
+ * with that value, any other requirement is matched against all the
+ * capabilities of its namespace.
+ * <p>
+ * The index of a project is only calculated again when the project's resources
+ * change, i.e. when the project is built or cleaned, or when a file in the
+ * project's target directory is reported as changed.
+ */
+class WorkspaceCapabilityIndex {
+	private final ConcurrentMap<String, ProjectIndex>						projects	= new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Predicate<Map<String, Object>>>	filters		= new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Optional<String>>					keys		= new ConcurrentHashMap<>();
+
+	/**
+	 * Find the providers of the requirement in the resources of the projects.
+	 * The capabilities are returned in the order of the projects, their
+	 * resources and the capabilities of the resources.
+	 *
+	 * @param projects the projects of the workspace
+	 * @param requirement the requirement
+	 * @return the matching capabilities
+	 */
+	List<Capability> findProviders(Collection<Project> projects, Requirement requirement) {
+		String namespace = requirement.getNamespace();
+		String key = key(namespace, requirement.getDirectives()
+			.get(Namespace.REQUIREMENT_FILTER_DIRECTIVE));
+		Predicate<Capability> matcher = ResourceUtils.matcher(requirement, this::filterPredicate);
+		List<Capability> capabilities = new ArrayList<>();
+		for (Project project : projects) {
+			NamespaceIndex index = index(project).namespaces.get(namespace);
+			if (index == null) {
+				continue;
+			}
+			for (Capability capability : index.candidates(key)) {
+				if (matcher.test(capability)) {
+					capabilities.add(capability);
+				}
+			}
+		}
+		return capabilities;
+	}
+
+	/**
+	 * Drop the index of a project whose resources have changed.
+	 *
+	 * @param project the project
+	 */
+	void changed(Project project) {
+		projects.remove(project.getName());
+	}
+
+	/**
+	 * Drop the index of the project that builds into the directory of the
+	 * changed file.
+	 *
+	 * @param file the changed file
+	 */
+	void changedFile(File file) {
+		String path = file.getAbsolutePath();
+		projects.values()
+			.removeIf(index -> path.startsWith(index.target));
+	}
+
+	/**
+	 * Drop all indexes.
+	 */
+	void clear() {
+		projects.clear();
+		filters.clear();
+		keys.clear();
+	}
+
+	/*
+	 * The project's resources are memoized and replaced when the project is
+	 * built, a different list means the index is stale
+	 */
+	private ProjectIndex index(Project project) {
+		List<Resource> resources = project.getResources();
+		ProjectIndex index = projects.get(project.getName());
+		if ((index == null) || (index.resources != resources)) {
+			index = new ProjectIndex(project, resources);
+			projects.put(project.getName(), index);
+		}
+		return index;
+	}
+
+	private Predicate<Map<String, Object>> filterPredicate(String filterString) {
+		if (filterString == null) {
+			return ResourceUtils.filterPredicate(null);
+		}
+		return filters.computeIfAbsent(filterString, ResourceUtils::filterPredicate);
+	}
+
+	/*
+	 * The value of the namespace attribute the filter demands or null
+	 */
+	private String key(String namespace, String filter) {
+		if ((filter == null) || (filter.indexOf('\\') >= 0)) {
+			return null;
+		}
+		return keys.computeIfAbsent(namespace + ':' + filter, k -> {
+			try {
+				Expression expression = new FilterParser().parse(filter);
+				return Optional.ofNullable(key(namespace, expression));
+			} catch (RuntimeException e) {
+				return Optional.empty();
+			}
+		})
+			.orElse(null);
+	}
+
+	private static String key(String namespace, Expression expression) {
+		if (expression instanceof And and) {
+			for (Expression e : and.getExpressions()) {
+				String key = key(namespace, e);
+				if (key != null) {
+					return key;
+				}
+			}
+			return null;
+		}
+		String key = null;
+		if (expression instanceof WithRangeExpression withRange) {
+			if (namespace.equals(namespace(withRange))) {
+				key = withRange.printExcludingRange();
+			}
+		} else if ((expression != null) && (expression.getClass() == SimpleExpression.class)) {
+			SimpleExpression simple = (SimpleExpression) expression;
+			if ((simple.getOp() == Op.EQUAL) && namespace.equals(simple.getKey())) {
+				key = simple.getValue();
+			}
+		}
+		if ((key == null) || (key.indexOf('*') >= 0)) {
+			return null;
+		}
+		return key;
+	}
+
+	private static String namespace(WithRangeExpression expression) {
+		if (expression instanceof PackageExpression) {
+			return PackageNamespace.PACKAGE_NAMESPACE;
+		}
+		if (expression instanceof HostExpression) {
+			return HostNamespace.HOST_NAMESPACE;
+		}
+		if (expression instanceof BundleExpression) {
+			return BundleNamespace.BUNDLE_NAMESPACE;
+		}
+		if (expression instanceof IdentityExpression) {
+			return IdentityNamespace.IDENTITY_NAMESPACE;
+		}
+		return null;
+	}
+
+	private static class ProjectIndex {
+		final List<Resource>				resources;
+		final String						target;
+		final Map<String, NamespaceIndex>	namespaces	= new LinkedHashMap<>();
+
+		ProjectIndex(Project project, List<Resource> resources) {
+			this.resources = resources;
+			this.target = project.getTargetDir()
+				.getAbsolutePath() + File.separator;
+			for (Resource resource : resources) {
+				for (Capability capability : resource.getCapabilities(null)) {
+					namespaces.computeIfAbsent(capability.getNamespace(), NamespaceIndex::new)
+						.add(capability);
+				}
+			}
+		}
+	}
+
+	private static class NamespaceIndex {
+		final String						namespace;
+		final List<Capability>				all		= new ArrayList<>();
+		final Map<String, List<Capability>>	keyed	= new LinkedHashMap<>();
+		boolean								unkeyed;
+
+		NamespaceIndex(String namespace) {
+			this.namespace = namespace;
+		}
+
+		void add(Capability capability) {
+			all.add(capability);
+			Object value = capability.getAttributes()
+				.get(namespace);
+			if (value instanceof String string) {
+				keyed.computeIfAbsent(string, k -> new ArrayList<>())
+					.add(capability);
+			} else if (value instanceof Collection<?> collection) {
+				for (Object v : collection) {
+					if (v instanceof String string) {
+						List<Capability> list = keyed.computeIfAbsent(string, k -> new ArrayList<>());
+						if (!list.contains(capability)) {
+							list.add(capability);
+						}
+					} else {
+						unkeyed = true;
+					}
+				}
+			} else if (value != null) {
+				unkeyed = true;
+			}
+		}
+
+		/*
+		 * A capability without a string value for the namespace attribute can
+		 * match any key, then all capabilities are candidates to keep their
+		 * order
+		 */
+		List<Capability> candidates(String key) {
+			if ((key == null) || unkeyed) {
+				return all;
+			}
+			return keyed.getOrDefault(key, Collections.emptyList());
+		}
+	}
+}
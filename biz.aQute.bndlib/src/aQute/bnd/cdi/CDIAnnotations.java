@@ -100,6 +100,8 @@ public class CDIAnnotations implements AnalyzerPlugin {
 		List<String> names = new ArrayList<>();
 		TreeSet<String> provides = new TreeSet<>();
 		TreeSet<String> requires = new TreeSet<>();
+		Descriptors.TypeRef beanType = analyzer.getTypeRef("org/osgi/service/cdi/annotations/Bean");
+		Map<Descriptors.PackageRef, Boolean> beansPackages = new HashMap<>();
 
 		for (Clazz c : analyzer.getClassspace()
 			.values()) {
@@ -144,6 +146,11 @@ public class CDIAnnotations implements AnalyzerPlugin {
 						break;
 					}
 
+					if (options.contains(Discover.annotated_by_bean)
+						&& !isMarkable(analyzer, c, beanType, beansPackages)) {
+						break;
+					}
+
 					List<BeanDef> definitions = CDIAnnotationReader.getDefinition(c, analyzer, options);
 					if (definitions == null) {
 						break;
@@ -189,6 +196,25 @@ public class CDIAnnotations implements AnalyzerPlugin {
 		return false;
 	}
 
+	/*
+	 * In the annotated_by_bean mode only classes using @Bean or in a package
+	 * annotated with @Beans can be beans. The annotations are known from the
+	 * analysis, so the other classes need not be parsed again.
+	 */
+	private static boolean isMarkable(Analyzer analyzer, Clazz c, Descriptors.TypeRef beanType,
+		Map<Descriptors.PackageRef, Boolean> beansPackages) {
+		if (c.annotations()
+			.contains(beanType)) {
+			return true;
+		}
+		return beansPackages.computeIfAbsent(c.getClassName()
+			.getPackageRef(), packageRef -> {
+				Clazz packageInfo = analyzer.getPackageInfo(packageRef);
+				return (packageInfo != null) && packageInfo.annotations()
+					.contains(analyzer.getTypeRef("org/osgi/service/cdi/annotations/Beans"));
+			});
+	}
+
 	private void addServiceCapability(String[] objectClass, Set<String> provides) {
 		if (objectClass.length > 0) {
 			Parameters p = new Parameters();
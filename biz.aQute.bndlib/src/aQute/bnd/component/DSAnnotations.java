@@ -134,8 +134,9 @@ public class DSAnnotations implements AnalyzerPlugin {
 		}
 
 		Instructions instructions = new Instructions(header);
-		Collection<Clazz> list = analyzer.getClassspace()
-			.values();
+		// only classes using @Component can be components
+		Collection<Clazz> list = analyzer
+			.getClassesUsingAnnotation(analyzer.getTypeRef("org/osgi/service/component/annotations/Component"));
 		String sc = analyzer.getProperty(Constants.SERVICE_COMPONENT);
 		List<String> componentPaths = new ArrayList<>();
 		if (sc != null && sc.trim()
@@ -611,6 +611,10 @@ public class Syntax implements Constants {
 		new Syntax(RESOLVE_PREFERENCES, "Override the default order and selection of repositories.",
 			RESOLVE_PREFERENCES + "=com.example.bundle.most.priority", "${packages}", null),
 
+		new Syntax(RESOLVE_PROVIDERCACHE,
+			"Share the providers found in the repositories between all resolves in the workspace.",
+			RESOLVE_PROVIDERCACHE + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
+
 		new Syntax(RUNTIMEOUT, "Specifies the test execution timeout.", RUNTIMEOUT + "=10000", null, null),
 		new Syntax(REQUIRE_BND, "Require a specific version of bnd.", REQUIRE_BND + "=\"(version>=4.1)\"",
 			"(FILTER ( ',' FILTER )* )?", null),
@@ -714,6 +718,9 @@ public class Syntax implements Constants {
 		new Syntax(TESTCONTINUOUS,
 			"Do not exit after running the test suites but keep watching the bundles and rerun the test cases if the bundle is updated.",
 			TESTCONTINUOUS + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
+		new Syntax(TESTSHARDS,
+			"Run the test cases in the given number of frameworks that are launched concurrently. The test classes are balanced over the frameworks by the time they took in the previous test reports.",
+			TESTSHARDS + "=4", null, Verifier.NUMBERPATTERN),
 		new Syntax(TESTSOURCES,
 			"Specification to find JUnit test cases by traversing the test src directory and looking for java classes.",
 			TESTSOURCES + "=*.java", "REGEX ( ',' REGEX )*", null),
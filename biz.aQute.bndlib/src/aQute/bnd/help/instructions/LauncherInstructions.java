@@ -24,6 +24,14 @@ public interface LauncherInstructions {
 		@SyntaxAnnotation(lead = "Strips files from embedded JARs. The syntax JARPATHMATCH ':' RESOURCEPATHMATCH, both globs.", example = "*:OSGI-OPT/*")
 		List<String> strip();
 
+		@SyntaxAnnotation(lead = "Store the -runpath and -runbundles JARs uncompressed in the executable. The "
+			+ "launcher then loads the -runpath in place instead of extracting it to temporary files", example = "store=true")
+		boolean store();
+
+		@SyntaxAnnotation(lead = "Install and resolve the -runbundles when the executable is exported and embed the "
+			+ "resulting framework storage. The first launch then restores the storage instead of installing the bundles", example = "snapshot=true")
+		boolean snapshot();
+
 		/**
 		 * By default, the name inside the executable JAR is based on the file
 		 * name in the repository. This name is also used as the location by by
@@ -1,2 +1,2 @@
-@org.osgi.annotation.versioning.Version("1.8.0")
+@org.osgi.annotation.versioning.Version("1.9.0")
 package aQute.bnd.help.instructions;
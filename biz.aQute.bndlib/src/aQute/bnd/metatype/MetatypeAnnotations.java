@@ -111,19 +111,27 @@ public class MetatypeAnnotations implements AnalyzerPlugin {
 
 		XMLAttributeFinder finder = new XMLAttributeFinder(analyzer);
 
+		// only classes using @ObjectClassDefinition or @Designate are
+		// relevant
+		TypeRef ocdType = analyzer.getTypeRef("org/osgi/service/metatype/annotations/ObjectClassDefinition");
+		TypeRef designateType = analyzer.getTypeRef("org/osgi/service/metatype/annotations/Designate");
 		List<Clazz> list = Create.list();
-		for (Clazz c : analyzer.getClassspace()
-			.values()) {
+		for (Clazz c : analyzer.getClassesUsingAnnotation(ocdType, designateType)) {
 			for (Instruction instruction : instructions.keySet()) {
 				if (instruction.matches(c.getFQN())) {
 					if (instruction.isNegated()) {
 						break;
 					}
-					list.add(c);
-					OCDDef definition = OCDReader.getOCDDef(c, analyzer, options, finder, settings.minVersion);
-					if (definition != null) {
-						logger.debug("Found OCD class {} with id {}", c, definition.id);
-						classToOCDMap.put(c.getClassName(), definition);
+					Set<TypeRef> annotations = c.annotations();
+					if (annotations.contains(designateType)) {
+						list.add(c);
+					}
+					if (annotations.contains(ocdType)) {
+						OCDDef definition = OCDReader.getOCDDef(c, analyzer, options, finder, settings.minVersion);
+						if (definition != null) {
+							logger.debug("Found OCD class {} with id {}", c, definition.id);
+							classToOCDMap.put(c.getClassName(), definition);
+						}
 					}
 					break;
 				}
@@ -26,6 +26,7 @@ import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -40,6 +41,8 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.StringJoiner;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Predicate;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
@@ -135,6 +138,7 @@ public class Analyzer extends Processor {
 	private final Contracts							contracts				= new Contracts(this);
 	private final Packages							classpathExports		= new Packages();
 	private final Descriptors						descriptors				= new Descriptors();
+	private final ConcurrentMap<String, String>		constants				= new ConcurrentHashMap<>();
 	private final List<Jar>							classpath				= list();
 	private final Map<TypeRef, Clazz>				classspace				= map();
 	private final Map<TypeRef, Clazz>				lookAsideClasses		= map();
@@ -149,6 +153,8 @@ public class Analyzer extends Processor {
 	private Set<PackageRef>							nonClassReferences		= new HashSet<>();
 	private Set<Check>								checks;
 	private final Map<TypeRef, String>				bcpTypes				= map();
+	private Map<TypeRef, List<Clazz>>				annotationIndex;
+	private ClassFileCache							classFileCache;
 	final TypeRef									providerType			= getTypeRef(
 		"org/osgi/annotation/versioning/ProviderType");
 
@@ -445,6 +451,7 @@ public class Analyzer extends Processor {
 		packagesVisited.clear();
 		nonClassReferences.clear();
 		bcpTypes.clear();
+		annotationIndex = null;
 	}
 
 	private void analyzeContent() throws Exception {
@@ -2540,6 +2547,7 @@ public class Analyzer extends Processor {
 			}
 		}
 
+		constants.clear();
 		super.close();
 	}
 
@@ -2788,6 +2796,7 @@ public class Analyzer extends Processor {
 					}
 					if (allowOverride || !classspace.containsKey(className)) {
 						classspace.put(className, clazz);
+						annotationIndex = null;
 						PackageRef packageRef = className.getPackageRef();
 						learnPackage(jar, prefix, packageRef, contained);
 
@@ -3101,6 +3110,50 @@ public class Analyzer extends Processor {
 		return classspace;
 	}
 
+	/**
+	 * Answer the classes in the class space that use any of the annotation
+	 * types, on the class itself or on any of its members, parameters or type
+	 * uses. The classes are answered in the order of the class space.
+	 * <p>
+	 * The annotations are recorded when a class is parsed, the index over
+	 * them is built on the first call. This allows the annotation processing
+	 * plugins to visit only the classes that can carry their annotations.
+	 *
+	 * @param annotationTypes the annotation types
+	 * @return the classes in the class space that use any of the annotation
+	 *         types
+	 */
+	public List<Clazz> getClassesUsingAnnotation(TypeRef... annotationTypes) {
+		Map<TypeRef, List<Clazz>> index = annotationIndex;
+		if (index == null) {
+			index = new HashMap<>();
+			for (Clazz c : classspace.values()) {
+				for (TypeRef annotation : c.annotations()) {
+					index.computeIfAbsent(annotation, k -> new ArrayList<>())
+						.add(c);
+				}
+			}
+			annotationIndex = index;
+		}
+		if (annotationTypes.length == 1) {
+			return Collections.unmodifiableList(index.getOrDefault(annotationTypes[0], Collections.emptyList()));
+		}
+		Set<Clazz> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (TypeRef annotationType : annotationTypes) {
+			candidates.addAll(index.getOrDefault(annotationType, Collections.emptyList()));
+		}
+		if (candidates.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Clazz> result = new ArrayList<>(candidates.size());
+		for (Clazz c : classspace.values()) {
+			if (candidates.contains(c)) {
+				result.add(c);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Return an attribute of a package
 	 */
@@ -3281,6 +3334,30 @@ public class Analyzer extends Processor {
 		return descriptors.getDescriptor(descriptor);
 	}
 
+	/**
+	 * Set a cache of the parsed class files that is shared with other
+	 * analyzers, e.g. the previous builds of the same project.
+	 *
+	 * @param classFileCache the cache or {@code null} to parse every class
+	 *            file
+	 */
+	public void setClassFileCache(ClassFileCache classFileCache) {
+		this.classFileCache = classFileCache;
+	}
+
+	public ClassFileCache getClassFileCache() {
+		return classFileCache;
+	}
+
+	/**
+	 * Share the UTF-8 constants of the class files parsed in this analysis,
+	 * the same names and descriptors occur in many classes.
+	 */
+	String intern(String constant) {
+		String previous = constants.putIfAbsent(constant, constant);
+		return (previous != null) ? previous : constant;
+	}
+
 	public TypeRef getTypeRef(String binaryClassName) {
 		return descriptors.getTypeRef(binaryClassName);
 	}
@@ -3351,29 +3428,37 @@ public class Analyzer extends Processor {
 			.stream()
 			.filter(packageRef -> !packageRef.isMetaData())
 			.sorted()
-			.collect(toCollection(LinkedList<PackageRef>::new));
+			.collect(toList());
 
 		if (nomatch == null)
 			nomatch = Create.set();
 
-		for (Instruction instruction : instructions.keySet()) {
-			boolean match = false;
-
-			for (Iterator<PackageRef> i = refs.iterator(); i.hasNext();) {
-				PackageRef packageRef = i.next();
-				String packageName = packageRef.getFQN();
+		// Every package is matched by its first matching instruction. We
+		// group the packages on that instruction so they are merged in
+		// instruction order
+		CompiledInstructions compiled = instructions.compile();
+		MultiMap<Integer, PackageRef> matched = new MultiMap<>();
+		for (PackageRef packageRef : refs) {
+			int index = compiled.indexOf(packageRef.getFQN());
+			if (index >= 0) {
+				matched.add(index, packageRef);
+			}
+		}
 
-				if (instruction.matches(packageName)) {
-					match = true;
-					if (!instruction.isNegated()) {
-						result.merge(packageRef, instruction.isDuplicate(), source.get(packageRef),
-							instructions.get(instruction));
-					}
-					i.remove(); // Can never match again for another pattern
+		for (int index = 0; index < compiled.size(); index++) {
+			Instruction instruction = compiled.get(index);
+			List<PackageRef> packageRefs = matched.get(index);
+			if (packageRefs == null) {
+				if (!instruction.isAny())
+					nomatch.add(instruction);
+				continue;
+			}
+			if (!instruction.isNegated()) {
+				for (PackageRef packageRef : packageRefs) {
+					result.merge(packageRef, instruction.isDuplicate(), source.get(packageRef),
+						instructions.get(instruction));
 				}
 			}
-			if (!match && !instruction.isAny())
-				nomatch.add(instruction);
 		}
 
 		/*
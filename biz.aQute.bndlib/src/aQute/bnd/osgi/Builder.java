@@ -711,12 +711,39 @@ public class Builder extends Analyzer {
 	private Set<Instruction> doExpand(Jar jar, MultiMap<String, Jar> index, Instructions filter) throws Exception {
 		Set<Instruction> unused = Create.set();
 
-		for (Entry<Instruction, Attrs> e : filter.entrySet()) {
-			Instruction instruction = e.getKey();
-			if (instruction.isDuplicate())
+		List<Instruction> instructions = filter.keySet()
+			.stream()
+			.filter(instruction -> !instruction.isDuplicate())
+			.collect(toList());
+		CompiledInstructions compiled = new CompiledInstructions(instructions);
+
+		// Find the first matching instruction for every package and group the
+		// packages on it so they are processed in instruction order
+		MultiMap<Integer, Entry<String, List<Jar>>> matched = new MultiMap<>();
+		for (Iterator<Entry<String, List<Jar>>> entry = index.entrySet()
+			.iterator(); entry.hasNext();) {
+			Entry<String, List<Jar>> p = entry.next();
+
+			String directory = p.getKey();
+			PackageRef packageRef = getPackageRef(directory);
+
+			int match = compiled.indexOf(packageRef.getFQN());
+			// Skip * and meta data, we're talking packages!
+			if (match >= 0 && packageRef.isMetaData() && compiled.get(match)
+				.isAny()) {
+				match = indexOf(instructions, match + 1, packageRef.getFQN());
+			}
+			if (match < 0)
 				continue;
 
-			Attrs directives = e.getValue();
+			// Ensure it is never matched again
+			entry.remove();
+			matched.add(match, p);
+		}
+
+		for (int match = 0; match < compiled.size(); match++) {
+			Instruction instruction = compiled.get(match);
+			Attrs directives = filter.get(instruction);
 
 			String fromDirective = directives.get(FROM_DIRECTIVE, "*");
 			Instruction from = new Instruction(fromDirective);
@@ -724,23 +751,7 @@ public class Builder extends Analyzer {
 
 			boolean used = false;
 
-			for (Iterator<Entry<String, List<Jar>>> entry = index.entrySet()
-				.iterator(); entry.hasNext();) {
-				Entry<String, List<Jar>> p = entry.next();
-
-				String directory = p.getKey();
-				PackageRef packageRef = getPackageRef(directory);
-
-				// Skip * and meta data, we're talking packages!
-				if (packageRef.isMetaData() && instruction.isAny())
-					continue;
-
-				if (!instruction.matches(packageRef.getFQN()))
-					continue;
-
-				// Ensure it is never matched again
-				entry.remove();
-
+			for (Entry<String, List<Jar>> p : matched.getOrDefault(match, Collections.emptyList())) {
 				// ! effectively removes it from consideration by others (this
 				// includes exports)
 				if (instruction.isNegated()) {
@@ -748,6 +759,9 @@ public class Builder extends Analyzer {
 					continue;
 				}
 
+				String directory = p.getKey();
+				PackageRef packageRef = getPackageRef(directory);
+
 				// Do the from: directive, filters on the JAR type
 				List<Jar> providers = filterFrom(from, p.getValue(), project);
 				if (providers.isEmpty())
@@ -767,6 +781,20 @@ public class Builder extends Analyzer {
 		return unused;
 	}
 
+	/**
+	 * Answer the index of the first instruction, starting at the given index,
+	 * that is not the any instruction and matches the value.
+	 */
+	private static int indexOf(List<Instruction> instructions, int start, String value) {
+		for (int index = start; index < instructions.size(); index++) {
+			Instruction instruction = instructions.get(index);
+			if (!instruction.isAny() && instruction.matches(value)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * @param from
 	 */
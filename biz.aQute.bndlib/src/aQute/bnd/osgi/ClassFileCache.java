@@ -0,0 +1,122 @@
+package aQute.bnd.osgi;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import aQute.bnd.classfile.ClassFile;
+
+/**
+ * A cache of the parsed class files in directories that can be shared by
+ * analyzers, e.g. by the successive builds of a project. An incremental build
+ * then only reads and parses the class files that were changed since the
+ * previous build.
+ * <p>
+ * A class file is identified by its path, size and last modified time. Like
+ * git does for its index, a class file that was modified too close to the time
+ * it was parsed is not cached since a later change could have the same size
+ * and last modified time. The parsed class files are softly referenced so they
+ * can be reclaimed when memory is low.
+ * <p>
+ * The cache is only kept in memory and does not persist content hashes. The
+ * parsed class files cannot be stored without a serialized form of their
+ * constant pool and hashing a class file means reading it, which costs about
+ * as much as parsing it. A persistent cache would only save the first build
+ * of a process.
+ */
+public class ClassFileCache {
+	/*
+	 * Some file systems only have a resolution of 2 seconds
+	 */
+	private static final long							RACY	= 2_000L;
+
+	private final ConcurrentMap<String, Entry>			entries	= new ConcurrentHashMap<>();
+	/*
+	 * Weak, a string is only kept as long as a cached class file uses it
+	 */
+	private final Map<String, WeakReference<String>>	strings	= new WeakHashMap<>();
+
+	private static final class Entry {
+		final long						size;
+		final long						lastModified;
+		final SoftReference<ClassFile>	classFile;
+
+		Entry(long size, long lastModified, ClassFile classFile) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.classFile = new SoftReference<>(classFile);
+		}
+	}
+
+	/**
+	 * Answer the parsed class file of the resource, the class file is parsed
+	 * if it is not in the cache or was changed.
+	 *
+	 * @param resource the resource of the class file
+	 * @param parser parses the class file of the resource
+	 * @return the parsed class file
+	 */
+	ClassFile get(FileResource resource, Callable<ClassFile> parser) throws Exception {
+		if (resource.isDeleteOnClose()) {
+			return parser.call();
+		}
+		String path = resource.getFile()
+			.getPath();
+		long size = resource.size();
+		long lastModified = resource.lastModified();
+		Entry entry = entries.get(path);
+		if ((entry != null) && (entry.size == size) && (entry.lastModified == lastModified)) {
+			ClassFile classFile = entry.classFile.get();
+			if (classFile != null) {
+				return classFile;
+			}
+		}
+		ClassFile classFile = parser.call();
+		if (lastModified < System.currentTimeMillis() - RACY) {
+			entries.put(path, new Entry(size, lastModified, classFile));
+		} else {
+			entries.remove(path);
+		}
+		return classFile;
+	}
+
+	/*
+	 * The constants of the cached class files are decoded lazily, they cannot
+	 * use the strings of an analyzer that is closed after its build
+	 */
+	String intern(String s) {
+		synchronized (strings) {
+			WeakReference<String> ref = strings.get(s);
+			String previous = (ref != null) ? ref.get() : null;
+			if (previous != null) {
+				return previous;
+			}
+			strings.put(s, new WeakReference<>(s));
+			return s;
+		}
+	}
+
+	/**
+	 * Remove the parsed class files of files that no longer exist, e.g.
+	 * because their source was deleted or renamed.
+	 */
+	public void purge() {
+		entries.keySet()
+			.removeIf(path -> !new File(path).isFile());
+	}
+
+	/**
+	 * Remove all parsed class files.
+	 */
+	public void clear() {
+		entries.clear();
+		synchronized (strings) {
+			strings.clear();
+		}
+	}
+}
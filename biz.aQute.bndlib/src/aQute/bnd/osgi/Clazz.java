@@ -73,6 +73,9 @@ import aQute.bnd.classfile.ExceptionsAttribute;
 import aQute.bnd.classfile.FieldInfo;
 import aQute.bnd.classfile.InnerClassesAttribute;
 import aQute.bnd.classfile.InnerClassesAttribute.InnerClass;
+import aQute.bnd.classfile.LineNumberTableAttribute;
+import aQute.bnd.classfile.LocalVariableTableAttribute;
+import aQute.bnd.classfile.LocalVariableTypeTableAttribute;
 import aQute.bnd.classfile.MemberInfo;
 import aQute.bnd.classfile.MethodInfo;
 import aQute.bnd.classfile.MethodParametersAttribute;
@@ -85,6 +88,7 @@ import aQute.bnd.classfile.RuntimeVisibleAnnotationsAttribute;
 import aQute.bnd.classfile.RuntimeVisibleParameterAnnotationsAttribute;
 import aQute.bnd.classfile.RuntimeVisibleTypeAnnotationsAttribute;
 import aQute.bnd.classfile.SignatureAttribute;
+import aQute.bnd.classfile.SourceDebugExtensionAttribute;
 import aQute.bnd.classfile.SourceFileAttribute;
 import aQute.bnd.classfile.StackMapTableAttribute;
 import aQute.bnd.classfile.StackMapTableAttribute.AppendFrame;
@@ -107,7 +111,6 @@ import aQute.bnd.signatures.MethodSignature;
 import aQute.bnd.signatures.Signature;
 import aQute.bnd.stream.MapStream;
 import aQute.bnd.unmodifiable.Lists;
-import aQute.lib.io.ByteBufferDataInput;
 import aQute.lib.strings.Strings;
 import aQute.lib.utf8properties.UTF8Properties;
 import aQute.libg.generics.Create;
@@ -797,7 +800,9 @@ public class Clazz {
 	public Set<TypeRef> parseClassFileWithCollector(ClassDataCollector cd) throws Exception {
 		ByteBuffer bb = resource.buffer();
 		if (bb != null) {
-			return parseClassFileData(ByteBufferDataInput.wrap(bb), cd);
+			Set<TypeRef> xref = parseClassFileData(bb);
+			visitClassFile(cd);
+			return xref;
 		}
 		return parseClassFile(resource.openInputStream(), cd);
 	}
@@ -821,7 +826,43 @@ public class Clazz {
 
 		logger.debug("parseClassFile(): path={} resource={}", path, resource);
 
-		classFile = ClassFile.parseClassFile(in);
+		return parseClassFileData(ClassFile.parseClassFile(in));
+	}
+
+	/*
+	 * The class bytes are not copied, the constants are only decoded when they
+	 * are used and the debug attributes, which are never used, are not decoded
+	 */
+	private synchronized Set<TypeRef> parseClassFileData(ByteBuffer bb) throws Exception {
+		if (classFile != null) {
+			return xref;
+		}
+
+		logger.debug("parseClassFile(): path={} resource={}", path, resource);
+
+		ClassFileCache cache = (analyzer != null) ? analyzer.getClassFileCache() : null;
+		if ((cache != null) && (resource instanceof FileResource fileResource)) {
+			// the cached class file must not hold on to this analyzer
+			return parseClassFileData(cache.get(fileResource,
+				() -> ClassFile.parseClassFile(bb, cache::intern, Clazz::isAnalyzedAttribute)));
+		}
+		return parseClassFileData(ClassFile.parseClassFile(bb, analyzer::intern, Clazz::isAnalyzedAttribute));
+	}
+
+	private static boolean isAnalyzedAttribute(String name) {
+		switch (name) {
+			case LineNumberTableAttribute.NAME :
+			case LocalVariableTableAttribute.NAME :
+			case LocalVariableTypeTableAttribute.NAME :
+			case SourceDebugExtensionAttribute.NAME :
+				return false;
+			default :
+				return true;
+		}
+	}
+
+	private Set<TypeRef> parseClassFileData(ClassFile classFile) throws Exception {
+		this.classFile = classFile;
 		classDef = new ClassDef(classFile);
 		constantPool = classFile.constant_pool;
 		referred = new HashMap<>(constantPool.size());
@@ -0,0 +1,212 @@
+package aQute.bnd.osgi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled form of an ordered list of instructions. It answers the first
+ * instruction that matches a value, exactly like iterating over the
+ * instructions in order, but without evaluating every instruction.
+ * <ul>
+ * <li>Literal instructions are looked up in a hash table.
+ * <li>Plain {@code prefix.*} wildcards are looked up in a hash table for every
+ * '.' separated prefix of the value.
+ * <li>Only the remaining instructions are evaluated as a regular expression,
+ * and only as long as they precede the best match found so far.
+ * </ul>
+ * The compiled instructions also count how often each instruction was the
+ * first match, which can be used to report unused instructions.
+ * <p>
+ * This class is not thread safe.
+ */
+public class CompiledInstructions {
+	private final Instruction[]			instructions;
+	private final Map<String, Integer>	literals	= new HashMap<>();
+	private final Map<String, Integer>	prefixes	= new HashMap<>();
+	private final int[]					others;
+	private final int					any;
+	private final int[]					matches;
+
+	/**
+	 * Compile the instructions.
+	 *
+	 * @param instructions the instructions in the order they must be applied
+	 */
+	public CompiledInstructions(Collection<Instruction> instructions) {
+		this.instructions = instructions.toArray(new Instruction[0]);
+		this.matches = new int[this.instructions.length];
+
+		int firstAny = Integer.MAX_VALUE;
+		int[] rest = new int[this.instructions.length];
+		int n = 0;
+		for (int index = 0; index < this.instructions.length; index++) {
+			Instruction instruction = this.instructions[index];
+			if (instruction.isAny()) {
+				if (firstAny == Integer.MAX_VALUE) {
+					firstAny = index;
+				}
+				continue;
+			}
+			String prefix = instruction.getPrefix();
+			if (prefix != null) {
+				prefixes.putIfAbsent(prefix, index);
+				continue;
+			}
+			if (instruction.isLiteral() && !instruction.isCaseInsensitive()) {
+				literals.putIfAbsent(instruction.getLiteral(), index);
+				continue;
+			}
+			rest[n++] = index;
+		}
+		this.any = firstAny;
+		this.others = Arrays.copyOf(rest, n);
+	}
+
+	/**
+	 * Answer the first instruction that matches the value and count the match.
+	 *
+	 * @param value the value to match
+	 * @return the first matching instruction or null if no instruction matches
+	 */
+	public Instruction matcher(String value) {
+		int index = indexOf(value);
+		return (index < 0) ? null : instructions[index];
+	}
+
+	/**
+	 * Answer if the value is selected, i.e. the first matching instruction is
+	 * not negated. The match is counted.
+	 *
+	 * @param value the value to match
+	 * @return true if the first matching instruction is not negated
+	 */
+	public boolean matches(String value) {
+		Instruction instruction = matcher(value);
+		return (instruction != null) && !instruction.isNegated();
+	}
+
+	/**
+	 * Answer the index of the first instruction that matches the value and
+	 * count the match.
+	 *
+	 * @param value the value to match
+	 * @return the index of the first matching instruction or -1
+	 */
+	public int indexOf(String value) {
+		int index = find(value);
+		if (index >= 0) {
+			matches[index]++;
+		}
+		return index;
+	}
+
+	private int find(String value) {
+		int best = any;
+
+		Integer literal = literals.get(value);
+		if ((literal != null) && (literal < best)) {
+			best = literal;
+		}
+
+		if (!prefixes.isEmpty()) {
+			Integer prefix = prefixes.get(value);
+			if ((prefix != null) && (prefix < best)) {
+				best = prefix;
+			}
+			for (int i = value.indexOf('.'); i >= 0; i = value.indexOf('.', i + 1)) {
+				prefix = prefixes.get(value.substring(0, i));
+				if ((prefix != null) && (prefix < best)) {
+					best = prefix;
+				}
+			}
+		}
+
+		for (int index : others) {
+			if (index >= best) {
+				break;
+			}
+			if (instructions[index].matches(value)) {
+				best = index;
+				break;
+			}
+		}
+
+		return (best == Integer.MAX_VALUE) ? -1 : best;
+	}
+
+	/**
+	 * Answer the instruction at the index.
+	 *
+	 * @param index the index as returned by {@link #indexOf(String)}
+	 * @return the instruction
+	 */
+	public Instruction get(int index) {
+		return instructions[index];
+	}
+
+	/**
+	 * Answer the number of instructions.
+	 *
+	 * @return the number of instructions
+	 */
+	public int size() {
+		return instructions.length;
+	}
+
+	/**
+	 * Answer the instructions in order.
+	 *
+	 * @return the instructions
+	 */
+	public List<Instruction> getInstructions() {
+		return Collections.unmodifiableList(Arrays.asList(instructions));
+	}
+
+	/**
+	 * Answer how often the instruction was the first match.
+	 *
+	 * @param instruction the instruction
+	 * @return the number of counted matches
+	 */
+	public int getMatchCount(Instruction instruction) {
+		int count = 0;
+		for (int index = 0; index < instructions.length; index++) {
+			if (instructions[index] == instruction) {
+				count += matches[index];
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Answer the instructions that were never the first match, in order.
+	 *
+	 * @return the unused instructions
+	 */
+	public List<Instruction> getUnused() {
+		List<Instruction> unused = new ArrayList<>();
+		for (int index = 0; index < instructions.length; index++) {
+			if (matches[index] == 0) {
+				unused.add(instructions[index]);
+			}
+		}
+		return unused;
+	}
+
+	/**
+	 * Clear the counted matches.
+	 */
+	public void reset() {
+		Arrays.fill(matches, 0);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(instructions);
+	}
+}
@@ -232,6 +232,12 @@ public interface Constants {
 	String		RESOLVE_EFFECTIVE							= "-resolve.effective";
 	String		RESOLVE_PREFERENCES							= "-resolve.preferences";
 
+	/**
+	 * Share the providers found in the workspace repositories between resolves
+	 * in the same workspace. The default is false
+	 */
+	String		RESOLVE_PROVIDERCACHE						= "-resolve.providercache";
+
 	String		RUNNOREFERENCES								= "-runnoreferences";
 	String		RUNFRAMEWORKRESTART							= "-runframeworkrestart";
 	String		RUNOPTIONS									= "-runoptions";
@@ -295,6 +301,7 @@ public interface Constants {
 	String		TESTPATH									= "-testpath";
 	String		TESTCONTINUOUS								= "-testcontinuous";
 	String		TESTTERMINATE								= "-testterminate";
+	String		TESTSHARDS									= "-testshards";
 	String		TESTSOURCES									= "-testsources";
 	String		TESTUNRESOLVED								= "-testunresolved";
 	String		TESTER										= "-tester";
@@ -327,7 +334,7 @@ public interface Constants {
 		REMOVEHEADERS, RESOURCEONLY, SOURCES, SOURCEPATH, SUB, RUNBUNDLES, RUNPATH, RUNSYSTEMPACKAGES,
 		RUNSYSTEMCAPABILITIES, RUNPROPERTIES, REPORTNEWER, UNDERTEST, TESTPATH, TESTPACKAGES, NOMANIFEST, DEPLOYREPO,
 		RELEASEREPO, SAVEMANIFEST, RUNVM, RUNPROGRAMARGS, WAB, WABLIB, RUNFRAMEWORK, RUNFW, RUNKEEP, RUNTRACE,
-		RUNBLACKLIST, TESTCONTINUOUS, SNAPSHOT, NAMESECTION, DIGESTS, DSANNOTATIONS, DSANNOTATIONS_OPTIONS,
+		RUNBLACKLIST, TESTCONTINUOUS, TESTSHARDS, SNAPSHOT, NAMESECTION, DIGESTS, DSANNOTATIONS, DSANNOTATIONS_OPTIONS,
 		BASELINEREPO, PROFILE, EXECUTABLE, RUNNOREFERENCES, JAVAAGENT, STRICT, DIFFIGNORE, DIFFPACKAGES, CONTRACT,
 		NOBUILDINCACHE, EXTENSION, NOJUNIT, NOJUNITOSGI, PREPROCESSMATCHERS, UPTO, INVALIDFILENAMES, FIXUPMESSAGES,
 		PRIVATEPACKAGE, CONDITIONALPACKAGE, NOEE, OUTPUTMASK, TESTUNRESOLVED, RUNJDB, RUNENV, RUNEE, EEPROFILE,
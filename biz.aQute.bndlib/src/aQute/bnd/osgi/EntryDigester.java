@@ -0,0 +1,188 @@
+package aQute.bnd.osgi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
+
+import aQute.bnd.exceptions.Exceptions;
+import aQute.lib.base64.Base64;
+import aQute.lib.io.IOConstants;
+
+/**
+ * Calculates the digests of jar entries. The entries are digested in parallel
+ * on a bounded number of tasks on the bnd executor, the results are always
+ * returned in the order of the entries so the manifest output stays
+ * deterministic.
+ * <p>
+ * The maximum number of parallel tasks can be set with the
+ * {@code bnd.digests.parallelism} system property, it defaults to the number
+ * of available processors.
+ */
+final class EntryDigester {
+	private final static int	PARALLELISM	= Math.max(1, Integer.getInteger("bnd.digests.parallelism",
+		Runtime.getRuntime()
+			.availableProcessors())
+		.intValue());
+	private final static int	BUFFER_SIZE	= IOConstants.PAGE_SIZE * 16;
+
+	private final String[]		algorithms;
+
+	EntryDigester(String[] algorithms) {
+		this.algorithms = algorithms;
+	}
+
+	/**
+	 * Digest the resources. The result has an entry for each resource with
+	 * the Base64 encoded digest for each algorithm. A result that is already
+	 * present, for example reused from a source jar, is not calculated again.
+	 *
+	 * @param resources the resources to digest
+	 * @param result the Base64 encoded digests, indexed like the resources
+	 */
+	void digest(List<Resource> resources, String[][] result) throws Exception {
+		List<Integer> todo = new ArrayList<>(resources.size());
+		for (int index = 0; index < resources.size(); index++) {
+			if (result[index] == null) {
+				todo.add(index);
+			}
+		}
+		if (todo.isEmpty()) {
+			return;
+		}
+
+		int parallelism = Math.min(PARALLELISM, todo.size());
+		AtomicInteger next = new AtomicInteger();
+		if (parallelism <= 1) {
+			work(resources, result, todo, next);
+			return;
+		}
+
+		PromiseFactory promiseFactory = Processor.getPromiseFactory();
+		List<Promise<Void>> workers = new ArrayList<>(parallelism - 1);
+		for (int i = 1; i < parallelism; i++) {
+			workers.add(promiseFactory.submit(() -> {
+				work(resources, result, todo, next);
+				return null;
+			}));
+		}
+		// The calling thread is also a worker
+		work(resources, result, todo, next);
+		try {
+			promiseFactory.all(workers)
+				.getValue();
+		} catch (InvocationTargetException e) {
+			throw Exceptions.duck(Exceptions.unrollCause(e, InvocationTargetException.class));
+		}
+	}
+
+	private void work(List<Resource> resources, String[][] result, List<Integer> todo, AtomicInteger next)
+		throws Exception {
+		MessageDigest[] digests = new MessageDigest[algorithms.length];
+		for (int n = 0; n < algorithms.length; n++) {
+			digests[n] = MessageDigest.getInstance(algorithms[n]);
+		}
+		byte[] buffer = null;
+		for (int i; (i = next.getAndIncrement()) < todo.size();) {
+			int index = todo.get(i);
+			Resource r = resources.get(index);
+			ByteBuffer bb = r.buffer();
+			if ((bb != null) && bb.hasArray()) {
+				for (MessageDigest d : digests) {
+					// use a private view, the buffer may be shared
+					d.update(bb.duplicate());
+				}
+			} else {
+				if (buffer == null) {
+					buffer = new byte[BUFFER_SIZE];
+				}
+				try (InputStream in = r.openInputStream()) {
+					for (int size; (size = in.read(buffer, 0, buffer.length)) > 0;) {
+						for (MessageDigest d : digests) {
+							d.update(buffer, 0, size);
+						}
+					}
+				}
+			}
+			String[] values = new String[digests.length];
+			for (int n = 0; n < digests.length; n++) {
+				values[n] = Base64.encodeBase64(digests[n].digest());
+			}
+			result[index] = values;
+		}
+	}
+
+	/**
+	 * Reuse the digests of an entry that comes unchanged from another source
+	 * jar that already lists the digests for the entry in its manifest. The
+	 * entry must still have the CRC and size of the entry in the source jar.
+	 * The digests in the manifest of the jar being digested are never reused,
+	 * they could be stale or wrong.
+	 *
+	 * @param resource the resource of the entry
+	 * @param self the zip file of the jar being digested, or null
+	 * @param sources the manifests of the source jars read so far
+	 * @return the Base64 encoded digests for each algorithm or null if they
+	 *         cannot be reused
+	 */
+	String[] reuse(Resource resource, ZipFile self, Map<ZipFile, Optional<Manifest>> sources) throws Exception {
+		if (!(resource instanceof ZipResource zipResource)) {
+			return null;
+		}
+		ZipFile zip = zipResource.getZipFile();
+		if (zip == self) {
+			return null;
+		}
+		ZipEntry entry = zipResource.getZipEntry();
+		if ((entry.getCrc() == -1L) || (entry.getSize() < 0L) || (entry.getSize() != resource.size())) {
+			return null;
+		}
+		ZipEntry source = zip.getEntry(entry.getName());
+		if ((source == null) || (source.getCrc() != entry.getCrc()) || (source.getSize() != entry.getSize())) {
+			return null;
+		}
+		Optional<Manifest> manifest = sources.computeIfAbsent(zip, EntryDigester::manifest);
+		if (!manifest.isPresent()) {
+			return null;
+		}
+		Attributes attributes = manifest.get()
+			.getAttributes(entry.getName());
+		if (attributes == null) {
+			return null;
+		}
+		String[] values = new String[algorithms.length];
+		for (int n = 0; n < algorithms.length; n++) {
+			values[n] = attributes.getValue(algorithms[n] + "-Digest");
+			if (values[n] == null) {
+				return null;
+			}
+		}
+		return values;
+	}
+
+	private static Optional<Manifest> manifest(ZipFile zip) {
+		ZipEntry entry = zip.getEntry(JarFile.MANIFEST_NAME);
+		if (entry == null) {
+			return Optional.empty();
+		}
+		try (InputStream in = zip.getInputStream(entry)) {
+			return Optional.of(new Manifest(in));
+		} catch (IOException e) {
+			return Optional.empty();
+		}
+	}
+}
@@ -140,6 +140,10 @@ public class FileResource implements Resource {
 		deleteOnClose = b;
 	}
 
+	boolean isDeleteOnClose() {
+		return deleteOnClose;
+	}
+
 	public File getFile() {
 		return file.toFile();
 	}
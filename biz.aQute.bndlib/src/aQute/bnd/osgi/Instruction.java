@@ -66,6 +66,7 @@ public class Instruction {
 	private final int				matchFlags;
 	private Pattern					pattern;
 	private boolean					optional;
+	private String					prefix;
 
 	public Instruction(String input) {
 
@@ -127,8 +128,12 @@ public class Instruction {
 		// also include the last full package. I.e.
 		// com.foo.* includes com.foo (unlike OSGi)
 		if (s.regionMatches(end - 2, ".*", 0, 2)) {
-			s = s.substring(start, end - 2)
-				.concat("(?:.*)?");
+			String p = s.substring(start, end - 2);
+			if (!p.isEmpty() && (p.indexOf('\\') < 0) && ((flags & Pattern.CASE_INSENSITIVE) == 0) && !WILDCARD.matcher(p)
+				.find()) {
+				prefix = p;
+			}
+			s = p.concat("(?:.*)?");
 			literal = false;
 		} else {
 			s = s.substring(start, end);
@@ -312,6 +317,21 @@ public class Instruction {
 		return any;
 	}
 
+	boolean isCaseInsensitive() {
+		return (matchFlags & Pattern.CASE_INSENSITIVE) != 0;
+	}
+
+	/**
+	 * Answer the package prefix if this instruction is a plain {@code prefix.*}
+	 * wildcard. Such an instruction matches the prefix itself and any value
+	 * that starts with the prefix followed by a '.'.
+	 *
+	 * @return the prefix or null if this is not a plain prefix wildcard
+	 */
+	String getPrefix() {
+		return prefix;
+	}
+
 	public boolean finds(String value) {
 		return getMatcher(value).find();
 	}
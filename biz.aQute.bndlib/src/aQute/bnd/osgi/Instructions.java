@@ -212,23 +212,29 @@ public class Instructions implements Map<Instruction, Attrs> {
 		if (emptyIsAll && isEmpty())
 			return input;
 
-		List<T> result = new ArrayList<>();
-
-		for (Instruction instruction : keySet()) {
-			boolean used = false;
-			for (Iterator<T> o = input.iterator(); o.hasNext();) {
-				T oo = o.next();
-				String s = oo.toString();
-				if (instruction.matches(s)) {
-					if (!instruction.isNegated())
-						result.add(oo);
-					o.remove();
-					used = true;
+		// Group the input on the first matching instruction so the result
+		// has the instruction order
+		CompiledInstructions compiled = compile();
+		List<List<T>> selected = new ArrayList<>(Collections.nCopies(compiled.size(), null));
+		for (T oo : input) {
+			int index = compiled.indexOf(oo.toString());
+			if (index >= 0 && !compiled.get(index)
+				.isNegated()) {
+				List<T> list = selected.get(index);
+				if (list == null) {
+					selected.set(index, list = new ArrayList<>());
 				}
+				list.add(oo);
 			}
-			if (!used && unused != null)
-				unused.add(instruction);
 		}
+
+		List<T> result = new ArrayList<>();
+		for (List<T> list : selected) {
+			if (list != null)
+				result.addAll(list);
+		}
+		if (unused != null)
+			unused.addAll(compiled.getUnused());
 		return result;
 	}
 
@@ -252,6 +258,18 @@ public class Instructions implements Map<Instruction, Attrs> {
 		return result;
 	}
 
+	/**
+	 * Compile these instructions into a matcher that answers the first
+	 * matching instruction without evaluating every instruction. The compiled
+	 * instructions are a snapshot, later changes to these instructions are not
+	 * reflected.
+	 *
+	 * @return the compiled instructions
+	 */
+	public CompiledInstructions compile() {
+		return new CompiledInstructions(keySet());
+	}
+
 	public Instruction matcher(String value) {
 		for (Instruction i : keySet()) {
 			if (i.matches(value)) {
@@ -27,6 +27,7 @@ import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -71,7 +72,10 @@ import aQute.libg.cryptography.SHA256;
 import aQute.libg.glob.PathSet;
 
 public class Jar implements Closeable {
-	private static final int	BUFFER_SIZE				= IOConstants.PAGE_SIZE * 16;
+	private static final int		BUFFER_SIZE					= IOConstants.PAGE_SIZE * 16;
+	private static final String[]	DEFAULT_DIGEST_ALGORITHMS	= {
+		"SHA1", "MD5"
+	};
 	/**
 	 * Note that setting the January 1st 1980 (or even worse, "0", as time)
 	 * won't work due to Java 8 doing some interesting time processing: It
@@ -112,6 +116,7 @@ public class Jar implements Closeable {
 	private boolean												nomanifest;
 	private boolean												reproducible;
 	private Compression											compression				= Compression.DEFLATE;
+	private Predicate<String>									stored;
 	private boolean												closed;
 	private String[]											algorithms;
 	private SHA256												sha256;
@@ -668,11 +673,16 @@ public class Jar implements Closeable {
 		String[] algs = algorithms;
 		algorithms = null;
 		try {
+			// The digests of entries that come unchanged from an already
+			// digested source jar can be reused, the temporary copy no
+			// longer knows where its entries came from
+			Map<String, String[]> known = reusableChecksums(algs);
 			File f = File.createTempFile(padString(getName(), 3, '_'), ".jar");
 			write(f);
 			try (Jar tmp = new Jar(f)) {
 				tmp.setCompression(compression);
-				tmp.calcChecksums(algs);
+				tmp.setStored(stored);
+				tmp.calcChecksums(algs, known);
 				tmp.write(out);
 			} finally {
 				IO.delete(f);
@@ -717,7 +727,7 @@ public class Jar implements Closeable {
 
 	private void putEntry(ZipOutputStream jout, ZipEntry entry, Resource r) throws Exception {
 
-		if (compression == Compression.STORE) {
+		if ((compression == Compression.STORE) || ((stored != null) && stored.test(entry.getName()))) {
 			ByteBuffer buffer = r.buffer();
 			if (buffer == null) {
 				buffer = IO.copy(r.openInputStream(), new ByteBufferOutputStream())
@@ -1007,11 +1017,13 @@ public class Jar implements Closeable {
 	 */
 
 	public void calcChecksums(String[] algorithms) throws Exception {
+		calcChecksums(algorithms, null);
+	}
+
+	private void calcChecksums(String[] algorithms, Map<String, String[]> known) throws Exception {
 		check();
 		if (algorithms == null)
-			algorithms = new String[] {
-				"SHA1", "MD5"
-			};
+			algorithms = DEFAULT_DIGEST_ALGORITHMS;
 
 		Manifest m = getManifest();
 		if (m == null) {
@@ -1019,46 +1031,58 @@ public class Jar implements Closeable {
 			setManifest(m);
 		}
 
-		MessageDigest[] digests = new MessageDigest[algorithms.length];
-		int n = 0;
-		for (String algorithm : algorithms)
-			digests[n++] = MessageDigest.getInstance(algorithm);
-
-		byte[] buffer = new byte[BUFFER_SIZE];
-
+		List<String> paths = new ArrayList<>(resources.size());
+		List<Resource> entries = new ArrayList<>(resources.size());
 		for (Map.Entry<String, Resource> entry : resources.entrySet()) {
 			String path = entry.getKey();
 			// Skip the manifest
 			if (path.equals(manifestName))
 				continue;
+			paths.add(path);
+			entries.add(entry.getValue());
+		}
+
+		// Reuse the digests of entries that come unchanged from another
+		// source jar that has already been digested, the others are digested
+		// in parallel
+		EntryDigester digester = new EntryDigester(algorithms);
+		String[][] values = new String[entries.size()][];
+		Map<ZipFile, Optional<Manifest>> sources = new HashMap<>();
+		for (int index = 0; index < entries.size(); index++) {
+			values[index] = (known != null) ? known.get(paths.get(index))
+				: digester.reuse(entries.get(index), zipFile, sources);
+		}
+		digester.digest(entries, values);
 
+		for (int index = 0; index < paths.size(); index++) {
+			String path = paths.get(index);
 			Attributes attributes = m.getAttributes(path);
 			if (attributes == null) {
 				attributes = new Attributes();
 				getManifest().getEntries()
 					.put(path, attributes);
 			}
-			Resource r = entry.getValue();
-			ByteBuffer bb = r.buffer();
-			if ((bb != null) && bb.hasArray()) {
-				for (MessageDigest d : digests) {
-					d.update(bb);
-					bb.flip();
-				}
-			} else {
-				try (InputStream in = r.openInputStream()) {
-					for (int size; (size = in.read(buffer, 0, buffer.length)) > 0;) {
-						for (MessageDigest d : digests) {
-							d.update(buffer, 0, size);
-						}
-					}
-				}
+			for (int n = 0; n < algorithms.length; n++) {
+				attributes.putValue(algorithms[n] + "-Digest", values[index][n]);
 			}
-			for (MessageDigest d : digests) {
-				attributes.putValue(d.getAlgorithm() + "-Digest", Base64.encodeBase64(d.digest()));
-				d.reset();
+		}
+	}
+
+	private Map<String, String[]> reusableChecksums(String[] algorithms) throws Exception {
+		check();
+		if (algorithms == null)
+			algorithms = DEFAULT_DIGEST_ALGORITHMS;
+
+		EntryDigester digester = new EntryDigester(algorithms);
+		Map<String, String[]> known = new HashMap<>();
+		Map<ZipFile, Optional<Manifest>> sources = new HashMap<>();
+		for (Map.Entry<String, Resource> entry : resources.entrySet()) {
+			String[] values = digester.reuse(entry.getValue(), zipFile, sources);
+			if (values != null) {
+				known.put(entry.getKey(), values);
 			}
 		}
+		return known;
 	}
 
 	private final static Pattern BSN = Pattern.compile("\\s*([-.\\w]+)\\s*;?.*");
@@ -1171,6 +1195,17 @@ public class Jar implements Closeable {
 		return this.compression;
 	}
 
+	/**
+	 * Store the resources with a path accepted by the given predicate
+	 * uncompressed, even when this JAR is compressed. This is used for nested
+	 * JARs that must be readable in place.
+	 *
+	 * @param stored the paths of the resources to store, or {@code null}
+	 */
+	public void setStored(Predicate<String> stored) {
+		this.stored = stored;
+	}
+
 	void check() {
 		if (closed)
 			throw new RuntimeException("Already closed " + name);
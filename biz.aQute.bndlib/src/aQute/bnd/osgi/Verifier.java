@@ -1,6 +1,5 @@
 package aQute.bnd.osgi;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -32,9 +31,7 @@ import aQute.bnd.service.verifier.VerifierPlugin;
 import aQute.bnd.version.VersionRange;
 import aQute.lib.base64.Base64;
 import aQute.lib.filter.Filter;
-import aQute.lib.io.IO;
 import aQute.lib.regex.PatternConstants;
-import aQute.libg.cryptography.Digester;
 import aQute.libg.cryptography.SHA1;
 import aQute.libg.qtokens.QuotedTokenizer;
 
@@ -1466,29 +1463,38 @@ public class Verifier extends Processor {
 		}
 
 		List<String> missingDigest = new ArrayList<>();
+		List<String> paths = new ArrayList<>();
+		List<Resource> resources = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
 
-		for (String path : dot.getResources()
-			.keySet()) {
+		for (Map.Entry<String, Resource> entry : dot.getResources()
+			.entrySet()) {
+			String path = entry.getKey();
 			if (path.equals(JarFile.MANIFEST_NAME))
 				continue;
 
 			Attributes a = m.getAttributes(path);
-			String digest = a.getValue("SHA1-Digest");
+			String digest = (a == null) ? null : a.getValue("SHA1-Digest");
 			if (digest == null) {
 				if (!path.matches(""))
 					missingDigest.add(path);
 			} else {
-				byte[] d = Base64.decodeBase64(digest);
-				SHA1 expected = new SHA1(d);
-				try (Digester<SHA1> digester = SHA1.getDigester();
-					InputStream in = dot.getResource(path)
-						.openInputStream()) {
-					IO.copy(in, digester);
-					digester.digest();
-					if (!expected.equals(digester.digest())) {
-						error("Checksum mismatch %s, expected %s, got %s", path, expected, digester.digest());
-					}
-				}
+				paths.add(path);
+				resources.add(entry.getValue());
+				expected.add(digest);
+			}
+		}
+
+		String[][] actual = new String[resources.size()][];
+		new EntryDigester(new String[] {
+			"SHA1"
+		}).digest(resources, actual);
+
+		for (int i = 0; i < paths.size(); i++) {
+			SHA1 e = new SHA1(Base64.decodeBase64(expected.get(i)));
+			SHA1 a = new SHA1(Base64.decodeBase64(actual[i][0]));
+			if (!e.equals(a)) {
+				error("Checksum mismatch %s, expected %s, got %s", paths.get(i), e, a);
 			}
 		}
 		if (missingDigest.size() > 0) {
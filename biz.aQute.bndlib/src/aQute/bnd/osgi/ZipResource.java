@@ -111,6 +111,14 @@ public class ZipResource implements Resource {
 		return size = getBuffer().limit();
 	}
 
+	ZipFile getZipFile() {
+		return zip;
+	}
+
+	ZipEntry getZipEntry() {
+		return entry;
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (closeZipFile) {
@@ -0,0 +1,208 @@
+package aQute.bnd.osgi.repository;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.service.repository.Repository;
+
+/**
+ * A thread safe cache of the providers a repository returns for a
+ * requirement. The cache is meant to be shared between resolve contexts, for
+ * example on the workspace, so that the many resolves of a build do not ask the
+ * same repository the same question over and over again.
+ * <p>
+ * The cache only remembers the raw answer of the repository. The key is the
+ * namespace, directives and attributes of the requirement and not its
+ * resource, a repository does not look at the resource of a requirement. Any
+ * context specific filtering (blacklists, effectiveness, system resource) must
+ * be applied on top of the answer by the caller.
+ * <p>
+ * Each repository has a generation. When the repository's content changes,
+ * {@link #invalidate(Repository)} must be called. This starts a new
+ * generation and the answers of the previous generation are discarded. An
+ * answer that was being calculated while the repository was invalidated is
+ * never added to the new generation.
+ * <p>
+ * The number of answers of a generation is bounded. When a generation is full,
+ * it is discarded and the next question starts a new generation.
+ */
+public class ProviderCache {
+	/**
+	 * The default maximum number of answers of a generation.
+	 */
+	public final static int								DEFAULT_MAX_ANSWERS	= 10_000;
+	private final static AtomicLong						generations			= new AtomicLong();
+	private final ConcurrentMap<Repository, Generation>	cache				= new ConcurrentHashMap<>();
+	private final int									maxAnswers;
+
+	/**
+	 * Create a cache with {@link #DEFAULT_MAX_ANSWERS} answers per repository.
+	 */
+	public ProviderCache() {
+		this(DEFAULT_MAX_ANSWERS);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxAnswers the maximum number of answers kept per repository
+	 */
+	public ProviderCache(int maxAnswers) {
+		if (maxAnswers < 1) {
+			throw new IllegalArgumentException("maxAnswers must be positive: " + maxAnswers);
+		}
+		this.maxAnswers = maxAnswers;
+	}
+
+	/**
+	 * Return a repository that answers from this cache and delegates to the
+	 * given repository for any requirement it has not seen in the current
+	 * generation.
+	 *
+	 * @param repository the repository to cache
+	 * @return a caching view on the repository
+	 */
+	public Repository cached(Repository repository) {
+		requireNonNull(repository);
+		if (repository instanceof CachingRepository cachingRepository && cachingRepository.cache == this) {
+			return repository;
+		}
+		return new CachingRepository(this, repository);
+	}
+
+	/**
+	 * Find the providers for the requirements in the given repository. Answers
+	 * from the current generation of the repository are reused, the remaining
+	 * requirements are sent to the repository in a single call.
+	 *
+	 * @param repository the repository
+	 * @param requirements the requirements
+	 * @return a map with a modifiable copy of the providers for each
+	 *         requirement
+	 */
+	public Map<Requirement, Collection<Capability>> findProviders(Repository repository,
+		Collection<? extends Requirement> requirements) {
+		Generation generation = cache.computeIfAbsent(repository, r -> new Generation());
+		Map<Requirement, Collection<Capability>> result = new HashMap<>();
+		List<Requirement> missing = new ArrayList<>();
+		for (Requirement requirement : requirements) {
+			List<Capability> providers = generation.providers.get(new Key(requirement));
+			if (providers != null) {
+				result.put(requirement, new ArrayList<>(providers));
+			} else {
+				missing.add(requirement);
+			}
+		}
+		if (missing.isEmpty()) {
+			return result;
+		}
+
+		Map<Requirement, Collection<Capability>> found = repository.findProviders(missing);
+		for (Requirement requirement : missing) {
+			Collection<Capability> capabilities = found.get(requirement);
+			List<Capability> providers = (capabilities == null) || capabilities.isEmpty() ? Collections.emptyList()
+				: Collections.unmodifiableList(new ArrayList<>(capabilities));
+			generation.providers.putIfAbsent(new Key(requirement), providers);
+			result.put(requirement, new ArrayList<>(providers));
+		}
+		if (generation.providers.size() > maxAnswers) {
+			// only discard the full generation, not a newer one
+			cache.remove(repository, generation);
+		}
+		return result;
+	}
+
+	/**
+	 * Start a new generation for the given repository. Must be called when the
+	 * content of the repository has changed.
+	 *
+	 * @param repository the repository that changed
+	 */
+	public void invalidate(Repository repository) {
+		cache.remove(repository);
+	}
+
+	/**
+	 * Start a new generation for all repositories.
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Answer the current generation of the repository. The generation changes
+	 * every time the repository is invalidated.
+	 *
+	 * @param repository the repository
+	 * @return the current generation of the repository
+	 */
+	public long getGeneration(Repository repository) {
+		return cache.computeIfAbsent(repository, r -> new Generation()).generation;
+	}
+
+	private static class Generation {
+		final long								generation	= generations.incrementAndGet();
+		final ConcurrentMap<Key, List<Capability>>	providers	= new ConcurrentHashMap<>();
+	}
+
+	private static class Key {
+		final String				namespace;
+		final Map<String, String>	directives;
+		final Map<String, Object>	attributes;
+		final int					hashcode;
+
+		Key(Requirement requirement) {
+			this.namespace = requirement.getNamespace();
+			this.directives = requirement.getDirectives();
+			this.attributes = requirement.getAttributes();
+			this.hashcode = Objects.hash(namespace, directives, attributes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashcode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key other))
+				return false;
+			return (hashcode == other.hashcode) && Objects.equals(namespace, other.namespace)
+				&& Objects.equals(directives, other.directives) && Objects.equals(attributes, other.attributes);
+		}
+	}
+
+	private static class CachingRepository extends BaseRepository {
+		final ProviderCache	cache;
+		final Repository	repository;
+
+		CachingRepository(ProviderCache cache, Repository repository) {
+			this.cache = cache;
+			this.repository = repository;
+		}
+
+		@Override
+		public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> requirements) {
+			return cache.findProviders(repository, requirements);
+		}
+
+		@Override
+		public String toString() {
+			return repository.toString();
+		}
+	}
+}
@@ -32,4 +32,17 @@ public interface ReleaseBracketingPlugin {
 	 *            at the end of the release cycle.
 	 */
 	void end(Project project);
+
+	/**
+	 * Answer whether the plugin also brackets the release of the bundles of a
+	 * single project. The release of a project then calls
+	 * {@link #begin(Project)} before the first bundle is released and
+	 * {@link #end(Project)} after the last, also when the release fails.
+	 *
+	 * @return {@code true} if the release of a project must be bracketed, the
+	 *         default is {@code false}
+	 */
+	default boolean isProjectReleaseBracketed() {
+		return false;
+	}
 }
@@ -1,5 +1,22 @@
 package aQute.bnd.service.repository;
 
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * A repository that needs to be prepared before it is used. The workspace
+ * prepares its repositories concurrently.
+ */
 public interface Prepare {
 	void prepare() throws Exception;
+
+	/**
+	 * The names of the repositories that must be prepared before this
+	 * repository is prepared.
+	 *
+	 * @return the names of the repositories this repository depends on
+	 */
+	default Collection<String> dependencies() {
+		return Collections.emptyList();
+	}
 }
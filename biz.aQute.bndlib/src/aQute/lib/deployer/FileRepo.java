@@ -41,10 +41,11 @@ import aQute.bnd.service.tags.Tagged;
 import aQute.bnd.service.tags.Tags;
 import aQute.bnd.version.Version;
 import aQute.lib.collections.SortedList;
+import aQute.lib.converter.TypeReference;
 import aQute.lib.hex.Hex;
 import aQute.lib.io.IO;
 import aQute.lib.json.JSONCodec;
-import aQute.lib.persistentmap.PersistentMap;
+import aQute.lib.persistentmap.LogStructuredMap;
 import aQute.libg.command.Command;
 import aQute.libg.cryptography.SHA1;
 import aQute.libg.cryptography.SHA256;
@@ -262,7 +263,15 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	boolean									inited;
 	boolean									trace;
 	Tags									tags				= DEFAULT_REPO_TAGS;
-	PersistentMap<ResourceDescriptor>		index;
+	LogStructuredMap<ResourceDescriptor>	index;
+	/*
+	 * Secondary indexes, the keys of the index by the hex SHA-1 and SHA-256 of
+	 * the resources and the versions by bsn. The indexes are shared with other
+	 * instances of the repository, also in other processes, and are refreshed
+	 * before they answer.
+	 */
+	LogStructuredMap<String>				shaIndex;
+	LogStructuredMap<List<String>>			bsnIndex;
 
 	private boolean							hasIndex;
 
@@ -303,8 +312,25 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			exec(init, IO.absolutePath(root));
 		}
 
-		if (hasIndex)
-			index = new PersistentMap<>(new File(root, ".index"), ResourceDescriptor.class);
+		if (hasIndex) {
+			index = new LogStructuredMap<>(new File(root, ".index"), ResourceDescriptor.class);
+			File shaDir = new File(root, ".index-sha");
+			File bsnDir = new File(root, ".index-bsn");
+			boolean upgrade = !shaDir.isDirectory() || !bsnDir.isDirectory();
+			shaIndex = new LogStructuredMap<>(shaDir, String.class);
+			bsnIndex = new LogStructuredMap<>(bsnDir, new TypeReference<List<String>>() {}.getType());
+			if (upgrade) {
+				// repository was indexed before the secondary indexes existed
+				shaIndex.clear();
+				for (Map.Entry<String, ResourceDescriptor> entry : index.entrySet()) {
+					indexSha(entry.getKey(), entry.getValue());
+				}
+				bsnIndex.clear();
+				for (String bsn : listBsns(null)) {
+					bsnIndex.put(bsn, listVersions(bsn));
+				}
+			}
+		}
 
 		open();
 		return true;
@@ -421,8 +447,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			logger.debug("updating {}", file.getAbsolutePath());
 
 			if (hasIndex)
-				index.put(bsn + "-" + version.toStringWithoutQualifier(),
-					buildDescriptor(tmpFile, tmpJar, digest, bsn, version));
+				addIndex(bsn, version, buildDescriptor(tmpFile, tmpJar, digest, bsn, version));
 
 			// An open jar on file will fail rename on windows
 			tmpJar.close();
@@ -442,6 +467,9 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 				IO.copy(file, latest);
 			}
 
+			if (hasIndex)
+				bsnIndex.put(bsn, listVersions(bsn));
+
 			logger.debug("updated {}", file.getAbsolutePath());
 
 			return file;
@@ -516,6 +544,19 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 		if (regex != null)
 			pattern = new Instruction(regex);
 
+		if (hasIndex) {
+			bsnIndex.refresh();
+			List<String> result = new ArrayList<>();
+			for (String bsn : bsnIndex.keySet()) {
+				if (pattern == null || pattern.matches(bsn))
+					result.add(bsn);
+			}
+			return result;
+		}
+		return listBsns(pattern);
+	}
+
+	private List<String> listBsns(Instruction pattern) {
 		List<String> result = new ArrayList<>();
 		if (root == null) {
 			if (reporter != null)
@@ -541,26 +582,46 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	@Override
 	public SortedSet<Version> versions(String bsn) throws Exception {
 		init();
-		File dir = new File(root, bsn);
+		List<String> versions;
+		if (hasIndex) {
+			bsnIndex.refresh();
+			versions = bsnIndex.get(bsn);
+		} else {
+			versions = listVersions(bsn);
+		}
+		if (versions == null)
+			return SortedList.empty();
+
 		boolean latest = false;
-		if (dir.isDirectory()) {
-			List<Version> list = new ArrayList<>();
-			for (String v : IO.list(dir)) {
-				Matcher m = REPO_FILE.matcher(v);
-				if (m.matches()) {
-					String version = m.group(2);
-					if (!version.equals(Constants.VERSION_ATTR_LATEST))
-						list.add(new Version(version));
-					else
-						latest = true;
-				}
-			}
-			if (list.isEmpty() && latest)
-				return LATEST_SET;
+		List<Version> list = new ArrayList<>();
+		for (String version : versions) {
+			if (!version.equals(Constants.VERSION_ATTR_LATEST))
+				list.add(new Version(version));
 			else
-				return new SortedList<>(list);
+				latest = true;
 		}
-		return SortedList.empty();
+		if (list.isEmpty() && latest)
+			return LATEST_SET;
+		else
+			return new SortedList<>(list);
+	}
+
+	/*
+	 * The versions in the file names in the directory of the bsn, null if
+	 * there is no such directory
+	 */
+	private List<String> listVersions(String bsn) {
+		File dir = new File(root, bsn);
+		if (!dir.isDirectory())
+			return null;
+
+		List<String> list = new ArrayList<>();
+		for (String v : IO.list(dir)) {
+			Matcher m = REPO_FILE.matcher(v);
+			if (m.matches())
+				list.add(m.group(2));
+		}
+		return list;
 	}
 
 	@Override
@@ -805,8 +866,11 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	public void close() throws IOException {
 		if (inited) {
 			exec(close, IO.absolutePath(getRoot()));
-			if (hasIndex)
+			if (hasIndex) {
 				index.close();
+				shaIndex.close();
+				bsnIndex.close();
+			}
 		}
 	}
 
@@ -938,25 +1002,28 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			versions = new SortedList<>(version);
 
 		for (Version v : versions) {
-			File f = getLocal(bsn, version, null);
+			File f = getLocal(bsn, v, null);
 			if (!f.isFile())
-				reporter.error("No artifact found for %s:%s", bsn, version);
+				reporter.error("No artifact found for %s:%s", bsn, v);
 			else
 				IO.delete(f);
+			if (hasIndex)
+				removeIndex(bsn, v);
 		}
-		if (versions(bsn).isEmpty())
+		List<String> remaining = listVersions(bsn);
+		if (remaining == null || remaining.isEmpty()) {
 			IO.delete(new File(root, bsn));
-
-		index.remove(bsn + "-" + version);
+			if (hasIndex)
+				bsnIndex.remove(bsn);
+		} else if (hasIndex)
+			bsnIndex.put(bsn, remaining);
 	}
 
 	public ResourceDescriptor getDescriptor(String bsn, Version version) throws Exception {
 		init();
 		if (hasIndex) {
-			ResourceDescriptor resourceDescriptor = index.get(bsn + "-" + version);
-			if (resourceDescriptor == null)
-				System.out.println("Keys " + index.keySet());
-			return resourceDescriptor;
+			index.refresh();
+			return index.get(indexKey(bsn, version));
 		}
 		return null;
 	}
@@ -995,6 +1062,7 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 				}
 				return 0;
 			});
+			index.refresh();
 			for (ResourceDescriptor rd : index.values()) {
 				resources.add(rd);
 			}
@@ -1006,10 +1074,11 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 	public ResourceDescriptor getResource(byte[] sha) throws Exception {
 		init();
 		if (hasIndex) {
-			for (ResourceDescriptor rd : index.values()) {
-				if (Arrays.equals(rd.id, sha))
-					return rd;
-			}
+			shaIndex.refresh();
+			index.refresh();
+			String key = shaIndex.get(Hex.toHexString(sha));
+			if (key != null)
+				return index.get(key);
 		}
 		return null;
 	}
@@ -1020,15 +1089,54 @@ public class FileRepo implements Plugin, RepositoryPlugin, Refreshable, Registry
 			return;
 
 		index.clear();
-		for (String bsn : list(null)) {
+		shaIndex.clear();
+		bsnIndex.clear();
+		for (String bsn : listBsns(null)) {
+			bsnIndex.put(bsn, listVersions(bsn));
 			for (Version version : versions(bsn)) {
 				File f = get(bsn, version, null);
-				index.put(bsn + "-" + version, buildDescriptor(f, null, null, bsn, version));
+				addIndex(bsn, version, buildDescriptor(f, null, null, bsn, version));
 			}
 		}
 		dirty = false;
 	}
 
+	private static String indexKey(String bsn, Version version) {
+		return bsn + "-" + version.toStringWithoutQualifier();
+	}
+
+	private void addIndex(String bsn, Version version, ResourceDescriptor rd) {
+		String key = indexKey(bsn, version);
+		ResourceDescriptor old = index.get(key);
+		if (old != null)
+			unindexSha(old);
+		index.put(key, rd);
+		indexSha(key, rd);
+	}
+
+	private void removeIndex(String bsn, Version version) {
+		String key = indexKey(bsn, version);
+		ResourceDescriptor rd = index.get(key);
+		if (rd != null) {
+			unindexSha(rd);
+			index.remove(key);
+		}
+	}
+
+	private void indexSha(String key, ResourceDescriptor rd) {
+		if (rd.id != null)
+			shaIndex.put(Hex.toHexString(rd.id), key);
+		if (rd.sha256 != null)
+			shaIndex.put(Hex.toHexString(rd.sha256), key);
+	}
+
+	private void unindexSha(ResourceDescriptor rd) {
+		if (rd.id != null)
+			shaIndex.remove(Hex.toHexString(rd.id));
+		if (rd.sha256 != null)
+			shaIndex.remove(Hex.toHexString(rd.sha256));
+	}
+
 	private ResourceDescriptor buildDescriptor(File f, Jar jar, byte[] digest, String bsn, Version version)
 		throws NoSuchAlgorithmException, Exception {
 		init();
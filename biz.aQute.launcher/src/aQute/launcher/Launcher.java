@@ -25,6 +25,7 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.JarURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
@@ -122,6 +123,7 @@ public class Launcher implements ServiceListener, FrameworkListener {
 	private BundleActivator					externalActivator;
 	private boolean							restart					= false;
 	private boolean							frameworkInited			= false;
+	private boolean							restoredSnapshot		= false;
 
 	private ServiceRegistration<?>			launcherServiceRegistraion;
 
@@ -406,6 +408,14 @@ public class Launcher implements ServiceListener, FrameworkListener {
 				System.exit(status);
 			}
 
+			if (parms.snapshotCreate) {
+				// stop the framework so it persists its storage before the
+				// storage is packaged as the snapshot
+				deactivate();
+				trace("created the storage snapshot");
+				return LauncherConstants.OK;
+			}
+
 			trace("framework=%s", systemBundle);
 
 			// Register the command line with ourselves as the
@@ -579,6 +589,13 @@ public class Launcher implements ServiceListener, FrameworkListener {
 		}
 		List<Bundle> tobestarted = update(System.currentTimeMillis() + 100);
 
+		if (parms.snapshotCreate) {
+			// only install and resolve, the storage is the snapshot
+			if (!frameworkWiring.resolveBundles(null))
+				trace("not all bundles resolved in the snapshot");
+			return result;
+		}
+
 		systemBundle.start();
 
 		trace("system bundle started ok");
@@ -938,6 +955,16 @@ public class Launcher implements ServiceListener, FrameworkListener {
 				// is not a file url.
 				//
 
+				if (restoredSnapshot) {
+					bundle = getBundleByLocation(path);
+					if (bundle != null) {
+						trace("installed %s from the storage snapshot", path);
+						tobestarted.add(bundle);
+						n++;
+						continue;
+					}
+				}
+
 				try (InputStream in = resource.openStream()) {
 					bundle = getBundleByLocation(path);
 					if (bundle == null) {
@@ -1210,9 +1237,12 @@ public class Launcher implements ServiceListener, FrameworkListener {
 		if (!workingdir.isDirectory())
 			throw new IllegalArgumentException("Cannot create a working dir: " + workingdir);
 
-		if (System.getProperty(Constants.FRAMEWORK_STORAGE) == null)
+		if (System.getProperty(Constants.FRAMEWORK_STORAGE) == null) {
 			p.setProperty(Constants.FRAMEWORK_STORAGE, workingdir.getAbsolutePath());
-		else
+			if (parms.embedded && (parms.snapshot != null) && restoreSnapshot(workingdir)) {
+				p.remove(Constants.FRAMEWORK_STORAGE_CLEAN);
+			}
+		} else
 			p.setProperty(Constants.FRAMEWORK_STORAGE, System.getProperty(Constants.FRAMEWORK_STORAGE));
 
 		if (parms.systemPackages != null) {
@@ -1258,6 +1288,71 @@ public class Launcher implements ServiceListener, FrameworkListener {
 		return systemBundle;
 	}
 
+	/*
+	 * Restore the framework storage snapshot of the executable in an empty
+	 * working dir. The snapshot is only used when the run bundles in the
+	 * executable are still the bundles the snapshot was made of.
+	 */
+	private boolean restoreSnapshot(File workingdir) {
+		String[] content = workingdir.list();
+		if (content == null || content.length != 0) {
+			trace("not restoring the storage snapshot, the working dir %s is not empty", workingdir);
+			return false;
+		}
+		ClassLoader loader = getClass().getClassLoader();
+		try {
+			String hash = LauncherConstants.snapshotHash(parms.runbundles, path -> {
+				try {
+					URL resource = loader.getResource(path);
+					if (resource != null && resource.openConnection() instanceof JarURLConnection connection)
+						return connection.getJarEntry();
+				} catch (IOException e) {
+					// no entry
+				}
+				return null;
+			});
+			if (!parms.snapshotHash.equals(hash)) {
+				trace("not restoring the storage snapshot, the run bundles changed %s != %s", hash,
+					parms.snapshotHash);
+				return false;
+			}
+
+			long start = System.nanoTime();
+			Properties index = new Properties();
+			try (InputStream in = loader.getResourceAsStream(parms.snapshot)) {
+				index.load(in);
+			}
+			Path base = workingdir.toPath();
+			for (String key : index.stringPropertyNames()) {
+				Path target = base.resolve(key)
+					.normalize();
+				if (!target.startsWith(base))
+					throw new IllegalArgumentException("snapshot path escapes the working dir " + key);
+				String path = index.getProperty(key);
+				if (path.isEmpty()) {
+					Files.createDirectories(target);
+				} else {
+					Files.createDirectories(target.getParent());
+					try (InputStream in = loader.getResourceAsStream(path)) {
+						if (in == null)
+							throw new IOException("missing snapshot entry " + path);
+						Files.copy(in, target);
+					}
+				}
+			}
+			restoredSnapshot = true;
+			trace("restored the storage snapshot %s in %s ms", parms.snapshot,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			return true;
+		} catch (Exception e) {
+			error("failed to restore the storage snapshot, installing the bundles: %s", e);
+			for (File f : IO.listFiles(workingdir)) {
+				delete(f);
+			}
+			return false;
+		}
+	}
+
 	private Framework createClassic(Framework systemBundle, ClassLoader loader, Map<String, String> configuration) {
 		FrameworkFactory factory = getMetaInfService(loader, FrameworkFactory.class);
 		if (factory != null) {
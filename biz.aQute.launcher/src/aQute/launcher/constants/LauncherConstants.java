@@ -1,13 +1,20 @@
 package aQute.launcher.constants;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
 
 import aQute.bnd.osgi.Constants;
 
@@ -47,12 +54,23 @@ public class LauncherConstants {
 	final static String				LAUNCH_NOREFERENCES				= "launch.noreferences";
 	final static String				LAUNCH_NOTIFICATION_PORT		= "launch.notificationPort";
 	public final static String		LAUNCH_FRAMEWORK_RESTART		= "launch.framework.restart";
+	final static String				LAUNCH_SNAPSHOT					= "launch.snapshot";
+	final static String				LAUNCH_SNAPSHOT_HASH			= "launch.snapshot.hash";
+	public final static String		LAUNCH_SNAPSHOT_CREATE			= "launch.snapshot.create";
+
+	/**
+	 * The index of the framework storage snapshot in an executable JAR. The
+	 * keys are the paths in the storage, the values the paths of the content
+	 * in the executable JAR, or empty for a directory.
+	 */
+	public final static String		SNAPSHOT_INDEX					= "snapshot/index.properties";
+	public final static String		SNAPSHOT_STORAGE				= "snapshot/storage/";
 
 	public final static String[]	LAUNCHER_PROPERTY_KEYS			= {
 		LAUNCH_SERVICES, LAUNCH_STORAGE_DIR, LAUNCH_KEEP, LAUNCH_NOREFERENCES, LAUNCH_RUNBUNDLES, LAUNCH_SYSTEMPACKAGES,
 		LAUNCH_SYSTEMCAPABILITIES, LAUNCH_SYSTEMPACKAGES, Constants.LAUNCH_TRACE, LAUNCH_TIMEOUT,
 		Constants.LAUNCH_ACTIVATORS, LAUNCH_FRAMEWORK_RESTART, LAUNCH_EMBEDDED, LAUNCH_NAME, LAUNCH_NOREFERENCES,
-		LAUNCH_NOTIFICATION_PORT, Constants.LAUNCH_ACTIVATION_EAGER
+		LAUNCH_NOTIFICATION_PORT, Constants.LAUNCH_ACTIVATION_EAGER, LAUNCH_SNAPSHOT_CREATE
 	};
 	/**
 	 * The command line arguments of the launcher. Launcher are not supposed to
@@ -77,6 +95,9 @@ public class LauncherConstants {
 	public int						notificationPort				= -1;
 	public boolean					activationEager					= false;
 	public boolean					frameworkRestart				= false;
+	public String					snapshot;
+	public String					snapshotHash;
+	public boolean					snapshotCreate					= false;
 
 	/**
 	 * Translate a constants to properties.
@@ -99,6 +120,10 @@ public class LauncherConstants {
 		p.setProperty(Constants.LAUNCH_ACTIVATORS, join(activators, ","));
 		p.setProperty(LAUNCH_EMBEDDED, String.valueOf(embedded));
 		p.setProperty(LAUNCH_FRAMEWORK_RESTART, String.valueOf(frameworkRestart));
+		if (snapshot != null) {
+			p.setProperty(LAUNCH_SNAPSHOT, snapshot);
+			p.setProperty(LAUNCH_SNAPSHOT_HASH, snapshotHash);
+		}
 
 		if (name != null)
 			p.setProperty(LAUNCH_NAME, name);
@@ -148,6 +173,9 @@ public class LauncherConstants {
 		notificationPort = Integer.parseInt(p.getProperty(LAUNCH_NOTIFICATION_PORT, "-1"));
 		activationEager = Boolean.parseBoolean(p.getProperty(Constants.LAUNCH_ACTIVATION_EAGER));
 		frameworkRestart = Boolean.parseBoolean(p.getProperty(LAUNCH_FRAMEWORK_RESTART));
+		snapshot = p.getProperty(LAUNCH_SNAPSHOT);
+		snapshotHash = p.getProperty(LAUNCH_SNAPSHOT_HASH);
+		snapshotCreate = Boolean.parseBoolean(p.getProperty(LAUNCH_SNAPSHOT_CREATE));
 		@SuppressWarnings({
 			"unchecked", "rawtypes"
 		})
@@ -155,6 +183,29 @@ public class LauncherConstants {
 		runProperties.putAll(map);
 	}
 
+	/**
+	 * Calculate the hash that identifies the run bundles of a storage
+	 * snapshot. The hash covers the path, the CRC and the size of the entry of
+	 * every run bundle in the executable JAR so it is cheap to verify at
+	 * launch.
+	 *
+	 * @param runbundles the paths of the run bundles
+	 * @param entries maps a path to its entry in the executable JAR
+	 * @return the hash or {@code null} if an entry is missing or incomplete
+	 */
+	public static String snapshotHash(List<String> runbundles, Function<String, ZipEntry> entries)
+		throws NoSuchAlgorithmException {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		for (String path : runbundles) {
+			ZipEntry entry = entries.apply(path);
+			if (entry == null || entry.getCrc() == -1 || entry.getSize() == -1)
+				return null;
+			digest.update((path + ";" + entry.getCrc() + ";" + entry.getSize() + "\n").getBytes(UTF_8));
+		}
+		return HexFormat.of()
+			.formatHex(digest.digest());
+	}
+
 	private Collection<String> split(String property, String string) {
 		List<String> result = new ArrayList<>();
 		StringTokenizer st = new StringTokenizer(property, string);
@@ -14,8 +14,11 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -23,10 +26,13 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
 
 import org.osgi.annotation.bundle.Header;
 import org.slf4j.Logger;
@@ -59,6 +65,7 @@ import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.lib.utf8properties.UTF8Properties;
 import aQute.libg.cryptography.SHA1;
+import aQute.libg.command.Command;
 import aQute.libg.glob.Glob;
 
 @Header(name = Constants.LAUNCHER_PLUGIN, value = "${@class}")
@@ -419,6 +426,14 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 			// overwrite calculated information
 			jar.setName(project.getName());
 			jar.setManifest(manifest);
+			if (instrs.store()) {
+				Set<String> stored = new HashSet<>(classpath);
+				stored.addAll(actualPaths);
+				jar.setStored(stored::contains);
+			}
+			if (instrs.snapshot()) {
+				snapshot(jar, actualPaths, lc);
+			}
 
 			project.getInfo(builder);
 
@@ -428,6 +443,88 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 		}
 	}
 
+	/*
+	 * Run the executable once to install and resolve the run bundles and embed
+	 * the resulting framework storage. Files in the storage that are a copy of
+	 * a run bundle refer to the embedded run bundle.
+	 */
+	private void snapshot(Jar jar, List<String> runbundles, LauncherConstants lc) throws Exception {
+		Project project = getProject();
+		File tmp = IO.createTempFile(null, "snapshot", "");
+		IO.delete(tmp);
+		try {
+			File executable = IO.getFile(tmp, "executable.jar");
+			File storage = IO.getFile(tmp, "storage");
+			IO.mkdirs(storage);
+
+			// the run bundles must have the same content in every write of
+			// the executable, a rejarred bundle is therefore buffered once
+			Map<String, String> digests = new HashMap<>();
+			for (String path : runbundles) {
+				Resource resource = jar.getResource(path);
+				byte[] data = IO.read(resource.openInputStream());
+				jar.putResource(path, new EmbeddedResource(data, resource.lastModified()));
+				digests.putIfAbsent(SHA1.digest(data)
+					.asHex(), path);
+			}
+			jar.write(executable);
+
+			Command java = new Command();
+			java.add(getJavaExecutable("java"));
+			java.add("-D" + LauncherConstants.LAUNCH_SNAPSHOT_CREATE + "=true");
+			java.add("-D" + org.osgi.framework.Constants.FRAMEWORK_STORAGE + "=" + storage.getAbsolutePath());
+			java.add("-jar");
+			java.add(executable.getAbsolutePath());
+			if (getTimeout() != 0) {
+				java.setTimeout(getTimeout() + 1000, TimeUnit.MILLISECONDS);
+			}
+			StringBuilder out = new StringBuilder();
+			int status = java.execute(out, out);
+			if (status != LauncherConstants.OK) {
+				project.warning("Could not create the framework storage snapshot, exit code %s: %s", status, out);
+				return;
+			}
+
+			String hash;
+			try (ZipFile zip = new ZipFile(executable)) {
+				hash = LauncherConstants.snapshotHash(runbundles, zip::getEntry);
+			}
+			if (hash == null) {
+				project.warning("Could not create the framework storage snapshot, the run bundles cannot be hashed");
+				return;
+			}
+
+			UTF8Properties index = new UTF8Properties();
+			Path base = storage.toPath();
+			try (Stream<Path> paths = Files.walk(base)) {
+				for (Path file : (Iterable<Path>) paths::iterator) {
+					if (file.equals(base))
+						continue;
+					String key = IO.normalizePath(base.relativize(file));
+					if (Files.isDirectory(file)) {
+						index.setProperty(key, "");
+						continue;
+					}
+					String path = digests.get(SHA1.digest(file.toFile())
+						.asHex());
+					if (path == null) {
+						path = LauncherConstants.SNAPSHOT_STORAGE + key;
+						jar.putResource(path, new EmbeddedResource(IO.read(file.toFile()), 0L));
+					}
+					index.setProperty(key, path);
+				}
+			}
+			jar.putResource(LauncherConstants.SNAPSHOT_INDEX, new PropertiesResource(index));
+
+			lc.snapshot = LauncherConstants.SNAPSHOT_INDEX;
+			lc.snapshotHash = hash;
+			jar.putResource(LauncherConstants.DEFAULT_LAUNCHER_PROPERTIES,
+				new PropertiesResource(lc.getProperties(new UTF8Properties())));
+		} finally {
+			IO.delete(tmp);
+		}
+	}
+
 	private void copyProperties(Function<String, String> getProperty, BiConsumer<String, String> setProperty,
 		String... keys) {
 		for (String key : keys) {
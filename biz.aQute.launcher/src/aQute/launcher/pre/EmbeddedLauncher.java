@@ -26,6 +26,7 @@ public class EmbeddedLauncher {
 
 	private static final File	CWD					= new File(System.getProperty("user.dir"));
 	private static final String	LAUNCH_TRACE		= "launch.trace";
+	private static final String	LAUNCH_EXTRACT		= "launch.extract";
 	private static final int	BUFFER_SIZE			= 4096 * 16;
 
 	public static final String	EMBEDDED_RUNPATH	= "Embedded-Runpath";
@@ -274,6 +275,15 @@ public class EmbeddedLauncher {
 			.equalsIgnoreCase("jrt"))
 			return resource;
 
+		//
+		// Read jars that are stored uncompressed in place
+		//
+		if (!Boolean.getBoolean(LAUNCH_EXTRACT)) {
+			URL nested = NestedJar.toURL(resource);
+			if (nested != null)
+				return nested;
+		}
+
 		//
 		// Need to make a copy to a temp file
 		//
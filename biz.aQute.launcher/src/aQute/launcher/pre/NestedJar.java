@@ -0,0 +1,311 @@
+package aQute.launcher.pre;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * A JAR that is stored uncompressed in the executable JAR. The nested JAR is
+ * mapped in place from the executable JAR and its entries are served through
+ * a {@code nested:} URL, so the JAR does not have to be copied to a temporary
+ * file before a class loader can use it.
+ * <p>
+ * Only plain ZIP files are supported. When the nested JAR is compressed, or
+ * uses ZIP64, the caller must fall back to extracting it.
+ */
+final class NestedJar extends URLStreamHandler {
+	static final String				PROTOCOL	= "nested";
+
+	private static final int		LOC_SIG		= 0x04034b50;
+	private static final int		CEN_SIG		= 0x02014b50;
+	private static final int		END_SIG		= 0x06054b50;
+	private static final int		LOC_HDR		= 30;
+	private static final int		CEN_HDR		= 46;
+	private static final int		END_HDR		= 22;
+	private static final long		ZIP64		= 0xFFFFFFFFL;
+
+	private final ByteBuffer		data;
+	private final Map<String, Cen>	entries;
+	private final String			prefix;
+	private final URL				url;
+
+	/*
+	 * A central directory entry
+	 */
+	static final class Cen {
+		final int	method;
+		final long	offset;
+		final long	compressedSize;
+		final long	size;
+
+		Cen(int method, long offset, long compressedSize, long size) {
+			this.method = method;
+			this.offset = offset;
+			this.compressedSize = compressedSize;
+			this.size = size;
+		}
+	}
+
+	private NestedJar(File outer, String path, ByteBuffer data, Map<String, Cen> entries) throws IOException {
+		this.data = data;
+		this.entries = entries;
+		this.prefix = outer.toURI()
+			.getRawPath() + "!/" + path + "!/";
+		this.url = new URL(PROTOCOL, null, -1, prefix, this);
+	}
+
+	/**
+	 * Answer a URL to read the JAR of a {@code jar:file:} URL in place, or
+	 * {@code null} if the JAR is not stored uncompressed in a plain ZIP file.
+	 *
+	 * @param resource the URL of the nested JAR
+	 * @return a class path URL for the nested JAR or {@code null}
+	 */
+	static URL toURL(URL resource) throws IOException {
+		if (!resource.getProtocol()
+			.equalsIgnoreCase("jar"))
+			return null;
+
+		JarURLConnection connection = (JarURLConnection) resource.openConnection();
+		URL outerURL = connection.getJarFileURL();
+		JarEntry entry = connection.getJarEntry();
+		if (!outerURL.getProtocol()
+			.equalsIgnoreCase("file") || (entry == null) || (entry.getMethod() != ZipEntry.STORED))
+			return null;
+
+		File outer;
+		try {
+			outer = new File(outerURL.toURI());
+		} catch (Exception e) {
+			return null;
+		}
+		String path = entry.getName();
+
+		try (RandomAccessFile file = new RandomAccessFile(outer, "r")) {
+			FileChannel channel = file.getChannel();
+			Cen cen = directory(channel).get(path);
+			if ((cen == null) || (cen.method != ZipEntry.STORED) || (cen.size > Integer.MAX_VALUE))
+				return null;
+
+			ByteBuffer header = read(channel, cen.offset, LOC_HDR);
+			if (header.getInt(0) != LOC_SIG)
+				return null;
+			long start = cen.offset + LOC_HDR + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+			ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start, cen.size)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			Map<String, Cen> entries = directory(data);
+			if (entries == null)
+				return null;
+			return new NestedJar(outer, path, data, entries).url;
+		}
+	}
+
+	@Override
+	protected URLConnection openConnection(URL u) throws IOException {
+		String path = u.getPath();
+		Cen cen = path.startsWith(prefix)
+			? entries.get(URLDecoder.decode(path.substring(prefix.length())
+				.replace("+", "%2B"), StandardCharsets.UTF_8))
+			: null;
+		if (cen == null)
+			throw new FileNotFoundException(u.toString());
+
+		return new URLConnection(u) {
+			@Override
+			public void connect() {
+				connected = true;
+			}
+
+			@Override
+			public long getContentLengthLong() {
+				return cen.size;
+			}
+
+			@Override
+			public InputStream getInputStream() throws IOException {
+				return open(cen);
+			}
+		};
+	}
+
+	private InputStream open(Cen cen) throws IOException {
+		if (cen.offset + LOC_HDR > data.limit() || data.getInt((int) cen.offset) != LOC_SIG)
+			throw new IOException("Invalid local header in " + url);
+		int start = (int) cen.offset + LOC_HDR + (data.getShort((int) cen.offset + 26) & 0xFFFF)
+			+ (data.getShort((int) cen.offset + 28) & 0xFFFF);
+		if (start + cen.compressedSize > data.limit())
+			throw new IOException("Invalid entry size in " + url);
+		ByteBuffer content = data.duplicate();
+		content.position(start)
+			.limit(start + (int) cen.compressedSize);
+		InputStream in = new ByteBufferInputStream(content.slice());
+		switch (cen.method) {
+			case ZipEntry.STORED :
+				return in;
+			case ZipEntry.DEFLATED :
+				return new InflaterInputStream(in, new Inflater(true), 8192) {
+					private boolean eof;
+
+					@Override
+					protected void fill() throws IOException {
+						if (eof)
+							throw new IOException("Unexpected end of ZLIB input stream");
+						len = this.in.read(buf, 0, buf.length);
+						if (len == -1) {
+							// the inflater may need a dummy byte at the end
+							buf[0] = 0;
+							len = 1;
+							eof = true;
+						}
+						inf.setInput(buf, 0, len);
+					}
+
+					@Override
+					public void close() throws IOException {
+						super.close();
+						inf.end();
+					}
+				};
+			default :
+				throw new IOException("Unsupported compression method " + cen.method + " in " + url);
+		}
+	}
+
+	/*
+	 * Read the central directory of a ZIP file on disk
+	 */
+	private static Map<String, Cen> directory(FileChannel channel) throws IOException {
+		long size = channel.size();
+		int tail = (int) Math.min(size, END_HDR + 0xFFFF);
+		ByteBuffer end = read(channel, size - tail, tail);
+		int eocd = findEnd(end);
+		if (eocd < 0)
+			return new HashMap<>();
+		long cenSize = end.getInt(eocd + 12) & ZIP64;
+		long cenOffset = end.getInt(eocd + 16) & ZIP64;
+		if (cenSize == ZIP64 || cenOffset == ZIP64 || cenOffset + cenSize > size)
+			return new HashMap<>();
+		Map<String, Cen> entries = entries(read(channel, cenOffset, (int) cenSize));
+		return entries == null ? new HashMap<>() : entries;
+	}
+
+	/*
+	 * Read the central directory of a ZIP file in memory
+	 */
+	private static Map<String, Cen> directory(ByteBuffer data) {
+		ByteBuffer end = data.duplicate()
+			.order(ByteOrder.LITTLE_ENDIAN);
+		int tail = Math.min(data.limit(), END_HDR + 0xFFFF);
+		end.position(data.limit() - tail);
+		end = end.slice()
+			.order(ByteOrder.LITTLE_ENDIAN);
+		int eocd = findEnd(end);
+		if (eocd < 0)
+			return null;
+		long cenSize = end.getInt(eocd + 12) & ZIP64;
+		long cenOffset = end.getInt(eocd + 16) & ZIP64;
+		if (cenSize == ZIP64 || cenOffset == ZIP64 || cenOffset + cenSize > data.limit())
+			return null;
+		ByteBuffer cen = data.duplicate();
+		cen.position((int) cenOffset)
+			.limit((int) (cenOffset + cenSize));
+		return entries(cen.slice()
+			.order(ByteOrder.LITTLE_ENDIAN));
+	}
+
+	private static int findEnd(ByteBuffer end) {
+		for (int i = end.limit() - END_HDR; i >= 0; i--) {
+			if (end.getInt(i) == END_SIG)
+				return i;
+		}
+		return -1;
+	}
+
+	private static Map<String, Cen> entries(ByteBuffer cen) {
+		Map<String, Cen> entries = new HashMap<>();
+		int p = 0;
+		while (p + CEN_HDR <= cen.limit()) {
+			if (cen.getInt(p) != CEN_SIG)
+				return null;
+			int method = cen.getShort(p + 10) & 0xFFFF;
+			long compressedSize = cen.getInt(p + 20) & ZIP64;
+			long size = cen.getInt(p + 24) & ZIP64;
+			int nameLength = cen.getShort(p + 28) & 0xFFFF;
+			int extraLength = cen.getShort(p + 30) & 0xFFFF;
+			int commentLength = cen.getShort(p + 32) & 0xFFFF;
+			long offset = cen.getInt(p + 42) & ZIP64;
+			if (compressedSize == ZIP64 || size == ZIP64 || offset == ZIP64)
+				return null;
+			byte[] name = new byte[nameLength];
+			cen.position(p + CEN_HDR);
+			cen.get(name);
+			entries.put(new String(name, StandardCharsets.UTF_8), new Cen(method, offset, compressedSize, size));
+			p += CEN_HDR + nameLength + extraLength + commentLength;
+		}
+		return entries;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("Unexpected end of file");
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer bb;
+
+		ByteBufferInputStream(ByteBuffer bb) {
+			this.bb = bb;
+		}
+
+		@Override
+		public int read() {
+			return bb.hasRemaining() ? bb.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0)
+				return 0;
+			if (!bb.hasRemaining())
+				return -1;
+			int n = Math.min(len, bb.remaining());
+			bb.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) {
+			int skip = (int) Math.max(0, Math.min(n, bb.remaining()));
+			bb.position(bb.position() + skip);
+			return skip;
+		}
+
+		@Override
+		public int available() {
+			return bb.remaining();
+		}
+	}
+}
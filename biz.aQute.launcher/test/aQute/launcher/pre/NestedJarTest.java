@@ -0,0 +1,73 @@
+package aQute.launcher.pre;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.bnd.osgi.EmbeddedResource;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.JarResource;
+import aQute.bnd.osgi.Resource;
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+
+public class NestedJarTest {
+
+	@Test
+	public void testLoadFromStoredJar(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		String cen = "aQute/launcher/pre/NestedJar$Cen.class";
+		File executable = new File(tmp, "executable.jar");
+		try (Jar outer = new Jar("executable")) {
+			for (String name : new String[] {
+				"jar/stored.jar", "jar/deflated.jar"
+			}) {
+				Jar inner = new Jar(name);
+				inner.putResource(cen, Resource.fromURL(getClass().getResource("NestedJar$Cen.class")));
+				inner.putResource("a/b c.txt", new EmbeddedResource("hello", 0L));
+				outer.putResource(name, new JarResource(inner, true));
+			}
+			outer.setStored("jar/stored.jar"::equals);
+			outer.write(executable);
+		}
+		try (ZipFile zip = new ZipFile(executable)) {
+			assertThat(zip.getEntry("jar/stored.jar")
+				.getMethod()).isEqualTo(ZipEntry.STORED);
+			assertThat(zip.getEntry("jar/deflated.jar")
+				.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+		}
+
+		try (URLClassLoader outer = new URLClassLoader(new URL[] {
+			executable.toURI()
+				.toURL()
+		}, null)) {
+			assertThat(NestedJar.toURL(outer.getResource("jar/deflated.jar"))).isNull();
+
+			URL nested = NestedJar.toURL(outer.getResource("jar/stored.jar"));
+			assertThat(nested).isNotNull();
+			assertThat(nested.getProtocol()).isEqualTo(NestedJar.PROTOCOL);
+
+			try (URLClassLoader loader = new URLClassLoader(new URL[] {
+				nested
+			}, null)) {
+				Class<?> c = loader.loadClass("aQute.launcher.pre.NestedJar$Cen");
+				assertThat(c.getClassLoader()).isSameAs(loader);
+				assertThat(c).isNotSameAs(NestedJar.Cen.class);
+
+				URL resource = loader.getResource("a/b c.txt");
+				assertThat(resource).isNotNull();
+				try (InputStream in = resource.openStream()) {
+					assertThat(IO.collect(in)).isEqualTo("hello");
+				}
+				assertThat(loader.getResource("a/missing.txt")).isNull();
+			}
+		}
+	}
+}
@@ -762,12 +762,7 @@ public class Launchpad implements AutoCloseable {
 		try {
 			framework.start();
 			List<Bundle> toBeStarted = new ArrayList<>();
-			for (String path : runspec.runbundles) {
-				File file = new File(path);
-				if (!file.isFile())
-					throw new IllegalArgumentException("-runbundle " + file + " does not exist or is not a file");
-
-				Bundle b = install(file);
+			for (Bundle b : installRunbundles()) {
 				if (!isFragment(b)) {
 					toBeStarted.add(b);
 				}
@@ -789,6 +784,22 @@ public class Launchpad implements AutoCloseable {
 		}
 	}
 
+	/*
+	 * Install the -runbundles. A bundle that is already installed in the
+	 * framework storage is returned as is.
+	 */
+	List<Bundle> installRunbundles() {
+		List<Bundle> bundles = new ArrayList<>();
+		for (String path : runspec.runbundles) {
+			File file = new File(path);
+			if (!file.isFile())
+				throw new IllegalArgumentException("-runbundle " + file + " does not exist or is not a file");
+
+			bundles.add(install(file));
+		}
+		return bundles;
+	}
+
 	// reverse ordering. I.e. highest priority is first
 	int startorder(Bundle a, Bundle b) {
 
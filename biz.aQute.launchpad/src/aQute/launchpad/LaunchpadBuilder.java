@@ -6,7 +6,12 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -15,6 +20,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -22,9 +29,11 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.osgi.framework.Bundle;
 import org.osgi.framework.Constants;
 import org.osgi.framework.launch.Framework;
 import org.osgi.framework.launch.FrameworkFactory;
+import org.osgi.framework.wiring.FrameworkWiring;
 
 import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.remoteworkspace.client.RemoteWorkspaceClientFactory;
@@ -34,6 +43,7 @@ import aQute.bnd.service.specifications.BuilderSpecification;
 import aQute.bnd.service.specifications.RunSpecification;
 import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
+import aQute.libg.cryptography.SHA1;
 import aQute.libg.glob.Glob;
 import aQute.libg.parameters.ParameterMap;
 
@@ -44,6 +54,7 @@ public class LaunchpadBuilder implements AutoCloseable {
 
 	private static final String		LAUNCHPAD_NAME		= "launchpad.name";
 	private static final String		LAUNCHPAD_CLASSNAME	= "launchpad.classname";
+	private static final String		LAUNCHPAD_POOL		= "launchpad.pool";
 
 	private static final String		EXCLUDEEXPORTS		= "-excludeexports";
 	final static ExecutorService	executor			= Executors.newCachedThreadPool();
@@ -52,6 +63,10 @@ public class LaunchpadBuilder implements AutoCloseable {
 		new RemoteWorkspaceClient() {});
 	final static RunSpecification	projectTestSetup;
 	final static AtomicInteger		counter				= new AtomicInteger();
+	/*
+	 * The storage templates of this JVM, they are deleted when the JVM exits
+	 */
+	final static Set<File>			templateDirs		= ConcurrentHashMap.newKeySet();
 
 	static {
 		projectTestSetup = defaultWorkspace.analyzeTestSetup(IO.work.getAbsolutePath());
@@ -78,6 +93,7 @@ public class LaunchpadBuilder implements AutoCloseable {
 				} catch (IOException e) {
 					// ignore
 				}
+				templateDirs.forEach(IO::delete);
 			}));
 	}
 
@@ -85,6 +101,7 @@ public class LaunchpadBuilder implements AutoCloseable {
 	boolean							start			= true;
 	boolean							testbundle		= true;
 	boolean							byReference		= true;
+	boolean							pool			= Boolean.getBoolean(LAUNCHPAD_POOL);
 	long							closeTimeout	= 60000;
 	boolean							debug;
 	final Set<Class<?>>				hide			= new HashSet<>();
@@ -217,6 +234,21 @@ public class LaunchpadBuilder implements AutoCloseable {
 		return this;
 	}
 
+	/**
+	 * Reuse a framework storage template. The first Launchpad for a unique run
+	 * specification installs and resolves the -runbundles in a template
+	 * storage. Every next Launchpad with the same run specification starts
+	 * from a copy of this template instead of an empty storage. The templates
+	 * are deleted when the JVM exits. Pooling can also be enabled for all
+	 * builders with the {@code launchpad.pool} system property.
+	 *
+	 * @return this
+	 */
+	public LaunchpadBuilder pool() {
+		this.pool = true;
+		return this;
+	}
+
 	/**
 	 * Exclude the exports that are matched by any of the given globs
 	 *
@@ -281,6 +313,13 @@ public class LaunchpadBuilder implements AutoCloseable {
 			runspec.properties.put(LAUNCHPAD_NAME, name);
 			runspec.properties.put(LAUNCHPAD_CLASSNAME, className);
 
+			File template = null;
+			if (pool) {
+				template = getTemplate(runspec, name, className);
+				copyTemplate(template, storage);
+				runspec.properties.remove(Constants.FRAMEWORK_STORAGE_CLEAN);
+			}
+
 			Framework framework = getFramework(runspec);
 
 			@SuppressWarnings("resource")
@@ -292,6 +331,9 @@ public class LaunchpadBuilder implements AutoCloseable {
 			launchpad.report("ALL extra system capabilities\n     %s", toLines(local.extraSystemCapabilities.keySet()));
 
 			launchpad.report("Storage %s", storage.getAbsolutePath());
+			if (template != null) {
+				launchpad.report("Storage template %s", template.getAbsolutePath());
+			}
 			launchpad.report("Runpath %s", local.runpath);
 
 			hide.forEach(launchpad::hide);
@@ -305,6 +347,144 @@ public class LaunchpadBuilder implements AutoCloseable {
 		}
 	}
 
+	/*
+	 * Answer the storage template for the run specification, the template is
+	 * created when it does not exist yet. The template is created in a
+	 * temporary directory and then moved in place so concurrent builders
+	 * never see a partial template.
+	 */
+	private File getTemplate(RunSpecification runspec, String name, String className) throws Exception {
+		File templates = getTemplates();
+		File template = new File(templates, templateKey(runspec));
+		if (template.isDirectory())
+			return template;
+
+		if (templateDirs.add(templates)) {
+			deleteStaleTemplates(templates.getParentFile());
+		}
+		IO.mkdirs(templates);
+		File tmp = Files.createTempDirectory(templates.toPath(), "tmp")
+			.toFile();
+		try {
+			RunSpecification spec = new RunSpecification();
+			spec.mergeWith(runspec);
+			spec.properties.put(Constants.FRAMEWORK_STORAGE, tmp.getAbsolutePath());
+			spec.properties.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+
+			Framework framework = getFramework(spec);
+			try (Launchpad launchpad = new Launchpad(workspace, framework, name, className, spec, closeTimeout, debug,
+				false, byReference)) {
+				List<Bundle> bundles = launchpad.installRunbundles();
+				framework.adapt(FrameworkWiring.class)
+					.resolveBundles(bundles);
+			}
+			try {
+				Files.move(tmp.toPath(), template.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				// Another builder was faster
+				if (!template.isDirectory())
+					throw e;
+			}
+			return template;
+		} finally {
+			IO.delete(tmp);
+		}
+	}
+
+	/*
+	 * The templates are kept per JVM, so a JVM can delete its templates when it
+	 * exits while other JVMs still use theirs
+	 */
+	File getTemplates() {
+		return IO.getFile(new File(local.target), "launchpad/templates/" + ProcessHandle.current()
+			.pid());
+	}
+
+	/*
+	 * Delete the templates of JVMs that are gone without deleting them, e.g.
+	 * because they were killed
+	 */
+	private void deleteStaleTemplates(File dir) {
+		File[] jvms = dir.listFiles(File::isDirectory);
+		if (jvms == null)
+			return;
+		for (File jvm : jvms) {
+			try {
+				if (ProcessHandle.of(Long.parseLong(jvm.getName()))
+					.isEmpty())
+					IO.delete(jvm);
+			} catch (NumberFormatException e) {
+				IO.delete(jvm);
+			}
+		}
+	}
+
+	/*
+	 * The key of a template covers everything that ends up in the storage,
+	 * including the identity of the files on the paths
+	 */
+	private String templateKey(RunSpecification runspec) throws Exception {
+		Map<String, String> properties = new TreeMap<>(runspec.properties);
+		properties.remove(Constants.FRAMEWORK_STORAGE);
+		properties.remove(Constants.FRAMEWORK_STORAGE_CLEAN);
+		properties.remove(LAUNCHPAD_NAME);
+		properties.remove(LAUNCHPAD_CLASSNAME);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(byReference)
+			.append('\n')
+			.append(properties)
+			.append('\n');
+		for (List<String> paths : Arrays.asList(local.runfw, runspec.runpath, runspec.runbundles)) {
+			for (String path : paths) {
+				File file = new File(path);
+				sb.append(path)
+					.append(';')
+					.append(file.lastModified())
+					.append(';')
+					.append(file.length())
+					.append('\n');
+			}
+			sb.append('\n');
+		}
+		return SHA1.digest(sb.toString()
+			.getBytes(StandardCharsets.UTF_8))
+			.asHex();
+	}
+
+	/*
+	 * Copy the template to the storage. Bundle content files are never
+	 * modified in place by a framework so they are hard linked when possible,
+	 * all other files are copied.
+	 */
+	private void copyTemplate(File template, File storage) throws IOException {
+		Path from = template.toPath();
+		Path to = storage.toPath();
+		try (Stream<Path> paths = Files.walk(from)) {
+			for (Path source : (Iterable<Path>) paths::iterator) {
+				Path target = to.resolve(from.relativize(source)
+					.toString());
+				if (Files.isDirectory(source)) {
+					Files.createDirectories(target);
+				} else if (isBundleContent(source)) {
+					try {
+						Files.createLink(target, source);
+					} catch (IOException | UnsupportedOperationException e) {
+						Files.copy(source, target);
+					}
+				} else {
+					Files.copy(source, target);
+				}
+			}
+		}
+	}
+
+	private boolean isBundleContent(Path path) {
+		String name = path.getFileName()
+			.toString();
+		return name.endsWith(".jar") || name.equals("bundleFile");
+	}
+
 	private String toLines(Collection<String> set) {
 		return set.stream()
 			.sorted()
@@ -89,6 +89,37 @@ public class LaunchpadTest {
 		}
 	}
 
+	@Test
+	public void testPooledStorage() throws Exception {
+		builder.runfw(org_apache_felix_framework)
+			.bundles(org_apache_felix_log)
+			.pool();
+		long installed;
+		try (Launchpad fw = builder.create()) {
+			assertThat(fw.getBundle("org.apache.felix.log")).isPresent();
+			installed = fw.getBundle("org.apache.felix.log")
+				.get()
+				.getLastModified();
+		}
+		File templates = builder.getTemplates();
+		assertThat(templates.listFiles()).hasSize(1);
+		File template = templates.listFiles()[0];
+		long created = template.lastModified();
+
+		// The second launchpad starts from the template and installs nothing
+		Thread.sleep(10L);
+		try (Launchpad fw = builder.create()) {
+			assertThat(fw.getBundle("org.apache.felix.log")).isPresent();
+			assertThat(fw.getBundle("org.apache.felix.log")
+				.get()
+				.getLastModified()).isEqualTo(installed);
+			assertThat(fw.getBundleContext()
+				.getBundles()).hasSize(3);
+		}
+		assertThat(templates.listFiles()).containsExactly(template);
+		assertThat(template.lastModified()).isEqualTo(created);
+	}
+
 	@Test
 	public void testConnection() throws Exception {
 		try (RemoteWorkspace remote = RemoteWorkspaceClientFactory.create(IO.work, new RemoteWorkspaceClient() {})) {
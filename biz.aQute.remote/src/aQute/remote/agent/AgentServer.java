@@ -5,14 +5,20 @@ import static java.util.Objects.requireNonNull;
 import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.URL;
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,6 +36,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -53,7 +62,9 @@ import org.osgi.resource.dto.RequirementDTO;
 import aQute.lib.converter.Converter;
 import aQute.lib.converter.TypeReference;
 import aQute.lib.io.ByteBufferInputStream;
+import aQute.lib.io.IO;
 import aQute.lib.startlevel.StartLevelRuntimeHandler;
+import aQute.libg.cryptography.SHA1;
 import aQute.libg.shacache.ShaCache;
 import aQute.libg.shacache.ShaSource;
 import aQute.remote.agent.AgentDispatcher.Descriptor;
@@ -70,6 +81,7 @@ import aQute.remote.util.Link;
 public class AgentServer implements Agent, Closeable, FrameworkListener {
 	private final static Pattern							BSN_P				= Pattern.compile("\\s*([^;\\s]+).*");
 	private final static AtomicInteger						sequence			= new AtomicInteger(1000);
+	private final static Pattern							TRANSFER_ID_P		= Pattern.compile("[\\w-]+");
 
 	//
 	// Constant so we do not have to repeat it
@@ -99,6 +111,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 	private Supervisor										remote;
 	private BundleContext									context;
 	private final ShaCache									cache;
+	private final File										transfers;
 	private ShaSource										source;
 	private final Map<String, String>						installed			= new HashMap<>();
 	volatile boolean										quit;
@@ -128,6 +141,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 		startOptions = eager ? 0 : Bundle.START_ACTIVATION_POLICY;
 
 		this.cache = new ShaCache(cache);
+		this.transfers = new File(cache, "transfers");
 		this.startlevels = startlevels;
 		if (this.context != null)
 			this.context.addFrameworkListener(this);
@@ -171,6 +185,121 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 		return toDTO(installedBundle);
 	}
 
+	@Override
+	public List<String> getTransferEncodings() {
+		return Arrays.asList(ENCODING_DEFLATE, ENCODING_STORED);
+	}
+
+	@Override
+	public Map<String, String> getEntryDigests(String location) throws Exception {
+		requireNonNull(location);
+
+		Map<String, String> digests = new HashMap<>();
+		Bundle bundle = context.getBundle(location);
+		if (bundle == null)
+			return digests;
+
+		Deque<String> todo = new ArrayDeque<>();
+		todo.add("/");
+		while (!todo.isEmpty()) {
+			Enumeration<String> paths = bundle.getEntryPaths(todo.poll());
+			if (paths == null)
+				continue;
+			while (paths.hasMoreElements()) {
+				String path = paths.nextElement();
+				if (path.endsWith("/")) {
+					todo.add(path);
+					continue;
+				}
+				URL url = bundle.getEntry(path);
+				if (url == null)
+					continue;
+				try (InputStream in = url.openStream()) {
+					digests.put(path, SHA1.digest(in)
+						.asHex());
+				}
+			}
+		}
+		return digests;
+	}
+
+	@Override
+	public synchronized long transfer(String id, long offset, byte[] chunk) throws Exception {
+		requireNonNull(chunk);
+		if (chunk.length > MAX_CHUNK_SIZE)
+			throw new IllegalArgumentException("Chunk larger than " + MAX_CHUNK_SIZE + " bytes: " + chunk.length);
+
+		File file = getTransferFile(id);
+		if (offset == 0L) {
+			IO.mkdirs(transfers);
+			IO.delete(file);
+		} else if (file.length() != offset) {
+			throw new IllegalStateException(
+				"Transfer " + id + " is at " + file.length() + " but received a chunk for " + offset);
+		}
+		try (OutputStream out = new FileOutputStream(file, true)) {
+			out.write(chunk);
+		}
+		return file.length();
+	}
+
+	@Override
+	public BundleDTO installWithDelta(String location, String id, List<String> entries) throws Exception {
+		requireNonNull(location);
+		requireNonNull(entries);
+
+		File delta = getTransferFile(id);
+		if (!delta.isFile())
+			throw new IllegalArgumentException("No such transfer " + id);
+
+		File jar = new File(transfers, delta.getName() + ".jar");
+		try {
+			Bundle installedBundle = context.getBundle(location);
+			try (ZipFile zip = new ZipFile(delta);
+				ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+				for (String path : entries) {
+					out.putNextEntry(new ZipEntry(path));
+					ZipEntry entry = zip.getEntry(path);
+					if (entry != null) {
+						try (InputStream in = zip.getInputStream(entry)) {
+							IO.copy(in, out);
+						}
+					} else if (!path.endsWith("/")) {
+						URL url = (installedBundle == null) ? null : installedBundle.getEntry(path);
+						if (url == null)
+							throw new IllegalArgumentException(
+								"Entry " + path + " is neither in the delta nor in the bundle at " + location);
+						try (InputStream in = url.openStream()) {
+							IO.copy(in, out);
+						}
+					}
+					out.closeEntry();
+				}
+			}
+
+			try (InputStream stream = IO.stream(jar)) {
+				if (installedBundle == null) {
+					installedBundle = context.installBundle(location, stream);
+				} else {
+					installedBundle.update(stream);
+					refresh(true);
+				}
+			}
+			return toDTO(installedBundle);
+		} finally {
+			IO.delete(jar);
+			IO.delete(delta);
+		}
+	}
+
+	private File getTransferFile(String id) {
+		requireNonNull(id);
+		if (!TRANSFER_ID_P.matcher(id)
+			.matches())
+			throw new IllegalArgumentException("Invalid transfer id " + id);
+		return new File(transfers, id);
+	}
+
 	@Override
 	public BundleDTO install(String location, String sha) throws Exception {
 		InputStream in = cache.getStream(sha, source);
@@ -553,6 +682,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 		quit = true;
 		update(null);
 		redirect(0);
+		IO.delete(transfers);
 		sendEvent(event);
 		link.close();
 	}
@@ -52,6 +52,23 @@ public interface Agent {
 	 */
 	int		CONSOLE					= 1;
 
+	/**
+	 * The maximum size of a chunk sent with
+	 * {@link #transfer(String, long, byte[])}.
+	 */
+	int		MAX_CHUNK_SIZE			= 256 * 1024;
+
+	/**
+	 * The transfer encoding where the entries of a delta are deflated.
+	 */
+	String	ENCODING_DEFLATE		= "deflate";
+
+	/**
+	 * The transfer encoding where the entries of a delta are stored without
+	 * compression.
+	 */
+	String	ENCODING_STORED			= "stored";
+
 	/**
 	 * An Envoy is an agent that can install a framework (well, -runpath) and
 	 * launch it with an Agent. An envoy can only handle this method and
@@ -97,6 +114,55 @@ public interface Agent {
 	 */
 	BundleDTO installWithData(String location, byte[] data) throws Exception;
 
+	/**
+	 * Answer the transfer encodings this agent accepts for the entries of a
+	 * delta, in order of preference. See {@link #ENCODING_DEFLATE} and
+	 * {@link #ENCODING_STORED}.
+	 *
+	 * @return the accepted transfer encodings
+	 */
+	List<String> getTransferEncodings() throws Exception;
+
+	/**
+	 * Answer the SHA-1 digests of the entries of the bundle installed at the
+	 * given location. The digests allow the initiator to send only the entries
+	 * that changed with {@link #installWithDelta(String, String, List)}.
+	 *
+	 * @param location the bundle location
+	 * @return a map of entry path to the hex SHA-1 of the entry's content,
+	 *         empty if no bundle is installed at the location
+	 */
+	Map<String, String> getEntryDigests(String location) throws Exception;
+
+	/**
+	 * Append a chunk of data to a transfer. A transfer is started by sending
+	 * its first chunk with offset 0. Chunks must be sent in order and must not
+	 * be larger than {@link #MAX_CHUNK_SIZE}.
+	 *
+	 * @param id the transfer id chosen by the initiator, letters, digits, '-'
+	 *            and '_' only
+	 * @param offset the offset of the chunk in the transfer, must be the size
+	 *            received so far
+	 * @param chunk the data
+	 * @return the size received so far
+	 */
+	long transfer(String id, long offset, byte[] chunk) throws Exception;
+
+	/**
+	 * Install or update a bundle from a delta. The delta is a ZIP that was
+	 * sent with {@link #transfer(String, long, byte[])} and that holds the
+	 * entries that changed. All other entries are taken from the bundle
+	 * currently installed at the location. The transfer is discarded
+	 * afterwards.
+	 *
+	 * @param location the bundle location (cannot be {@code null})
+	 * @param id the transfer id of the delta
+	 * @param entries the paths of all entries of the new bundle, in order
+	 * @return A Bundle DTO
+	 * @throws Exception if the bundle cannot be installed or updated
+	 */
+	BundleDTO installWithDelta(String location, String id, List<String> entries) throws Exception;
+
 	/**
 	 * Install a new bundle at the given bundle location. The SHA identifies the
 	 * file and should be retrievable through {@link Supervisor#getFile(String)}
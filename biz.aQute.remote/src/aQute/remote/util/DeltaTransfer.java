@@ -0,0 +1,159 @@
+package aQute.remote.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.osgi.framework.dto.BundleDTO;
+
+import aQute.lib.io.ByteBufferOutputStream;
+import aQute.libg.cryptography.SHA1;
+import aQute.remote.api.Agent;
+
+/**
+ * Installs or updates a bundle on a remote agent by sending only the entries
+ * that differ from the bundle the agent already has at the location.
+ * <p>
+ * The agent reports the SHA-1 of each entry of its bundle, the changed entries
+ * are sent as a ZIP in chunks of at most {@link Agent#MAX_CHUNK_SIZE} bytes and
+ * the agent reassembles the bundle from the delta and its own entries. The
+ * entries of the delta are deflated if the agent accepts it. An agent that does
+ * not support delta transfers gets the whole bundle with
+ * {@link Agent#installWithData(String, byte[])}.
+ */
+public class DeltaTransfer {
+	/*
+	 * An older agent never replies to a method it does not have, the link
+	 * would wait 5 minutes for the reply
+	 */
+	static final long PROBE_TIMEOUT = 10_000L;
+
+	private DeltaTransfer() {}
+
+	/**
+	 * Install or update a bundle on the agent.
+	 *
+	 * @param agent the agent
+	 * @param location the bundle location, if {@code null} the whole bundle is
+	 *            sent so the agent can determine the location
+	 * @param data the bundle's JAR
+	 * @return A Bundle DTO
+	 * @throws Exception if the bundle cannot be installed or updated
+	 */
+	public static BundleDTO install(Agent agent, String location, byte[] data) throws Exception {
+		return install(agent, location, data, PROBE_TIMEOUT);
+	}
+
+	static BundleDTO install(Agent agent, String location, byte[] data, long timeout) throws Exception {
+		requireNonNull(agent);
+		requireNonNull(data);
+
+		if (location == null)
+			return agent.installWithData(location, data);
+
+		List<String> encodings = getTransferEncodings(agent, timeout);
+		boolean deflate = encodings.contains(Agent.ENCODING_DEFLATE);
+		if (!deflate && !encodings.contains(Agent.ENCODING_STORED))
+			return agent.installWithData(location, data);
+
+		Map<String, String> digests = agent.getEntryDigests(location);
+		List<String> entries = new ArrayList<>();
+		ByteBufferOutputStream delta = new ByteBufferOutputStream();
+		try (ZipInputStream zin = new ZipInputStream(new ByteArrayInputStream(data));
+			ZipOutputStream zout = new ZipOutputStream(delta)) {
+			for (ZipEntry entry; (entry = zin.getNextEntry()) != null;) {
+				String path = entry.getName();
+				entries.add(path);
+				if (entry.isDirectory())
+					continue;
+
+				ByteBufferOutputStream bout = new ByteBufferOutputStream();
+				bout.write(zin);
+				byte[] content = bout.toByteArray();
+				if (SHA1.digest(content)
+					.asHex()
+					.equals(digests.get(path)))
+					continue;
+
+				ZipEntry changed = new ZipEntry(path);
+				if (!deflate) {
+					CRC32 crc = new CRC32();
+					crc.update(content);
+					changed.setMethod(ZipEntry.STORED);
+					changed.setSize(content.length);
+					changed.setCompressedSize(content.length);
+					changed.setCrc(crc.getValue());
+				}
+				zout.putNextEntry(changed);
+				zout.write(content);
+				zout.closeEntry();
+			}
+		}
+
+		String id = UUID.randomUUID()
+			.toString();
+		transfer(agent, id, delta.toByteArray());
+		return agent.installWithDelta(location, id, entries);
+	}
+
+	/*
+	 * Answer the transfer encodings of the agent, an older agent without delta
+	 * transfers answers null, fails, or does not answer at all
+	 */
+	private static List<String> getTransferEncodings(Agent agent, long timeout) {
+		CompletableFuture<List<String>> encodings = CompletableFuture.supplyAsync(() -> {
+			try {
+				return agent.getTransferEncodings();
+			} catch (Exception e) {
+				return null;
+			}
+		}, command -> {
+			Thread thread = new Thread(command, "DeltaTransfer::getTransferEncodings");
+			thread.setDaemon(true);
+			thread.start();
+		});
+		try {
+			List<String> result = encodings.get(timeout, TimeUnit.MILLISECONDS);
+			if (result != null)
+				return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+		} catch (Exception e) {
+			// no delta transfers
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Send data to the agent in chunks of at most {@link Agent#MAX_CHUNK_SIZE}
+	 * bytes.
+	 *
+	 * @param agent the agent
+	 * @param id the transfer id
+	 * @param data the data to send
+	 * @throws Exception if the transfer fails
+	 */
+	public static void transfer(Agent agent, String id, byte[] data) throws Exception {
+		int offset = 0;
+		do {
+			int end = Math.min(data.length, offset + Agent.MAX_CHUNK_SIZE);
+			long received = agent.transfer(id, offset, Arrays.copyOfRange(data, offset, end));
+			if (received != end)
+				throw new IllegalStateException("Transfer " + id + " failed, sent " + end + " but received " + received);
+			offset = end;
+		} while (offset < data.length);
+	}
+}
@@ -325,6 +325,14 @@ public class Link<L, R> extends Thread implements Closeable {
 
 			Method m = getMethod(cmd, args.size());
 			if (m == null) {
+				// let the caller fail fast instead of waiting for a reply
+				try {
+					send(-id, null, new Object[] {
+						"No such method " + cmd + " with " + args.size() + " arguments"
+					});
+				} catch (Exception e) {
+					terminate(e);
+				}
 				return;
 			}
 
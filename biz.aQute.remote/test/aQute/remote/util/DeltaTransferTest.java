@@ -0,0 +1,87 @@
+package aQute.remote.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.dto.BundleDTO;
+
+import aQute.remote.api.Agent;
+
+public class DeltaTransferTest {
+	private static final byte[]	DATA	= new byte[] {
+		1, 2, 3
+	};
+
+	private final List<String>	calls	= new CopyOnWriteArrayList<>();
+
+	@Test
+	public void testOlderAgentAnswersNull() throws Exception {
+		BundleDTO dto = DeltaTransfer.install(agent(() -> null), "FOO", DATA);
+
+		assertThat(dto.symbolicName).isEqualTo("FOO");
+		assertThat(calls).containsExactly("getTransferEncodings", "installWithData");
+	}
+
+	@Test
+	public void testOlderAgentFails() throws Exception {
+		BundleDTO dto = DeltaTransfer.install(agent(() -> {
+			throw new RuntimeException("No such method getTransferEncodings with 0 arguments");
+		}), "FOO", DATA);
+
+		assertThat(dto.symbolicName).isEqualTo("FOO");
+		assertThat(calls).containsExactly("getTransferEncodings", "installWithData");
+	}
+
+	@Test
+	public void testUnknownEncodings() throws Exception {
+		BundleDTO dto = DeltaTransfer.install(agent(() -> Collections.singletonList("unknown")), "FOO", DATA);
+
+		assertThat(dto.symbolicName).isEqualTo("FOO");
+		assertThat(calls).containsExactly("getTransferEncodings", "installWithData");
+	}
+
+	@Test
+	public void testOlderAgentDoesNotAnswer() throws Exception {
+		CountDownLatch never = new CountDownLatch(1);
+		try {
+			long start = System.nanoTime();
+			BundleDTO dto = DeltaTransfer.install(agent(() -> {
+				never.await();
+				return null;
+			}), "FOO", DATA, 200L);
+
+			assertThat(dto.symbolicName).isEqualTo("FOO");
+			assertThat(calls).contains("installWithData")
+				.doesNotContain("getEntryDigests", "transfer", "installWithDelta");
+			assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(10_000L);
+		} finally {
+			never.countDown();
+		}
+	}
+
+	private Agent agent(Callable<List<String>> encodings) {
+		return (Agent) Proxy.newProxyInstance(Agent.class.getClassLoader(), new Class<?>[] {
+			Agent.class
+		}, (proxy, method, args) -> {
+			calls.add(method.getName());
+			switch (method.getName()) {
+				case "getTransferEncodings" :
+					return encodings.call();
+				case "installWithData" :
+					BundleDTO dto = new BundleDTO();
+					dto.symbolicName = (String) args[0];
+					return dto;
+				default :
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+}
@@ -36,6 +36,7 @@ import aQute.remote.api.Agent;
 import aQute.remote.api.Event;
 import aQute.remote.api.Supervisor;
 import aQute.remote.util.AgentSupervisor;
+import aQute.remote.util.DeltaTransfer;
 
 public class AgentTest {
 	private int				random;
@@ -225,6 +226,26 @@ public class AgentTest {
 			.toString()).isEqualTo("4.1.0");
 	}
 
+	@Test
+	public void testAgentUpdateBundleWithDelta() throws Exception {
+		Agent remote = supervisor.getAgent();
+		assertThat(remote.getEntryDigests("FOO")).isEmpty();
+
+		BundleDTO bt4 = DeltaTransfer.install(remote, "FOO", IO.read(t4));
+		assertThat(bt4.version).isEqualTo("4.0.0");
+
+		Bundle b = framework.getBundleContext()
+			.getBundle("FOO");
+		assertThat(b).isNotNull();
+		assertThat(remote.getEntryDigests("FOO")).containsKey("META-INF/MANIFEST.MF");
+
+		BundleDTO bt41 = DeltaTransfer.install(remote, "FOO", IO.read(t41));
+
+		assertThat(bt41.version).isEqualTo("4.1.0");
+		assertThat(b.getVersion()
+			.toString()).isEqualTo("4.1.0");
+	}
+
 	@Test
 	public void testAgentUpdateBundleWithDataAndNullLocation() throws Exception {
 		BundleDTO bt4 = supervisor.getAgent()
@@ -18,6 +18,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -32,6 +33,7 @@ import org.osgi.service.coordinator.Participant;
 import org.osgi.service.log.LogService;
 
 import aQute.bnd.annotation.plugin.BndPlugin;
+import aQute.bnd.build.Project;
 import aQute.bnd.deployer.repository.api.IRepositoryContentProvider;
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.osgi.Verifier;
@@ -40,6 +42,7 @@ import aQute.bnd.service.Refreshable;
 import aQute.bnd.service.RepositoryListenerPlugin;
 import aQute.bnd.service.ResourceHandle;
 import aQute.bnd.service.ResourceHandle.Location;
+import aQute.bnd.service.release.ReleaseBracketingPlugin;
 import aQute.bnd.service.tags.Tags;
 import aQute.bnd.version.Version;
 import aQute.bnd.version.VersionRange;
@@ -50,7 +53,8 @@ import aQute.libg.cryptography.SHA1;
 import aQute.libg.cryptography.SHA256;
 
 @BndPlugin(name = "LocalIndexedRepo", parameters = LocalIndexedRepo.Config.class)
-public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable, Participant, Actionable {
+public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable, Participant, Actionable,
+	ReleaseBracketingPlugin {
 
 	private final String			UPWARDS_ARROW	= " \u2191";
 	private final String			DOWNWARDS_ARROW	= " \u2193";
@@ -86,6 +90,8 @@ public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable
 
 	// @GuardedBy("newFilesInCoordination")
 	private final List<URI>		newFilesInCoordination	= new ArrayList<>();
+	// @GuardedBy("this")
+	private int					releases;
 	private static final String	EMPTY_LOCATION			= "";
 
 	public static final String	PROP_LOCATIONS			= "locations";
@@ -223,6 +229,43 @@ public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable
 		}
 	}
 
+	/*
+	 * Only the resources of the files that were put are replaced in or added
+	 * to the existing indexes, an index is generated again from all files if
+	 * its provider cannot update it
+	 */
+	synchronized void updateIndexes(Set<File> files) {
+		Set<File> indexed = new HashSet<>();
+		String[] onlydirsFiles = onlydirsFiles();
+		for (File file : files) {
+			if (REPO_FILE.matcher(file.getName())
+				.matches() && isIncluded(onlydirsFiles, file.getParentFile()))
+				indexed.add(file);
+		}
+
+		for (IRepositoryContentProvider provider : generatingProviders) {
+			if (!provider.supportsGeneration()) {
+				logService.log(LogService.LOG_WARNING,
+					String.format("Repository type '%s' does not support index generation.", provider.getName()));
+				continue;
+			}
+			File indexFile = getIndexFile(provider);
+			try {
+				if (indexFile.isFile() && updateIndex(indexFile, indexed, provider))
+					continue;
+			} catch (Exception e) {
+				logService.log(LogService.LOG_WARNING, String.format(
+					"Unable to update index file '%s' for repository type %s", indexFile, provider.getName()), e);
+			}
+			try {
+				generateIndex(indexFile, provider);
+			} catch (Exception e) {
+				logService.log(LogService.LOG_ERROR, String.format(
+					"Unable to regenerate index file '%s' for repository type %s", indexFile, provider.getName()), e);
+			}
+		}
+	}
+
 	private final static Pattern INCREMENT_P = Pattern.compile("increment\\s*=\\s*\"(\\d+)\"");
 
 	private synchronized void generateIndex(File indexFile, IRepositoryContentProvider provider) throws Exception {
@@ -234,35 +277,51 @@ public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable
 		gatherFiles(allFiles);
 
 		IO.mkdirs(storageDir);
-		File shaFile = new File(indexFile.getPath() + REPO_INDEX_SHA_EXTENSION);
-		IO.delete(shaFile);
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			provider.generateIndex(allFiles, out, this.getName(), getRootUri(), pretty, registry, logService);
+			writeIndex(indexFile, out.toByteArray());
+		}
+	}
 
+	private synchronized boolean updateIndex(File indexFile, Set<File> files, IRepositoryContentProvider provider)
+		throws Exception {
 		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-			URI rootUri = storageDir.getCanonicalFile()
-				.toURI();
-			if (Files.isSymbolicLink(storageDir.toPath())) {
-				rootUri = storageDir.toURI();
-			}
-			provider.generateIndex(allFiles, out, this.getName(), rootUri, pretty, registry, logService);
+			if (!provider.updateIndex(indexFile, files, out, this.getName(), getRootUri(), pretty, registry,
+				logService))
+				return false;
+			writeIndex(indexFile, out.toByteArray());
+			return true;
+		}
+	}
 
-			byte[] data = out.toByteArray();
-			if (pretty && indexFile.isFile()) {
-				String newer = new String(data, StandardCharsets.UTF_8);
-				String older = new String(IO.read(indexFile), StandardCharsets.UTF_8);
+	private URI getRootUri() throws IOException {
+		if (Files.isSymbolicLink(storageDir.toPath())) {
+			return storageDir.toURI();
+		}
+		return storageDir.getCanonicalFile()
+			.toURI();
+	}
 
-				if (Strings.compareExcept(older, newer, INCREMENT_P)) {
-					logService.log(LogService.LOG_INFO,
-						getName() + " not saving because files are identical except increment");
-					return;
-				}
+	private void writeIndex(File indexFile, byte[] data) throws Exception {
+		File shaFile = new File(indexFile.getPath() + REPO_INDEX_SHA_EXTENSION);
+		IO.delete(shaFile);
+
+		if (pretty && indexFile.isFile()) {
+			String newer = new String(data, StandardCharsets.UTF_8);
+			String older = new String(IO.read(indexFile), StandardCharsets.UTF_8);
+
+			if (Strings.compareExcept(older, newer, INCREMENT_P)) {
+				logService.log(LogService.LOG_INFO,
+					getName() + " not saving because files are identical except increment");
+				return;
 			}
-			IO.delete(indexFile);
-			IO.write(data, indexFile);
-			MessageDigest md = MessageDigest.getInstance(SHA256.ALGORITHM);
-			md.update(data);
-			IO.store(Hex.toHexString(md.digest())
-				.toLowerCase(Locale.ROOT), shaFile);
 		}
+		IO.delete(indexFile);
+		IO.write(data, indexFile);
+		MessageDigest md = MessageDigest.getInstance(SHA256.ALGORITHM);
+		md.update(data);
+		IO.store(Hex.toHexString(md.digest())
+			.toLowerCase(Locale.ROOT), shaFile);
 	}
 
 	@SuppressWarnings("deprecation")
@@ -271,18 +330,34 @@ public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable
 			return;
 
 		List<File> files = new ArrayList<>();
-		String[] onlydirsFiles = null;
-		if (onlydirs != null) {
-			String[] onlydirs2 = onlydirs.split(",");
-			onlydirsFiles = new String[onlydirs2.length];
-			for (int i = 0; i < onlydirs2.length; i++) {
-				onlydirsFiles[i] = new File(storageDir.getAbsolutePath(), onlydirs2[i]).getAbsolutePath();
-			}
+		listRecurse(REPO_FILE, onlydirsFiles(), storageDir, storageDir, files);
+
+		allFiles.addAll(files);
+	}
+
+	private String[] onlydirsFiles() {
+		if (onlydirs == null)
+			return null;
+
+		String[] onlydirs2 = onlydirs.split(",");
+		String[] onlydirsFiles = new String[onlydirs2.length];
+		for (int i = 0; i < onlydirs2.length; i++) {
+			onlydirsFiles[i] = new File(storageDir.getAbsolutePath(), onlydirs2[i]).getAbsolutePath();
 		}
+		return onlydirsFiles;
+	}
 
-		listRecurse(REPO_FILE, onlydirsFiles, storageDir, storageDir, files);
+	private static boolean isIncluded(String[] onlydirsFiles, File dir) {
+		if (onlydirsFiles == null)
+			return true;
 
-		allFiles.addAll(files);
+		String fabs = dir.getAbsolutePath();
+		for (String dirtest : onlydirsFiles) {
+			if (dirtest.startsWith(fabs) || fabs.startsWith(dirtest)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	private void listRecurse(final Pattern pattern, final String[] onlydirsFiles, File root, File dir,
@@ -292,18 +367,7 @@ public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable
 			names.map(name -> new File(dir, name))
 				.filter(f -> {
 					if (f.isDirectory()) {
-						boolean addit = true;
-						if (onlydirsFiles != null) {
-							String fabs = f.getAbsolutePath();
-							addit = false;
-							for (String dirtest : onlydirsFiles) {
-								if (dirtest.startsWith(fabs) || fabs.startsWith(dirtest)) {
-									addit = true;
-									break;
-								}
-							}
-						}
-						if (addit) {
+						if (isIncluded(onlydirsFiles, f)) {
 							dirs.add(f);
 						}
 					} else if (f.isFile()) {
@@ -328,13 +392,19 @@ public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable
 	}
 
 	private synchronized void finishPut() throws Exception {
-		reset();
-		regenerateAllIndexes();
-
-		List<URI> clone = new ArrayList<>(newFilesInCoordination);
+		List<URI> clone;
 		synchronized (newFilesInCoordination) {
+			clone = new ArrayList<>(newFilesInCoordination);
 			newFilesInCoordination.clear();
 		}
+		Set<File> files = new LinkedHashSet<>();
+		for (URI entry : clone) {
+			files.add(new File(entry));
+		}
+
+		reset();
+		updateIndexes(files);
+
 		for (URI entry : clone) {
 			File file = new File(entry);
 			fireBundleAdded(file);
@@ -346,6 +416,33 @@ public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable
 		finishPut();
 	}
 
+	/**
+	 * The indexes are updated once for all the puts of a workspace release.
+	 */
+	@Override
+	public synchronized void begin(Project project) {
+		releases++;
+	}
+
+	@Override
+	public synchronized void end(Project project) {
+		if (releases > 0 && --releases == 0) {
+			try {
+				finishPut();
+			} catch (Exception e) {
+				project.exception(e, "Unable to update the indexes of %s", getName());
+			}
+		}
+	}
+
+	/**
+	 * The bundles of a project release also update the indexes once.
+	 */
+	@Override
+	public boolean isProjectReleaseBracketed() {
+		return true;
+	}
+
 	@Override
 	public void failed(Coordination coordination) throws Exception {
 		ArrayList<URI> clone;
@@ -403,7 +500,7 @@ public class LocalIndexedRepo extends AbstractIndexedRepo implements Refreshable
 			}
 
 			Coordinator coordinator = (registry != null) ? registry.getPlugin(Coordinator.class) : null;
-			if (!(coordinator != null && coordinator.addParticipant(this))) {
+			if (!(coordinator != null && coordinator.addParticipant(this)) && (releases == 0)) {
 				finishPut();
 			}
 			return file;
@@ -69,6 +69,35 @@ public interface IRepositoryContentProvider {
 	void generateIndex(Set<File> files, OutputStream output, String repoName, URI rootUri, boolean pretty,
 		Registry registry, LogService log) throws Exception;
 
+	/**
+	 * Update an existing repository index to a stream. The resources of the
+	 * files replace the resources with the same location in the index, or are
+	 * added to it, all other resources are kept. Clients must not call this
+	 * method if the provider returns {@code false} from
+	 * {@link #supportsGeneration()}.
+	 *
+	 * @param index The existing index file.
+	 * @param files The files to be indexed.
+	 * @param output The output stream, on which the updated index should be
+	 *            written.
+	 * @param repoName The name of the repository, which may be entered into the
+	 *            updated index.
+	 * @param rootUri The URI of the repository.
+	 * @param pretty Hint to request "pretty printing", i.e. uncompressed,
+	 *            indented output.
+	 * @param registry The bnd workspace plug-in registry if available, or
+	 *            {@code null}.
+	 * @param log The OSGi log service if available, or {@code
+	 * null}.
+	 * @return {@code false} if the provider cannot update an index, nothing was
+	 *         written and the client must generate a new index instead.
+	 * @throws Exception If any other error unrecoverable occurs.
+	 */
+	default boolean updateIndex(File index, Set<File> files, OutputStream output, String repoName, URI rootUri,
+		boolean pretty, Registry registry, LogService log) throws Exception {
+		return false;
+	}
+
 	/**
 	 * Get the default name for an index file supported by this provider;
 	 * however the actual index file may take a different name if it is
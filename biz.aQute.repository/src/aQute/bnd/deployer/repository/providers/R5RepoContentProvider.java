@@ -12,6 +12,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.stream.XMLInputFactory;
@@ -27,8 +31,11 @@ import aQute.bnd.deployer.repository.api.IRepositoryContentProvider;
 import aQute.bnd.deployer.repository.api.IRepositoryIndexProcessor;
 import aQute.bnd.deployer.repository.api.Referral;
 import aQute.bnd.osgi.repository.SimpleIndexer;
+import aQute.bnd.osgi.repository.XMLResourceGenerator;
+import aQute.bnd.osgi.repository.XMLResourceParser;
 import aQute.bnd.osgi.resource.CapReqBuilder;
 import aQute.bnd.osgi.resource.ResourceBuilder;
+import aQute.bnd.osgi.resource.ResourceUtils;
 import aQute.bnd.service.Registry;
 import aQute.lib.xml.XML;
 
@@ -280,4 +287,55 @@ public class R5RepoContentProvider implements IRepositoryContentProvider {
 			.increment(modified)
 			.index(output);
 	}
+
+	@Override
+	public boolean updateIndex(File index, Set<File> files, OutputStream output, String repoName, URI baseUri,
+		boolean pretty, Registry registry, LogService log) throws Exception {
+		List<Resource> resources;
+		long increment;
+		try (XMLResourceParser parser = new XMLResourceParser(index, baseUri)) {
+			resources = parser.parse();
+			if (resources == null) {
+				return false;
+			}
+			increment = parser.increment();
+		}
+
+		// the parser resolves the urls against the base
+		Map<URI, Resource> updates = new LinkedHashMap<>();
+		for (Resource resource : new SimpleIndexer().files(files)
+			.base(baseUri)
+			.getResources()) {
+			updates.put(location(resource, baseUri), resource);
+		}
+		List<Resource> updated = new ArrayList<>(resources.size() + updates.size());
+		for (Resource resource : resources) {
+			Resource update = updates.remove(location(resource, baseUri));
+			updated.add((update != null) ? update : resource);
+		}
+		updated.addAll(updates.values());
+
+		long modified = files.stream()
+			.mapToLong(File::lastModified)
+			.max()
+			.orElse(-1L);
+
+		XMLResourceGenerator generator = new XMLResourceGenerator().base(baseUri)
+			.resources(updated);
+		if (repoName != null) {
+			generator.name(repoName);
+		}
+		generator.increment(Math.max(increment, modified));
+		if (!pretty) {
+			generator.compress();
+		}
+		generator.save(output);
+		return true;
+	}
+
+	private static URI location(Resource resource, URI baseUri) {
+		return ResourceUtils.getURI(resource)
+			.map(baseUri::resolve)
+			.orElse(null);
+	}
 }
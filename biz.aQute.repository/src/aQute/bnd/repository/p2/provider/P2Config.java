@@ -46,4 +46,11 @@ public interface P2Config {
 	 */
 	@Deprecated
 	boolean targetPlatform();
+
+	/**
+	 * If set to true, the index is built from the p2 metadata of the bundles
+	 * instead of from the bundles. A bundle is then only downloaded when it is
+	 * used. Bundles without p2 metadata are still downloaded to index them.
+	 */
+	boolean metadataOnly();
 }
@@ -8,6 +8,8 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +44,8 @@ import aQute.lib.io.IO;
 import aQute.libg.cryptography.MD5;
 import aQute.p2.api.Artifact;
 import aQute.p2.api.ArtifactProvider;
+import aQute.p2.api.Classifier;
+import aQute.p2.api.InstallableUnit;
 import aQute.p2.packed.Unpack200;
 import aQute.p2.provider.P2Impl;
 import aQute.p2.provider.TargetImpl;
@@ -61,6 +65,7 @@ class P2Indexer implements Closeable {
 	final String							name;
 	final String							urlHash;
 	final File								indexFile;
+	private final boolean					metadataOnly;
 	private final HttpClient				client;
 	private final PromiseFactory			promiseFactory;
 	private volatile BridgeRepository		bridge;
@@ -68,6 +73,16 @@ class P2Indexer implements Closeable {
 
 	P2Indexer(Unpack200 processor, Reporter reporter, File location, HttpClient client, URI url, String name)
 		throws Exception {
+		this(processor, reporter, location, client, url, name, false);
+	}
+
+	/**
+	 * @param metadataOnly if true the resources of the bundles are built from
+	 *            the p2 metadata and the bundles are only downloaded when
+	 *            they are used
+	 */
+	P2Indexer(Unpack200 processor, Reporter reporter, File location, HttpClient client, URI url, String name,
+		boolean metadataOnly) throws Exception {
 		this.processor = processor;
 		this.reporter = reporter;
 		this.location = location;
@@ -76,7 +91,9 @@ class P2Indexer implements Closeable {
 		this.promiseFactory = client.promiseFactory();
 		this.url = url;
 		this.name = name;
-		this.urlHash = client.toName(url);
+		this.metadataOnly = metadataOnly;
+		// an index of the other mode is not reused
+		this.urlHash = metadataOnly ? client.toName(url) + "-metadata" : client.toName(url);
 		IO.mkdirs(this.location);
 
 		validate();
@@ -110,10 +127,14 @@ class P2Indexer implements Closeable {
 
 		IO.createSymbolicLinkOrCopy(link, source);
 
-		Promise<File> go = client.build()
-			.useCache(MAX_STALE)
-			.asTag()
-			.async(url.toURL())
+		// a resource built from the p2 metadata has not been downloaded yet,
+		// its download is checked like at indexing
+		Map<String, Object> attributes = contentCapability.getAttributes();
+		String md5 = (String) attributes.get(UnitResource.DOWNLOAD_MD5_ATTRIBUTE);
+		Object size = attributes.get(UnitResource.DOWNLOAD_SIZE_ATTRIBUTE);
+		long download_size = (size instanceof Number number) ? number.longValue() : -1L;
+
+		Promise<File> go = fetch(url, md5, download_size, 2, 1000L)
 			.map(tag -> processor.unpackAndLinkIfNeeded(tag, link));
 
 		if (listeners.length == 0)
@@ -152,6 +173,8 @@ class P2Indexer implements Closeable {
 			p2 = new P2Impl(processor, client, this.url, promiseFactory);
 
 		List<Artifact> artifacts = p2.getBundles();
+		Map<String, InstallableUnit> units = metadataOnly && (p2 instanceof P2Impl) ? getUnits((P2Impl) p2)
+			: Collections.emptyMap();
 		Set<ArtifactID> visitedArtifacts = new HashSet<>(artifacts.size());
 		Set<URI> visitedURIs = new HashSet<>(artifacts.size());
 
@@ -164,18 +187,16 @@ class P2Indexer implements Closeable {
 					if (!visitedArtifacts.add(id))
 						return null;
 				}
-				Promise<SupportingResource> fetched = fetch(a, 2, 1000L)
-					.map(tag -> processor.unpackAndLinkIfNeeded(tag, null))
-					.map(file -> {
-						ResourceBuilder rb = new ResourceBuilder();
-						rb.addFile(file, a.uri);
-						return rb.build();
-					})
-					.recover(failed -> {
-						logger.info("{}: Failed to create resource for {}", name, a.uri, failed.getFailure());
-						return RECOVERY;
-					});
-				return fetched;
+				InstallableUnit unit = units.get(a.id + ":" + a.version);
+				if (unit != null) {
+					return promiseFactory.submit(() -> UnitResource.build(unit, a))
+						.recoverWith(failed -> {
+							logger.info("{}: Failed to create resource from metadata for {}", name, a.uri,
+								failed.getFailure());
+							return fetch(a);
+						});
+				}
+				return fetch(a);
 			})
 			.map(a -> a)
 			.filter(Objects::nonNull)
@@ -187,12 +208,45 @@ class P2Indexer implements Closeable {
 			.getValue();
 	}
 
-	private Promise<TaggedData> fetch(Artifact a, int retries, long delay) {
+	/*
+	 * The installable units that describe a bundle artifact
+	 */
+	private Map<String, InstallableUnit> getUnits(P2Impl p2) {
+		Map<String, InstallableUnit> units = new HashMap<>();
+		try {
+			for (InstallableUnit unit : p2.getUnits()) {
+				for (Artifact a : unit.artifacts) {
+					if ((a.classifier == Classifier.BUNDLE) && a.id.equals(unit.id) && a.version.equals(unit.version)) {
+						units.putIfAbsent(a.id + ":" + a.version, unit);
+					}
+				}
+			}
+		} catch (Exception e) {
+			logger.info("{}: Failed to read the p2 metadata of {}, the bundles are indexed", name, url, e);
+		}
+		return units;
+	}
+
+	private Promise<SupportingResource> fetch(Artifact a) {
+		return fetch(a.uri, a.md5, a.download_size, 2, 1000L)
+			.map(tag -> processor.unpackAndLinkIfNeeded(tag, null))
+			.map(file -> {
+				ResourceBuilder rb = new ResourceBuilder();
+				rb.addFile(file, a.uri);
+				return rb.build();
+			})
+			.recover(failed -> {
+				logger.info("{}: Failed to create resource for {}", name, a.uri, failed.getFailure());
+				return RECOVERY;
+			});
+	}
+
+	private Promise<TaggedData> fetch(URI uri, String md5, long download_size, int retries, long delay) {
 		return client.build()
 			.useCache(MAX_STALE)
 			.asTag()
-			.async(a.uri)
-			.then(success -> success.thenAccept(tag -> checkDownload(a, tag))
+			.async(uri)
+			.then(success -> success.thenAccept(tag -> checkDownload(uri, md5, download_size, tag))
 				.recoverWith(failed -> {
 					if (retries < 1) {
 						return null; // no recovery
@@ -201,17 +255,17 @@ class P2Indexer implements Closeable {
 						.getMessage(), delay, retries);
 					@SuppressWarnings("unchecked")
 					Promise<TaggedData> delayed = (Promise<TaggedData>) failed.delay(delay);
-					return delayed
-						.recoverWith(f -> fetch(a, retries - 1, Math.min(delay * 2L, TimeUnit.MINUTES.toMillis(10))));
+					return delayed.recoverWith(f -> fetch(uri, md5, download_size, retries - 1,
+						Math.min(delay * 2L, TimeUnit.MINUTES.toMillis(10))));
 				}));
 	}
 
-	private void checkDownload(Artifact a, TaggedData tag) throws Exception {
+	private void checkDownload(URI uri, String md5, long download_size, TaggedData tag) throws Exception {
 		if (tag.getState() != State.UPDATED) {
 			return;
 		}
 		File file = tag.getFile();
-		String remoteDigest = a.md5;
+		String remoteDigest = md5;
 		if (remoteDigest != null) {
 			String fileDigest = MD5.digest(file)
 				.asHex();
@@ -229,14 +283,14 @@ class P2Indexer implements Closeable {
 				}
 				IO.delete(file);
 				throw new IOException(
-					String.format("Invalid content checksum %s for %s; expected %s", fileDigest, a.uri, remoteDigest));
+					String.format("Invalid content checksum %s for %s; expected %s", fileDigest, uri, remoteDigest));
 			}
-		} else if (a.download_size != -1L) {
-			long download_size = file.length();
-			if (download_size != a.download_size) {
+		} else if (download_size != -1L) {
+			long file_size = file.length();
+			if (file_size != download_size) {
 				IO.delete(file);
-				throw new IOException(String.format("Invalid content size %s for %s; expected %s", download_size, a.uri,
-					a.download_size));
+				throw new IOException(
+					String.format("Invalid content size %s for %s; expected %s", file_size, uri, download_size));
 			}
 		}
 	}
@@ -74,7 +74,8 @@ public class P2Repository extends BaseRepository
 			IO.mkdirs(location);
 			File indexFile = new File(location, "index.xml.gz");
 
-			return new P2Indexer(new Unpack200(this.workspace), reporter, location, client, url, name);
+			return new P2Indexer(new Unpack200(this.workspace), reporter, location, client, url, name,
+				config.metadataOnly());
 		} catch (Exception e) {
 			throw Exceptions.duck(e);
 		}
@@ -0,0 +1,226 @@
+package aQute.bnd.repository.p2.provider;
+
+import static aQute.bnd.osgi.Constants.MIME_TYPE_BUNDLE;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.osgi.framework.Constants;
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.resource.Namespace;
+import org.osgi.service.repository.ContentNamespace;
+
+import aQute.bnd.header.OSGiHeader;
+import aQute.bnd.osgi.Domain;
+import aQute.bnd.osgi.resource.CapabilityBuilder;
+import aQute.bnd.osgi.resource.ResourceBuilder;
+import aQute.bnd.service.resource.SupportingResource;
+import aQute.p2.api.Artifact;
+import aQute.p2.api.InstallableUnit;
+import aQute.p2.api.InstallableUnit.Provided;
+import aQute.p2.api.InstallableUnit.Required;
+
+/**
+ * Creates the resource of a bundle from the p2 metadata of its installable
+ * unit, without downloading the bundle. The installable unit is turned into
+ * the OSGi headers p2 derived it from, the resource is then built from those
+ * headers like it would be from the manifest of the bundle.
+ */
+class UnitResource {
+	/**
+	 * The md5 of the download published by p2, kept on the content capability
+	 * to check the download when the bundle is used
+	 */
+	static final String			DOWNLOAD_MD5_ATTRIBUTE	= "download.md5";
+	/**
+	 * The size of the download published by p2, kept on the content
+	 * capability to check the download when the bundle is used
+	 */
+	static final String			DOWNLOAD_SIZE_ATTRIBUTE	= "download.size";
+	private static final String	P2_NAMESPACE_PREFIX		= "org.eclipse.";
+
+	private UnitResource() {}
+
+	static SupportingResource build(InstallableUnit unit, Artifact artifact) {
+		Map<String, String> headers = new LinkedHashMap<>();
+		if (unit.manifest != null) {
+			parseManifest(unit.manifest, headers);
+		}
+		headers.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		headers.computeIfAbsent(Constants.BUNDLE_SYMBOLICNAME,
+			k -> unit.singleton ? unit.id + ";" + Constants.SINGLETON_DIRECTIVE + ":=true" : unit.id);
+		headers.put(Constants.BUNDLE_VERSION, unit.version.toString());
+
+		StringBuilder exports = new StringBuilder();
+		StringBuilder capabilities = new StringBuilder();
+		for (Provided provided : unit.provides) {
+			if (PackageNamespace.PACKAGE_NAMESPACE.equals(provided.namespace)
+				|| InstallableUnit.NAMESPACE_PACKAGE.equals(provided.namespace)) {
+				clause(exports, provided.name, b -> attribute(b, Constants.VERSION_ATTRIBUTE, provided.version));
+			} else if (isGeneric(provided.namespace) && !provided.properties.isEmpty()) {
+				clause(capabilities, provided.namespace, b -> provided.properties
+					.forEach((k, v) -> attribute(b, k, v)));
+			}
+		}
+
+		StringBuilder imports = new StringBuilder();
+		StringBuilder bundles = new StringBuilder();
+		StringBuilder requirements = new StringBuilder();
+		for (Required required : unit.requires) {
+			if (required.name == null) {
+				if (isGeneric(required.namespace) && (required.match != null) && required.match.startsWith("(")) {
+					clause(requirements, required.namespace, b -> {
+						directive(b, Namespace.REQUIREMENT_FILTER_DIRECTIVE, required.match);
+						if (required.optional) {
+							directive(b, Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE, Namespace.RESOLUTION_OPTIONAL);
+						}
+					});
+				}
+			} else if (InstallableUnit.NAMESPACE_PACKAGE.equals(required.namespace)) {
+				clause(imports, required.name, b -> {
+					if (!isAny(required.range)) {
+						attribute(b, Constants.VERSION_ATTRIBUTE, required.range);
+					}
+					if (required.optional) {
+						directive(b, Constants.RESOLUTION_DIRECTIVE, Constants.RESOLUTION_OPTIONAL);
+					}
+				});
+			} else if (InstallableUnit.NAMESPACE_BUNDLE.equals(required.namespace)) {
+				clause(bundles, required.name, b -> {
+					if (!isAny(required.range)) {
+						attribute(b, Constants.BUNDLE_VERSION_ATTRIBUTE, required.range);
+					}
+					if (required.optional) {
+						directive(b, Constants.RESOLUTION_DIRECTIVE, Constants.RESOLUTION_OPTIONAL);
+					}
+				});
+			}
+		}
+
+		if (!headers.containsKey(Constants.FRAGMENT_HOST)) {
+			unit.hostRequirements.stream()
+				.filter(required -> InstallableUnit.NAMESPACE_BUNDLE.equals(required.namespace))
+				.findFirst()
+				.ifPresent(required -> {
+					StringBuilder host = new StringBuilder();
+					clause(host, required.name, b -> {
+						if (!isAny(required.range)) {
+							attribute(b, Constants.BUNDLE_VERSION_ATTRIBUTE, required.range);
+						}
+					});
+					headers.put(Constants.FRAGMENT_HOST, host.toString());
+				});
+		}
+
+		header(headers, Constants.EXPORT_PACKAGE, exports);
+		header(headers, Constants.IMPORT_PACKAGE, imports);
+		header(headers, Constants.REQUIRE_BUNDLE, bundles);
+		header(headers, Constants.PROVIDE_CAPABILITY, capabilities);
+		header(headers, Constants.REQUIRE_CAPABILITY, requirements);
+
+		ResourceBuilder rb = new ResourceBuilder();
+		rb.addManifest(Domain.domain(headers));
+
+		// p2 only publishes a sha-256 in newer repositories. Without it the
+		// resource has no osgi.content hash and cannot be found by its hash,
+		// its download is still checked against the md5 and size of p2
+		CapabilityBuilder content = new CapabilityBuilder(ContentNamespace.CONTENT_NAMESPACE);
+		String sha256 = artifact.getProperties()
+			.get("download.checksum.sha-256");
+		if (sha256 != null) {
+			content.addAttribute(ContentNamespace.CONTENT_NAMESPACE, sha256);
+		}
+		content.addAttribute(ContentNamespace.CAPABILITY_URL_ATTRIBUTE, artifact.uri.toString());
+		if (artifact.download_size != -1L) {
+			content.addAttribute(ContentNamespace.CAPABILITY_SIZE_ATTRIBUTE, Long.valueOf(artifact.download_size));
+		}
+		content.addAttribute(ContentNamespace.CAPABILITY_MIME_ATTRIBUTE, MIME_TYPE_BUNDLE);
+		if (artifact.md5 != null) {
+			content.addAttribute(DOWNLOAD_MD5_ATTRIBUTE, artifact.md5);
+		}
+		if (artifact.download_size != -1L) {
+			content.addAttribute(DOWNLOAD_SIZE_ATTRIBUTE, Long.valueOf(artifact.download_size));
+		}
+		rb.addCapability(content);
+		return rb.build();
+	}
+
+	/*
+	 * The manifest instruction of p2 holds the headers that p2 cannot derive
+	 * from the unit, e.g. Bundle-SymbolicName with its directives
+	 */
+	private static void parseManifest(String manifest, Map<String, String> headers) {
+		String key = null;
+		for (String line : manifest.split("\r?\n")) {
+			if (line.startsWith(" ") && (key != null)) {
+				headers.merge(key, line.substring(1), String::concat);
+				continue;
+			}
+			int n = line.indexOf(':');
+			if (n > 0) {
+				key = line.substring(0, n)
+					.trim();
+				headers.put(key, line.substring(n + 1)
+					.trim());
+			}
+		}
+	}
+
+	/*
+	 * The namespaces of p2 itself and of the wiring are not capabilities of
+	 * the bundle
+	 */
+	private static boolean isGeneric(String namespace) {
+		if ((namespace == null) || namespace.startsWith(P2_NAMESPACE_PREFIX)) {
+			return false;
+		}
+		switch (namespace) {
+			case InstallableUnit.NAMESPACE_BUNDLE :
+			case InstallableUnit.NAMESPACE_PACKAGE :
+			case InstallableUnit.NAMESPACE_FRAGMENT :
+			case BundleNamespace.BUNDLE_NAMESPACE :
+			case HostNamespace.HOST_NAMESPACE :
+			case PackageNamespace.PACKAGE_NAMESPACE :
+				return false;
+			default :
+				return true;
+		}
+	}
+
+	private static boolean isAny(String range) {
+		return (range == null) || range.equals("0.0.0");
+	}
+
+	private static void clause(StringBuilder sb, String name, Consumer<StringBuilder> parameters) {
+		if (sb.length() > 0) {
+			sb.append(',');
+		}
+		sb.append(name);
+		parameters.accept(sb);
+	}
+
+	private static void attribute(StringBuilder sb, String key, String value) {
+		if (value != null) {
+			sb.append(';')
+				.append(key)
+				.append('=');
+			OSGiHeader.quote(sb, value, '"');
+		}
+	}
+
+	private static void directive(StringBuilder sb, String key, String value) {
+		sb.append(';')
+			.append(key)
+			.append(":=");
+		OSGiHeader.quote(sb, value, '"');
+	}
+
+	private static void header(Map<String, String> headers, String name, StringBuilder value) {
+		if (value.length() > 0) {
+			headers.put(name, value.toString());
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package aQute.p2.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osgi.framework.Version;
+
+import aQute.bnd.util.dto.DTO;
+
+/**
+ * An installable unit from the {@code content.xml} metadata of a p2
+ * repository.
+ *
+ * <pre>
+ * &lt;unit id='name.njbartlett.eclipse.macbadge' version='1.0.0.201110100042'&gt;
+ *   &lt;provides size='3'&gt;
+ *     &lt;provided namespace='osgi.bundle' name='name.njbartlett.eclipse.macbadge' version='1.0.0.201110100042'/&gt;
+ *     &lt;provided namespace='java.package' name='name.njbartlett.eclipse.macbadge' version='1.0.0'/&gt;
+ *   &lt;/provides&gt;
+ *   &lt;requires size='2'&gt;
+ *     &lt;required namespace='osgi.bundle' name='org.eclipse.swt' range='3.7.0'/&gt;
+ *     &lt;required namespace='java.package' name='org.eclipse.ui' range='0.0.0' optional='true'/&gt;
+ *   &lt;/requires&gt;
+ *   &lt;artifacts size='1'&gt;
+ *     &lt;artifact classifier='osgi.bundle' id='name.njbartlett.eclipse.macbadge' version='1.0.0.201110100042'/&gt;
+ *   &lt;/artifacts&gt;
+ * &lt;/unit&gt;
+ * </pre>
+ */
+public class InstallableUnit extends DTO {
+	public static final String	NAMESPACE_BUNDLE	= "osgi.bundle";
+	public static final String	NAMESPACE_PACKAGE	= "java.package";
+	public static final String	NAMESPACE_FRAGMENT	= "osgi.fragment";
+
+	/**
+	 * A capability provided by the unit.
+	 */
+	public static class Provided extends DTO {
+		public String				namespace;
+		public String				name;
+		public String				version;
+		/**
+		 * The properties of a generic capability, the key is the name of the
+		 * property followed by {@code :} and the type if the property is not a
+		 * string.
+		 */
+		public Map<String, String>	properties	= new LinkedHashMap<>();
+	}
+
+	/**
+	 * A requirement of the unit.
+	 */
+	public static class Required extends DTO {
+		public String	namespace;
+		public String	name;
+		public String	range;
+		/**
+		 * The filter of a {@code requiredProperties} requirement.
+		 */
+		public String	match;
+		public boolean	optional;
+		public boolean	greedy	= true;
+	}
+
+	public String				id;
+	public Version				version;
+	public boolean				singleton;
+	public Map<String, String>	properties			= new LinkedHashMap<>();
+	public List<Provided>		provides			= new ArrayList<>();
+	public List<Required>		requires			= new ArrayList<>();
+	public List<Required>		hostRequirements	= new ArrayList<>();
+	/**
+	 * The bundle and feature artifacts of the unit, only the classifier, id
+	 * and version are set.
+	 */
+	public List<Artifact>		artifacts			= new ArrayList<>();
+	/**
+	 * The manifest headers from the {@code manifest} touchpoint instruction,
+	 * if any.
+	 */
+	public String				manifest;
+}
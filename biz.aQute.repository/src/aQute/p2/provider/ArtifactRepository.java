@@ -3,17 +3,19 @@ package aQute.p2.provider;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.stream.XMLStreamReader;
+
 import org.osgi.framework.Version;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import aQute.bnd.osgi.Processor;
 import aQute.lib.converter.Converter;
 import aQute.lib.converter.TypeReference;
 import aQute.lib.filter.Filter;
+import aQute.lib.io.IO;
 import aQute.p2.api.Artifact;
 import aQute.p2.api.Classifier;
 
@@ -69,97 +71,147 @@ class ArtifactRepository extends XMLBase {
 		public String	format;
 	}
 
-	List<Rule>		rules;
-	List<Artifact>	artifacts	= new ArrayList<>();
-	private URI		base;
-	private boolean	unpack;
+	private final List<Rule>			rules				= new ArrayList<>();
+	private final List<Artifact>		artifacts			= new ArrayList<>();
+	private final Map<String, String>	properties			= new HashMap<>();
+	private final URI					base;
+	private final boolean				unpack;
+
+	/*
+	 * The artifacts are processed while they are streamed once the repository
+	 * properties and the mappings are known. Artifacts that come before them
+	 * are kept until the end of the document.
+	 */
+	private final List<PendingArtifact>	pending				= new ArrayList<>();
+	private boolean						propertiesParsed;
+	private boolean						mappingsParsed;
+	private Processor					parent;
+	private XMLArtifact					xmlArtifact;
+	private Map<String, String>			artifactProperties;
+
+	private static class PendingArtifact {
+		final XMLArtifact			xmlArtifact;
+		final Map<String, String>	properties;
+
+		PendingArtifact(XMLArtifact xmlArtifact, Map<String, String> properties) {
+			this.xmlArtifact = xmlArtifact;
+			this.properties = properties;
+		}
+	}
 
 	ArtifactRepository(InputStream in, URI base, boolean unpack) throws Exception {
-		super(getDocument(in));
 		this.base = base;
 		this.unpack = unpack;
-		parse();
+		try {
+			parse(in);
+			for (PendingArtifact p : pending) {
+				add(p.xmlArtifact, p.properties);
+			}
+			pending.clear();
+		} finally {
+			IO.close(parent);
+		}
 	}
 
-	private Rule createRule(Node ruleNode) {
-		String filter = getAttribute(ruleNode, "filter");
-		String output = getAttribute(ruleNode, "output");
-		return new Rule(filter, output);
+	@Override
+	void start(String path, XMLStreamReader reader) throws Exception {
+		switch (path) {
+			case "repository/properties/property" :
+				properties.put(getAttribute(reader, "name"), getAttribute(reader, "value"));
+				break;
+			case "repository/mappings/rule" :
+				rules.add(new Rule(getAttribute(reader, "filter"), getAttribute(reader, "output")));
+				break;
+			case "repository/artifacts/artifact" :
+				xmlArtifact = getFromType(reader, XMLArtifact.class);
+				artifactProperties = new HashMap<>();
+				break;
+			case "repository/artifacts/artifact/properties/property" :
+				artifactProperties.put(getAttribute(reader, "name"), getAttribute(reader, "value"));
+				break;
+			default :
+				break;
+		}
 	}
 
-	void parse() throws Exception {
-
-		final Map<String, String> properties = getProperties("repository/properties/property");
-		properties.put("repoUrl", base.resolve("")
-			.toString());
-		try (Processor parent = new Processor()) {
-			parent.addProperties(properties);
-
-			rules = getRules();
-
-			NodeList artifactNodes = getNodes("repository/artifacts/artifact");
-			for (int i = 0; i < artifactNodes.getLength(); i++) {
-				final Node artifactNode = artifactNodes.item(i)
-					.cloneNode(true);
-				final XMLArtifact xmlArtifact = getFromType(artifactNode, XMLArtifact.class);
-
-				Classifier classifier;
-				if (Classifier.BUNDLE.name.equals(xmlArtifact.classifier)) {
-					classifier = Classifier.BUNDLE;
-				} else if (Classifier.FEATURE.name.equals(xmlArtifact.classifier)) {
-					classifier = Classifier.FEATURE;
+	@Override
+	void end(String path) throws Exception {
+		switch (path) {
+			case "repository/properties" :
+				propertiesParsed = true;
+				break;
+			case "repository/mappings" :
+				mappingsParsed = true;
+				break;
+			case "repository/artifacts/artifact" :
+				if (propertiesParsed && mappingsParsed) {
+					add(xmlArtifact, artifactProperties);
 				} else {
-					continue;
+					pending.add(new PendingArtifact(xmlArtifact, artifactProperties));
 				}
+				xmlArtifact = null;
+				artifactProperties = null;
+				break;
+			default :
+				break;
+		}
+	}
 
-				Map<String, String> artifactProperties = getProperties(artifactNode, "properties/property");
-				xmlArtifact.format = artifactProperties.get("format");
-				if (Artifact.FORMAT_PACKED.equals(xmlArtifact.format) && !unpack) {
-					continue;
-				}
+	private void add(XMLArtifact xmlArtifact, Map<String, String> artifactProperties) throws Exception {
+		Classifier classifier;
+		if (Classifier.BUNDLE.name.equals(xmlArtifact.classifier)) {
+			classifier = Classifier.BUNDLE;
+		} else if (Classifier.FEATURE.name.equals(xmlArtifact.classifier)) {
+			classifier = Classifier.FEATURE;
+		} else {
+			return;
+		}
+
+		xmlArtifact.format = artifactProperties.get("format");
+		if (Artifact.FORMAT_PACKED.equals(xmlArtifact.format) && !unpack) {
+			return;
+		}
 
-				Map<String, String> map = Converter.cnv(new TypeReference<Map<String, String>>() {}, xmlArtifact);
-				try (Processor domain = new Processor(parent)) {
-					domain.addProperties(map);
-
-					for (Rule r : rules) {
-						if (r.matches(map)) {
-							String s = domain.getReplacer()
-								.process(r.output);
-							URI uri = new URI(s).normalize();
-
-							Artifact artifact = new Artifact();
-							artifact.classifier = classifier;
-							artifact.uri = uri;
-							artifact.id = xmlArtifact.id;
-							artifact.version = new Version(xmlArtifact.version);
-							artifact.md5 = artifactProperties.get("download.md5");
-							artifact.format = xmlArtifact.format;
-							String download_size = artifactProperties.getOrDefault("download.size", "-1L");
-							try {
-								artifact.download_size = Long.parseLong(download_size);
-							} catch (NumberFormatException e) {
-								artifact.download_size = -1L;
-							}
-							artifact.setProperties(artifactProperties);
-							artifacts.add(artifact);
-							break;
-						}
+		Map<String, String> map = Converter.cnv(new TypeReference<Map<String, String>>() {}, xmlArtifact);
+		try (Processor domain = new Processor(getParent())) {
+			domain.addProperties(map);
+
+			for (Rule r : rules) {
+				if (r.matches(map)) {
+					String s = domain.getReplacer()
+						.process(r.output);
+					URI uri = new URI(s).normalize();
+
+					Artifact artifact = new Artifact();
+					artifact.classifier = classifier;
+					artifact.uri = uri;
+					artifact.id = xmlArtifact.id;
+					artifact.version = new Version(xmlArtifact.version);
+					artifact.md5 = artifactProperties.get("download.md5");
+					artifact.format = xmlArtifact.format;
+					String download_size = artifactProperties.getOrDefault("download.size", "-1L");
+					try {
+						artifact.download_size = Long.parseLong(download_size);
+					} catch (NumberFormatException e) {
+						artifact.download_size = -1L;
 					}
+					artifact.setProperties(artifactProperties);
+					artifacts.add(artifact);
+					break;
 				}
 			}
 		}
 	}
 
-	List<Rule> getRules() throws Exception {
-		List<Rule> rules = new ArrayList<>();
-		NodeList ruleNodes = getNodes("repository/mappings/rule");
-		for (int i = 0; i < ruleNodes.getLength(); i++) {
-			Node ruleNode = ruleNodes.item(i);
-			Rule rule = createRule(ruleNode);
-			rules.add(rule);
+	private Processor getParent() {
+		if (parent == null) {
+			Map<String, String> map = new HashMap<>(properties);
+			map.put("repoUrl", base.resolve("")
+				.toString());
+			parent = new Processor();
+			parent.addProperties(map);
 		}
-		return rules;
+		return parent;
 	}
 
 	public List<Artifact> getArtifacts() {
@@ -5,8 +5,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLStreamReader;
 
 import aQute.lib.strings.Strings;
 
@@ -31,19 +30,23 @@ import aQute.lib.strings.Strings;
  */
 
 class CompositeArtifacts extends XMLBase {
-	final List<URI>	uris	= new ArrayList<>();
-	final URI		base;
+	final List<URI>		uris	= new ArrayList<>();
+	final URI			base;
+	final InputStream	in;
 
 	CompositeArtifacts(InputStream in, URI base) throws Exception {
-		super(getDocument(in));
+		this.in = in;
 		this.base = base;
 	}
 
 	void parse() throws Exception {
-		NodeList nodes = getNodes("repository/children/child");
-		for (int i = 0; i < nodes.getLength(); i++) {
-			Node child = nodes.item(i);
-			String textContent = Strings.trim(getAttribute(child, "location"));
+		parse(in);
+	}
+
+	@Override
+	void start(String path, XMLStreamReader reader) throws Exception {
+		if (path.equals("repository/children/child")) {
+			String textContent = Strings.trim(getAttribute(reader, "location"));
 			URI uri = base.resolve(textContent);
 			uris.add(uri);
 		}
@@ -0,0 +1,160 @@
+package aQute.p2.provider;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.osgi.framework.Version;
+
+import aQute.lib.strings.Strings;
+import aQute.p2.api.Artifact;
+import aQute.p2.api.Classifier;
+import aQute.p2.api.InstallableUnit;
+import aQute.p2.api.InstallableUnit.Provided;
+import aQute.p2.api.InstallableUnit.Required;
+
+/**
+ * @formatter:off
+ * <pre>
+ * <?xml version='1.0' encoding='UTF-8'?>
+ * <?metadataRepository version='1.1.0'?>
+ * <repository name='Bndtools' type='org.eclipse.equinox.internal.p2.metadata.repository.LocalMetadataRepository' version='1'>
+ *   <units size='1'>
+ *     <unit id='name.njbartlett.eclipse.macbadge' version='1.0.0.201110100042'>
+ *       <provides size='3'>
+ *         <provided namespace='org.eclipse.equinox.p2.iu' name='name.njbartlett.eclipse.macbadge' version='1.0.0.201110100042'/>
+ *         <provided namespace='osgi.bundle' name='name.njbartlett.eclipse.macbadge' version='1.0.0.201110100042'/>
+ *         <provided namespace='org.eclipse.equinox.p2.eclipse.type' name='bundle' version='1.0.0'/>
+ *       </provides>
+ *       <requires size='2'>
+ *         <required namespace='osgi.bundle' name='org.eclipse.swt' range='3.7.0'/>
+ *         <required namespace='java.package' name='org.eclipse.core.runtime' range='3.4.0'/>
+ *       </requires>
+ *       <artifacts size='1'>
+ *         <artifact classifier='osgi.bundle' id='name.njbartlett.eclipse.macbadge' version='1.0.0.201110100042'/>
+ *       </artifacts>
+ *       <touchpointData size='1'>
+ *         <instructions size='1'>
+ *           <instruction key='manifest'>
+ *             Bundle-SymbolicName: name.njbartlett.eclipse.macbadge;singleton:=true&#xA;Bundle-Version: 1.0.0.201110100042
+ *           </instruction>
+ *         </instructions>
+ *       </touchpointData>
+ *     </unit>
+ *   </units>
+ * </repository>
+ * </pre>
+ * @formatter:on
+ */
+class ContentRepository extends XMLBase {
+	private static final String			UNIT		= "repository/units/unit";
+
+	private final List<InstallableUnit>	units		= new ArrayList<>();
+	private InstallableUnit				unit;
+	private Provided					provided;
+
+	ContentRepository(InputStream in) throws Exception {
+		parse(in);
+	}
+
+	@Override
+	void start(String path, XMLStreamReader reader) throws Exception {
+		if (!path.startsWith(UNIT)) {
+			return;
+		}
+		switch (path.substring(UNIT.length())) {
+			case "" :
+				unit = new InstallableUnit();
+				unit.id = getAttribute(reader, "id");
+				unit.version = version(getAttribute(reader, "version"));
+				unit.singleton = !"false".equals(getAttribute(reader, "singleton"));
+				break;
+			case "/properties/property" :
+				unit.properties.put(getAttribute(reader, "name"), getAttribute(reader, "value"));
+				break;
+			case "/provides/provided" :
+				provided = new Provided();
+				provided.namespace = getAttribute(reader, "namespace");
+				provided.name = getAttribute(reader, "name");
+				provided.version = getAttribute(reader, "version");
+				unit.provides.add(provided);
+				break;
+			case "/provides/provided/properties/property" :
+				String name = getAttribute(reader, "name");
+				String type = getAttribute(reader, "type");
+				if ((type != null) && !type.equals("String")) {
+					name = name + ":" + type;
+				}
+				provided.properties.put(name, getAttribute(reader, "value"));
+				break;
+			case "/requires/required" :
+			case "/requires/requiredProperties" :
+				unit.requires.add(required(reader));
+				break;
+			case "/hostRequirements/required" :
+				unit.hostRequirements.add(required(reader));
+				break;
+			case "/artifacts/artifact" :
+				String classifier = getAttribute(reader, "classifier");
+				Artifact artifact = new Artifact();
+				if (Classifier.BUNDLE.name.equals(classifier)) {
+					artifact.classifier = Classifier.BUNDLE;
+				} else if (Classifier.FEATURE.name.equals(classifier)) {
+					artifact.classifier = Classifier.FEATURE;
+				} else {
+					break;
+				}
+				artifact.id = getAttribute(reader, "id");
+				artifact.version = version(getAttribute(reader, "version"));
+				if (artifact.version != null) {
+					unit.artifacts.add(artifact);
+				}
+				break;
+			case "/touchpointData/instructions/instruction" :
+				if ("manifest".equals(getAttribute(reader, "key"))) {
+					unit.manifest = Strings.trim(reader.getElementText());
+				}
+				break;
+			default :
+				break;
+		}
+	}
+
+	@Override
+	void end(String path) throws Exception {
+		if (path.equals(UNIT)) {
+			// units with a version that is not an OSGi version are ignored
+			if (unit.version != null) {
+				units.add(unit);
+			}
+			unit = null;
+		} else if (path.equals(UNIT + "/provides/provided")) {
+			provided = null;
+		}
+	}
+
+	private static Required required(XMLStreamReader reader) {
+		Required required = new Required();
+		required.namespace = getAttribute(reader, "namespace");
+		required.name = getAttribute(reader, "name");
+		required.range = getAttribute(reader, "range");
+		required.match = getAttribute(reader, "match");
+		required.optional = "true".equals(getAttribute(reader, "optional"));
+		required.greedy = !"false".equals(getAttribute(reader, "greedy"));
+		return required;
+	}
+
+	private static Version version(String version) {
+		try {
+			return new Version(version);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	List<InstallableUnit> getUnits() {
+		return units;
+	}
+}
@@ -4,12 +4,9 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamReader;
 
 import org.osgi.framework.Version;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.osgi.Resource;
@@ -28,36 +25,27 @@ public class Feature extends XMLBase {
 
 	List<Plugin> plugins = new ArrayList<>();
 
-	public Feature(Document document) {
-		super(document);
-	}
-
 	public Feature(InputStream in) throws Exception {
-		this(toDoc(in));
-	}
-
-	private static Document toDoc(InputStream in) throws Exception {
 		try (Jar jar = new Jar("feature", in)) {
 			Resource resource = jar.getResource("feature.xml");
 			if (resource == null) {
 				throw new IllegalArgumentException("JAR does not contain proper 'feature.xml");
 			}
-			DocumentBuilder db = XMLBase.dbf.newDocumentBuilder();
-			Document doc = db.parse(resource.openInputStream());
-			return doc;
+			try (InputStream feature = resource.openInputStream()) {
+				parse(feature);
+			}
 		}
 	}
 
-	List<Plugin> getPlugins() throws Exception {
-		NodeList nodes = getNodes("/feature/plugin");
-		List<Plugin> result = new ArrayList<>();
-		for (int i = 0; i < nodes.getLength(); i++) {
-			Node item = nodes.item(i);
-			Plugin plugin = getFromType(item, Plugin.class);
-			result.add(plugin);
+	@Override
+	void start(String path, XMLStreamReader reader) throws Exception {
+		if (path.equals("feature/plugin")) {
+			plugins.add(getFromType(reader, Plugin.class));
 		}
+	}
 
-		return result;
+	List<Plugin> getPlugins() throws Exception {
+		return new ArrayList<>(plugins);
 	}
 
 	@Override
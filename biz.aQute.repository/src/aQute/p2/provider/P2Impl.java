@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -31,6 +32,7 @@ import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.p2.api.Artifact;
 import aQute.p2.api.ArtifactProvider;
+import aQute.p2.api.InstallableUnit;
 import aQute.p2.api.P2Index;
 import aQute.p2.packed.Unpack200;
 
@@ -60,7 +62,17 @@ public class P2Impl implements ArtifactProvider {
 	@Override
 	public List<Artifact> getAllArtifacts() throws Exception {
 		Set<URI> cycles = Collections.newSetFromMap(new ConcurrentHashMap<URI, Boolean>());
-		List<Artifact> value = getArtifacts(cycles, base).getValue();
+		List<Artifact> value = get(ARTIFACTS, cycles, base).getValue();
+		return value;
+	}
+
+	/**
+	 * Answer the installable units from the content metadata of the
+	 * repository.
+	 */
+	public List<InstallableUnit> getUnits() throws Exception {
+		Set<URI> cycles = Collections.newSetFromMap(new ConcurrentHashMap<URI, Boolean>());
+		List<InstallableUnit> value = get(CONTENT, cycles, base).getValue();
 		return value;
 	}
 
@@ -72,33 +84,62 @@ public class P2Impl implements ArtifactProvider {
 		return getBundles();
 	}
 
-	private Promise<List<Artifact>> getArtifacts(Set<URI> cycles, URI uri) {
+	/*
+	 * The artifacts and the content metadata are found the same way, from a
+	 * composite, a simple repository or a p2.index
+	 */
+	private static final class Kind<T> {
+		final String							composite;
+		final String							simple;
+		final Function<P2Index, List<URI>>		index;
+		final Parser<T>							parser;
+
+		Kind(String composite, String simple, Function<P2Index, List<URI>> index, Parser<T> parser) {
+			this.composite = composite;
+			this.simple = simple;
+			this.index = index;
+			this.parser = parser;
+		}
+	}
+
+	@FunctionalInterface
+	private interface Parser<T> {
+		List<T> parse(P2Impl p2, InputStream in, URI uri) throws Exception;
+	}
+
+	private static final Kind<Artifact>			ARTIFACTS	= new Kind<>("compositeArtifacts.xml", "artifacts.xml",
+		index -> index.artifacts,
+		(p2, in, uri) -> new ArtifactRepository(in, uri, p2.processor.canUnpack()).getArtifacts());
+	private static final Kind<InstallableUnit>	CONTENT		= new Kind<>("compositeContent.xml", "content.xml",
+		index -> index.content, (p2, in, uri) -> new ContentRepository(in).getUnits());
+
+	private <T> Promise<List<T>> get(Kind<T> kind, Set<URI> cycles, URI uri) {
 		if (!cycles.add(uri)) {
 			return promiseFactory.resolved(Collections.emptyList());
 		}
 
 		try {
 			String type = uri.getPath();
-			logger.info("getArtifacts type={}", uri);
-			if (type.endsWith("/compositeArtifacts.xml")) {
-				return parseCompositeArtifacts(cycles, hideAndSeek(uri), uri);
-			} else if (type.endsWith("/artifacts.xml.xz")) {
-				return parseArtifacts(hideAndSeek(uri), uri);
-			} else if (type.endsWith("/artifacts.xml")) {
-				return parseArtifacts(hideAndSeek(uri), uri);
+			logger.info("get{} type={}", kind.simple, uri);
+			if (type.endsWith("/" + kind.composite)) {
+				return parseComposite(kind, cycles, hideAndSeek(uri), uri);
+			} else if (type.endsWith("/" + kind.simple + ".xz")) {
+				return parse(kind, hideAndSeek(uri), uri);
+			} else if (type.endsWith("/" + kind.simple)) {
+				return parse(kind, hideAndSeek(uri), uri);
 			} else if (type.endsWith("/p2.index")) {
-				return parseIndexArtifacts(cycles, uri);
+				return parseIndex(kind, cycles, uri);
 			}
 			uri = normalize(uri).resolve("p2.index");
 			defaults.add(uri);
-			return parseIndexArtifacts(cycles, uri);
+			return parseIndex(kind, cycles, uri);
 		} catch (Exception e) {
-			logger.error("getArtifacts", e);
+			logger.error("get{}", kind.simple, e);
 			return promiseFactory.failed(e);
 		}
 	}
 
-	private Promise<List<Artifact>> parseArtifacts(InputStream in, URI uri) throws Exception {
+	private <T> Promise<List<T>> parse(Kind<T> kind, InputStream in, URI uri) throws Exception {
 		if (in == null) {
 			logger.info("No content for {}", uri);
 			return promiseFactory.resolved(Collections.emptyList());
@@ -106,15 +147,14 @@ public class P2Impl implements ArtifactProvider {
 
 		return promiseFactory.submit(() -> {
 			try {
-				ArtifactRepository ar = new ArtifactRepository(in, uri, processor.canUnpack());
-				return ar.getArtifacts();
+				return kind.parser.parse(this, in, uri);
 			} finally {
 				IO.close(in);
 			}
 		});
 	}
 
-	private Promise<List<Artifact>> parseCompositeArtifacts(Set<URI> cycles, InputStream in, URI base)
+	private <T> Promise<List<T>> parseComposite(Kind<T> kind, Set<URI> cycles, InputStream in, URI base)
 		throws Exception {
 		if (in == null) {
 			logger.info("No such composite {}", base);
@@ -124,20 +164,20 @@ public class P2Impl implements ArtifactProvider {
 		CompositeArtifacts ca = new CompositeArtifacts(in, base);
 		ca.parse();
 
-		return getArtifacts(cycles, ca.uris);
+		return get(kind, cycles, ca.uris);
 	}
 
-	private Promise<List<Artifact>> getArtifacts(Set<URI> cycles, final Collection<URI> uris) {
-		Deferred<List<Artifact>> deferred = promiseFactory.deferred();
+	private <T> Promise<List<T>> get(Kind<T> kind, Set<URI> cycles, final Collection<URI> uris) {
+		Deferred<List<T>> deferred = promiseFactory.deferred();
 		promiseFactory.executor()
 			.execute(() -> {
 				try {
 					deferred.resolveWith(uris.stream()
-						.map(uri -> getArtifacts(cycles, base.resolve(uri)).recover(failed -> {
+						.map(uri -> get(kind, cycles, base.resolve(uri)).recover(failed -> {
 							if (!defaults.contains(uri)) {
-								logger.info("Failed to get artifacts for {}", uri, failed.getFailure());
+								logger.info("Failed to get {} for {}", kind.simple, uri, failed.getFailure());
 							}
-							return Collections.emptyList();
+							return Collections.<T> emptyList();
 						}))
 						.collect(promiseFactory.toPromise())
 						.map(ll -> ll.stream()
@@ -213,15 +253,15 @@ public class P2Impl implements ArtifactProvider {
  	 *  artifact.repository.factory.order = compositeArtifacts.xml,\!
 	 * @formatter:on
 	 */
-	private Promise<List<Artifact>> parseIndexArtifacts(Set<URI> cycles, final URI uri) throws Exception {
+	private <T> Promise<List<T>> parseIndex(Kind<T> kind, Set<URI> cycles, final URI uri) throws Exception {
 		Promise<File> file = client.build()
 			.useCache()
 			.get()
 			.async(uri.toURL());
-		return file.flatMap(f -> parseIndexArtifacts(cycles, uri, f));
+		return file.flatMap(f -> parseIndex(kind, cycles, uri, f));
 	}
 
-	private Promise<List<Artifact>> parseIndexArtifacts(Set<URI> cycles, URI uri, File file) throws Exception {
+	private <T> Promise<List<T>> parseIndex(Kind<T> kind, Set<URI> cycles, URI uri, File file) throws Exception {
 		P2Index index;
 
 		if (file == null) {
@@ -233,7 +273,7 @@ public class P2Impl implements ArtifactProvider {
 		canonicalize(index.artifacts);
 		canonicalize(index.content);
 
-		return getArtifacts(cycles, index.artifacts);
+		return get(kind, cycles, kind.index.apply(index));
 	}
 
 	private void canonicalize(List<URI> artifacts) throws URISyntaxException {
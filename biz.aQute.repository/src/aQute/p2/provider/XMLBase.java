@@ -3,85 +3,90 @@ package aQute.p2.provider;
 import static java.lang.invoke.MethodHandles.publicLookup;
 import static java.lang.invoke.MethodType.methodType;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
-import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import aQute.lib.converter.Converter;
 import aQute.lib.xml.XML;
 
-class XMLBase {
-	final static DocumentBuilderFactory	dbf	= XML.newDocumentBuilderFactory();
-	final static XPathFactory			xpf	= XPathFactory.newInstance();
-	final XPath							xp;
-	final Document						document;
-
-	XMLBase(Document document) {
-		this.document = document;
-		xp = xpf.newXPath();
-	}
-
-	String getAttribute(Node node, String name) {
-		NamedNodeMap attributes = node.getAttributes();
-		Node namedItem = attributes.getNamedItem(name);
-		if (namedItem == null)
-			return null;
-
-		return namedItem.getNodeValue();
-	}
-
-	static Document getDocument(InputStream in) throws ParserConfigurationException, SAXException, IOException {
-		DocumentBuilder db = dbf.newDocumentBuilder();
-		return db.parse(in);
-	}
-
-	NodeList getNodes(String path) throws Exception {
-		return getNodes(document, path);
-	}
-
-	NodeList getNodes(Node root, String path) throws Exception {
-		return (NodeList) xp.evaluate(path, root, XPathConstants.NODESET);
-	}
-
-	Map<String, String> getProperties(String path) throws Exception {
-		return getProperties(document, path);
+/**
+ * Base class for the p2 metadata parsers. The XML is streamed with StAX, the
+ * document is never materialized. Subclasses receive the start and end of each
+ * element together with the path of the element from the root element, for
+ * example {@code repository/artifacts/artifact}.
+ */
+abstract class XMLBase {
+	final static XMLInputFactory inputFactory = XML.newXMLInputFactory();
+
+	/**
+	 * Stream the XML and call {@link #start(String, XMLStreamReader)} and
+	 * {@link #end(String)} for each element.
+	 *
+	 * @param in the XML, not closed
+	 */
+	void parse(InputStream in) throws Exception {
+		XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+		try {
+			StringBuilder path = new StringBuilder();
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT :
+						if (path.length() > 0) {
+							path.append('/');
+						}
+						path.append(reader.getLocalName());
+						start(path.toString(), reader);
+						// start may have read the text of the element
+						if (!reader.isEndElement()) {
+							break;
+						}
+						// fall through
+					case XMLStreamConstants.END_ELEMENT :
+						end(path.toString());
+						path.setLength(Math.max(0, path.lastIndexOf("/")));
+						break;
+					default :
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
 	}
 
-	Map<String, String> getProperties(Node node, String path) throws Exception {
-		Map<String, String> properties = new HashMap<>();
-		NodeList propertyNodes = getNodes(node, path);
-		for (int i = 0; i < propertyNodes.getLength(); i++) {
-			Node propertyNode = propertyNodes.item(i);
-			String name = getAttribute(propertyNode, "name");
-			String value = getAttribute(propertyNode, "value");
-			properties.put(name, value);
-		}
-		return properties;
+	/**
+	 * Called at the start of an element, the reader is positioned on the start
+	 * element to give access to its attributes. The text of the element can be
+	 * read with {@link XMLStreamReader#getElementText()}.
+	 *
+	 * @param path the path of the element
+	 * @param reader the reader
+	 */
+	abstract void start(String path, XMLStreamReader reader) throws Exception;
+
+	/**
+	 * Called at the end of an element.
+	 *
+	 * @param path the path of the element
+	 */
+	void end(String path) throws Exception {}
+
+	static String getAttribute(XMLStreamReader reader, String name) {
+		return reader.getAttributeValue(null, name);
 	}
 
-	<T> T getFromType(Node item, Class<T> clazz) throws Exception {
+	static <T> T getFromType(XMLStreamReader reader, Class<T> clazz) throws Exception {
 		T a = newInstance(clazz);
 		for (Field f : clazz.getDeclaredFields()) {
-			String s = getAttribute(item, f.getName());
+			String s = getAttribute(reader, f.getName());
 			if (s != null) {
 				setField(f, a, Converter.cnv(f.getGenericType(), s));
 			}
@@ -10,22 +10,37 @@ import static org.junit.jupiter.api.Assertions.fail;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipException;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.service.log.LogService;
+import org.osgi.service.repository.Repository;
+
+import aQute.bnd.build.Project;
+import aQute.bnd.build.Workspace;
+import aQute.bnd.deployer.repository.providers.R5RepoContentProvider;
 import aQute.bnd.http.HttpClient;
 import aQute.bnd.osgi.Jar;
 import aQute.bnd.osgi.JarResource;
 import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.XMLResourceParser;
+import aQute.bnd.osgi.resource.CapReqBuilder;
 import aQute.bnd.repository.osgi.OSGiRepository;
+import aQute.bnd.service.Registry;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.RepositoryPlugin.PutResult;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
@@ -101,6 +116,136 @@ public class TestLocalIndexGeneration {
 		}
 	}
 
+	@Test
+	public void testIncrementalIndexUpdate() throws Exception {
+		repo.put(
+			new BufferedInputStream(new FileInputStream("testdata/bundles/name.njbartlett.osgi.emf.minimal-2.6.1.jar")),
+			new RepositoryPlugin.PutOptions());
+		repo.put(new BufferedInputStream(new FileInputStream("testdata/bundles/name.njbartlett.osgi.emf.xmi-2.5.0.jar")),
+			new RepositoryPlugin.PutOptions());
+
+		File indexFile = IO.getFile(outputDir, "index.xml");
+		List<Resource> updated = XMLResourceParser.getResources(indexFile);
+		assertEquals(2, updated.size());
+
+		// a full regeneration must produce the same resources
+		repo.refresh();
+		List<Resource> generated = XMLResourceParser.getResources(indexFile);
+		assertEquals(2, generated.size());
+		assertTrue(generated.containsAll(updated));
+	}
+
+	@Test
+	public void testReleaseBracketing() throws Exception {
+		File indexFile = IO.getFile(outputDir, "index.xml");
+		repo.begin(null);
+		repo.put(
+			new BufferedInputStream(new FileInputStream("testdata/bundles/name.njbartlett.osgi.emf.minimal-2.6.1.jar")),
+			new RepositoryPlugin.PutOptions());
+		repo.put(new BufferedInputStream(new FileInputStream("testdata/bundles/name.njbartlett.osgi.emf.xmi-2.5.0.jar")),
+			new RepositoryPlugin.PutOptions());
+		assertEquals(0, XMLResourceParser.getResources(indexFile)
+			.size());
+
+		repo.end(null);
+		assertEquals(2, XMLResourceParser.getResources(indexFile)
+			.size());
+	}
+
+	/**
+	 * The release of the bundles of a project updates the index once.
+	 */
+	@Test
+	public void testProjectReleaseBracketing() throws Exception {
+		File wsDir = IO.getFile(outputDir, "ws");
+		IO.mkdirs(IO.getFile(wsDir, "cnf"));
+		IO.mkdirs(IO.getFile(wsDir, "p"));
+		IO.store("", IO.getFile(wsDir, "cnf/build.bnd"));
+		IO.store("-sub: *.bnd\n-releaserepo: Local\n", IO.getFile(wsDir, "p/bnd.bnd"));
+		IO.store("-resourceonly: true\n-includeresource: a.txt;literal=a\n", IO.getFile(wsDir, "p/a.bnd"));
+		IO.store("-resourceonly: true\n-includeresource: b.txt;literal=b\n", IO.getFile(wsDir, "p/b.bnd"));
+		CountingProvider provider = new CountingProvider();
+		try (Workspace ws = new Workspace(wsDir)) {
+			ws.addBasicPlugin(provider);
+			LocalIndexedRepo repo = new LocalIndexedRepo();
+			File repoDir = IO.getFile(outputDir, "repo");
+			IO.mkdirs(repoDir);
+			config.put("local", repoDir.getAbsolutePath());
+			config.put("type", provider.getName());
+			config.put("name", "Local");
+			repo.setRegistry(ws);
+			repo.setReporter(ws);
+			repo.setProperties(config);
+			ws.addBasicPlugin(repo);
+			// the empty index is written when the repository is initialized
+			assertEquals(0, repo.list(null)
+				.size());
+			provider.writes.set(0);
+
+			Project project = ws.getProject("p");
+			project.release(false);
+			assertTrue(project.check());
+			assertEquals(2, repo.list(null)
+				.size());
+			assertEquals(1, provider.writes.get());
+		}
+	}
+
+	/**
+	 * A put must be visible through the provider cache of the workspace.
+	 */
+	@Test
+	public void testPutInvalidatesProviderCache() throws Exception {
+		File wsDir = IO.getFile(outputDir, "ws");
+		IO.mkdirs(IO.getFile(wsDir, "cnf"));
+		IO.store("", IO.getFile(wsDir, "cnf/build.bnd"));
+		File repoDir = IO.getFile(outputDir, "repo");
+		IO.mkdirs(repoDir);
+		config.put("local", repoDir.getAbsolutePath());
+		try (Workspace ws = new Workspace(wsDir)) {
+			repo.setRegistry(ws);
+			repo.setProperties(config);
+			ws.addBasicPlugin(repo);
+			Repository cached = ws.getProviderCache()
+				.cached(repo);
+			Requirement requirement = CapReqBuilder.createBundleRequirement("name.njbartlett.osgi.emf.minimal", null)
+				.buildSyntheticRequirement();
+			assertTrue(cached.findProviders(Collections.singleton(requirement))
+				.get(requirement)
+				.isEmpty());
+
+			repo.put(
+				new BufferedInputStream(new FileInputStream("testdata/bundles/name.njbartlett.osgi.emf.minimal-2.6.1.jar")),
+				new RepositoryPlugin.PutOptions());
+			assertEquals(1, cached.findProviders(Collections.singleton(requirement))
+				.get(requirement)
+				.size());
+		}
+	}
+
+	static class CountingProvider extends R5RepoContentProvider {
+		final AtomicInteger writes = new AtomicInteger();
+
+		@Override
+		public String getName() {
+			return "Counting";
+		}
+
+		@Override
+		public void generateIndex(Set<File> files, OutputStream output, String repoName, URI baseUri, boolean pretty,
+			Registry registry, LogService log) throws Exception {
+			writes.incrementAndGet();
+			super.generateIndex(files, output, repoName, baseUri, pretty, registry, log);
+		}
+
+		@Override
+		public boolean updateIndex(File index, Set<File> files, OutputStream output, String repoName, URI baseUri,
+			boolean pretty, Registry registry, LogService log) throws Exception {
+			writes.incrementAndGet();
+			return super.updateIndex(index, files, output, repoName, baseUri, pretty, registry, log);
+		}
+	}
+
 	@Test
 	public void testOverwrite() throws Exception {
 		config.put("overwrite", "false");
@@ -1,11 +1,14 @@
 package aQute.bnd.repository.p2.provider;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -24,6 +27,7 @@ import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.http.HttpClient;
 import aQute.bnd.osgi.resource.RequirementBuilder;
 import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.osgi.resource.ResourceUtils.ContentCapability;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
 import aQute.bnd.version.Version;
@@ -151,6 +155,76 @@ public class P2IndexerTest {
 		}
 	}
 
+	@Test
+	public void testMetadataOnly() throws Exception {
+		try (HttpClient client = new HttpClient()) {
+			client.setCache(IO.getFile(tmp, "cache"));
+
+			File input = IO.getFile("testdata/p2/macbadge");
+			try (P2Indexer p2 = new P2Indexer(new Unpack200(), new Slf4jReporter(P2IndexerTest.class), tmp, client,
+				input.toURI(), getName(), true)) {
+				assertThat(p2.list(null)).containsExactly("name.njbartlett.eclipse.macbadge");
+				assertThat(p2.versions("name.njbartlett.eclipse.macbadge"))
+					.containsExactly(new Version("1.0.0.201110100042"));
+
+				Resource resource = ResourceUtils.getResources(p2.findProviders(
+					Collections.singleton(new RequirementBuilder("osgi.identity")
+						.addDirective("filter", "(osgi.identity=name.njbartlett.eclipse.macbadge)")
+						.buildSyntheticRequirement()))
+					.values()
+					.iterator()
+					.next())
+					.iterator()
+					.next();
+				assertThat(resource.getRequirements("osgi.wiring.package")).hasSize(9);
+				assertThat(resource.getRequirements("osgi.wiring.bundle")).hasSize(1);
+				ContentCapability content = ResourceUtils.getContentCapability(resource);
+				assertThat(content.size()).isEqualTo(4672L);
+				// the test repository publishes no sha-256, so there is no hash
+				assertThat(content.osgi_content()).isNull();
+
+				// nothing was downloaded to index the repository
+				File cached = client.getCacheFileFor(content.url());
+				assertThat(cached).doesNotExist();
+
+				File f = p2.get("name.njbartlett.eclipse.macbadge", new Version("1.0.0.201110100042"), null);
+				assertThat(f).isNotNull()
+					.hasName("name.njbartlett.eclipse.macbadge-1.0.0.201110100042.jar");
+				assertThat(f.length()).isEqualTo(4672);
+				assertThat(cached).isFile();
+			}
+		}
+	}
+
+	@Test
+	public void testMetadataOnlyInvalidDownload() throws Exception {
+		try (HttpClient client = new HttpClient()) {
+			client.setCache(IO.getFile(tmp, "cache"));
+
+			// the bundle does not have the download size of the metadata
+			File input = IO.copy(IO.getFile("testdata/p2/macbadge"), IO.getFile(tmp, "macbadge"));
+			IO.write("corrupt".getBytes(StandardCharsets.UTF_8),
+				IO.getFile(input, "plugins/name.njbartlett.eclipse.macbadge_1.0.0.201110100042.jar"));
+
+			try (P2Indexer p2 = new P2Indexer(new Unpack200(), new Slf4jReporter(P2IndexerTest.class), tmp, client,
+				input.toURI(), getName(), true)) {
+				assertThat(p2.list(null)).containsExactly("name.njbartlett.eclipse.macbadge");
+
+				assertThatExceptionOfType(InvocationTargetException.class)
+					.isThrownBy(() -> p2.get("name.njbartlett.eclipse.macbadge", new Version("1.0.0.201110100042"),
+						null))
+					.havingCause()
+					.isInstanceOf(IOException.class)
+					.withMessageStartingWith("Invalid content size 7");
+
+				File cached = client.getCacheFileFor(
+					IO.getFile(input, "plugins/name.njbartlett.eclipse.macbadge_1.0.0.201110100042.jar")
+						.toURI());
+				assertThat(cached).doesNotExist();
+			}
+		}
+	}
+
 	@Test
 	public void testRefresh() throws Exception {
 		try (HttpClient client = new HttpClient()) {
@@ -0,0 +1,84 @@
+package aQute.p2.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.lib.io.IO;
+import aQute.p2.api.Artifact;
+import aQute.p2.api.Classifier;
+
+public class ArtifactRepositoryTest {
+	private static final URI base = URI.create("https://example.org/p2/artifacts.xml");
+
+	@Test
+	public void testArtifacts() throws Exception {
+		try (JarFile jar = new JarFile(IO.getFile("testdata/p2/macbadge/artifacts.jar"));
+			InputStream in = jar.getInputStream(jar.getEntry("artifacts.xml"))) {
+			ArtifactRepository repository = new ArtifactRepository(in, base, true);
+			List<Artifact> artifacts = repository.getArtifacts();
+			assertThat(artifacts).hasSize(2);
+
+			Artifact bundle = artifacts.get(0);
+			assertThat(bundle.classifier).isEqualTo(Classifier.BUNDLE);
+			assertThat(bundle.id).isEqualTo("name.njbartlett.eclipse.macbadge");
+			assertThat(bundle.version).hasToString("1.0.0.201110100042");
+			assertThat(bundle.uri).isEqualTo(
+				URI.create("https://example.org/p2/plugins/name.njbartlett.eclipse.macbadge_1.0.0.201110100042.jar"));
+			assertThat(bundle.download_size).isEqualTo(4672L);
+			assertThat(bundle.getProperties()).containsEntry("artifact.size", "408");
+
+			Artifact feature = artifacts.get(1);
+			assertThat(feature.classifier).isEqualTo(Classifier.FEATURE);
+			assertThat(feature.uri).isEqualTo(URI.create(
+				"https://example.org/p2/features/name.njbartlett.eclipse.macbadge.feature_1.0.0.201110100042.jar"));
+		}
+	}
+
+	@Test
+	public void testMappingsAfterArtifacts() throws Exception {
+		String xml = "<?xml version='1.0' encoding='UTF-8'?>\n" //
+			+ "<repository name='test' type='simple' version='1'>\n" //
+			+ "  <artifacts size='3'>\n" //
+			+ "    <artifact classifier='osgi.bundle' id='a' version='1.0.0'>\n" //
+			+ "      <properties size='1'><property name='download.md5' value='abc'/></properties>\n" //
+			+ "    </artifact>\n" //
+			+ "    <artifact classifier='binary' id='b' version='1.0.0'/>\n" //
+			+ "    <artifact classifier='osgi.bundle' id='c' version='2.0.0'>\n" //
+			+ "      <properties size='1'><property name='format' value='packed'/></properties>\n" //
+			+ "    </artifact>\n" //
+			+ "  </artifacts>\n" //
+			+ "  <mappings size='1'>\n" //
+			+ "    <rule filter='(&amp; (classifier=osgi.bundle))' output='${repoUrl}/${dir}/${id}_${version}.jar'/>\n" //
+			+ "  </mappings>\n" //
+			+ "  <properties size='1'><property name='dir' value='plugins'/></properties>\n" //
+			+ "</repository>\n";
+
+		ArtifactRepository repository = new ArtifactRepository(IO.stream(xml, StandardCharsets.UTF_8), base, false);
+		List<Artifact> artifacts = repository.getArtifacts();
+		assertThat(artifacts).hasSize(1);
+		assertThat(artifacts.get(0).uri).isEqualTo(URI.create("https://example.org/p2/plugins/a_1.0.0.jar"));
+		assertThat(artifacts.get(0).md5).isEqualTo("abc");
+
+		repository = new ArtifactRepository(IO.stream(xml, StandardCharsets.UTF_8), base, true);
+		assertThat(repository.getArtifacts()).extracting(a -> a.id)
+			.containsExactly("a", "c");
+	}
+
+	@Test
+	public void testFeature() throws Exception {
+		try (InputStream in = IO.stream(IO.getFile(
+			"testdata/p2/macbadge/features/name.njbartlett.eclipse.macbadge.feature_1.0.0.201110100042.jar"))) {
+			Feature feature = new Feature(in);
+			assertThat(feature.getPlugins()).hasSize(1)
+				.first()
+				.hasToString("name.njbartlett.eclipse.macbadge:1.0.0.201110100042");
+		}
+	}
+}
@@ -4,6 +4,7 @@ import static aQute.lib.comparators.Comparators.compare;
 import static aQute.lib.comparators.Comparators.isFinal;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
 import static org.osgi.framework.Constants.SYSTEM_BUNDLE_SYMBOLICNAME;
 import static org.osgi.framework.namespace.BundleNamespace.BUNDLE_NAMESPACE;
 import static org.osgi.framework.namespace.HostNamespace.HOST_NAMESPACE;
@@ -31,6 +32,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 
@@ -76,34 +78,37 @@ public abstract class AbstractResolveContext extends ResolveContext {
 	 * These are the namespaces that we ignore when we copy capabilities from
 	 * -runpath resources.
 	 */
-	final static Set<String>						IGNORED_NAMESPACES_FOR_SYSTEM_RESOURCES	= Sets
+	final static Set<String>												IGNORED_NAMESPACES_FOR_SYSTEM_RESOURCES	= Sets
 		.of(IDENTITY_NAMESPACE, CONTENT_NAMESPACE, BUNDLE_NAMESPACE, HOST_NAMESPACE);
 
 	/**
 	 * The 'OSGiFramework' contract was something invented by the old indexer
 	 * which is no longer in use.
 	 */
-	protected static final String					IDENTITY_INITIAL_RESOURCE				= Constants.IDENTITY_INITIAL_RESOURCE;
-	protected static final String					IDENTITY_SYSTEM_RESOURCE				= Constants.IDENTITY_SYSTEM_RESOURCE;
-
-	protected final LogService						log;
-	private final CapabilityIndex					systemCapabilityIndex					= new CapabilityIndex();
-	private final List<Repository>					repositories							= new ArrayList<>();
-	private final List<Requirement>					failed									= new ArrayList<>();
-	private final Map<CacheKey, List<Capability>>	providerCache							= new HashMap<>();
-	private final Set<Resource>						optionalRoots							= new HashSet<>();
-	private final ConcurrentMap<Resource, Integer>	resourcePriorities						= new ConcurrentHashMap<>();
-	private Map<String, Set<String>>				effectiveSet							= new HashMap<>();
-	private final List<ResolverHook>				resolverHooks							= new ArrayList<>();
-	private final List<ResolutionCallback>			callbacks								= new LinkedList<>();
-	private boolean									initialized								= false;
-	private Resource								systemResource;
-	private Resource								inputResource;
-	private Set<Resource>							blacklistedResources					= new HashSet<>();
-	private final Set<Capability>					blacklistedCapabilities					= new HashSet<>();
-	private int										level									= 0;
-	private Resource								framework;
-	private final AtomicBoolean						reported								= new AtomicBoolean();
+	protected static final String											IDENTITY_INITIAL_RESOURCE				= Constants.IDENTITY_INITIAL_RESOURCE;
+	protected static final String											IDENTITY_SYSTEM_RESOURCE				= Constants.IDENTITY_SYSTEM_RESOURCE;
+
+	protected final LogService												log;
+	private final CapabilityIndex											systemCapabilityIndex					= new CapabilityIndex();
+	private final List<Repository>											repositories							= new ArrayList<>();
+	private final List<Requirement>											failed									= new ArrayList<>();
+	private final Map<CacheKey, List<Capability>>							providerCache							= new HashMap<>();
+	private final Map<String, Predicate<Map<String, Object>>>				filterCache								= new ConcurrentHashMap<>();
+	private final Map<Repository, Map<Requirement, Collection<Capability>>>	prefetched								= new HashMap<>();
+	private final Set<Resource>												prefetchedResources						= new HashSet<>();
+	private final Set<Resource>												optionalRoots							= new HashSet<>();
+	private final ConcurrentMap<Resource, Integer>							resourcePriorities						= new ConcurrentHashMap<>();
+	private Map<String, Set<String>>										effectiveSet							= new HashMap<>();
+	private final List<ResolverHook>										resolverHooks							= new ArrayList<>();
+	private final List<ResolutionCallback>									callbacks								= new LinkedList<>();
+	private boolean															initialized								= false;
+	private Resource														systemResource;
+	private Resource														inputResource;
+	private Set<Resource>													blacklistedResources					= new HashSet<>();
+	private final Set<Capability>											blacklistedCapabilities					= new HashSet<>();
+	private int																level									= 0;
+	private Resource														framework;
+	private final AtomicBoolean												reported								= new AtomicBoolean();
 
 	public AbstractResolveContext(LogService log) {
 		this.log = log;
@@ -217,11 +222,9 @@ public abstract class AbstractResolveContext extends ResolveContext {
 			// root resource,
 			// then we are done already, no need to look for providers from the
 			// repos.
-			boolean optional = Namespace.RESOLUTION_OPTIONAL.equals(requirement.getDirectives()
-				.get(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE));
 			List<Capability> result = new ArrayList<>(firstStageResult);
 			Collections.sort(result, capabilityComparator);
-			if (!optional || optionalRoots.contains(requirement.getResource())) {
+			if (isFromRepositories(requirement)) {
 				// We sort capabilities from the same resource and mandatory
 				// resources (first stage) BEFORE capabilities from repo
 				// resources (second stage) removing any duplicate capabilities.
@@ -237,18 +240,75 @@ public abstract class AbstractResolveContext extends ResolveContext {
 		return capabilities;
 	}
 
+	/*
+	 * Answer the providers this context already found for a requirement, or
+	 * null if the resolver did not ask for them
+	 */
+	List<Capability> getCachedProviders(Requirement requirement) {
+		return providerCache.get(getCacheKey(requirement));
+	}
+
+	private boolean isFromRepositories(Requirement requirement) {
+		boolean optional = Namespace.RESOLUTION_OPTIONAL.equals(requirement.getDirectives()
+			.get(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE));
+		return !optional || optionalRoots.contains(requirement.getResource());
+	}
+
+	/*
+	 * The resolver asks for the providers of the requirements one by one. When
+	 * it asks for the first requirement of a resource, the providers of all
+	 * the requirements of the resource that are not cached yet are looked up
+	 * with one call per repository since repositories can have a high fixed
+	 * cost per call.
+	 */
+	private void prefetchProviders(Resource resource) {
+		if ((resource == null) || !prefetchedResources.add(resource)) {
+			return;
+		}
+		List<Requirement> requirements = resource.getRequirements(null)
+			.stream()
+			.filter(this::isEffective)
+			.filter(this::isFromRepositories)
+			.filter(requirement -> !providerCache.containsKey(getCacheKey(requirement)))
+			.collect(toList());
+		if (requirements.size() < 2) {
+			return;
+		}
+		for (Repository repo : repositories) {
+			try {
+				prefetched.computeIfAbsent(repo, r -> new HashMap<>())
+					.putAll(repo.findProviders(requirements));
+			} catch (RuntimeException e) {
+				// the requirements are then looked up one by one
+				log.log(LogService.LOG_DEBUG, "failed to prefetch the providers from " + repo + ": " + e);
+			}
+		}
+	}
+
 	protected void processMandatoryResource(Requirement requirement, LinkedHashSet<Capability> firstStageResult,
 		Resource resource) {
 		if (resource != null) {
 			ResourceUtils.capabilityStream(resource, requirement.getNamespace())
-				.filter(ResourceUtils.matcher(requirement))
+				.filter(ResourceUtils.matcher(requirement, this::filterPredicate))
 				.forEachOrdered(firstStageResult::add);
 		}
 	}
 
+	/*
+	 * A requirement is matched against each mandatory resource, its filter is
+	 * only parsed once
+	 */
+	private Predicate<Map<String, Object>> filterPredicate(String filterString) {
+		if (filterString == null) {
+			return ResourceUtils.filterPredicate(null);
+		}
+		return filterCache.computeIfAbsent(filterString, ResourceUtils::filterPredicate);
+	}
+
 	protected ArrayList<Capability> findProvidersFromRepositories(Requirement requirement,
 		LinkedHashSet<Capability> existingWiredCapabilities) {
 		// Second stage results: repository contents.
+		prefetchProviders(requirement.getResource());
 		Set<Capability> set = new LinkedHashSet<>();
 
 		// Iterate over the repos
@@ -284,8 +344,12 @@ public abstract class AbstractResolveContext extends ResolveContext {
 	 *         that are skipped.
 	 */
 	protected Collection<Capability> findProviders(Repository repo, Requirement requirement) {
-		Map<Requirement, Collection<Capability>> map = repo.findProviders(Collections.singleton(requirement));
-		Collection<Capability> caps = map.get(requirement);
+		Map<Requirement, Collection<Capability>> providers = prefetched.get(repo);
+		Collection<Capability> caps = (providers != null) ? providers.remove(requirement) : null;
+		if (caps == null) {
+			Map<Requirement, Collection<Capability>> map = repo.findProviders(Collections.singleton(requirement));
+			caps = map.get(requirement);
+		}
 		caps.removeIf(capability -> isBlacklisted(capability));
 		return caps;
 	}
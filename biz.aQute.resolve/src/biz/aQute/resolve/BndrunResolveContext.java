@@ -1,5 +1,6 @@
 package biz.aQute.resolve;
 
+import static java.util.stream.Collectors.toList;
 
 import java.io.File;
 import java.io.InputStream;
@@ -47,6 +48,7 @@ import aQute.bnd.osgi.OSInformation;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.osgi.repository.AggregateRepository;
 import aQute.bnd.osgi.repository.AugmentRepository;
+import aQute.bnd.osgi.repository.ProviderCache;
 import aQute.bnd.osgi.repository.WorkspaceRepositoryMarker;
 import aQute.bnd.osgi.resource.CapReqBuilder;
 import aQute.bnd.osgi.resource.RequirementBuilder;
@@ -382,6 +384,18 @@ public class BndrunResolveContext extends AbstractResolveContext {
 			}
 		}
 
+		if ((project != null) && properties.is(Constants.RESOLVE_PROVIDERCACHE)) {
+			//
+			// Answer from the workspace cache for the repository plugins,
+			// the filtering specific to this resolve is done on top of it
+			//
+			ProviderCache providerCache = project.getWorkspace()
+				.getProviderCache();
+			orderedRepositories = orderedRepositories.stream()
+				.map(repo -> (repo instanceof RepositoryPlugin) ? providerCache.cached(repo) : repo)
+				.collect(toList());
+		}
+
 		Processor repositoryAugments = findRepositoryAugments(orderedRepositories);
 
 		Parameters augments = new Parameters(repositoryAugments.mergeProperties(Constants.AUGMENT), project);
@@ -39,6 +39,7 @@ import aQute.bnd.build.Project;
 import aQute.bnd.build.model.BndEditModel;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.ResourcesRepository;
 import aQute.bnd.osgi.resource.CapReqBuilder;
 import aQute.bnd.osgi.resource.FilterParser;
 import aQute.bnd.osgi.resource.FilterParser.Expression;
@@ -131,6 +132,18 @@ public class ResolveProcess {
 
 		final Map<Resource, List<Wire>> discoveredOptional = new LinkedHashMap<>();
 
+		// The first resolution is a closure of everything the root resources
+		// need, so the second resolution only has to choose between the
+		// resources in it. The providers found by the first resolution are
+		// reused instead of asking the repositories again
+		final Set<Resource> resolved = new HashSet<>();
+		for (Resource resource : wirings.keySet()) {
+			if (!rc.isInputResource(resource) && !rc.isSystemResource(resource)) {
+				resolved.add(resource);
+			}
+		}
+		final ResourcesRepository resolvedRepository = new ResourcesRepository(resolved);
+
 		// 5. Resolve the rest
 		BndrunResolveContext rc2 = new BndrunResolveContext(properties, project, plugins, log) {
 
@@ -165,7 +178,7 @@ public class ResolveProcess {
 					// the optional
 					// map
 
-					for (Capability cap : findProvidersFromRepositories(requirement, new LinkedHashSet<>())) {
+					for (Capability cap : rc.findProvidersFromRepositories(requirement, new LinkedHashSet<>())) {
 
 						Resource optionalRes = cap.getResource();
 
@@ -184,6 +197,26 @@ public class ResolveProcess {
 				return toReturn;
 			}
 
+			@Override
+			protected ArrayList<Capability> findProvidersFromRepositories(Requirement requirement,
+				LinkedHashSet<Capability> existingWiredCapabilities) {
+				List<Capability> cached = rc.getCachedProviders(requirement);
+				ArrayList<Capability> capabilities;
+				if (cached != null) {
+					capabilities = cached.stream()
+						.filter(capability -> resolved.contains(capability.getResource()))
+						.collect(Collectors.toCollection(ArrayList::new));
+				} else {
+					capabilities = resolvedRepository.findProvider(requirement)
+						.stream()
+						.filter(capability -> ResourceUtils.isEffective(requirement, capability))
+						.sorted(capabilityComparator)
+						.collect(Collectors.toCollection(ArrayList::new));
+				}
+				postProcessProviders(requirement, existingWiredCapabilities, capabilities);
+				return capabilities;
+			}
+
 		};
 
 		rc2.addCallbacks(callbacks);
@@ -8,11 +8,14 @@ import static test.lib.Utils.createRepo;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 import org.osgi.framework.namespace.IdentityNamespace;
@@ -25,6 +28,7 @@ import org.osgi.service.resolver.Resolver;
 import aQute.bnd.build.model.EE;
 import aQute.bnd.header.Attrs;
 import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.BaseRepository;
 import aQute.bnd.osgi.repository.ResourcesRepository;
 import aQute.bnd.osgi.repository.SimpleIndexer;
 import aQute.bnd.osgi.resource.CapReqBuilder;
@@ -74,6 +78,47 @@ public class GenericResolveContextResolveTest {
 		}
 	}
 
+	/**
+	 * The providers of the requirements of a resource are looked up with one
+	 * call per repository instead of one call per requirement.
+	 */
+	@Test
+	public void testBatchedProviderLookup() throws Exception {
+		Processor p = new Processor();
+		SimpleIndexer indexer = new SimpleIndexer();
+		List<Resource> resources2 = indexer.reporter(p)
+			.files(new FileSet(IO.getFile("testdata/jar"), "**.jar").getFiles())
+			.getResources();
+		ResourcesRepository repository = new ResourcesRepository(resources2);
+		AtomicInteger calls = new AtomicInteger();
+		AtomicInteger requirements = new AtomicInteger();
+		Repository counting = new BaseRepository() {
+			@Override
+			public Map<Requirement, Collection<Capability>> findProviders(Collection<? extends Requirement> reqs) {
+				calls.incrementAndGet();
+				requirements.addAndGet(reqs.size());
+				return repository.findProviders(reqs);
+			}
+		};
+
+		GenericResolveContext grc = new GenericResolveContext(logger);
+		grc.addRepository(counting);
+		grc.addEE(EE.JavaSE_17);
+		grc.addFramework("org.apache.felix.framework", null);
+		grc.addRequireBundle("org.apache.felix.http.jetty", new VersionRange("0"));
+		grc.done();
+
+		Resolver resolver = new BndResolver(new ResolverLogger(4));
+		Set<Resource> resources = resolver.resolve(grc)
+			.keySet();
+
+		assertThat(resources).hasSize(4);
+		// the framework, the initial requirements and the two resolved bundles
+		// each have one call for all their requirements
+		assertThat(calls).hasValue(4);
+		assertThat(requirements).hasValue(81);
+	}
+
 	/**
 	 * Simple basic resolve. We use a small index with gogo + framework and then
 	 * try to see if we can resolve the runtime from the shell requirement.
@@ -11,10 +11,12 @@ import static org.osgi.framework.namespace.IdentityNamespace.IDENTITY_NAMESPACE;
 import static org.osgi.resource.Namespace.REQUIREMENT_FILTER_DIRECTIVE;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -23,12 +25,15 @@ import java.util.TreeSet;
 
 import org.junit.jupiter.api.Test;
 import org.osgi.framework.Version;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 import org.osgi.resource.Wire;
 import org.osgi.service.resolver.ResolutionException;
 
 import aQute.bnd.http.HttpClient;
 import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.BaseRepository;
 import aQute.bnd.repository.osgi.OSGiRepository;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
 import aQute.lib.io.IO;
@@ -153,6 +158,44 @@ public class ResolveProcessTest {
 		}
 	}
 
+	@Test
+	public void testSecondPassReusesProviders() throws Exception {
+		ResolveProcess process = new ResolveProcess();
+		try (ResolverLogger logger = new ResolverLogger()) {
+			OSGiRepository repository = getIndex("testdata/repo7/index.xml");
+			List<Requirement> asked = new ArrayList<>();
+			MockRegistry registry = new MockRegistry();
+			registry.addPlugin(new BaseRepository() {
+				@Override
+				public Map<Requirement, Collection<Capability>> findProviders(
+					Collection<? extends Requirement> requirements) {
+					requirements.stream()
+						.filter(requirement -> requirement.getResource() != null)
+						.forEach(asked::add);
+					return repository.findProviders(requirements);
+				}
+			});
+
+			Processor model = new Processor();
+
+			model.setProperty("-runfw", "org.apache.felix.framework");
+			model.setProperty("-runrequires",
+				"osgi.extender;filter:='(&(osgi.extender=osgi.component)(version>=1.3)(!(version>=2)))'");
+
+			Map<Resource, List<Wire>> requiredResources = process.resolveRequired(model, null, registry,
+				new BndResolver(logger), Collections.emptyList(), logger);
+
+			assertEquals(1, requiredResources.size());
+			assertEquals(3, process.getOptionalResources()
+				.size());
+
+			// The resolution of the optional resources must not ask the
+			// repositories again for the providers the first resolution found
+			assertFalse(asked.isEmpty());
+			assertEquals(new HashSet<>(asked).size(), asked.size(), "Requirements looked up twice: " + asked);
+		}
+	}
+
 	@Test
 	public void testResolveFailure_1() throws Exception {
 		ResolveProcess process = new ResolveProcess();
@@ -73,6 +73,7 @@ import aQute.bnd.memoize.Memoize;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.service.Refreshable;
+import aQute.bnd.service.RepositoryListenerPlugin;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.progress.ProgressPlugin.Task;
 import aQute.bnd.service.progress.TaskManager;
@@ -631,7 +632,12 @@ public class Central implements IStartupParticipant {
 			}
 
 			if (repoChanged) {
-				repositoriesViewRefresher.repositoriesRefreshed();
+				// tell all listeners, this also discards the cached answers
+				// of the workspace and refreshes the repositories view
+				for (RepositoryListenerPlugin listener : getWorkspace()
+					.getPlugins(RepositoryListenerPlugin.class)) {
+					listener.repositoriesRefreshed();
+				}
 			}
 			refreshProjects();
 		}
@@ -646,7 +652,7 @@ public class Central implements IStartupParticipant {
 		if (refresh || force) {
 			refreshFile(plugin.getRoot());
 			if (plugin instanceof RepositoryPlugin) {
-				repositoriesViewRefresher.repositoryRefreshed((RepositoryPlugin) plugin);
+				getWorkspace().refresh((RepositoryPlugin) plugin);
 			}
 			refreshProjects();
 		}
@@ -12,7 +12,6 @@ import java.util.regex.Pattern;
 
 import aQute.bnd.build.Workspace;
 import aQute.bnd.exceptions.Exceptions;
-import aQute.bnd.osgi.Constants;
 import aQute.bnd.unmodifiable.Sets;
 import aQute.lib.strings.Strings;
 import groovy.lang.Closure;
@@ -166,12 +165,12 @@ public class BndWorkspacePlugin implements Plugin<Object> {
 		});
 
 		/* Initialize the Bnd workspace */
-		Workspace.setDriver(Constants.BNDDRIVER_GRADLE);
-		Workspace.addGestalt(Constants.GESTALT_BATCH, null);
-		Workspace workspace = new Workspace(rootDir, cnf);
-		workspace.setOffline(startParameter.isOffline());
+		result = dynamicObject.tryGetProperty("bnd_reuseWorkspace");
+		boolean reuse = isReuseWorkspace(result.isFound() ? result.getValue() : null);
 		Gradle gradle = settings.getGradle();
-		bndWorkspaceConfigure(workspace, gradle);
+		Workspace workspace = BndWorkspaceService.register(gradle, rootDir, cnf, reuse)
+			.get()
+			.getWorkspace(ws -> bndWorkspaceConfigure(ws, gradle));
 
 		/*
 		 * Prepare each project in the workspace to establish complete
@@ -259,16 +258,14 @@ public class BndWorkspacePlugin implements Plugin<Object> {
 		Workspace bndWorkspace = (Workspace) workspace.findProperty("bndWorkspace");
 		if (Objects.isNull(bndWorkspace)) {
 			// if not passed from settings
-			Workspace.setDriver(Constants.BNDDRIVER_GRADLE);
-			Workspace.addGestalt(Constants.GESTALT_BATCH, null);
 			Gradle gradle = workspace.getGradle();
 			File rootDir = unwrapFile(workspace.getLayout()
 				.getProjectDirectory());
-			bndWorkspace = new Workspace(rootDir, bnd_cnf);
-			bndWorkspace.setOffline(gradle.getStartParameter()
-				.isOffline());
+			boolean reuse = isReuseWorkspace(workspace.findProperty("bnd_reuseWorkspace"));
+			bndWorkspace = BndWorkspaceService.register(gradle, rootDir, bnd_cnf, reuse)
+				.get()
+				.getWorkspace(ws -> bndWorkspaceConfigure(ws, gradle));
 			ext.set("bndWorkspace", bndWorkspace);
-			bndWorkspaceConfigure(bndWorkspace, gradle);
 		}
 
 		/* Configure cnf project */
@@ -292,6 +289,11 @@ public class BndWorkspacePlugin implements Plugin<Object> {
 		return bndWorkspace;
 	}
 
+	private static boolean isReuseWorkspace(Object value) {
+		return Objects.nonNull(value) && "true".equalsIgnoreCase(value.toString()
+			.trim());
+	}
+
 	private static void bndWorkspaceConfigure(Workspace workspace, Gradle gradle) {
 		ExtraPropertiesExtension ext = new DslObject(gradle).getExtensions()
 			.getExtraProperties();
@@ -0,0 +1,356 @@
+package aQute.bnd.gradle;
+
+import static aQute.bnd.gradle.BndUtils.unwrapFile;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import aQute.bnd.build.Workspace;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.service.Refreshable;
+import aQute.bnd.service.RepositoryPlugin;
+import aQute.lib.io.IO;
+import org.gradle.api.Action;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * BndWorkspaceService for Gradle.
+ * <p>
+ * A build service which owns the Bnd Workspace of the build. When the build
+ * completes, the Bnd Workspace is kept in the Gradle daemon so that the next
+ * build of the same Bnd Workspace in the daemon can reuse it, including its
+ * initialized repository plugins.
+ * <p>
+ * Before a kept Bnd Workspace is reused, it is checked against the files it
+ * was read from.
+ * <ul>
+ * <li>If the properties of the Bnd Workspace changed, i.e. the content of the
+ * {@code cnf/build.bnd} file, of the files in the {@code cnf/ext} folder or of
+ * any included file, a new Bnd Workspace is created.</li>
+ * <li>Otherwise all projects are discarded so they are read again from their
+ * {@code bnd.bnd} files. If the content of any other file in the {@code cnf}
+ * folder or an index file directly in the root of a refreshable repository
+ * changed since the end of the previous build, the refreshable repositories
+ * are refreshed. The content of the repositories is not checked, e.g. the
+ * root of a Maven repository is the local Maven repository which holds the
+ * downloads of every build.</li>
+ * </ul>
+ * A kept Bnd Workspace is only used by one build at a time. A Bnd Workspace
+ * with errors is not kept. Only the Bnd Workspace of the last build is kept,
+ * the kept Bnd Workspaces of other root folders are closed when a build
+ * completes.
+ * <p>
+ * Keeping the Bnd Workspace is enabled by setting the
+ * {@code bnd_reuseWorkspace} Gradle property to {@code true}.
+ */
+public abstract class BndWorkspaceService implements BuildService<BndWorkspaceService.Parameters>, AutoCloseable {
+	/**
+	 * Name of the build service.
+	 */
+	public static final String						NAME	= "bndWorkspace";
+
+	private static final ConcurrentMap<File, Kept>	kept	= new ConcurrentHashMap<>();
+
+	private Workspace								workspace;
+	private Kept									lease;
+
+	/**
+	 * The parameters of the build service.
+	 */
+	public interface Parameters extends BuildServiceParameters {
+		/**
+		 * The root folder of the Bnd Workspace.
+		 *
+		 * @return The root folder of the Bnd Workspace.
+		 */
+		DirectoryProperty getRootDir();
+
+		/**
+		 * The name of the cnf folder of the Bnd Workspace.
+		 *
+		 * @return The name of the cnf folder of the Bnd Workspace.
+		 */
+		Property<String> getCnf();
+
+		/**
+		 * Whether the Bnd Workspace is used in offline mode.
+		 *
+		 * @return Whether the Bnd Workspace is used in offline mode.
+		 */
+		Property<Boolean> getOffline();
+
+		/**
+		 * Whether the Bnd Workspace is kept for the next build.
+		 *
+		 * @return Whether the Bnd Workspace is kept for the next build.
+		 */
+		Property<Boolean> getReuse();
+	}
+
+	/**
+	 * Default public constructor.
+	 */
+	public BndWorkspaceService() {}
+
+	/**
+	 * Register the build service.
+	 *
+	 * @param gradle The Gradle object of the build.
+	 * @param rootDir The root folder of the Bnd Workspace.
+	 * @param cnf The name of the cnf folder of the Bnd Workspace.
+	 * @param reuse Whether the Bnd Workspace is kept for the next build.
+	 * @return The provider of the build service.
+	 */
+	public static Provider<BndWorkspaceService> register(Gradle gradle, File rootDir, String cnf, boolean reuse) {
+		return gradle.getSharedServices()
+			.registerIfAbsent(NAME, BndWorkspaceService.class, spec -> {
+				Parameters parameters = spec.getParameters();
+				parameters.getRootDir()
+					.set(rootDir);
+				parameters.getCnf()
+					.set(cnf);
+				parameters.getOffline()
+					.set(Boolean.valueOf(gradle.getStartParameter()
+						.isOffline()));
+				parameters.getReuse()
+					.set(Boolean.valueOf(reuse));
+			});
+	}
+
+	/**
+	 * Return the Bnd Workspace of the build.
+	 * <p>
+	 * The configure action is called once per build, for a new as well as for
+	 * a reused Bnd Workspace.
+	 *
+	 * @param configure The action to configure the Bnd Workspace.
+	 * @return The Bnd Workspace of the build.
+	 * @throws Exception An exception while creating or refreshing the Bnd
+	 *             Workspace.
+	 */
+	public synchronized Workspace getWorkspace(Action<? super Workspace> configure) throws Exception {
+		if (Objects.nonNull(workspace)) {
+			return workspace;
+		}
+		Parameters parameters = getParameters();
+		File rootDir = unwrapFile(parameters.getRootDir());
+		String cnf = parameters.getCnf()
+			.get();
+		boolean reuse = parameters.getReuse()
+			.getOrElse(Boolean.FALSE)
+			.booleanValue();
+
+		Workspace.setDriver(Constants.BNDDRIVER_GRADLE);
+		Workspace.addGestalt(Constants.GESTALT_BATCH, null);
+		File key = new File(rootDir, cnf).getAbsoluteFile();
+		Workspace bndWorkspace = null;
+		if (reuse) {
+			// Removing the kept workspace leases it to this build
+			Kept previous = kept.remove(key);
+			if (Objects.nonNull(previous)) {
+				bndWorkspace = previous.reuse();
+			}
+		}
+		if (Objects.isNull(bndWorkspace)) {
+			bndWorkspace = new Workspace(rootDir, cnf);
+		}
+		try {
+			bndWorkspace.setOffline(parameters.getOffline()
+				.getOrElse(Boolean.FALSE)
+				.booleanValue());
+			configure.execute(bndWorkspace);
+			if (reuse) {
+				lease = new Kept(key, bndWorkspace);
+			}
+		} catch (Exception e) {
+			IO.close(bndWorkspace);
+			throw e;
+		}
+		return workspace = bndWorkspace;
+	}
+
+	/**
+	 * Keep the Bnd Workspace for the next build or close it.
+	 */
+	@Override
+	public synchronized void close() {
+		Workspace bndWorkspace = workspace;
+		Kept keep = lease;
+		workspace = null;
+		lease = null;
+		if (Objects.isNull(bndWorkspace)) {
+			return;
+		}
+		evict(Objects.nonNull(keep) ? keep.key : null);
+		if (Objects.nonNull(keep) && bndWorkspace.isOk() && keep.keep()
+			&& Objects.isNull(kept.putIfAbsent(keep.key, keep))) {
+			return;
+		}
+		IO.close(bndWorkspace);
+	}
+
+	/*
+	 * Close the kept workspaces of the other root folders, the daemon
+	 * otherwise holds a workspace for every root folder it ever built
+	 */
+	private static void evict(File key) {
+		kept.values()
+			.removeIf(k -> {
+				if (k.key.equals(key)) {
+					return false;
+				}
+				IO.close(k.workspace);
+				return true;
+			});
+	}
+
+	private static final class Kept {
+		final File		key;
+		final Workspace	workspace;
+		final byte[]	properties;
+		byte[]			repositories;
+
+		Kept(File key, Workspace workspace) throws Exception {
+			this.key = key;
+			this.workspace = workspace;
+			this.properties = fingerprint(propertiesFiles(), true);
+		}
+
+		/*
+		 * Record the state of the repositories at the end of the build
+		 */
+		boolean keep() {
+			try {
+				repositories = repositories();
+				return true;
+			} catch (Exception e) {
+				return false;
+			}
+		}
+
+		/*
+		 * Answer the workspace for the next build or null if it must be
+		 * created again
+		 */
+		Workspace reuse() {
+			try {
+				if (!Arrays.equals(properties, fingerprint(propertiesFiles(), true))) {
+					IO.close(workspace);
+					return null;
+				}
+				workspace.clear();
+				workspace.resetProjects();
+				if (!Arrays.equals(repositories, repositories())) {
+					for (Refreshable refreshable : workspace.getPlugins(Refreshable.class)) {
+						if (refreshable.refresh() && (refreshable instanceof RepositoryPlugin repository)) {
+							workspace.refresh(repository);
+						}
+					}
+				}
+			} catch (Exception e) {
+				IO.close(workspace);
+				return null;
+			}
+			return workspace;
+		}
+
+		/*
+		 * Only the files directly in the root of a repository are used, e.g.
+		 * its index file. The root can hold many files, the root of a Maven
+		 * repository is the local Maven repository.
+		 */
+		private byte[] repositories() throws Exception {
+			List<File> files = new ArrayList<>();
+			Set<File> propertiesFiles = propertiesFiles();
+			File[] cnfFiles = workspace.getBuildDir()
+				.listFiles(File::isFile);
+			if (Objects.nonNull(cnfFiles)) {
+				for (File file : cnfFiles) {
+					if (!propertiesFiles.contains(file.getAbsoluteFile())) {
+						files.add(file);
+					}
+				}
+			}
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			update(digest, files, true);
+			files.clear();
+			for (Refreshable refreshable : workspace.getPlugins(Refreshable.class)) {
+				File root = refreshable.getRoot();
+				if (Objects.isNull(root)) {
+					continue;
+				}
+				File[] indexFiles = root.listFiles(File::isFile);
+				if (Objects.nonNull(indexFiles)) {
+					Arrays.sort(indexFiles);
+					files.addAll(Arrays.asList(indexFiles));
+				}
+			}
+			update(digest, files, false);
+			return digest.digest();
+		}
+
+		private Set<File> propertiesFiles() {
+			Set<File> files = new LinkedHashSet<>();
+			if (Objects.nonNull(workspace.getPropertiesFile())) {
+				files.add(workspace.getPropertiesFile()
+					.getAbsoluteFile());
+			}
+			for (File file : workspace.getIncluded()) {
+				files.add(file.getAbsoluteFile());
+			}
+			files.add(new File(workspace.getBuildDir(), Workspace.EXT).getAbsoluteFile());
+			return files;
+		}
+
+		private static byte[] fingerprint(Collection<File> files, boolean content) throws Exception {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			update(digest, files, content);
+			return digest.digest();
+		}
+
+		/*
+		 * The content of a file is expensive for the large index files of a
+		 * repository, there the size and the last modified time of each file
+		 * are used. The last modified time of a folder is never used since it
+		 * does not change when a file in the folder is modified.
+		 */
+		private static void update(MessageDigest digest, Collection<File> files, boolean content) throws Exception {
+			for (File file : files) {
+				digest.update(file.getAbsolutePath()
+					.getBytes(UTF_8));
+				if (file.isDirectory()) {
+					digest.update((byte) 'd');
+					File[] children = file.listFiles();
+					if (Objects.nonNull(children)) {
+						Arrays.sort(children);
+						update(digest, Arrays.asList(children), content);
+					}
+				} else if (file.isFile()) {
+					digest.update((byte) 'f');
+					if (content) {
+						IO.copy(file, digest);
+					} else {
+						digest.update((file.length() + ":" + file.lastModified()).getBytes(UTF_8));
+					}
+				} else {
+					digest.update((byte) 0);
+				}
+			}
+		}
+	}
+}
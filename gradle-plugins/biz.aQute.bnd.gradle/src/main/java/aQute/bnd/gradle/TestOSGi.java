@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Objects;
 
 import aQute.bnd.build.Project;
+import aQute.bnd.osgi.Constants;
 import aQute.lib.io.IO;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.Directory;
@@ -65,6 +66,9 @@ import org.gradle.jvm.toolchain.JavaToolchainService;
  * <li>tests - The test class names to be run. If not set, all test classes are
  * run. Use a colon (:) to specify a test method to run on the specified test
  * class.</li>
+ * <li>shards - The number of frameworks that are launched concurrently to run
+ * the test classes. If not set, the -testshards instruction of the bndrun is
+ * used.</li>
  * </ul>
  */
 @CacheableTask
@@ -77,6 +81,7 @@ public class TestOSGi extends AbstractBndrun {
 	private final DirectoryProperty			resultsDirectory;
 	private List<String>					tests;
 	private final Property<JavaLauncher>	javaLauncher;
+	private final Property<Integer>			shards;
 
 	/**
 	 * The directory where the test case results are placed.
@@ -112,6 +117,20 @@ public class TestOSGi extends AbstractBndrun {
 		this.tests = tests;
 	}
 
+	/**
+	 * The number of frameworks that are launched concurrently to run the test
+	 * classes.
+	 * <p>
+	 * If not set, the -testshards instruction of the bndrun is used.
+	 *
+	 * @return The number of shards property.
+	 */
+	@Input
+	@Optional
+	public Property<Integer> getShards() {
+		return shards;
+	}
+
 	/**
 	 * Configures the default java executable to be used for execution.
 	 * <p>
@@ -141,6 +160,7 @@ public class TestOSGi extends AbstractBndrun {
 			.convention(testResultsDir.map(d -> d.dir(taskName)));
 		javaLauncher = objects.property(JavaLauncher.class)
 			.convention(defaultToolFor(project, JavaToolchainService::launcherFor));
+		shards = objects.property(Integer.class);
 	}
 
 	/**
@@ -156,6 +176,10 @@ public class TestOSGi extends AbstractBndrun {
 		}
 		getLogger().info("Running tests for {} in {}", run.getPropertiesFile(), run.getBase());
 		getLogger().debug("Run properties: {}", run.getProperties());
+		if (getShards().isPresent()) {
+			run.setProperty(Constants.TESTSHARDS, getShards().get()
+				.toString());
+		}
 		File resultsDir = unwrapFile(getResultsDirectory());
 		try {
 			run.test(resultsDir, getTests());
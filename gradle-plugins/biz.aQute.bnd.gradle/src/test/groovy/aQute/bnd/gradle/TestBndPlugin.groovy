@@ -241,6 +241,106 @@ class TestBndPlugin extends Specification {
 		result.task(":tasks").outcome == SUCCESS
 	}
 
+	def "Bnd Workspace Plugin Reuse Workspace"() {
+		given:
+		String testProject = "workspaceplugin10"
+		File testProjectDir = new File(testResources, testProject)
+		assert testProjectDir.isDirectory()
+		File reuse_bnd = new File(testProjectDir, "cnf/ext/reuse.bnd")
+		assert reuse_bnd.isFile()
+
+		when:
+		def first = TestHelper.getGradleRunner()
+				.withProjectDir(testProjectDir)
+				.withArguments("-Pbnd_plugin=${pluginClasspath}", "-Pbnd_reuseWorkspace=true", "--stacktrace", "help")
+				.forwardOutput()
+				.build()
+		def second = TestHelper.getGradleRunner()
+				.withProjectDir(testProjectDir)
+				.withArguments("-Pbnd_plugin=${pluginClasspath}", "-Pbnd_reuseWorkspace=true", "--stacktrace", "help")
+				.forwardOutput()
+				.build()
+
+		then:
+		first.output =~ Pattern.quote("### Reuse one")
+		second.output =~ Pattern.quote("### Reuse one")
+		workspaceId(second) == workspaceId(first)
+
+		when:
+		// only the content changes, not the last modified times
+		long lastModified = reuse_bnd.lastModified()
+		long extLastModified = reuse_bnd.getParentFile().lastModified()
+		reuse_bnd.text = "reuse: two\n"
+		reuse_bnd.setLastModified(lastModified)
+		reuse_bnd.getParentFile().setLastModified(extLastModified)
+		def third = TestHelper.getGradleRunner()
+				.withProjectDir(testProjectDir)
+				.withArguments("-Pbnd_plugin=${pluginClasspath}", "-Pbnd_reuseWorkspace=true", "--stacktrace", "help")
+				.forwardOutput()
+				.build()
+
+		then:
+		third.output =~ Pattern.quote("### Reuse two")
+		workspaceId(third) != workspaceId(second)
+
+		when:
+		def fourth = TestHelper.getGradleRunner()
+				.withProjectDir(testProjectDir)
+				.withArguments("-Pbnd_plugin=${pluginClasspath}", "--stacktrace", "help")
+				.forwardOutput()
+				.build()
+
+		then:
+		fourth.output =~ Pattern.quote("### Reuse two")
+		workspaceId(fourth) != workspaceId(third)
+	}
+
+	def "Bnd Workspace Plugin Reuse Last Workspace"() {
+		given:
+		File testProjectDir = new File(testResources, "workspaceplugin10")
+		assert testProjectDir.isDirectory()
+		File otherProjectDir = new File(testResources, "workspaceplugin11")
+		assert otherProjectDir.isDirectory()
+
+		when:
+		def first = TestHelper.getGradleRunner()
+				.withProjectDir(testProjectDir)
+				.withArguments("-Pbnd_plugin=${pluginClasspath}", "-Pbnd_reuseWorkspace=true", "--stacktrace", "help")
+				.forwardOutput()
+				.build()
+		def second = TestHelper.getGradleRunner()
+				.withProjectDir(testProjectDir)
+				.withArguments("-Pbnd_plugin=${pluginClasspath}", "-Pbnd_reuseWorkspace=true", "--stacktrace", "help")
+				.forwardOutput()
+				.build()
+
+		then:
+		workspaceId(second) == workspaceId(first)
+
+		when:
+		// the build of another workspace evicts the kept workspace
+		def other = TestHelper.getGradleRunner()
+				.withProjectDir(otherProjectDir)
+				.withArguments("-Pbnd_plugin=${pluginClasspath}", "-Pbnd_reuseWorkspace=true", "--stacktrace", "help")
+				.forwardOutput()
+				.build()
+		def third = TestHelper.getGradleRunner()
+				.withProjectDir(testProjectDir)
+				.withArguments("-Pbnd_plugin=${pluginClasspath}", "-Pbnd_reuseWorkspace=true", "--stacktrace", "help")
+				.forwardOutput()
+				.build()
+
+		then:
+		other.output =~ Pattern.quote("### Reuse eleven")
+		workspaceId(third) != workspaceId(second)
+	}
+
+	private static String workspaceId(def result) {
+		def matcher = result.output =~ /### Workspace (\d+)/
+		assert matcher.find()
+		return matcher.group(1)
+	}
+
 	def "Bnd Workspace Plugin Old-style settings.gradle"() {
 		given:
 		String testProject = "workspaceplugin3"
@@ -0,0 +1,9 @@
+package org.example.a;
+
+import org.example.types.ThingyDTO;
+
+public class A {
+	public ThingyDTO thingy() {
+		return new ThingyDTO();
+	}
+}
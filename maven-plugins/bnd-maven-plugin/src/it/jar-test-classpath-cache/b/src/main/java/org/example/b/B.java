@@ -0,0 +1,9 @@
+package org.example.b;
+
+import org.example.types.ThingyDTO;
+
+public class B {
+	public ThingyDTO thingy() {
+		return new ThingyDTO();
+	}
+}
@@ -0,0 +1,19 @@
+import java.util.jar.Attributes
+import java.util.jar.JarFile
+
+for (String module : ['a', 'b']) {
+	File bundle = new File(basedir, "${module}/target/jar-test-classpath-cache-${module}-0.0.1.jar")
+	assert bundle.isFile()
+
+	JarFile jar = new JarFile(bundle)
+	Attributes manifest = jar.getManifest().getMainAttributes()
+	assert manifest.getValue('Bundle-SymbolicName') == "jar-test-classpath-cache-${module}"
+	assert manifest.getValue('Import-Package').contains('org.example.types')
+	assert jar.getEntry("org/example/${module}/${module.toUpperCase()}.class") != null
+}
+
+// Both executions borrowed the JAR of the dependency from the session
+File build_log_file = new File("${basedir}/build.log")
+assert build_log_file.exists()
+def build_log = build_log_file.text
+assert (build_log =~ /builder classpath shares [1-9]\d* JARs of the session/).size() == 2
@@ -56,6 +56,7 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.handler.ArtifactHandler;
 import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -114,6 +115,9 @@ public abstract class AbstractBndMavenPlugin extends AbstractMojo {
 	@Parameter(defaultValue = "${mojoExecution}", readonly = true)
 	MojoExecution			mojoExecution;
 
+	@Parameter(defaultValue = "${session}", readonly = true)
+	MavenSession			session;
+
 	/**
 	 * The list of maven packaging types for which the plugin will execute.
 	 */
@@ -127,6 +131,17 @@ public abstract class AbstractBndMavenPlugin extends AbstractMojo {
 	@Parameter(property = "bnd.skipIfEmpty", defaultValue = "false")
 	boolean					skipIfEmpty;
 
+	/**
+	 * Share the opened JARs of the classpath with the other executions in the
+	 * Maven session. The JARs of the dependencies are then only opened and
+	 * analyzed once in a reactor build. Only used when the plugin is used as
+	 * an extension.
+	 */
+	@Parameter(property = "bnd.classpathCache", defaultValue = "true")
+	boolean					classpathCache;
+
+	private final List<Jar>	sharedClasspath	= new ArrayList<>();
+
 	/**
 	 * Timestamp for reproducible output archive entries, either formatted as ISO 8601
 	 * {@code yyyy-MM-dd'T'HH:mm:ssXXX} or as an int representing seconds since the epoch.
@@ -375,7 +390,7 @@ public abstract class AbstractBndMavenPlugin extends AbstractMojo {
 			if (delta || (builder.getJar() == null) || (builder.lastModified() > builder.getJar()
 				.lastModified())) {
 				// Set builder paths
-				builder.setClasspath(buildpath);
+				setClasspath(builder, buildpath);
 				builder.setSourcepath(sourcepath.toArray(new File[0]));
 
 				// Build bnd Jar (in memory)
@@ -423,6 +438,8 @@ public abstract class AbstractBndMavenPlugin extends AbstractMojo {
 			throw e;
 		} catch (Exception e) {
 			throw new MojoExecutionException("bnd error: " + e.getMessage(), e);
+		} finally {
+			releaseClasspath();
 		}
 	}
 
@@ -484,6 +501,45 @@ public abstract class AbstractBndMavenPlugin extends AbstractMojo {
 		}
 	}
 
+	/*
+	 * Replace the JAR files of the buildpath by the JARs shared in the
+	 * session, the builder must not close the shared JARs
+	 */
+	private void setClasspath(Builder builder, List<Object> buildpath) throws IOException {
+		ClasspathJarCache cache = (classpathCache && (session != null)) ? ClasspathJarCache.get(session) : null;
+		if (cache == null) {
+			builder.setClasspath(buildpath);
+			return;
+		}
+		List<Object> classpath = new ArrayList<>(buildpath.size());
+		for (Object cpe : buildpath) {
+			Jar jar = (cpe instanceof File file) ? cache.borrow(file) : null;
+			if (jar != null) {
+				sharedClasspath.add(jar);
+				classpath.add(jar);
+			} else {
+				classpath.add(cpe);
+			}
+		}
+		builder.setClasspath(classpath);
+		sharedClasspath.forEach(builder::removeClose);
+		logger.debug("builder classpath shares {} JARs of the session", sharedClasspath.size());
+	}
+
+	/*
+	 * Return the shared JARs when the build is done
+	 */
+	private void releaseClasspath() {
+		if (sharedClasspath.isEmpty()) {
+			return;
+		}
+		ClasspathJarCache cache = ClasspathJarCache.get(session);
+		if (cache != null) {
+			sharedClasspath.forEach(cache::release);
+		}
+		sharedClasspath.clear();
+	}
+
 	private void addMavenMetadataToJar(Jar bndJar) throws IOException {
 		String groupId = project.getGroupId();
 		String artifactId = project.getArtifactId();
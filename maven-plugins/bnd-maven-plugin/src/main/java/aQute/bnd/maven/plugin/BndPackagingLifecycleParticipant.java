@@ -56,6 +56,7 @@ public class BndPackagingLifecycleParticipant extends AbstractMavenLifecyclePart
 
 	@Override
 	public void afterProjectsRead(final MavenSession session) throws MavenExecutionException {
+		ClasspathJarCache.open(session);
 		try {
 			for (MavenProject project : session.getProjects()) {
 				Model model = project.getModel();
@@ -81,6 +82,11 @@ public class BndPackagingLifecycleParticipant extends AbstractMavenLifecyclePart
 		}
 	}
 
+	@Override
+	public void afterSessionEnd(MavenSession session) throws MavenExecutionException {
+		ClasspathJarCache.close(session);
+	}
+
 	@Override
 	public void enableLogging(final Logger logger) {
 		this.logger = logger;
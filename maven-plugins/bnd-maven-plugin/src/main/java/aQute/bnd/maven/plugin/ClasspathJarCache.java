@@ -0,0 +1,171 @@
+package aQute.bnd.maven.plugin;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.osgi.Jar;
+
+/**
+ * A cache of the opened JARs on the classpath of the bnd-maven-plugin
+ * executions in a Maven session. In a reactor build the same dependency JARs
+ * are on the classpath of many modules, with the cache each JAR is opened,
+ * indexed and its manifest parsed only once per session.
+ * <p>
+ * A JAR is identified by its path, size and last modified time. Like the
+ * {@link aQute.bnd.osgi.ClassFileCache}, a JAR that was modified too close to
+ * the time it is requested is not cached, since a later change could have the
+ * same size and last modified time.
+ * <p>
+ * A {@link Jar} is not thread safe, so a JAR is borrowed by one execution at a
+ * time and returned when the execution is done. A parallel build (-T) opens
+ * another instance of a JAR when all its instances are borrowed. The borrowed
+ * JARs must not be modified or closed by their users.
+ * <p>
+ * The cache is only available when the plugin is used as an extension, the
+ * {@link BndPackagingLifecycleParticipant} then opens it after the projects
+ * are read and closes it when the session ends.
+ */
+final class ClasspathJarCache implements AutoCloseable {
+	/*
+	 * The class is the key so a plugin in another class realm does not get an
+	 * instance it cannot use
+	 */
+	private static final Object					KEY			= ClasspathJarCache.class;
+	/*
+	 * Some file systems only have a resolution of 2 seconds
+	 */
+	private static final long					RACY		= 2_000L;
+
+	private final ConcurrentMap<String, Entry>	entries		= new ConcurrentHashMap<>();
+	private final Map<Jar, Entry>				borrowed	= Collections.synchronizedMap(new IdentityHashMap<>());
+	private final Queue<Jar>					opened		= new ConcurrentLinkedQueue<>();
+
+	private static final class Entry {
+		final String		path;
+		final long			size;
+		final long			lastModified;
+		final Queue<Jar>	idle	= new ConcurrentLinkedQueue<>();
+
+		Entry(String path, long size, long lastModified) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/**
+	 * Open the cache of the session.
+	 *
+	 * @param session the Maven session
+	 */
+	static void open(MavenSession session) {
+		session.getRepositorySession()
+			.getData()
+			.set(KEY, null, new ClasspathJarCache());
+	}
+
+	/**
+	 * Answer the cache of the session.
+	 *
+	 * @param session the Maven session
+	 * @return the cache of the session or {@code null} if the plugin is not
+	 *         used as an extension
+	 */
+	static ClasspathJarCache get(MavenSession session) {
+		Object cache = session.getRepositorySession()
+			.getData()
+			.get(KEY);
+		return (cache instanceof ClasspathJarCache jarCache) ? jarCache : null;
+	}
+
+	/**
+	 * Close the cache of the session, if any.
+	 *
+	 * @param session the Maven session
+	 */
+	static void close(MavenSession session) {
+		SessionData data = session.getRepositorySession()
+			.getData();
+		Object cache = data.get(KEY);
+		if ((cache instanceof ClasspathJarCache jarCache) && data.set(KEY, cache, null)) {
+			jarCache.close();
+		}
+	}
+
+	/**
+	 * Borrow a shared JAR of a file, it must be returned with
+	 * {@link #release(Jar)}.
+	 *
+	 * @param file the JAR file
+	 * @return the shared JAR or {@code null} if the file cannot be cached
+	 */
+	Jar borrow(File file) {
+		long size = file.length();
+		long lastModified = file.lastModified();
+		if ((lastModified == 0L) || (lastModified >= System.currentTimeMillis() - RACY)) {
+			return null;
+		}
+		Entry entry = entries.compute(file.getPath(), (path, previous) -> {
+			if ((previous != null) && (previous.size == size) && (previous.lastModified == lastModified)) {
+				return previous;
+			}
+			// the instances of a replaced JAR are closed when they are released
+			return new Entry(path, size, lastModified);
+		});
+		Jar jar = entry.idle.poll();
+		if (jar == null) {
+			jar = open(file);
+		}
+		borrowed.put(jar, entry);
+		return jar;
+	}
+
+	/**
+	 * Return a borrowed JAR.
+	 *
+	 * @param jar the JAR returned by {@link #borrow(File)}
+	 */
+	void release(Jar jar) {
+		Entry entry = borrowed.remove(jar);
+		if (entry == null) {
+			return;
+		}
+		if (entries.get(entry.path) == entry) {
+			entry.idle.add(jar);
+		} else {
+			opened.remove(jar);
+			jar.close();
+		}
+	}
+
+	private Jar open(File file) {
+		try {
+			Jar jar = new Jar(file);
+			opened.add(jar);
+			// parse the manifest once, it is read by every build
+			jar.getManifest();
+			return jar;
+		} catch (Exception e) {
+			throw Exceptions.duck(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		entries.clear();
+		borrowed.clear();
+		for (Jar jar; (jar = opened.poll()) != null;) {
+			jar.close();
+		}
+	}
+}
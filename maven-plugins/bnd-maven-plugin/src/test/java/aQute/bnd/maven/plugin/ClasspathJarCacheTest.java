@@ -0,0 +1,102 @@
+package aQute.bnd.maven.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatRuntimeException;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import aQute.bnd.osgi.EmbeddedResource;
+import aQute.bnd.osgi.Jar;
+
+public class ClasspathJarCacheTest {
+
+	private static File jar(File dir, String content, long lastModified) throws Exception {
+		File file = new File(dir, "classpath.jar");
+		try (Jar jar = new Jar("classpath")) {
+			jar.putResource("a/b.txt", new EmbeddedResource(content, 0L));
+			jar.write(file);
+		}
+		assertThat(file.setLastModified(lastModified)).isTrue();
+		return file;
+	}
+
+	@Test
+	public void testReleasedJarIsReused(@TempDir
+	File tmp) throws Exception {
+		File file = jar(tmp, "a", System.currentTimeMillis() - 60_000L);
+		try (ClasspathJarCache cache = new ClasspathJarCache()) {
+			Jar first = cache.borrow(file);
+			assertThat(first).isNotNull();
+			assertThat(first.getResource("a/b.txt")).isNotNull();
+			cache.release(first);
+
+			Jar second = cache.borrow(file);
+			assertThat(second).isSameAs(first);
+			cache.release(second);
+		}
+	}
+
+	@Test
+	public void testBorrowedJarIsNotShared(@TempDir
+	File tmp) throws Exception {
+		File file = jar(tmp, "a", System.currentTimeMillis() - 60_000L);
+		try (ClasspathJarCache cache = new ClasspathJarCache()) {
+			Jar first = cache.borrow(file);
+			Jar second = cache.borrow(file);
+			assertThat(second).isNotNull()
+				.isNotSameAs(first);
+			cache.release(first);
+			cache.release(second);
+
+			assertThat(cache.borrow(file)).isIn(first, second);
+		}
+	}
+
+	@Test
+	public void testChangedJarIsReopened(@TempDir
+	File tmp) throws Exception {
+		long old = System.currentTimeMillis() - 60_000L;
+		File file = jar(tmp, "a", old);
+		try (ClasspathJarCache cache = new ClasspathJarCache()) {
+			Jar first = cache.borrow(file);
+
+			jar(tmp, "bb", old + 1_000L);
+			Jar second = cache.borrow(file);
+			assertThat(second).isNotSameAs(first);
+			assertThat(second.getResource("a/b.txt")
+				.size()).isEqualTo(2L);
+
+			// the replaced JAR is closed when it is released
+			cache.release(first);
+			assertThatRuntimeException().isThrownBy(first::getResources);
+			cache.release(second);
+			assertThat(cache.borrow(file)).isSameAs(second);
+		}
+	}
+
+	@Test
+	public void testRecentlyModifiedJarIsNotCached(@TempDir
+	File tmp) throws Exception {
+		File file = jar(tmp, "a", System.currentTimeMillis());
+		try (ClasspathJarCache cache = new ClasspathJarCache()) {
+			assertThat(cache.borrow(file)).isNull();
+		}
+	}
+
+	@Test
+	public void testCloseClosesJars(@TempDir
+	File tmp) throws Exception {
+		File file = jar(tmp, "a", System.currentTimeMillis() - 60_000L);
+		ClasspathJarCache cache = new ClasspathJarCache();
+		Jar borrowed = cache.borrow(file);
+		Jar idle = cache.borrow(file);
+		cache.release(idle);
+
+		cache.close();
+		assertThatRuntimeException().isThrownBy(borrowed::getResources);
+		assertThatRuntimeException().isThrownBy(idle::getResources);
+	}
+}
@@ -76,6 +76,13 @@ public class TestingMojo extends AbstractMojo {
 	@Parameter(property = "test")
 	private String												test;
 
+	/**
+	 * The number of frameworks that are launched concurrently to run the test
+	 * classes. If not set, the -testshards instruction of the bndrun is used.
+	 */
+	@Parameter(property = "bnd.testing.shards")
+	private Integer												shards;
+
 	@Parameter(required = false)
 	private Bundles												bundles	= new Bundles();
 
@@ -218,6 +225,9 @@ public class TestingMojo extends AbstractMojo {
 				.append(File.separatorChar)
 				.append("java")
 				.toString()));
+			if (shards != null) {
+				run.setProperty(Constants.TESTSHARDS, shards.toString());
+			}
 			try {
 				run.test(new File(reportsDir, bndrun), getTests());
 			} finally {